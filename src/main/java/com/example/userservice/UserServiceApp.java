@@ -2,15 +2,19 @@ package com.example.userservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 
 /**
  * Точка входа в UserService приложение
  *
  * @author vmarakushin
- * @version 6.0
+ * @version 7.0
  */
 @SpringBootApplication
+@ConfigurationPropertiesScan
+@EnableScheduling
 public class UserServiceApp {
     public static void main(String[] args) {
         SpringApplication.run(UserServiceApp.class, args);
@@ -281,8 +281,8 @@ public class UserConsoleApp implements CommandLineRunner {
 
         if (choice == 1) {
             try {
-                userService.deleteUser(new RequestUserDTO(id));
-                System.out.println("Пользователь удалён.");
+                if (userService.deleteUser(new RequestUserDTO(id)).isPresent()) System.out.println("Пользователь удалён.");
+                else System.out.println("Пользователь уже удалён.");
             } catch (IllegalArgumentException e) {
                 System.out.println(e.getMessage());
             } catch (RepositoryException e) {
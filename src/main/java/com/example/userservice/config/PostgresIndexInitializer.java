@@ -0,0 +1,49 @@
+package com.example.userservice.config;
+
+import com.example.userservice.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+
+/**
+ * Создает индексы из db/postgresql-indexes.sql, если БД - PostgreSQL
+ * Таблицу создает Hibernate (ddl-auto) при создании EntityManagerFactory - зависимость от UserRepository
+ * гарантирует, что к моменту выполнения скрипта она уже есть
+ * Ошибка не роняет приложение: поиск и фильтры работают и без индексов, только медленнее
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Component
+public class PostgresIndexInitializer implements InitializingBean {
+
+    private static final String SCRIPT = "db/postgresql-indexes.sql";
+
+    private final DataSource dataSource;
+    private final UserRepository userRepository;
+    private final Logger logger;
+
+
+    public PostgresIndexInitializer(DataSource dataSource, UserRepository userRepository) {
+        this.dataSource = dataSource;
+        this.userRepository = userRepository;
+        this.logger = LoggerFactory.getLogger(PostgresIndexInitializer.class);
+    }
+
+
+    @Override
+    public void afterPropertiesSet() {
+        try {
+            if (!userRepository.isPostgres()) return;
+            new ResourceDatabasePopulator(new ClassPathResource(SCRIPT)).execute(dataSource);
+        } catch (Exception e) {
+            logger.warn("Не удалось создать индексы из " + SCRIPT, e);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.userservice.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.ssl.SslBundles;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.core.reactive.ReactiveKafkaProducerTemplate;
+import reactor.kafka.sender.SenderOptions;
+
+import javax.sql.DataSource;
+
+
+/**
+ * Бины профиля reactive
+ * Реактивный продюсер Kafka настраивается из того же spring.kafka.producer, что и обычный KafkaTemplate
+ * JDBC DataSource объявлен явно: при наличии R2DBC ConnectionFactory Spring Boot его не создает,
+ * а консольному приложению и JPA-репозиторию, на котором работают фильтр существования,
+ * поисковый индекс и статистика, он нужен. Уникальность email и телефона реактивный стек
+ * проверяет ограничениями БД в самих INSERT и UPDATE
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveConfig {
+
+    @Bean
+    public ReactiveKafkaProducerTemplate<String, Object> reactiveKafkaProducerTemplate(
+            KafkaProperties properties, ObjectProvider<SslBundles> sslBundles) {
+        return new ReactiveKafkaProducerTemplate<>(
+                SenderOptions.create(properties.buildProducerProperties(sslBundles.getIfAvailable())));
+    }
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties dataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().build();
+    }
+}
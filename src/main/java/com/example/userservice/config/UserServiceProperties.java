@@ -0,0 +1,263 @@
+package com.example.userservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+
+/**
+ * Настройки UserService из application.yml (префикс userservice)
+ * Значения по умолчанию заданы прямо в полях
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "userservice")
+public class UserServiceProperties {
+
+    /**
+     * Настройки постраничной выдачи
+     */
+    private final Page page = new Page();
+
+    /**
+     * Настройки потоковой выгрузки
+     */
+    private final Export export = new Export();
+
+    /**
+     * Настройки массового импорта
+     */
+    private final Import importing = new Import();
+
+    /**
+     * Настройки массовых обновлений и удалений
+     */
+    private final Bulk bulk = new Bulk();
+
+    /**
+     * Настройки поиска по имени и фамилии
+     */
+    private final Search search = new Search();
+
+    /**
+     * Настройки статистики в памяти
+     */
+    private final Stats stats = new Stats();
+
+    /**
+     * Настройки фильтра существования email и телефона
+     */
+    private final Existence existence = new Existence();
+
+    /**
+     * Настройки пакетной валидации
+     */
+    private final Validation validation = new Validation();
+
+    /**
+     * Настройки логирования на горячих путях
+     */
+    private final Logging logging = new Logging();
+
+    /**
+     * Настройки кеша пользователей по ID
+     */
+    private final Cache cache = new Cache();
+
+
+    @Getter
+    @Setter
+    public static class Page {
+
+        /**
+         * Размер страницы, если клиент его не указал
+         */
+        private int defaultSize = 50;
+
+        /**
+         * Жесткий потолок размера страницы
+         */
+        private int maxSize = 1000;
+    }
+
+
+    @Getter
+    @Setter
+    public static class Export {
+
+        /**
+         * Сколько строк курсор забирает с сервера БД за раз
+         */
+        private int fetchSize = 1000;
+    }
+
+
+    @Getter
+    @Setter
+    public static class Import {
+
+        /**
+         * Сколько строк загружается в промежуточную таблицу за один COPY
+         */
+        private int chunkSize = 5000;
+
+        /**
+         * Сколько ошибок по строкам попадает в отчет, остальные только считаются
+         */
+        private int maxReportedErrors = 1000;
+    }
+
+
+    @Getter
+    @Setter
+    public static class Bulk {
+
+        /**
+         * Сколько ID обрабатывается одной командой UPDATE/DELETE ... WHERE id = ANY(?)
+         */
+        private int chunkSize = 1000;
+    }
+
+
+    @Getter
+    @Setter
+    public static class Search {
+
+        /**
+         * Сколько результатов отдавать, если клиент не указал limit
+         */
+        private int defaultLimit = 20;
+
+        /**
+         * Жесткий потолок limit
+         */
+        private int maxLimit = 100;
+
+        /**
+         * Минимальная похожесть для нечеткого поиска - в памяти и в PostgreSQL (pg_trgm.word_similarity_threshold)
+         */
+        private double fuzzyThreshold = 0.6;
+
+        /**
+         * Искать по индексу в памяти вместо БД
+         * Не задано - только если БД не PostgreSQL (H2 и т.п., где нет pg_trgm)
+         */
+        private Boolean inMemory;
+    }
+
+
+    @Getter
+    @Setter
+    public static class Stats {
+
+        /**
+         * Как часто счетчики сверяются с агрегатом из БД
+         */
+        private Duration reconcileInterval = Duration.ofMinutes(5);
+    }
+
+
+    @Getter
+    @Setter
+    public static class Existence {
+
+        /**
+         * Проверять существование email и телефона сначала по фильтру Блума в памяти
+         */
+        private boolean enabled = true;
+
+        /**
+         * На сколько значений рассчитан фильтр, при пересборке берется не меньше удвоенного числа пользователей
+         */
+        private long expectedInsertions = 1_000_000;
+
+        /**
+         * Допустимая доля ложных "возможно есть" при expectedInsertions значениях
+         */
+        private double falsePositiveRate = 0.01;
+
+        /**
+         * Как часто фильтр пересобирается из БД целиком: ограничивает, сколько он может расходиться с БД,
+         * если событие с другого экземпляра потерялось; 0 - только при старте и после импорта
+         */
+        private Duration reloadInterval = Duration.ofMinutes(10);
+    }
+
+
+    @Getter
+    @Setter
+    public static class Validation {
+
+        /**
+         * Сколько email и телефонов проверяется одним запросом WHERE ... = ANY(?)
+         */
+        private int chunkSize = 1000;
+
+        /**
+         * Сколько пользователей можно проверить за один запрос
+         */
+        private int maxBatchSize = 10_000;
+    }
+
+
+    @Getter
+    @Setter
+    public static class Logging {
+
+        /**
+         * Сколько сообщений одного ключа выводится за окно, остальные сводятся в "подавлено N"
+         */
+        private int permits = 10;
+
+        /**
+         * Длина окна ограничения
+         */
+        private Duration window = Duration.ofSeconds(1);
+
+        /**
+         * Значение заголовка X-Debug-Sql, включающее лог SQL для одного запроса, пустое - выключено
+         */
+        private String sqlDebugToken;
+    }
+
+
+    @Getter
+    @Setter
+    public static class Cache {
+
+        /**
+         * Читать пользователя по ID через кеш в памяти
+         */
+        private boolean enabled = true;
+
+        /**
+         * Сколько пользователей держать в кеше, лишние вытесняются по частоте обращений
+         */
+        private long maximumSize = 100_000;
+
+        /**
+         * Сколько живет запись о существующем пользователе
+         */
+        private Duration ttl = Duration.ofMinutes(10);
+
+        /**
+         * Сколько живет запись об отсутствующем ID
+         */
+        private Duration negativeTtl = Duration.ofSeconds(30);
+
+        /**
+         * Сбрасывать записи по событиям user-events от других экземпляров
+         */
+        private boolean sync = true;
+
+        /**
+         * Группа подписчика user-events, у каждого экземпляра должна быть своя
+         */
+        private String syncGroupId;
+    }
+}
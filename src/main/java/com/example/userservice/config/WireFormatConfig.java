@@ -0,0 +1,35 @@
+package com.example.userservice.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+
+/**
+ * Бинарные представления для внутренних клиентов: CBOR и Smile через Jackson
+ * Мапперы строятся тем же Jackson2ObjectMapperBuilder, что и JSON,
+ * поэтому настройки spring.jackson.* одинаково действуют на все форматы
+ * Protobuf - {@link com.example.userservice.format.UserProtobufHttpMessageConverter}
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Configuration
+public class WireFormatConfig {
+
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.createXmlMapper(false).factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.createXmlMapper(false).factory(new SmileFactory()).build());
+    }
+}
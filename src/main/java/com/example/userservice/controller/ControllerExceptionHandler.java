@@ -1,11 +1,23 @@
 package com.example.userservice.controller;
 
+import com.example.userservice.dto.FieldErrorDTO;
+import com.example.userservice.dto.ValidationErrorDTO;
+import com.example.userservice.exception.BalanceOverflowException;
+import com.example.userservice.exception.InsufficientFundsException;
 import com.example.userservice.exception.RepositoryException;
+import com.example.userservice.exception.UserNotFoundException;
 import com.example.userservice.exception.UserServiceException;
+import com.example.userservice.exception.ValidationException;
+import com.example.userservice.exception.VersionConflictException;
+import com.example.userservice.service.ValidationResult;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BindException;
+import org.springframework.web.HttpMediaTypeException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.server.ResponseStatusException;
 
 
 /**
@@ -17,6 +29,20 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 @RestControllerAdvice
 public class ControllerExceptionHandler {
 
+    /**
+     * Все ошибки по полям структурированным JSON, без текста исключения
+     */
+    @ExceptionHandler(ValidationException.class)
+    public ResponseEntity<ValidationErrorDTO> handleValidationException(ValidationException e) {
+        ValidationResult result = e.getResult();
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(new ValidationErrorDTO(result.firstMessage(), result.getErrors().stream()
+                        .map(error -> new FieldErrorDTO(error.field(), error.message()))
+                        .toList()));
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<String> handleIllegalArgumentException(IllegalArgumentException e) {
         return ResponseEntity
@@ -31,6 +57,34 @@ public class ControllerExceptionHandler {
                 .body(e.getMessage());
     }
 
+    @ExceptionHandler(UserNotFoundException.class)
+    public ResponseEntity<String> handleUserNotFoundException(UserNotFoundException e) {
+        return ResponseEntity
+                .status(HttpStatus.NOT_FOUND)
+                .body(e.getMessage());
+    }
+
+    @ExceptionHandler(VersionConflictException.class)
+    public ResponseEntity<String> handleVersionConflictException(VersionConflictException e) {
+        return ResponseEntity
+                .status(HttpStatus.PRECONDITION_FAILED)
+                .body(e.getMessage());
+    }
+
+    @ExceptionHandler(InsufficientFundsException.class)
+    public ResponseEntity<String> handleInsufficientFundsException(InsufficientFundsException e) {
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(e.getMessage());
+    }
+
+    @ExceptionHandler(BalanceOverflowException.class)
+    public ResponseEntity<String> handleBalanceOverflowException(BalanceOverflowException e) {
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(e.getMessage());
+    }
+
     @ExceptionHandler(RepositoryException.class)
     public ResponseEntity<String> handleRepositoryException(RepositoryException e) {
         return ResponseEntity
@@ -38,6 +92,28 @@ public class ControllerExceptionHandler {
                 .body(e.getMessage());
     }
 
+    @ExceptionHandler(HttpMediaTypeException.class)
+    public ResponseEntity<String> handleHttpMediaTypeException(HttpMediaTypeException e) {
+        return ResponseEntity
+                .status(e.getStatusCode())
+                .body(e.getBody().getDetail());
+    }
+
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<String> handleResponseStatusException(ResponseStatusException e) {
+        return ResponseEntity
+                .status(e.getStatusCode())
+                .body(e.getReason());
+    }
+
+    @ExceptionHandler(BindException.class)
+    public ResponseEntity<String> handleBindException(BindException e) {
+        String field = e.getFieldError() == null ? e.getObjectName() : e.getFieldError().getField();
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body("Некорректное значение параметра " + field);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<String> handleAnyOtherException() {
         return ResponseEntity
@@ -0,0 +1,189 @@
+package com.example.userservice.controller;
+
+import com.example.userservice.dto.RequestUserDTO;
+import com.example.userservice.dto.UserDTO;
+import com.example.userservice.format.DataFormat;
+import com.example.userservice.format.UserExportWriter;
+import com.example.userservice.service.ReactiveUserService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+
+/**
+ * Реактивный контроллер пользователей (профиль reactive), работает на Netty
+ * Поток запроса не ждет ни БД, ни Kafka. Реализовано подмножество {@link UserController}:
+ * POST /api/users, GET /api/users, GET /api/users/export, GET, PUT и DELETE /api/users/{id} -
+ * с теми же кодами ответов
+ * <p>
+ * Только в {@link UserController}, под профилем reactive этих маршрутов нет:
+ * <ul>
+ *     <li>PATCH /api/users/{id}</li>
+ *     <li>POST /api/users/{id}/credit, POST /api/users/{id}/debit, POST /api/users/transfer</li>
+ *     <li>POST /api/users/import, POST /api/users/bulk-update, POST /api/users/bulk-delete</li>
+ *     <li>POST /api/users/validate</li>
+ *     <li>GET /api/users/search, GET /api/users/filter, GET /api/users/stats, GET /api/users/availability</li>
+ * </ul>
+ * Кроме того, здесь нет HAL, CBOR/Smile/Protobuf, выбора полей и gzip-выгрузки
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Tag(name = "User API", description = "Операции с пользователями")
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/users")
+public class ReactiveUserController {
+
+    private final ReactiveUserService userService;
+    private final UserExportWriter exportWriter;
+
+    public ReactiveUserController(@Qualifier("reactiveUserServiceKafka") ReactiveUserService userService,
+                                  UserExportWriter exportWriter) {
+        this.userService = userService;
+        this.exportWriter = exportWriter;
+    }
+
+
+    /**
+     * Метод создания пользователя
+     *
+     * @param dto UserDTO с данными
+     * @return 201 - при успехе
+     * 400 - в случае неправильных данных
+     * 500 - в случае ошибки обращения к БД
+     */
+    @Operation(summary = "Создать нового пользователя")
+    @PostMapping(consumes = "application/json;charset=UTF-8", produces = "text/plain;charset=UTF-8")
+    public Mono<ResponseEntity<Void>> createUser(@RequestBody UserDTO dto) {
+        return userService.createUser(dto)
+                .map(created -> ResponseEntity.status(HttpStatus.CREATED).<Void>build());
+    }
+
+
+    /**
+     * Метод постраничного получения пользователей
+     * Keyset-пагинация: курсор следующей страницы в поле nextCursor
+     *
+     * @param cursor непрозрачный курсор следующей страницы, без него - первая страница
+     * @param size   размер страницы, ограничен сверху настройкой сервера
+     * @return 200 страница пользователей при успехе
+     * 400 - в случае неправильного курсора или размера
+     * 500 - в случае ошибки обращения к БД
+     */
+    @Operation(summary = "Получить страницу пользователей")
+    @GetMapping(produces = "application/json;charset=UTF-8")
+    public Mono<ResponseEntity<?>> getAllUsers(@RequestParam(value = "cursor", required = false) String cursor,
+                                               @RequestParam(value = "size", required = false) Integer size) {
+        return userService.getUserPage(cursor, size)
+                .map(ResponseEntity::ok);
+    }
+
+
+    /**
+     * Метод потоковой выгрузки всех пользователей
+     * Строки уходят клиенту по мере чтения из БД, скорость чтения задает клиент
+     *
+     * @param format ndjson или csv
+     * @return 200 поток пользователей при успехе
+     * 400 - в случае неизвестного формата
+     */
+    @Operation(summary = "Выгрузить всех пользователей в NDJSON или CSV")
+    @GetMapping(value = "/export", produces = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<Flux<String>> exportUsers(@RequestParam(value = "format", defaultValue = "ndjson") String format) {
+
+        DataFormat dataFormat = DataFormat.of(format);
+        Flux<String> body = userService.streamAllUsers()
+                .map(user -> exportWriter.toLine(user, dataFormat));
+        if (dataFormat == DataFormat.CSV) body = body.startWith(UserExportWriter.CSV_HEADER + "\n");
+
+        return ResponseEntity.ok()
+                .contentType(dataFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users." + dataFormat.getExtension() + "\"")
+                .body(body);
+    }
+
+
+    /**
+     * Метод получения данных пользователя по ID
+     * Ответ несет сильный ETag из версии пользователя
+     * При If-None-Match сначала читается только версия: совпала - 304 без тела и без чтения пользователя
+     *
+     * @param id       ID пользователя
+     * @param exchange обмен, для проверки If-None-Match
+     * @return 200 UserDTO - при успехе
+     * 304 - если у клиента актуальная версия
+     * 404 - если пользователя с указанным ID не нашлось
+     * 400 - в случае неправильных данных
+     * 500 - в случае ошибки обращения к БД
+     */
+    @Operation(summary = "Получить пользователя по ID")
+    @GetMapping(value = "/{id}", produces = "application/json;charset=UTF-8")
+    public Mono<ResponseEntity<UserDTO>> getUserById(@PathVariable("id") long id, ServerWebExchange exchange) {
+
+        Mono<ResponseEntity<UserDTO>> user = Mono.defer(() -> userService.getUserById(new RequestUserDTO(id)))
+                .map(dto -> ResponseEntity.ok()
+                        .eTag(UserETag.of(dto.getVersion(), false))
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .body(dto))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+
+        if (exchange.getRequest().getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH) == null) return user;
+
+        return userService.getUserVersion(new RequestUserDTO(id))
+                .flatMap(version -> exchange.checkNotModified(UserETag.of(version, false))
+                        ? Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).<UserDTO>build())
+                        : user)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+
+    /**
+     * Метод обновления пользователя
+     * С заголовком If-Match обновление выполняется, только если версия пользователя не менялась
+     *
+     * @param id      ID пользователя
+     * @param dto     UserDTO с обновленными данными
+     * @param ifMatch ETag, полученный клиентом, без него обновление безусловное
+     * @return 200 и новый ETag - при успехе
+     * 400 - в случае неправильных данных
+     * 404 - если пользователя с указанным ID не нашлось
+     * 412 - если пользователь успел измениться
+     * 500 - в случае ошибки обращения к БД
+     */
+    @Operation(summary = "Обновить пользователя")
+    @PutMapping(value = "/{id}", consumes = "application/json;charset=UTF-8", produces = "text/plain;charset=UTF-8")
+    public Mono<ResponseEntity<String>> updateUser(@PathVariable("id") long id, @RequestBody UserDTO dto,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+
+        if (id != dto.getId()) {
+            return Mono.just(ResponseEntity.badRequest().body("ID в пути и теле не совпадают."));
+        }
+        return userService.updateUser(dto, UserETag.expectedVersion(ifMatch))
+                .map(updated -> ResponseEntity.ok().eTag(UserETag.of(updated.getVersion(), false)).build());
+    }
+
+
+    /**
+     * Метод удаления пользователя
+     *
+     * @param id ID пользователя для удаления
+     * @return 204 - при успехе
+     * 400 - в случае неправильных данных
+     * 500 - в случае ошибки обращения к БД
+     */
+    @Operation(summary = "Удалить пользователя")
+    @DeleteMapping(value = "/{id}", produces = "text/plain;charset=UTF-8")
+    public Mono<ResponseEntity<Void>> deleteUser(@PathVariable("id") long id) {
+        return userService.deleteUser(new RequestUserDTO(id))
+                .then(Mono.fromSupplier(() -> ResponseEntity.noContent().<Void>build()));
+    }
+}
@@ -1,35 +1,79 @@
 package com.example.userservice.controller;
 
+import com.example.userservice.dto.BalanceDTO;
+import com.example.userservice.dto.BulkDeleteDTO;
+import com.example.userservice.dto.BulkUpdateDTO;
+import com.example.userservice.dto.MoneyDTO;
 import com.example.userservice.dto.RequestUserDTO;
+import com.example.userservice.dto.TransferDTO;
+import com.example.userservice.dto.TransferResultDTO;
 import com.example.userservice.dto.UserDTO;
-import com.example.userservice.service.UserServiceImpl;
+import com.example.userservice.dto.UserFilterDTO;
+import com.example.userservice.format.DataFormat;
+import com.example.userservice.format.UserExportWriter;
+import com.example.userservice.format.UserProtobufHttpMessageConverter;
+import com.example.userservice.repository.UserField;
+import com.example.userservice.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import static com.example.userservice.config.WireFormatConfig.SMILE_VALUE;
+import static com.example.userservice.format.UserProtobufHttpMessageConverter.PROTOBUF_VALUE;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 
 
 /**
  * Контроллер для REST взаимодействия с UserService
+ * Пользователи и страницы отдаются и принимаются в JSON (по умолчанию), CBOR, Smile и Protobuf -
+ * формат выбирается заголовками Accept и Content-Type
+ * Реактивный вариант того же API - {@link ReactiveUserController} (профиль reactive)
+ * Все изменения идут через {@link com.example.userservice.service.UserServiceKafka}: события в user-events
+ * нужны не только подписчикам, но и остальным экземплярам сервиса для сброса кеша
  *
  * @author vmarakushin
- * @version 2.0
+ * @version 3.0
  */
 @Tag(name = "User API", description = "Операции с пользователями")
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/users")
 public class UserController {
 
-    private final UserServiceImpl userService;
+    private static final String EXCEPTION_MESSAGE_AMOUNT = "Нужно указать сумму";
+    private static final String EXCEPTION_MESSAGE_FIELDS_PROTOBUF = "Выбор полей недоступен в Protobuf: схема сообщения фиксирована";
+
+    private final UserService userService;
+    private final UserExportWriter exportWriter;
 
-    public UserController(UserServiceImpl userService) {
+    public UserController(@Qualifier("userServiceKafka") UserService userService, UserExportWriter exportWriter) {
         this.userService = userService;
+        this.exportWriter = exportWriter;
     }
 
 
@@ -42,7 +86,8 @@ public class UserController {
      * 500 - в случае ошибки обращения к БД
      */
     @Operation(summary = "Создать нового пользователя")
-    @PostMapping(consumes = "application/json;charset=UTF-8", produces = "text/plain;charset=UTF-8")
+    @PostMapping(consumes = {"application/json;charset=UTF-8", MediaType.APPLICATION_CBOR_VALUE, SMILE_VALUE, PROTOBUF_VALUE},
+            produces = "text/plain;charset=UTF-8")
     public ResponseEntity<?> createUser(@RequestBody UserDTO dto) {
         userService.createUser(dto);
         return ResponseEntity.status(HttpStatus.CREATED).build();
@@ -50,48 +95,236 @@ public class UserController {
 
 
     /**
-     * Метод получения данных всех пользователей
+     * Метод массового импорта пользователей
+     * Тело читается потоком, ошибки по строкам возвращаются в отчете, а не прерывают импорт
+     *
+     * @param contentType application/x-ndjson или text/csv с заголовком
+     * @param body        строки с пользователями
+     * @return 200 отчет об импорте при успехе
+     * 400 - в случае нечитаемого тела
+     * 500 - в случае ошибки обращения к БД
+     */
+    @Operation(summary = "Массово импортировать пользователей из NDJSON или CSV")
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "text/csv"}, produces = "application/json;charset=UTF-8")
+    public ResponseEntity<?> importUsers(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                         InputStream body) throws IOException {
+        try (body) {
+            return ResponseEntity.ok(userService.importUsers(body, DataFormat.of(contentType)));
+        }
+    }
+
+
+    /**
+     * Метод пакетной проверки пользователей перед созданием
+     * Ничего не создает, ошибка одного пользователя не прерывает проверку остальных
+     *
+     * @param users пачка пользователей в формате создания (id = 0)
+     * @return 200 результат для каждого пользователя в том же порядке
+     * 400 - в случае пустой или слишком большой пачки
+     * 500 - в случае ошибки обращения к БД
+     */
+    @Operation(summary = "Проверить пачку пользователей перед созданием")
+    @PostMapping(value = "/validate", consumes = "application/json;charset=UTF-8", produces = "application/json;charset=UTF-8")
+    public ResponseEntity<?> validateUsers(@RequestBody List<UserDTO> users) {
+        return ResponseEntity.ok(userService.validateUsers(users));
+    }
+
+
+    /**
+     * Метод постраничного получения пользователей
+     * Keyset-пагинация: курсор следующей страницы в поле nextCursor,
+     * а для application/hal+json - в ссылке next
      *
-     * @return 200 List<UserDTO> при успехе
+     * @param cursor непрозрачный курсор следующей страницы, без него - первая страница
+     * @param size   размер страницы, ограничен сверху настройкой сервера
+     * @param fields нужные поля через запятую, ID добавляется всегда; с ним ответ всегда без HAL
+     * @param accept заголовок Accept, HAL-представление только по явному application/hal+json
+     * @return 200 страница пользователей при успехе
+     * 400 - в случае неправильного курсора, размера или неизвестного поля
+     * 406 - выбор полей в Protobuf
      * 500 - в случае ошибки обращения к БД
      */
-    @Operation(summary = "Получить список всех пользователей")
-    @GetMapping(produces = "application/json;charset=UTF-8")
-    public ResponseEntity<?> getAllUsers() {
-        var users = userService.getAllUsers();
-        var userModels = users.stream()
-                .map(user -> EntityModel.of(user,
-                        linkTo(methodOn(UserController.class).getUserById(user.getId())).withSelfRel(),
-                        linkTo(methodOn(UserController.class).deleteUser(user.getId())).withRel("delete")
-                ))
+    @Operation(summary = "Получить страницу пользователей")
+    @GetMapping(produces = {"application/json;charset=UTF-8", MediaTypes.HAL_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, SMILE_VALUE, PROTOBUF_VALUE})
+    public ResponseEntity<?> getAllUsers(@RequestParam(value = "cursor", required = false) String cursor,
+                                         @RequestParam(value = "size", required = false) Integer size,
+                                         @RequestParam(value = "fields", required = false) String fields,
+                                         @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        Set<UserField> selected = UserField.parse(fields);
+        if (selected != null) {
+            if (requested(accept, UserProtobufHttpMessageConverter.PROTOBUF))
+                throw new ResponseStatusException(HttpStatus.NOT_ACCEPTABLE, EXCEPTION_MESSAGE_FIELDS_PROTOBUF);
+            return ResponseEntity.ok(userService.getUserPage(cursor, size, selected));
+        }
+
+        var page = userService.getUserPage(cursor, size);
+        if (!halRequested(accept)) {
+            return ResponseEntity.ok(page);
+        }
+
+        String usersHref = usersHref();
+        var userModels = page.getUsers().stream()
+                .map(user -> toModel(user, usersHref))
                 .toList();
-        var collectionModel = CollectionModel.of(
-                userModels,
-                linkTo(methodOn(UserController.class).getAllUsers()).withSelfRel()
-        );
+        var collectionModel = CollectionModel.of(userModels, Link.of(pageHref(usersHref, cursor, size)));
+        if (page.getNextCursor() != null) {
+            collectionModel.add(Link.of(pageHref(usersHref, page.getNextCursor(), size), IanaLinkRelations.NEXT));
+        }
         return ResponseEntity.ok(collectionModel);
     }
 
 
+    /**
+     * Метод потоковой выгрузки всех пользователей
+     * Строки пишутся в ответ по мере чтения курсором из БД
+     *
+     * @param format ndjson или csv
+     * @param gzip   сжимать ли ответ
+     * @param fields нужные поля через запятую, ID добавляется всегда; без параметра - все поля
+     * @return 200 поток пользователей при успехе
+     * 400 - в случае неизвестного формата или поля
+     */
+    @Operation(summary = "Выгрузить всех пользователей в NDJSON или CSV")
+    @GetMapping(value = "/export", produces = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<StreamingResponseBody> exportUsers(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @RequestParam(value = "gzip", defaultValue = "false") boolean gzip,
+            @RequestParam(value = "fields", required = false) String fields) {
+
+        DataFormat dataFormat = DataFormat.of(format);
+        Set<UserField> selected = UserField.parse(fields);
+        StreamingResponseBody body = out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+            if (selected == null) {
+                try (var users = userService.streamAllUsers()) {
+                    exportWriter.write(users, dataFormat, target);
+                }
+            } else {
+                try (var rows = userService.streamAllUsers(selected)) {
+                    exportWriter.writeRows(rows, selected, dataFormat, target);
+                }
+            }
+            if (target instanceof GZIPOutputStream gzipStream) gzipStream.finish();
+            target.flush();
+        };
+
+        var response = ResponseEntity.ok()
+                .contentType(dataFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users." + dataFormat.getExtension() + "\"");
+        if (gzip) response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        return response.body(body);
+    }
+
+
+    /**
+     * Метод постраничного получения пользователей по фильтру
+     * Критерии передаются query-параметрами, все границы включительно, даты в ISO 8601
+     *
+     * @param filter критерии: minAge, maxAge, createdFrom, createdTo, minMoney, maxMoney
+     * @param cursor непрозрачный курсор следующей страницы, без него - первая страница
+     * @param size   размер страницы, ограничен сверху настройкой сервера
+     * @return 200 страница пользователей при успехе
+     * 400 - в случае неправильного курсора, размера или границ фильтра
+     * 500 - в случае ошибки обращения к БД
+     */
+    @Operation(summary = "Получить страницу пользователей по возрасту, дате создания и балансу")
+    @GetMapping(value = "/filter", produces = "application/json;charset=UTF-8")
+    public ResponseEntity<?> filterUsers(@ModelAttribute UserFilterDTO filter,
+                                         @RequestParam(value = "cursor", required = false) String cursor,
+                                         @RequestParam(value = "size", required = false) Integer size) {
+        return ResponseEntity.ok(userService.filterUsers(filter, cursor, size));
+    }
+
+
+    /**
+     * Метод получения сводной статистики по пользователям
+     * Ответ собирается из счетчиков в памяти и не нагружает БД, значения сверяются с ней периодически
+     *
+     * @return 200 количество, суммарный и средний баланс, гистограмма возраста
+     */
+    @Operation(summary = "Получить статистику по пользователям")
+    @GetMapping(value = "/stats", produces = "application/json;charset=UTF-8")
+    public ResponseEntity<?> getStats() {
+        return ResponseEntity.ok(userService.getStats());
+    }
+
+
+    /**
+     * Метод проверки, свободны ли email и телефон, например для формы регистрации
+     * Для новых значений ответ приходит из фильтра в памяти, без запроса в БД
+     *
+     * @param email email для проверки
+     * @param phone телефон для проверки
+     * @return 200 свободно ли каждое из указанных значений
+     * 400 - если не указано ни email, ни телефона
+     * 500 - в случае ошибки обращения к БД
+     */
+    @Operation(summary = "Проверить, свободны ли email и телефон")
+    @GetMapping(value = "/availability", produces = "application/json;charset=UTF-8")
+    public ResponseEntity<?> checkAvailability(@RequestParam(value = "email", required = false) String email,
+                                               @RequestParam(value = "phone", required = false) String phone) {
+        return ResponseEntity.ok(userService.checkAvailability(email, phone));
+    }
+
+
+    /**
+     * Метод поиска пользователей по имени и фамилии
+     * prefix - имя или фамилия начинается с запроса, fuzzy - похожие с учетом опечаток
+     * Регистр не учитывается
+     *
+     * @param query строка поиска
+     * @param mode  prefix или fuzzy
+     * @param limit максимальное количество результатов
+     * @return 200 найденные пользователи, самые похожие первыми
+     * 400 - в случае пустого запроса, неизвестного режима или неправильного limit
+     * 500 - в случае ошибки обращения к БД
+     */
+    @Operation(summary = "Найти пользователей по имени и фамилии")
+    @GetMapping(value = "/search", produces = "application/json;charset=UTF-8")
+    public ResponseEntity<?> searchUsers(@RequestParam("q") String query,
+                                         @RequestParam(value = "mode", defaultValue = "prefix") String mode,
+                                         @RequestParam(value = "limit", required = false) Integer limit) {
+        return ResponseEntity.ok(userService.searchUsers(query, mode, limit));
+    }
+
+
     /**
      * Метод получения данных пользователя по ID
+     * Ответ несет сильный ETag из версии пользователя
+     * При If-None-Match сначала читается только версия: совпала - 304 без тела и без чтения пользователя
      *
-     * @param id ID пользователя
+     * @param id      ID пользователя
+     * @param accept  заголовок Accept, HAL-представление только по явному application/hal+json
+     * @param request запрос, для проверки If-None-Match
      * @return 200 UserDTO - при успехе
+     * 304 - если у клиента актуальная версия
      * 404 - если пользователя с указанным ID не нашлось
      * 400 - в случае неправильных данных
      * 500 - в случае ошибки обращения к БД
      */
     @Operation(summary = "Получить пользователя по ID")
-    @GetMapping(value = "/{id}", produces = "application/json;charset=UTF-8")
-    public ResponseEntity<?> getUserById(@PathVariable("id") long id) {
+    @GetMapping(value = "/{id}", produces = {"application/json;charset=UTF-8", MediaTypes.HAL_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, SMILE_VALUE, PROTOBUF_VALUE})
+    public ResponseEntity<?> getUserById(@PathVariable("id") long id,
+                                         @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                         WebRequest request) {
+        boolean hal = halRequested(accept);
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Optional<Long> version = userService.getUserVersion(new RequestUserDTO(id));
+            if (version.isEmpty()) return ResponseEntity.notFound().build();
+            if (request.checkNotModified(UserETag.of(version.get(), hal))) return null;
+        }
+
         return userService.getUserById(new RequestUserDTO(id))
-                .map(user -> {
-                    EntityModel<UserDTO> model = EntityModel.of(user);
-                    model.add(linkTo(methodOn(UserController.class).getUserById(id)).withSelfRel());
-                    model.add(linkTo(methodOn(UserController.class).getAllUsers()).withRel("users"));
-                    model.add(linkTo(methodOn(UserController.class).deleteUser(id)).withRel("delete"));
-                    return ResponseEntity.ok(model);
+                .<ResponseEntity<?>>map(user -> {
+                    var response = ResponseEntity.ok()
+                            .eTag(UserETag.of(user.getVersion(), hal))
+                            .varyBy(HttpHeaders.ACCEPT);
+                    if (!hal) return response.body(user);
+                    String usersHref = usersHref();
+                    return response.body(toModel(user, usersHref)
+                            .add(Link.of(usersHref + "{?cursor,size}", "users")));
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -99,21 +332,110 @@ public class UserController {
 
     /**
      * Метод обновления пользователя
+     * С заголовком If-Match обновление выполняется, только если версия пользователя не менялась,
+     * клиенту не нужно перечитывать пользователя перед записью
      *
-     * @param dto UserDTO с обновленными данными
-     * @return 200 - при успехе
+     * @param id      ID пользователя
+     * @param dto     UserDTO с обновленными данными
+     * @param ifMatch ETag, полученный клиентом, без него обновление безусловное
+     * @return 200 и новый ETag - при успехе
      * 400 - в случае неправильных данных
+     * 404 - если пользователя с указанным ID не нашлось
+     * 412 - если пользователь успел измениться
      * 500 - в случае ошибки обращения к БД
      */
     @Operation(summary = "Обновить пользователя")
-    @PutMapping(value = "/{id}", consumes = "application/json;charset=UTF-8", produces = "text/plain;charset=UTF-8")
-    public ResponseEntity<?> updateUser(@PathVariable("id") long id, @RequestBody UserDTO dto) {
+    @PutMapping(value = "/{id}", consumes = {"application/json;charset=UTF-8", MediaType.APPLICATION_CBOR_VALUE, SMILE_VALUE, PROTOBUF_VALUE},
+            produces = "text/plain;charset=UTF-8")
+    public ResponseEntity<?> updateUser(@PathVariable("id") long id, @RequestBody UserDTO dto,
+                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
         if (id != dto.getId()) {
             return ResponseEntity.badRequest().body("ID в пути и теле не совпадают.");
         }
-        userService.updateUser(dto);
-        return ResponseEntity.ok().build();
+        UserDTO updated = userService.updateUser(dto, UserETag.expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(UserETag.of(updated.getVersion(), false)).build();
+    }
+
+
+    /**
+     * Метод частичного обновления пользователя (JSON Merge Patch, RFC 7396)
+     * Меняются только переданные поля, отсутствующие остаются как есть, null - ошибка: все поля обязательные
+     * If-Match работает так же, как в PUT
+     * Баланс так не меняется (400) - для этого есть /credit, /debit и /transfer
+     *
+     * @param id      ID пользователя
+     * @param patch   изменяемые поля
+     * @param ifMatch ETag, полученный клиентом, без него обновление безусловное
+     * @return 200 и новый ETag - при успехе
+     * 400 - в случае неправильных данных
+     * 404 - если пользователя с указанным ID не нашлось
+     * 412 - если пользователь успел измениться
+     * 500 - в случае ошибки обращения к БД
+     */
+    @Operation(summary = "Частично обновить пользователя")
+    @PatchMapping(value = "/{id}", consumes = {"application/merge-patch+json", "application/json;charset=UTF-8"},
+            produces = "text/plain;charset=UTF-8")
+    public ResponseEntity<?> patchUser(@PathVariable("id") long id, @RequestBody Map<String, Object> patch,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        UserDTO updated = userService.patchUser(id, patch, UserETag.expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(UserETag.of(updated.getVersion(), false)).build();
+    }
+
+
+    /**
+     * Метод зачисления денег пользователю
+     * Баланс меняется атомарно одной командой, одновременные зачисления и списания не теряются
+     *
+     * @param id  ID пользователя
+     * @param dto сумма больше 0
+     * @return 200 баланс и новый ETag - при успехе
+     * 400 - в случае неправильных данных
+     * 404 - если пользователя с указанным ID не нашлось
+     * 409 - если баланс превысил бы допустимый максимум
+     * 500 - в случае ошибки обращения к БД
+     */
+    @Operation(summary = "Зачислить деньги пользователю")
+    @PostMapping(value = "/{id}/credit", consumes = "application/json;charset=UTF-8", produces = "application/json;charset=UTF-8")
+    public ResponseEntity<?> creditMoney(@PathVariable("id") long id, @RequestBody MoneyDTO dto) {
+        return balance(userService.creditMoney(id, amount(dto)));
+    }
+
+
+    /**
+     * Метод списания денег у пользователя
+     *
+     * @param id  ID пользователя
+     * @param dto сумма больше 0
+     * @return 200 баланс и новый ETag - при успехе
+     * 400 - в случае неправильных данных
+     * 404 - если пользователя с указанным ID не нашлось
+     * 409 - если денег на балансе не хватает
+     * 500 - в случае ошибки обращения к БД
+     */
+    @Operation(summary = "Списать деньги у пользователя")
+    @PostMapping(value = "/{id}/debit", consumes = "application/json;charset=UTF-8", produces = "application/json;charset=UTF-8")
+    public ResponseEntity<?> debitMoney(@PathVariable("id") long id, @RequestBody MoneyDTO dto) {
+        return balance(userService.debitMoney(id, amount(dto)));
+    }
+
+
+    /**
+     * Метод перевода денег между пользователями
+     * Списание и зачисление проходят в одной транзакции: либо оба, либо ни одного
+     *
+     * @param dto отправитель, получатель и сумма
+     * @return 200 балансы обоих пользователей после перевода - при успехе
+     * 400 - в случае неправильных данных
+     * 404 - если кого-то из пользователей не нашлось
+     * 409 - если у отправителя не хватает денег или баланс получателя превысил бы допустимый максимум
+     * 500 - в случае ошибки обращения к БД
+     */
+    @Operation(summary = "Перевести деньги между пользователями")
+    @PostMapping(value = "/transfer", consumes = "application/json;charset=UTF-8", produces = "application/json;charset=UTF-8")
+    public ResponseEntity<?> transferMoney(@RequestBody TransferDTO dto) {
+        List<UserDTO> updated = userService.transferMoney(dto);
+        return ResponseEntity.ok(new TransferResultDTO(toBalance(updated.get(0)), toBalance(updated.get(1))));
     }
 
 
@@ -131,4 +453,88 @@ public class UserController {
         userService.deleteUser(new RequestUserDTO(id));
         return ResponseEntity.noContent().build();
     }
-}
\ No newline at end of file
+
+
+    /**
+     * Метод массового обновления пользователей
+     * Пользователи выбираются списком ID или фильтром, обновление идет пачками на стороне БД
+     *
+     * @param dto ID или фильтр и новые значения имени, фамилии, возраста
+     * @return 200 число обновленных пользователей при успехе
+     * 400 - в случае неправильных данных
+     * 500 - в случае ошибки обращения к БД
+     */
+    @Operation(summary = "Массово обновить пользователей по списку ID или фильтру")
+    @PostMapping(value = "/bulk-update", consumes = "application/json;charset=UTF-8", produces = "application/json;charset=UTF-8")
+    public ResponseEntity<?> updateUsers(@RequestBody BulkUpdateDTO dto) {
+        return ResponseEntity.ok(userService.updateUsers(dto));
+    }
+
+
+    /**
+     * Метод массового удаления пользователей
+     * Пользователи выбираются списком ID или фильтром, удаление идет пачками на стороне БД
+     *
+     * @param dto ID или фильтр
+     * @return 200 число удаленных пользователей при успехе
+     * 400 - в случае неправильных данных
+     * 500 - в случае ошибки обращения к БД
+     */
+    @Operation(summary = "Массово удалить пользователей по списку ID или фильтру")
+    @PostMapping(value = "/bulk-delete", consumes = "application/json;charset=UTF-8", produces = "application/json;charset=UTF-8")
+    public ResponseEntity<?> deleteUsers(@RequestBody BulkDeleteDTO dto) {
+        return ResponseEntity.ok(userService.deleteUsers(dto));
+    }
+
+
+    private static long amount(MoneyDTO dto) {
+        if (dto == null || dto.getAmount() == null) throw new IllegalArgumentException(EXCEPTION_MESSAGE_AMOUNT);
+        return dto.getAmount();
+    }
+
+    private static ResponseEntity<BalanceDTO> balance(UserDTO user) {
+        return ResponseEntity.ok().eTag(UserETag.of(user.getVersion(), false)).body(toBalance(user));
+    }
+
+    private static BalanceDTO toBalance(UserDTO user) {
+        return new BalanceDTO(user.getId(), user.getMoney(), user.getVersion());
+    }
+
+
+    /**
+     * HAL отдается только тем клиентам, кто явно его попросил,
+     * Accept: application/json или любой тип - DTO без ссылок
+     */
+    private static boolean halRequested(String accept) {
+        return requested(accept, MediaTypes.HAL_JSON);
+    }
+
+    private static boolean requested(String accept, MediaType type) {
+        if (accept == null || accept.isBlank()) return false;
+        try {
+            return MediaType.parseMediaTypes(accept).stream().anyMatch(type::equalsTypeAndSubtype);
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Адрес коллекции пользователей для текущего запроса
+     * Вычисляется один раз на ответ, ссылки элементов получаются дописыванием ID, без прокси methodOn()
+     */
+    private static String usersHref() {
+        return linkTo(UserController.class).toUri().toString();
+    }
+
+    private static EntityModel<UserDTO> toModel(UserDTO user, String usersHref) {
+        String href = usersHref + "/" + user.getId();
+        return EntityModel.of(user, Link.of(href), Link.of(href, "delete"));
+    }
+
+    private static String pageHref(String usersHref, String cursor, Integer size) {
+        return UriComponentsBuilder.fromUriString(usersHref)
+                .queryParamIfPresent("cursor", Optional.ofNullable(cursor))
+                .queryParamIfPresent("size", Optional.ofNullable(size))
+                .toUriString();
+    }
+}
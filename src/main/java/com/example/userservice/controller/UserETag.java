@@ -0,0 +1,54 @@
+package com.example.userservice.controller;
+
+
+/**
+ * Сильные ETag пользователя на основе версии строки
+ * У HAL и обычного JSON разные тела, поэтому и метки у них разные
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+final class UserETag {
+
+    /**
+     * Версия, которой не бывает: метка из If-Match не наша, условие заведомо не выполнится
+     */
+    static final long NO_MATCH = -1L;
+
+    private static final String HAL_SUFFIX = "-hal";
+
+    private UserETag() {
+    }
+
+    /**
+     * @param version версия пользователя
+     * @param hal     метка для HAL-представления
+     * @return ETag в кавычках, готовый для заголовка
+     */
+    static String of(long version, boolean hal) {
+        return "\"" + version + (hal ? HAL_SUFFIX : "") + "\"";
+    }
+
+    /**
+     * Версия из заголовка If-Match
+     * Слабые метки и списки меток не совпадают ни с чем: клиент присылает ту одну метку, что получил
+     *
+     * @param ifMatch значение заголовка, может быть null
+     * @return null если условия нет (заголовка нет или *), иначе ожидаемая версия или {@link #NO_MATCH}
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank()) return null;
+        String tag = ifMatch.trim();
+        if (tag.equals("*")) return null;
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') return NO_MATCH;
+
+        String value = tag.substring(1, tag.length() - 1);
+        if (value.endsWith(HAL_SUFFIX)) value = value.substring(0, value.length() - HAL_SUFFIX.length());
+        try {
+            long version = Long.parseLong(value);
+            return version < 0 ? NO_MATCH : version;
+        } catch (NumberFormatException e) {
+            return NO_MATCH;
+        }
+    }
+}
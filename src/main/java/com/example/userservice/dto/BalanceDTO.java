@@ -0,0 +1,25 @@
+package com.example.userservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+
+/**
+ * Баланс пользователя после изменения
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+public class BalanceDTO {
+    @Schema(description = "ID пользователя", example = "1")
+    private long id;
+    @Schema(description = "Баланс после изменения", example = "1500")
+    private long money;
+    @Schema(description = "Версия пользователя после изменения", example = "3")
+    private long version;
+}
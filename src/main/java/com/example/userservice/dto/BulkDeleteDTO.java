@@ -0,0 +1,25 @@
+package com.example.userservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.util.List;
+
+
+/**
+ * Запрос массового удаления: либо список ID, либо фильтр
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+public class BulkDeleteDTO {
+    @Schema(description = "ID пользователей для удаления")
+    private List<Long> ids;
+    @Schema(description = "Фильтр пользователей для удаления, если ID не заданы")
+    private UserFilterDTO filter;
+}
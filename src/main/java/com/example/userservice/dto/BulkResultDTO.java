@@ -0,0 +1,23 @@
+package com.example.userservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+
+/**
+ * Итог массовой операции
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+public class BulkResultDTO {
+    @Schema(description = "Сколько пользователей затронуто")
+    private long affected;
+    @Schema(description = "Сколько SQL-команд по пачкам выполнено")
+    private int chunks;
+}
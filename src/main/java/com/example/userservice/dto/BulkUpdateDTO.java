@@ -0,0 +1,33 @@
+package com.example.userservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.util.List;
+
+
+/**
+ * Запрос массового обновления: либо список ID, либо фильтр
+ * Заданные поля записываются всем отобранным пользователям, незаданные не меняются
+ * Email и телефон уникальны, поэтому массово не обновляются
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+public class BulkUpdateDTO {
+    @Schema(description = "ID пользователей для обновления")
+    private List<Long> ids;
+    @Schema(description = "Фильтр пользователей для обновления, если ID не заданы")
+    private UserFilterDTO filter;
+    @Schema(description = "Новое имя", example = "Василий")
+    private String name;
+    @Schema(description = "Новая фамилия", example = "Иванов")
+    private String surname;
+    @Schema(description = "Новый возраст", example = "33")
+    private Integer age;
+}
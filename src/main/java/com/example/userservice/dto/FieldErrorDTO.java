@@ -0,0 +1,23 @@
+package com.example.userservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+
+/**
+ * Ошибка валидации одного поля
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+public class FieldErrorDTO {
+    @Schema(description = "Поле пользователя", example = "age")
+    private String field;
+    @Schema(description = "Причина отказа", example = "Возраст от 1 до 150")
+    private String message;
+}
@@ -0,0 +1,23 @@
+package com.example.userservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+
+/**
+ * Ошибка импорта одной строки
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+public class ImportErrorDTO {
+    @Schema(description = "Номер строки во входных данных", example = "42")
+    private long line;
+    @Schema(description = "Причина отказа", example = "Этот email уже используется!")
+    private String message;
+}
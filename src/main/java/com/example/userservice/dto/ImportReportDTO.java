@@ -0,0 +1,29 @@
+package com.example.userservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.util.List;
+
+
+/**
+ * Итог массового импорта пользователей
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+public class ImportReportDTO {
+    @Schema(description = "Сколько строк с данными было прочитано")
+    private long total;
+    @Schema(description = "Сколько пользователей создано")
+    private long imported;
+    @Schema(description = "Сколько строк отклонено")
+    private long rejected;
+    @Schema(description = "Ошибки по строкам, не больше userservice.import.max-reported-errors")
+    private List<ImportErrorDTO> errors;
+}
@@ -0,0 +1,21 @@
+package com.example.userservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+
+/**
+ * Запрос зачисления или списания: сумма всегда положительная, направление задает адрес
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+public class MoneyDTO {
+    @Schema(description = "Сумма, больше 0", example = "500")
+    private Long amount;
+}
@@ -0,0 +1,25 @@
+package com.example.userservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+
+/**
+ * Запрос перевода между двумя пользователями
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+public class TransferDTO {
+    @Schema(description = "ID пользователя, с которого списываются деньги", example = "1")
+    private Long fromId;
+    @Schema(description = "ID пользователя, которому зачисляются деньги", example = "2")
+    private Long toId;
+    @Schema(description = "Сумма перевода, больше 0", example = "500")
+    private Long amount;
+}
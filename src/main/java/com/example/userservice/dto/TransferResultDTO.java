@@ -0,0 +1,23 @@
+package com.example.userservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+
+/**
+ * Балансы обоих участников перевода после него
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+public class TransferResultDTO {
+    @Schema(description = "Отправитель")
+    private BalanceDTO from;
+    @Schema(description = "Получатель")
+    private BalanceDTO to;
+}
@@ -0,0 +1,23 @@
+package com.example.userservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+
+/**
+ * Свободны ли email и телефон для нового пользователя
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+public class UserAvailabilityDTO {
+    @Schema(description = "true - email не занят, null - email не проверялся", example = "true")
+    private Boolean emailAvailable;
+    @Schema(description = "true - телефон не занят, null - телефон не проверялся", example = "false")
+    private Boolean phoneAvailable;
+}
@@ -33,4 +33,11 @@ public class UserDTO {
     private long money;
     @Schema(description = "Дата создания пользователя",example = "Будет выбрана автоматически")
     private Date createdAt;
-}
\ No newline at end of file
+    @Schema(description = "Версия пользователя, та же, что в ETag", example = "Будет выбрана автоматически")
+    private long version;
+
+
+    public UserDTO(long id, String name, String surname, int age, String phone, String email, long money, Date createdAt) {
+        this(id, name, surname, age, phone, email, money, createdAt, 0L);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.userservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Страница пользователей, в которой у каждого только запрошенные поля (?fields=...)
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+public class UserFieldsPageDTO {
+    @Schema(description = "Пользователи текущей страницы, только запрошенные поля и ID, отсортированы по ID")
+    private List<Map<String, Object>> users;
+    @Schema(description = "Непрозрачный курсор следующей страницы, null если страница последняя")
+    private String nextCursor;
+}
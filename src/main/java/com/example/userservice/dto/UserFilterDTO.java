@@ -0,0 +1,38 @@
+package com.example.userservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.util.Date;
+
+
+/**
+ * Критерии отбора пользователей, все границы включительно
+ * Незаданный критерий не ограничивает выборку
+ * В query-параметрах даты передаются в ISO 8601, например 2024-05-01T00:00:00Z
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+public class UserFilterDTO {
+    @Schema(description = "Минимальный возраст", example = "18")
+    private Integer minAge;
+    @Schema(description = "Максимальный возраст", example = "25")
+    private Integer maxAge;
+    @Schema(description = "Создан не раньше")
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME, fallbackPatterns = "yyyy-MM-dd'T'HH:mm:ssXXX")
+    private Date createdFrom;
+    @Schema(description = "Создан не позже")
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME, fallbackPatterns = "yyyy-MM-dd'T'HH:mm:ssXXX")
+    private Date createdTo;
+    @Schema(description = "Минимальный баланс", example = "1000")
+    private Long minMoney;
+    @Schema(description = "Максимальный баланс")
+    private Long maxMoney;
+}
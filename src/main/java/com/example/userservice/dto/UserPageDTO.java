@@ -0,0 +1,25 @@
+package com.example.userservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.util.List;
+
+
+/**
+ * Страница пользователей для keyset-пагинации
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+public class UserPageDTO {
+    @Schema(description = "Пользователи текущей страницы, отсортированы по ID")
+    private List<UserDTO> users;
+    @Schema(description = "Непрозрачный курсор следующей страницы, null если страница последняя")
+    private String nextCursor;
+}
@@ -0,0 +1,27 @@
+package com.example.userservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+
+/**
+ * Результат поиска пользователя по имени и фамилии
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+public class UserSearchHitDTO {
+    @Schema(description = "Уникальный идентификатор")
+    private long id;
+    @Schema(description = "Имя пользователя", example = "Василий")
+    private String name;
+    @Schema(description = "Фамилия пользователя", example = "Иванов")
+    private String surname;
+    @Schema(description = "Похожесть на запрос от 0 до 1, 1 - точное совпадение", example = "0.8")
+    private double score;
+}
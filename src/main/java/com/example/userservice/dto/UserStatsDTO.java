@@ -0,0 +1,32 @@
+package com.example.userservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.util.Date;
+import java.util.Map;
+
+
+/**
+ * Сводная статистика по пользователям
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+public class UserStatsDTO {
+    @Schema(description = "Количество пользователей", example = "1000000")
+    private long users;
+    @Schema(description = "Суммарный баланс", example = "386000000")
+    private long totalMoney;
+    @Schema(description = "Средний баланс, 0 если пользователей нет", example = "386.0")
+    private double averageMoney;
+    @Schema(description = "Количество пользователей по десятилетиям возраста, ключ - диапазон \"20-29\"")
+    private Map<String, Long> ageHistogram;
+    @Schema(description = "Когда счетчики последний раз сверялись с БД")
+    private Date reconciledAt;
+}
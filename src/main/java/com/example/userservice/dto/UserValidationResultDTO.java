@@ -0,0 +1,25 @@
+package com.example.userservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+
+/**
+ * Результат проверки одного пользователя из пачки
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+public class UserValidationResultDTO {
+    @Schema(description = "Номер пользователя в пачке, с 0", example = "3")
+    private int index;
+    @Schema(description = "true - пользователя можно создать", example = "false")
+    private boolean valid;
+    @Schema(description = "Причина отказа, null если пользователь корректен", example = "Этот email уже используется!")
+    private String message;
+}
@@ -0,0 +1,25 @@
+package com.example.userservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.util.List;
+
+
+/**
+ * Тело ответа 400 при ошибках валидации
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+public class ValidationErrorDTO {
+    @Schema(description = "Первая ошибка", example = "Возраст от 1 до 150")
+    private String message;
+    @Schema(description = "Все ошибки по полям в порядке проверки")
+    private List<FieldErrorDTO> errors;
+}
@@ -0,0 +1,18 @@
+package com.example.userservice.exception;
+
+
+import com.example.userservice.service.UserServiceImpl;
+
+/**
+ * Unchecked-исключение
+ * Используется {@link UserServiceImpl}
+ * Говорит наружу, что зачисление увело бы баланс пользователя за предел bigint
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+public class BalanceOverflowException extends RuntimeException {
+    public BalanceOverflowException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.userservice.exception;
+
+
+import com.example.userservice.service.UserServiceImpl;
+
+/**
+ * Unchecked-исключение
+ * Используется {@link UserServiceImpl}
+ * Говорит наружу, что списание увело бы баланс пользователя в минус
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+public class InsufficientFundsException extends RuntimeException {
+    public InsufficientFundsException(String message) {
+        super(message);
+    }
+}
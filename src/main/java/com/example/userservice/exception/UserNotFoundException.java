@@ -0,0 +1,18 @@
+package com.example.userservice.exception;
+
+
+import com.example.userservice.service.UserServiceImpl;
+
+/**
+ * Unchecked-исключение
+ * Используется {@link UserServiceImpl}
+ * Говорит наружу, что пользователя с таким ID нет
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+public class UserNotFoundException extends RuntimeException {
+    public UserNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.userservice.exception;
+
+
+import com.example.userservice.service.ValidationResult;
+import com.example.userservice.service.Validator;
+
+/**
+ * Unchecked-исключение без стека
+ * Используется {@link Validator}, когда вызывающему коду все же нужно исключение
+ * Несет все ошибки по полям, сообщение - первая из них
+ * Стек не заполняется: причина всегда в данных клиента, а не в коде, и на потоке некорректных запросов
+ * его заполнение стоило бы дороже самой проверки
+ * Наследует IllegalArgumentException, чтобы существующие обработчики по-прежнему отвечали 400
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+public class ValidationException extends IllegalArgumentException {
+
+    private final transient ValidationResult result;
+
+    public ValidationException(ValidationResult result) {
+        super(result.firstMessage());
+        this.result = result;
+    }
+
+    public ValidationException(String field, String message) {
+        super(message);
+        this.result = new ValidationResult();
+        this.result.reject(field, message);
+    }
+
+    public ValidationResult getResult() {
+        return result;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
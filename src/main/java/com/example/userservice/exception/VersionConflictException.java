@@ -0,0 +1,18 @@
+package com.example.userservice.exception;
+
+
+import com.example.userservice.service.UserServiceImpl;
+
+/**
+ * Unchecked-исключение
+ * Используется {@link UserServiceImpl}
+ * Говорит наружу, что пользователь успел измениться с версии, которую видел клиент
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+public class VersionConflictException extends RuntimeException {
+    public VersionConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.userservice.format;
+
+import org.springframework.http.MediaType;
+
+import java.util.Locale;
+
+
+/**
+ * Построчные форматы обмена пользователями
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+public enum DataFormat {
+
+    NDJSON(MediaType.parseMediaType("application/x-ndjson;charset=UTF-8"), "ndjson"),
+    CSV(MediaType.parseMediaType("text/csv;charset=UTF-8"), "csv");
+
+    private static final String EXCEPTION_MESSAGE_UNKNOWN_FORMAT = "Поддерживаются форматы ndjson и csv";
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    DataFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @param mediaType Content-Type запроса
+     * @return формат, совместимый с mediaType
+     */
+    public static DataFormat of(MediaType mediaType) {
+        for (DataFormat format : values()) {
+            if (format.mediaType.isCompatibleWith(mediaType)) return format;
+        }
+        throw new IllegalArgumentException(EXCEPTION_MESSAGE_UNKNOWN_FORMAT);
+    }
+
+    /**
+     * @param name имя формата из запроса, регистр не важен
+     * @return формат
+     */
+    public static DataFormat of(String name) {
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException(EXCEPTION_MESSAGE_UNKNOWN_FORMAT);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.userservice.format;
+
+import com.example.userservice.dto.UserDTO;
+
+
+/**
+ * Строка входного файла импорта
+ *
+ * @param line  номер строки во входных данных, начиная с 1
+ * @param user  разобранные данные, null если строку разобрать не удалось
+ * @param error причина, по которой строку разобрать не удалось
+ * @author vmarakushin
+ * @version 1.0
+ */
+public record ImportRow(long line, UserDTO user, String error) {
+
+    public static ImportRow parsed(long line, UserDTO user) {
+        return new ImportRow(line, user, null);
+    }
+
+    public static ImportRow failed(long line, String error) {
+        return new ImportRow(line, null, error);
+    }
+
+    public boolean isParsed() {
+        return user != null;
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.userservice.format;
+
+import com.example.userservice.dto.UserDTO;
+import com.example.userservice.repository.UserField;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+
+/**
+ * Построчная запись пользователей в NDJSON или CSV
+ * Пишет по одной записи, ничего не накапливая в памяти
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Component
+public class UserExportWriter {
+
+    public static final String CSV_HEADER = "id,name,surname,age,phone,email,money,createdAt";
+
+    private final ObjectMapper objectMapper;
+
+    public UserExportWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+
+    /**
+     * @param users  поток пользователей, закрывает вызывающий
+     * @param format формат выгрузки
+     * @param out    куда писать, не закрывается
+     */
+    public void write(Stream<UserDTO> users, DataFormat format, OutputStream out) throws IOException {
+        switch (format) {
+            case NDJSON -> writeNdjson(users.iterator(), out);
+            case CSV -> writeCsv(users.iterator(), out);
+        }
+    }
+
+
+    /**
+     * Выгрузка выбранных полей: строки приходят картами свойство -> значение
+     *
+     * @param rows   поток строк, закрывает вызывающий
+     * @param fields выбранные поля, задают колонки CSV
+     * @param format формат выгрузки
+     * @param out    куда писать, не закрывается
+     */
+    public void writeRows(Stream<Map<String, Object>> rows, Set<UserField> fields,
+                          DataFormat format, OutputStream out) throws IOException {
+        switch (format) {
+            case NDJSON -> writeNdjson(rows.iterator(), out);
+            case CSV -> writeCsvRows(rows.iterator(), fields, out);
+        }
+    }
+
+
+    private void writeNdjson(Iterator<?> users, OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        while (users.hasNext()) {
+            objectMapper.writeValue(generator, users.next());
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+    }
+
+
+    private void writeCsv(Iterator<UserDTO> users, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        while (users.hasNext()) {
+            writeCsvLine(writer, users.next());
+        }
+        writer.flush();
+    }
+
+
+    /**
+     * Одна строка выгрузки с переводом строки, для потоковой выгрузки по записи
+     *
+     * @param user   пользователь
+     * @param format формат выгрузки, колонки CSV как в {@link #CSV_HEADER}
+     * @return строка выгрузки
+     */
+    public String toLine(UserDTO user, DataFormat format) {
+        StringWriter writer = new StringWriter(128);
+        try {
+            switch (format) {
+                case NDJSON -> {
+                    objectMapper.writeValue(writer, user);
+                    writer.write('\n');
+                }
+                case CSV -> writeCsvLine(writer, user);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+
+    private static void writeCsvLine(Writer writer, UserDTO user) throws IOException {
+        writer.write(Long.toString(user.getId()));
+        writer.write(',');
+        writeCsvValue(writer, user.getName());
+        writer.write(',');
+        writeCsvValue(writer, user.getSurname());
+        writer.write(',');
+        writer.write(Integer.toString(user.getAge()));
+        writer.write(',');
+        writeCsvValue(writer, user.getPhone());
+        writer.write(',');
+        writeCsvValue(writer, user.getEmail());
+        writer.write(',');
+        writer.write(Long.toString(user.getMoney()));
+        writer.write(',');
+        if (user.getCreatedAt() != null) writer.write(user.getCreatedAt().toInstant().toString());
+        writer.write('\n');
+    }
+
+
+    private void writeCsvRows(Iterator<Map<String, Object>> rows, Set<UserField> fields,
+                              OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        boolean first = true;
+        for (UserField field : fields) {
+            if (!first) writer.write(',');
+            writer.write(field.getProperty());
+            first = false;
+        }
+        writer.write('\n');
+        while (rows.hasNext()) {
+            Map<String, Object> row = rows.next();
+            first = true;
+            for (UserField field : fields) {
+                if (!first) writer.write(',');
+                Object value = row.get(field.getProperty());
+                if (value instanceof String text) writeCsvValue(writer, text);
+                else if (value instanceof Date date) writer.write(date.toInstant().toString());
+                else if (value != null) writer.write(value.toString());
+                first = false;
+            }
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+
+    /**
+     * Экранирование по RFC 4180: кавычки только если без них значение сломает строку
+     */
+    static void writeCsvValue(Writer writer, String value) throws IOException {
+        if (value == null) return;
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.userservice.format;
+
+import com.example.userservice.dto.UserDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+
+/**
+ * Построчный разбор пользователей из NDJSON или CSV
+ * Строки читаются по мере поступления, ошибка разбора одной строки не прерывает чтение
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Component
+public class UserImportReader {
+
+    private static final String EXCEPTION_MESSAGE_INVALID_JSON = "Некорректный JSON";
+    private static final String EXCEPTION_MESSAGE_INVALID_CSV = "Некорректная строка CSV";
+    private static final String EXCEPTION_MESSAGE_COLUMNS = "Количество колонок не совпадает с заголовком";
+    private static final String EXCEPTION_MESSAGE_NUMBER = "Необходимо целое число в колонке ";
+    private static final String EXCEPTION_MESSAGE_NO_HEADER = "В CSV нет заголовка с колонками ";
+    private static final List<String> CSV_REQUIRED_COLUMNS = List.of("name", "surname", "age", "phone", "email");
+
+    private final ObjectMapper objectMapper;
+
+    public UserImportReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+
+    /**
+     * @param in     входные данные в UTF-8, закрывает вызывающий
+     * @param format формат входных данных
+     * @return ленивый поток разобранных строк, пустые строки пропускаются
+     */
+    public Stream<ImportRow> read(InputStream in, DataFormat format) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        LineParser parser = switch (format) {
+            case NDJSON -> this::parseJson;
+            case CSV -> new CsvParser();
+        };
+
+        Spliterator<ImportRow> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            private long lineNumber;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super ImportRow> action) {
+                try {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        lineNumber++;
+                        if (line.isBlank()) continue;
+                        ImportRow row = parser.parse(lineNumber, line);
+                        if (row == null) continue;
+                        action.accept(row);
+                        return true;
+                    }
+                    return false;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        return StreamSupport.stream(spliterator, false);
+    }
+
+
+    private ImportRow parseJson(long line, String text) {
+        try {
+            UserDTO user = objectMapper.readValue(text, UserDTO.class);
+            return user == null
+                    ? ImportRow.failed(line, EXCEPTION_MESSAGE_INVALID_JSON)
+                    : ImportRow.parsed(line, user);
+        } catch (JsonProcessingException e) {
+            return ImportRow.failed(line, EXCEPTION_MESSAGE_INVALID_JSON);
+        }
+    }
+
+
+    @FunctionalInterface
+    private interface LineParser {
+        /**
+         * @return разобранная строка или null, если строка служебная (заголовок CSV)
+         */
+        ImportRow parse(long line, String text);
+    }
+
+
+    /**
+     * Первая непустая строка - заголовок, колонки сопоставляются по именам
+     * id и createdAt игнорируются, money необязательна
+     */
+    private static final class CsvParser implements LineParser {
+
+        private Map<String, Integer> columns;
+
+        @Override
+        public ImportRow parse(long line, String text) {
+            List<String> values = split(text);
+            if (columns == null) {
+                if (values == null) {
+                    columns = Map.of();
+                    return ImportRow.failed(line, EXCEPTION_MESSAGE_INVALID_CSV);
+                }
+                columns = new HashMap<>();
+                for (int i = 0; i < values.size(); i++)
+                    columns.put(values.get(i).trim().toLowerCase(Locale.ROOT), i);
+                if (!columns.keySet().containsAll(CSV_REQUIRED_COLUMNS))
+                    return ImportRow.failed(line, EXCEPTION_MESSAGE_NO_HEADER + String.join(",", CSV_REQUIRED_COLUMNS));
+                return null;
+            }
+            if (!columns.keySet().containsAll(CSV_REQUIRED_COLUMNS))
+                return ImportRow.failed(line, EXCEPTION_MESSAGE_NO_HEADER + String.join(",", CSV_REQUIRED_COLUMNS));
+            if (values == null) return ImportRow.failed(line, EXCEPTION_MESSAGE_INVALID_CSV);
+            if (values.size() != columns.size()) return ImportRow.failed(line, EXCEPTION_MESSAGE_COLUMNS);
+
+            UserDTO user = new UserDTO();
+            user.setName(values.get(columns.get("name")));
+            user.setSurname(values.get(columns.get("surname")));
+            user.setPhone(values.get(columns.get("phone")));
+            user.setEmail(values.get(columns.get("email")));
+            try {
+                user.setAge(Integer.parseInt(values.get(columns.get("age"))));
+            } catch (NumberFormatException e) {
+                return ImportRow.failed(line, EXCEPTION_MESSAGE_NUMBER + "age");
+            }
+            Integer money = columns.get("money");
+            if (money != null && !values.get(money).isEmpty()) {
+                try {
+                    user.setMoney(Long.parseLong(values.get(money)));
+                } catch (NumberFormatException e) {
+                    return ImportRow.failed(line, EXCEPTION_MESSAGE_NUMBER + "money");
+                }
+            }
+            return ImportRow.parsed(line, user);
+        }
+
+        /**
+         * Разбор строки по RFC 4180 в пределах одной физической строки
+         *
+         * @return значения колонок или null, если кавычки не сбалансированы
+         */
+        static List<String> split(String text) {
+            List<String> values = new ArrayList<>();
+            StringBuilder value = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (quoted) {
+                    if (c != '"') {
+                        value.append(c);
+                    } else if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                        value.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    values.add(value.toString());
+                    value.setLength(0);
+                } else {
+                    value.append(c);
+                }
+            }
+            if (quoted) return null;
+            values.add(value.toString());
+            return values;
+        }
+    }
+}
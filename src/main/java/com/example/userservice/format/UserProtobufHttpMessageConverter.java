@@ -0,0 +1,109 @@
+package com.example.userservice.format;
+
+import com.example.userservice.dto.RequestUserDTO;
+import com.example.userservice.dto.UserDTO;
+import com.example.userservice.dto.UserPageDTO;
+import com.example.userservice.format.proto.User;
+import com.example.userservice.format.proto.UserPage;
+import com.example.userservice.format.proto.UserRequest;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Date;
+
+
+/**
+ * Конвертер application/x-protobuf для DTO пользователей
+ * Схема сообщений - src/main/proto/user.proto, DTO и контроллеры о Protobuf не знают
+ * Пустые строки и нулевая дата в сообщении соответствуют null в DTO
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Component
+public class UserProtobufHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+    public static final String PROTOBUF_VALUE = "application/x-protobuf";
+    public static final MediaType PROTOBUF = MediaType.parseMediaType(PROTOBUF_VALUE);
+
+    public UserProtobufHttpMessageConverter() {
+        super(PROTOBUF);
+    }
+
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == UserDTO.class || clazz == RequestUserDTO.class || clazz == UserPageDTO.class;
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        if (clazz == UserDTO.class) return toDto(User.parseFrom(inputMessage.getBody()));
+        if (clazz == RequestUserDTO.class) return new RequestUserDTO(UserRequest.parseFrom(inputMessage.getBody()).getId());
+        if (clazz == UserPageDTO.class) return toDto(UserPage.parseFrom(inputMessage.getBody()));
+        throw new HttpMessageNotReadableException("Неподдерживаемый тип " + clazz.getName(), inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object dto, HttpOutputMessage outputMessage) throws IOException {
+        switch (dto) {
+            case UserDTO user -> toProto(user).writeTo(outputMessage.getBody());
+            case RequestUserDTO request -> UserRequest.newBuilder().setId(request.getId()).build()
+                    .writeTo(outputMessage.getBody());
+            case UserPageDTO page -> toProto(page).writeTo(outputMessage.getBody());
+            default -> throw new IllegalStateException("Неподдерживаемый тип " + dto.getClass().getName());
+        }
+    }
+
+
+    public static User toProto(UserDTO dto) {
+        User.Builder builder = User.newBuilder()
+                .setId(dto.getId())
+                .setAge(dto.getAge())
+                .setMoney(dto.getMoney())
+                .setVersion(dto.getVersion());
+        if (dto.getName() != null) builder.setName(dto.getName());
+        if (dto.getSurname() != null) builder.setSurname(dto.getSurname());
+        if (dto.getPhone() != null) builder.setPhone(dto.getPhone());
+        if (dto.getEmail() != null) builder.setEmail(dto.getEmail());
+        if (dto.getCreatedAt() != null) builder.setCreatedAt(dto.getCreatedAt().getTime());
+        return builder.build();
+    }
+
+    public static UserPage toProto(UserPageDTO dto) {
+        UserPage.Builder builder = UserPage.newBuilder();
+        for (UserDTO user : dto.getUsers()) builder.addUsers(toProto(user));
+        if (dto.getNextCursor() != null) builder.setNextCursor(dto.getNextCursor());
+        return builder.build();
+    }
+
+    public static UserDTO toDto(User user) {
+        return UserDTO.builder()
+                .id(user.getId())
+                .name(emptyToNull(user.getName()))
+                .surname(emptyToNull(user.getSurname()))
+                .age(user.getAge())
+                .phone(emptyToNull(user.getPhone()))
+                .email(emptyToNull(user.getEmail()))
+                .money(user.getMoney())
+                .createdAt(user.getCreatedAt() == 0L ? null : new Date(user.getCreatedAt()))
+                .version(user.getVersion())
+                .build();
+    }
+
+    public static UserPageDTO toDto(UserPage page) {
+        return new UserPageDTO(
+                page.getUsersList().stream().map(UserProtobufHttpMessageConverter::toDto).toList(),
+                emptyToNull(page.getNextCursor()));
+    }
+
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
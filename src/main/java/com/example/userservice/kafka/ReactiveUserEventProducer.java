@@ -0,0 +1,37 @@
+package com.example.userservice.kafka;
+
+
+import com.example.userservice.dto.UserDTO;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import org.springframework.kafka.core.reactive.ReactiveKafkaProducerTemplate;
+
+
+/**
+ * Неблокирующий издатель сообщений Kafka (профиль reactive)
+ * Топик, события, ключ и заголовок origin те же, что у {@link UserEventProducer}
+ *
+ * @author vmarakushin
+ * @version 2.0
+ */
+@Component
+@Profile("reactive")
+public class ReactiveUserEventProducer {
+
+    private final ReactiveKafkaProducerTemplate<String, Object> kafkaTemplate;
+
+    public ReactiveUserEventProducer(ReactiveKafkaProducerTemplate<String, Object> kafkaTemplate) {
+        this.kafkaTemplate = kafkaTemplate;
+    }
+
+    /**
+     * @return Mono, завершающийся после подтверждения брокером
+     */
+    public Mono<Void> sendUserEvent(String operation, UserDTO user) {
+        UserEvent event = new UserEvent(operation, user.getEmail(), user.getId(), user.getVersion(), user.getPhone());
+        return kafkaTemplate.send(UserEventProducer.record(String.valueOf(user.getId()), event))
+                .flatMap(result -> result.exception() == null ? Mono.empty() : Mono.error(result.exception()))
+                .then();
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.userservice.kafka;
+
+import java.util.List;
+
+/**
+ * Событие-сообщение для Kafka о массовой операции
+ * Одно сообщение на пачку вместо сообщения на каждого пользователя
+ *
+ * @param operation BULK_UPDATE, BULK_DELETE или IMPORT (у импорта списки пустые - прочитать надо всю таблицу)
+ * @param emails    адреса затронутых пользователей пачки
+ * @param ids       ID тех же пользователей в том же порядке
+ * @param versions  их версии после операции, для BULK_DELETE - последние перед удалением
+ * @author vmarakushin
+ * @version 3.0
+ */
+public record UserBatchEvent(String operation, List<String> emails, List<Long> ids, List<Long> versions) {}
@@ -3,9 +3,12 @@ package com.example.userservice.kafka;
 /**
  * Событие-сообщение для Kafka
  *
- * @param operation CREATE или DELETE для соответствующего сообщения
+ * @param operation CREATE, UPDATE или DELETE для соответствующего сообщения
  * @param email адрес жертвы
+ * @param id ID пользователя, null в старых сообщениях без него
+ * @param version версия пользователя после операции, для DELETE - последняя перед удалением
+ * @param phone телефон пользователя после операции, null в старых сообщениях
  * @author vmarakushin
- * @version 1.0
+ * @version 3.0
  */
-public record UserEvent(String operation, String email) {}
\ No newline at end of file
+public record UserEvent(String operation, String email, Long id, Long version, String phone) {}
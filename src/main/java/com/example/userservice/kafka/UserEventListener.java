@@ -0,0 +1,97 @@
+package com.example.userservice.kafka;
+
+
+import com.example.userservice.service.UserCache;
+import com.example.userservice.service.UserExistenceFilter;
+import org.springframework.kafka.annotation.KafkaHandler;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+
+/**
+ * Подписчик на свой же топик user-events, держит {@link UserCache} и {@link UserExistenceFilter}
+ * согласованными между экземплярами, консолью и реактивным стеком
+ * У каждого экземпляра своя группа (userservice.cache.sync-group-id), поэтому сообщения получают все,
+ * включая автора изменения - его запись уже новее события и не трогается
+ * <p>
+ * Читается только новое (auto-offset-reset: latest): при старте кеш пустой, догонять историю незачем
+ * Порядок между партициями не гарантирован, поэтому решает версия, а не порядок прихода,
+ * см. {@link UserCache#onRemoteUpdate(long, long)}
+ * <p>
+ * Фильтр существования получает новые email и телефон из CREATE и UPDATE, удаления он не видит -
+ * оставшееся значение дает лишь ложное "возможно есть"
+ * Свои события (заголовок origin) фильтр не трогают: автор уже учел их по событию после коммита,
+ * второй счет только раздувал бы размер фильтра
+ *
+ * @author vmarakushin
+ * @version 2.0
+ */
+@Component
+@KafkaListener(topics = UserEventProducer.TOPIC, groupId = "${userservice.cache.sync-group-id}",
+        autoStartup = "${userservice.cache.sync:true}")
+public class UserEventListener {
+
+    private static final String DELETE = "DELETE";
+    private static final String BULK_DELETE = "BULK_DELETE";
+    private static final String IMPORT = "IMPORT";
+
+    private final UserCache userCache;
+    private final UserExistenceFilter existenceFilter;
+
+    public UserEventListener(UserCache userCache, UserExistenceFilter existenceFilter) {
+        this.userCache = userCache;
+        this.existenceFilter = existenceFilter;
+    }
+
+
+    /**
+     * Сообщения без ID (старые версии) до кеша не доходят: по email кеш не ищет
+     */
+    @KafkaHandler
+    public void onUserEvent(UserEvent event,
+                            @Header(name = UserEventProducer.ORIGIN_HEADER, required = false) byte[] origin) {
+        boolean deleted = DELETE.equals(event.operation());
+        if (!deleted && !own(origin)) existenceFilter.onRemoteChange(event.email(), event.phone());
+        if (event.id() == null) return;
+        apply(deleted, event.id(), event.version());
+    }
+
+    /**
+     * Массовое обновление email и телефон не меняет, поэтому фильтр существования трогает только импорт
+     */
+    @KafkaHandler
+    public void onUserBatchEvent(UserBatchEvent event,
+                                 @Header(name = UserEventProducer.ORIGIN_HEADER, required = false) byte[] origin) {
+        if (IMPORT.equals(event.operation())) {
+            if (own(origin)) return;
+            userCache.onRemoteImport();
+            existenceFilter.onRemoteImport();
+            return;
+        }
+        List<Long> ids = event.ids();
+        if (ids == null) return;
+        boolean deleted = BULK_DELETE.equals(event.operation());
+        for (int i = 0; i < ids.size(); i++) apply(deleted, ids.get(i), event.versions().get(i));
+    }
+
+    @KafkaHandler(isDefault = true)
+    public void onUnknown(Object event) {
+    }
+
+
+    private static boolean own(byte[] origin) {
+        return origin != null && UserEventProducer.ORIGIN.equals(new String(origin, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Без версии запись сбрасывается безусловно
+     */
+    private void apply(boolean deleted, long id, Long version) {
+        if (deleted) userCache.onRemoteDelete(id);
+        else userCache.onRemoteUpdate(id, version == null ? Long.MAX_VALUE : version);
+    }
+}
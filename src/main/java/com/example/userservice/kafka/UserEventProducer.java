@@ -1,29 +1,54 @@
 package com.example.userservice.kafka;
 
 
+import com.example.userservice.dto.UserDTO;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeader;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
 
 /**
  * Издатель сообщений Kafka
- * Публикует {@link UserEvent}
+ * Публикует {@link UserEvent} и {@link UserBatchEvent}
+ * Ключ сообщения - ID пользователя (у пачки - первого в ней), события одного пользователя попадают
+ * в одну партицию и читаются по порядку
+ * В заголовке origin - метка экземпляра-автора, по ней {@link UserEventListener} узнает свои же события
  *
  * @author vmarakushin
- * @version 1.0
+ * @version 3.0
  */
 @Component
 public class UserEventProducer {
-    private static final String TOPIC = "user-events";
+    static final String TOPIC = "user-events";
+    static final String ORIGIN_HEADER = "origin";
+    static final String ORIGIN = UUID.randomUUID().toString();
 
-    private final KafkaTemplate<String, UserEvent> kafkaTemplate;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
 
-    public UserEventProducer(KafkaTemplate<String, UserEvent> kafkaTemplate) {
+    public UserEventProducer(KafkaTemplate<String, Object> kafkaTemplate) {
         this.kafkaTemplate = kafkaTemplate;
     }
 
-    public void sendUserEvent(String operation, String email) {
-        UserEvent event = new UserEvent(operation, email);
-        kafkaTemplate.send(TOPIC, event);
+    public void sendUserEvent(String operation, UserDTO user) {
+        UserEvent event = new UserEvent(operation, user.getEmail(), user.getId(), user.getVersion(), user.getPhone());
+        kafkaTemplate.send(record(String.valueOf(user.getId()), event));
+    }
+
+    public void sendUserBatchEvent(String operation, List<UserDTO> users) {
+        UserBatchEvent event = new UserBatchEvent(operation,
+                users.stream().map(UserDTO::getEmail).toList(),
+                users.stream().map(UserDTO::getId).toList(),
+                users.stream().map(UserDTO::getVersion).toList());
+        kafkaTemplate.send(record(users.isEmpty() ? null : String.valueOf(users.get(0).getId()), event));
+    }
+
+    static ProducerRecord<String, Object> record(String key, Object event) {
+        return new ProducerRecord<>(TOPIC, null, key, event,
+                List.of(new RecordHeader(ORIGIN_HEADER, ORIGIN.getBytes(StandardCharsets.UTF_8))));
     }
-}
\ No newline at end of file
+}
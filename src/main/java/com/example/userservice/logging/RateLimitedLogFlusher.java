@@ -0,0 +1,38 @@
+package com.example.userservice.logging;
+
+import com.example.userservice.config.UserServiceProperties;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Выставляет лимиты {@link RateLimitedLogger} из userservice.logging
+ * и раз в секунду выводит сводки подавленных сообщений по ключам, которые затихли
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Component
+public class RateLimitedLogFlusher implements InitializingBean {
+
+    private final UserServiceProperties properties;
+
+
+    public RateLimitedLogFlusher(UserServiceProperties properties) {
+        this.properties = properties;
+    }
+
+
+    @Override
+    public void afterPropertiesSet() {
+        RateLimitedLogger.configure(properties.getLogging().getPermits(), properties.getLogging().getWindow());
+    }
+
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.SECONDS)
+    public void flush() {
+        RateLimitedLogger.flushAll();
+    }
+}
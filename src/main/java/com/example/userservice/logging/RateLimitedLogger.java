@@ -0,0 +1,167 @@
+package com.example.userservice.logging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+import org.slf4j.spi.LoggingEventBuilder;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+
+/**
+ * Логгер для горячих путей: ошибки валидации, ошибки репозитория, сбои Kafka
+ * На каждый ключ сообщения в окне пропускается не больше permits событий, остальные только считаются
+ * Когда окно закончилось, выводится одна сводка "подавлено N сообщений"
+ * <p>
+ * Сообщения параметризованные, ключ и счетчики идут отдельными полями события (key=value), а не в тексте
+ * Стек исключения пишется только у первого события окна, у остальных - класс и сообщение исключения
+ * <p>
+ * Лимиты общие для всех экземпляров, их выставляет {@link RateLimitedLogFlusher} из userservice.logging
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+public final class RateLimitedLogger {
+
+    private static final Set<RateLimitedLogger> INSTANCES = ConcurrentHashMap.newKeySet();
+    private static volatile int defaultPermits = 10;
+    private static volatile long defaultWindowNanos = Duration.ofSeconds(1).toNanos();
+
+    private final Logger logger;
+    private final Integer permits;
+    private final Long windowNanos;
+    private final LongSupplier clock;
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+
+    RateLimitedLogger(Logger logger, Integer permits, Long windowNanos, LongSupplier clock) {
+        this.logger = logger;
+        this.permits = permits;
+        this.windowNanos = windowNanos;
+        this.clock = clock;
+    }
+
+    /**
+     * @param type класс, от имени которого пишется лог
+     * @return логгер с общими лимитами
+     */
+    public static RateLimitedLogger getLogger(Class<?> type) {
+        RateLimitedLogger logger = new RateLimitedLogger(LoggerFactory.getLogger(type), null, null, System::nanoTime);
+        INSTANCES.add(logger);
+        return logger;
+    }
+
+    /**
+     * @param permits сколько событий одного ключа пропускать за окно
+     * @param window  длина окна
+     */
+    public static void configure(int permits, Duration window) {
+        if (permits < 1) throw new IllegalArgumentException("permits должен быть больше 0");
+        defaultPermits = permits;
+        defaultWindowNanos = window.toNanos();
+    }
+
+    /**
+     * Выводит сводки по всем окнам, которые закончились, но после которых событий этого ключа не было
+     */
+    public static void flushAll() {
+        INSTANCES.forEach(RateLimitedLogger::flush);
+    }
+
+
+    public void warn(String key, String format, Object... arguments) {
+        log(Level.WARN, key, null, format, arguments);
+    }
+
+    public void warn(String key, String message, Throwable e) {
+        log(Level.WARN, key + '|' + e.getClass().getName(), e, message);
+    }
+
+    public void error(String key, String message, Throwable e) {
+        log(Level.ERROR, key + '|' + e.getClass().getName(), e, message);
+    }
+
+
+    private void log(Level level, String key, Throwable e, String format, Object... arguments) {
+        if (!logger.isEnabledForLevel(level)) return;
+
+        Window window = windows.computeIfAbsent(key, ignored -> new Window(level));
+        long now = clock.getAsLong();
+        int emitted;
+        long suppressed;
+        synchronized (window) {
+            suppressed = window.rollIfEnded(now, windowNanos());
+            emitted = ++window.emitted;
+            if (emitted > permits()) window.suppressed++;
+        }
+        if (suppressed > 0) summary(level, key, suppressed);
+        if (emitted > permits()) return;
+
+        LoggingEventBuilder event = logger.atLevel(level).addKeyValue("key", key).setMessage(format);
+        for (Object argument : arguments) event.addArgument(argument);
+        if (e != null) {
+            if (emitted == 1) event.setCause(e);
+            else event.addKeyValue("exception", e.getClass().getName() + ": " + e.getMessage());
+        }
+        event.log();
+    }
+
+    void flush() {
+        long now = clock.getAsLong();
+        windows.forEach((key, window) -> {
+            long suppressed;
+            synchronized (window) {
+                suppressed = window.rollIfEnded(now, windowNanos());
+            }
+            if (suppressed > 0) summary(window.level, key, suppressed);
+        });
+    }
+
+    private void summary(Level level, String key, long suppressed) {
+        logger.atLevel(level)
+                .addKeyValue("key", key)
+                .addKeyValue("suppressed", suppressed)
+                .log("Подавлено {} сообщений за {} мс", suppressed, windowNanos() / 1_000_000);
+    }
+
+    private int permits() {
+        return permits != null ? permits : defaultPermits;
+    }
+
+    private long windowNanos() {
+        return windowNanos != null ? windowNanos : defaultWindowNanos;
+    }
+
+
+    /**
+     * Окно одного ключа, меняется только под synchronized
+     */
+    private static final class Window {
+        private final Level level;
+        private long start = Long.MIN_VALUE;
+        private int emitted;
+        private long suppressed;
+
+        Window(Level level) {
+            this.level = level;
+        }
+
+        /**
+         * Начинает новое окно, если текущее закончилось
+         *
+         * @return сколько событий было подавлено в закончившемся окне
+         */
+        long rollIfEnded(long now, long length) {
+            if (start != Long.MIN_VALUE && now - start < length) return 0;
+            long result = suppressed;
+            start = now;
+            emitted = 0;
+            suppressed = 0;
+            return result;
+        }
+    }
+}
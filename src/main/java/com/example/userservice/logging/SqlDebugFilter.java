@@ -0,0 +1,57 @@
+package com.example.userservice.logging;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+
+/**
+ * Отмечает запрос с заголовком X-Debug-Sql для {@link SqlDebugTurboFilter}
+ * Значение заголовка должно совпасть с userservice.logging.sql-debug-token, пустой токен - функция выключена
+ * Работает для блокирующего стека, в профиле reactive MDC между потоками не переносится
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Component
+public class SqlDebugFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-Debug-Sql";
+
+    private final byte[] token;
+
+
+    public SqlDebugFilter(@Value("${userservice.logging.sql-debug-token:}") String token) {
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+    }
+
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!matches(request.getHeader(HEADER))) {
+            chain.doFilter(request, response);
+            return;
+        }
+        MDC.put(SqlDebugTurboFilter.MDC_KEY, "true");
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            MDC.remove(SqlDebugTurboFilter.MDC_KEY);
+        }
+    }
+
+    private boolean matches(String header) {
+        if (header == null || token.length == 0) return false;
+        return MessageDigest.isEqual(header.getBytes(StandardCharsets.UTF_8), token);
+    }
+}
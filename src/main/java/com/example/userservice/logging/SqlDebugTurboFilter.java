@@ -0,0 +1,47 @@
+package com.example.userservice.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+
+/**
+ * Включает логирование SQL и параметров только для отмеченного запроса
+ * Подключается в logback-spring.xml, срабатывает раньше проверки уровня логгера,
+ * поэтому в профиле prod логгеры SQL могут оставаться на WARN
+ * Запрос отмечает {@link SqlDebugFilter} через MDC
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+public class SqlDebugTurboFilter extends TurboFilter {
+
+    /**
+     * Ключ MDC, которым отмечен запрос
+     */
+    public static final String MDC_KEY = "sqlDebug";
+
+    private static final String[] LOGGERS = {
+            "org.hibernate.SQL",
+            "org.hibernate.orm.jdbc.bind",
+            "org.springframework.jdbc.core.JdbcTemplate",
+            "org.springframework.jdbc.core.StatementCreatorUtils"
+    };
+
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (!isSqlLogger(logger.getName()) || MDC.get(MDC_KEY) == null) return FilterReply.NEUTRAL;
+        return FilterReply.ACCEPT;
+    }
+
+    private static boolean isSqlLogger(String name) {
+        for (String prefix : LOGGERS) {
+            if (name.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+}
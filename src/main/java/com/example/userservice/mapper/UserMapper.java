@@ -1,12 +1,18 @@
 package com.example.userservice.mapper;
 
 import com.example.userservice.dto.UserDTO;
+import com.example.userservice.dto.UserFilterDTO;
+import com.example.userservice.dto.UserSearchHitDTO;
 import com.example.userservice.model.User;
+import com.example.userservice.repository.UserFilter;
+import com.example.userservice.repository.UserSearchHit;
 import org.springframework.stereotype.Component;
 
 
 /**
  * Маппер {@link User} <-> {@link UserDTO}
+ * и {@link UserFilterDTO} -> {@link UserFilter}
+ * и {@link UserSearchHit} -> {@link UserSearchHitDTO}
  *
  * @author vmarakushin
  * @version 1.0
@@ -26,6 +32,7 @@ public class UserMapper {
                 .email(user.getEmail())
                 .money(user.getMoney())
                 .createdAt(user.getCreatedAt())
+                .version(user.getVersion())
                 .build();
     }
 
@@ -41,6 +48,23 @@ public class UserMapper {
                 .email(dto.getEmail())
                 .money(dto.getMoney())
                 .createdAt(dto.getCreatedAt())
+                .version(dto.getVersion())
                 .build();
     }
-}
\ No newline at end of file
+
+    public UserFilter toFilter(UserFilterDTO dto) {
+        if (dto == null) return null;
+
+        return new UserFilter(
+                dto.getMinAge(),
+                dto.getMaxAge(),
+                dto.getCreatedFrom(),
+                dto.getCreatedTo(),
+                dto.getMinMoney(),
+                dto.getMaxMoney());
+    }
+
+    public UserSearchHitDTO toDto(UserSearchHit hit) {
+        return new UserSearchHitDTO(hit.id(), hit.name(), hit.surname(), hit.score());
+    }
+}
@@ -3,6 +3,7 @@ package com.example.userservice.model;
 import lombok.*;
 import lombok.experimental.Accessors;
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.Date;
 
@@ -10,23 +11,30 @@ import java.util.Date;
 /**
  * Класс {@code User} представляет собой сущность пользователя.
  * Основные данные: ID, имя, фамилия, возраст, номер телефона, email, время создания и баланс.
+ * Версия строки увеличивается Hibernate при каждом обновлении и служит основой ETag.
+ * Email и телефон уникальны: ограничения {@link #EMAIL_UNIQUE_CONSTRAINT} и {@link #PHONE_UNIQUE_CONSTRAINT}.
  * Содержит в себе геттеры для всех полей
- * и сеттеры для: name, surname, age, phone, email
+ * и сеттеры для: name, surname, age, phone, email, money
  * а также методы для работы с балансом.
  *
  * @author vmarakushin
- * @version 3.0
+ * @version 3.1
  */
 @Getter
 @Accessors(chain = true)
 @Entity
-@Table(name = "users")
+@Table(name = "users", uniqueConstraints = {
+        @UniqueConstraint(name = User.EMAIL_UNIQUE_CONSTRAINT, columnNames = "email"),
+        @UniqueConstraint(name = User.PHONE_UNIQUE_CONSTRAINT, columnNames = "phone")})
 @ToString
 @EqualsAndHashCode
 @Builder
 @AllArgsConstructor
 public class User {
 
+    public static final String EMAIL_UNIQUE_CONSTRAINT = "users_email_key";
+    public static final String PHONE_UNIQUE_CONSTRAINT = "users_phone_key";
+
     /**
      * ID
      */
@@ -68,6 +76,7 @@ public class User {
     /**
      * Баланс
      */
+    @Setter
     private long money;
 
     /**
@@ -76,6 +85,14 @@ public class User {
     @Column(updatable = false)
     private final Date createdAt;
 
+    /**
+     * Версия строки для оптимистичной блокировки
+     * Значение по умолчанию в БД нужно строкам, вставленным в обход Hibernate (импорт, старые данные)
+     */
+    @Version
+    @ColumnDefault("0")
+    private long version;
+
 
     public User() {
         this.createdAt = new Date();
@@ -114,6 +131,7 @@ public class User {
                 .email(this.email)
                 .money(this.money)
                 .createdAt(new Date(this.createdAt.getTime()))
+                .version(this.version)
                 .build();
     }
 }
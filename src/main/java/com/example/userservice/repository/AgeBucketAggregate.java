@@ -0,0 +1,15 @@
+package com.example.userservice.repository;
+
+/**
+ * Агрегат по одной корзине возраста шириной {@link #WIDTH} лет
+ *
+ * @param bucket номер корзины, age / WIDTH
+ * @param users  количество пользователей
+ * @param money  сумма баланса
+ * @author vmarakushin
+ * @version 1.0
+ */
+public record AgeBucketAggregate(int bucket, long users, long money) {
+
+    public static final int WIDTH = 10;
+}
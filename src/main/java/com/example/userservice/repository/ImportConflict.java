@@ -0,0 +1,13 @@
+package com.example.userservice.repository;
+
+
+/**
+ * Строка импорта, которую нельзя влить в users из-за занятых email или телефона
+ *
+ * @param line       номер строки во входных данных
+ * @param emailTaken email уже используется
+ * @param phoneTaken телефон уже используется
+ * @author vmarakushin
+ * @version 1.0
+ */
+public record ImportConflict(long line, boolean emailTaken, boolean phoneTaken) {}
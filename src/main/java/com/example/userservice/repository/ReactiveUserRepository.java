@@ -0,0 +1,157 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.model.User;
+import io.r2dbc.spi.Readable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+
+/**
+ * Неблокирующий доступ к users через R2DBC
+ * Используется реактивным вариантом API (профиль reactive), SQL тот же, что в JDBC-фрагменте
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveUserRepository {
+
+    private static final String SQL_FIND_BY_ID = "SELECT " + UserRowMapper.COLUMNS + " FROM users WHERE id = :id";
+    private static final String SQL_FIND_VERSION_BY_ID = "SELECT version FROM users WHERE id = :id";
+    private static final String SQL_FIND_PAGE =
+            "SELECT " + UserRowMapper.COLUMNS + " FROM users WHERE id > :afterId ORDER BY id LIMIT :limit";
+    private static final String SQL_FIND_ALL = "SELECT " + UserRowMapper.COLUMNS + " FROM users ORDER BY id";
+    private static final String SQL_INSERT = """
+            INSERT INTO users (name, surname, age, phone, email, money, created_at, version)
+            VALUES (:name, :surname, :age, :phone, :email, :money, :createdAt, 0)""";
+    private static final String SQL_UPDATE = """
+            UPDATE users SET name = :name, surname = :surname, age = :age, phone = :phone, email = :email,
+                money = :money, version = version + 1
+            WHERE id = :id AND version = :version""";
+    private static final String SQL_DELETE = "DELETE FROM users WHERE id = :id";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveUserRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+
+    public Mono<User> findById(long id) {
+        return databaseClient.sql(SQL_FIND_BY_ID)
+                .bind("id", id)
+                .map(ReactiveUserRepository::mapRow)
+                .one();
+    }
+
+    public Mono<Long> findVersionById(long id) {
+        return databaseClient.sql(SQL_FIND_VERSION_BY_ID)
+                .bind("id", id)
+                .map(row -> row.get("version", Long.class))
+                .one();
+    }
+
+    /**
+     * Keyset-страница: WHERE id > :afterId ORDER BY id LIMIT :limit
+     */
+    public Flux<User> findPage(long afterId, int limit) {
+        return databaseClient.sql(SQL_FIND_PAGE)
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(ReactiveUserRepository::mapRow)
+                .all();
+    }
+
+    /**
+     * Вся таблица по возрастанию ID, строки приходят по мере запроса подписчиком
+     */
+    public Flux<User> findAll() {
+        return databaseClient.sql(SQL_FIND_ALL)
+                .map(ReactiveUserRepository::mapRow)
+                .all();
+    }
+
+    /**
+     * Вставка одной командой: из БД возвращается только сгенерированный ID,
+     * остальное известно заранее - привязанные значения и версия 0 из INSERT
+     *
+     * @return вставленная строка
+     */
+    public Mono<User> insert(User user) {
+        LocalDateTime createdAt = user.getCreatedAt() == null
+                ? LocalDateTime.now()
+                : new Timestamp(user.getCreatedAt().getTime()).toLocalDateTime();
+        return databaseClient.sql(SQL_INSERT)
+                .bind("name", user.getName())
+                .bind("surname", user.getSurname())
+                .bind("age", user.getAge())
+                .bind("phone", user.getPhone())
+                .bind("email", user.getEmail())
+                .bind("money", user.getMoney())
+                .bind("createdAt", createdAt)
+                .filter(statement -> statement.returnGeneratedValues("id"))
+                .map(row -> User.builder()
+                        .id(row.get("id", Long.class))
+                        .name(user.getName())
+                        .surname(user.getSurname())
+                        .age(user.getAge())
+                        .phone(user.getPhone())
+                        .email(user.getEmail())
+                        .money(user.getMoney())
+                        .createdAt(Timestamp.valueOf(createdAt))
+                        .version(0L)
+                        .build())
+                .one();
+    }
+
+    /**
+     * Обновление с проверкой версии в том же UPDATE
+     *
+     * @param user            новые данные, ID пользователя
+     * @param expectedVersion версия, которую видел вызывающий
+     * @return false, если версия уже другая или пользователя нет
+     */
+    public Mono<Boolean> update(User user, long expectedVersion) {
+        return databaseClient.sql(SQL_UPDATE)
+                .bind("name", user.getName())
+                .bind("surname", user.getSurname())
+                .bind("age", user.getAge())
+                .bind("phone", user.getPhone())
+                .bind("email", user.getEmail())
+                .bind("money", user.getMoney())
+                .bind("id", user.getId())
+                .bind("version", expectedVersion)
+                .fetch()
+                .rowsUpdated()
+                .map(rows -> rows > 0);
+    }
+
+    public Mono<Void> deleteById(long id) {
+        return databaseClient.sql(SQL_DELETE)
+                .bind("id", id)
+                .then();
+    }
+
+
+    private static User mapRow(Readable row) {
+        LocalDateTime createdAt = row.get("created_at", LocalDateTime.class);
+        return User.builder()
+                .id(row.get("id", Long.class))
+                .name(row.get("name", String.class))
+                .surname(row.get("surname", String.class))
+                .age(row.get("age", Integer.class))
+                .phone(row.get("phone", String.class))
+                .email(row.get("email", String.class))
+                .money(row.get("money", Long.class))
+                .createdAt(createdAt == null ? null : Timestamp.valueOf(createdAt))
+                .version(row.get("version", Long.class))
+                .build();
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.userservice.repository;
+
+import java.util.Locale;
+
+
+/**
+ * Режим поиска пользователей по имени и фамилии
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+public enum SearchMode {
+
+    /**
+     * Имя или фамилия начинаются с запроса, без учета регистра
+     * Результаты по алфавиту: точное совпадение идет первым
+     */
+    PREFIX,
+
+    /**
+     * Запрос похож на слово из "имя фамилия" (триграммы, опечатки допустимы)
+     * Результаты по убыванию похожести
+     */
+    FUZZY;
+
+    private static final String EXCEPTION_MESSAGE_UNKNOWN_MODE = "Поддерживаются режимы поиска prefix и fuzzy";
+
+    /**
+     * @param name имя режима из запроса, регистр не важен, null - PREFIX
+     * @return режим
+     */
+    public static SearchMode of(String name) {
+        if (name == null || name.isBlank()) return PREFIX;
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(EXCEPTION_MESSAGE_UNKNOWN_MODE);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.userservice.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+
+/**
+ * Поля пользователя, доступные для выборочного чтения (?fields=id,email)
+ * Связывает имя свойства в JSON/CSV с колонкой таблицы users
+ * Список колонок закрыт: в SQL попадают только имена отсюда, а не строки клиента
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+public enum UserField {
+    ID("id", "id"),
+    NAME("name", "name"),
+    SURNAME("surname", "surname"),
+    AGE("age", "age"),
+    PHONE("phone", "phone"),
+    EMAIL("email", "email"),
+    MONEY("money", "money"),
+    CREATED_AT("createdAt", "created_at"),
+    VERSION("version", "version");
+
+    private static final String EXCEPTION_MESSAGE_UNKNOWN_FIELD = "Неизвестное поле: ";
+
+    private final String property;
+    private final String column;
+
+    UserField(String property, String column) {
+        this.property = property;
+        this.column = column;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+
+    /**
+     * Разбор параметра fields
+     * ID добавляется всегда: по нему строится курсор следующей страницы
+     *
+     * @param fields имена свойств через запятую
+     * @return поля в порядке объявления, null - параметр не задан, нужны все поля
+     */
+    public static Set<UserField> parse(String fields) {
+        if (fields == null || fields.isBlank()) return null;
+        Set<UserField> result = EnumSet.of(ID);
+        for (String name : fields.split(",")) {
+            String property = name.trim();
+            if (property.isEmpty()) continue;
+            result.add(ofProperty(property));
+        }
+        return result;
+    }
+
+
+    private static UserField ofProperty(String property) {
+        UserField field = ofPropertyOrNull(property);
+        if (field == null) throw new IllegalArgumentException(EXCEPTION_MESSAGE_UNKNOWN_FIELD + property);
+        return field;
+    }
+
+    /**
+     * @param property имя свойства в JSON
+     * @return поле или null, если такого нет
+     */
+    public static UserField ofPropertyOrNull(String property) {
+        for (UserField field : values()) {
+            if (field.property.equals(property)) return field;
+        }
+        return null;
+    }
+
+
+    /**
+     * @param fields выбранные поля
+     * @return список колонок для SELECT
+     */
+    static String columns(Set<UserField> fields) {
+        return fields.stream().map(UserField::getColumn).collect(Collectors.joining(", "));
+    }
+
+
+    /**
+     * Строка результата в виде свойство -> значение, в порядке полей
+     * Дата приводится к {@link Date}, чтобы сериализоваться так же, как в UserDTO
+     */
+    static Map<String, Object> read(ResultSet rs, Set<UserField> fields) throws SQLException {
+        Map<String, Object> row = new LinkedHashMap<>(fields.size() * 2);
+        for (UserField field : fields) {
+            row.put(field.property, switch (field) {
+                case ID, MONEY, VERSION -> rs.getLong(field.column);
+                case AGE -> rs.getInt(field.column);
+                case CREATED_AT -> {
+                    Timestamp createdAt = rs.getTimestamp(field.column);
+                    yield createdAt == null ? null : new Date(createdAt.getTime());
+                }
+                default -> rs.getString(field.column);
+            });
+        }
+        return row;
+    }
+}
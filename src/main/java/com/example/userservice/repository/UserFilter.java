@@ -0,0 +1,47 @@
+package com.example.userservice.repository;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+
+
+/**
+ * Критерии отбора пользователей для JDBC-запросов, null - критерий не задан
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+public record UserFilter(Integer minAge, Integer maxAge,
+                         Date createdFrom, Date createdTo,
+                         Long minMoney, Long maxMoney) {
+
+    /**
+     * @return задан ли хоть один критерий
+     */
+    public boolean isEmpty() {
+        return minAge == null && maxAge == null
+                && createdFrom == null && createdTo == null
+                && minMoney == null && maxMoney == null;
+    }
+
+    /**
+     * Дописывает условия фильтра к WHERE
+     *
+     * @param sql  запрос, заканчивающийся на WHERE-условие
+     * @param args параметры запроса, сюда добавляются значения фильтра
+     */
+    void appendTo(StringBuilder sql, List<Object> args) {
+        append(sql, args, "age >= ?", minAge);
+        append(sql, args, "age <= ?", maxAge);
+        append(sql, args, "created_at >= ?", createdFrom == null ? null : new Timestamp(createdFrom.getTime()));
+        append(sql, args, "created_at <= ?", createdTo == null ? null : new Timestamp(createdTo.getTime()));
+        append(sql, args, "money >= ?", minMoney);
+        append(sql, args, "money <= ?", maxMoney);
+    }
+
+    private static void append(StringBuilder sql, List<Object> args, String condition, Object value) {
+        if (value == null) return;
+        sql.append(" AND ").append(condition);
+        args.add(value);
+    }
+}
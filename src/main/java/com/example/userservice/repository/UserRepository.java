@@ -1,18 +1,25 @@
 package com.example.userservice.repository;
 
 import com.example.userservice.model.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 
 /**
  * Стандартный CRUD репозиторий
+ * JDBC-операции подмешаны из {@link UserRepositoryCustom}
  *
  * @author vmarakushin
  * @version 1.0
  */
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
 
 
     /**
@@ -37,4 +44,23 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     boolean existsByPhoneAndIdNot(String phone, long id);
 
+    /**
+     * Keyset-страница: WHERE id > :afterId ORDER BY id LIMIT :limit
+     * В отличие от OFFSET не деградирует на дальних страницах
+     *
+     * @param afterId ID последнего пользователя предыдущей страницы
+     * @param limit   максимальное количество строк
+     * @return пользователи с ID больше afterId по возрастанию ID
+     */
+    List<User> findByIdGreaterThanOrderByIdAsc(long afterId, Limit limit);
+
+    /**
+     * Только версия пользователя - для проверки ETag без чтения и маппинга всей строки
+     *
+     * @param id ID пользователя
+     * @return версия, если пользователь есть
+     */
+    @Query("select u.version from User u where u.id = :id")
+    Optional<Long> findVersionById(@Param("id") long id);
+
 }
\ No newline at end of file
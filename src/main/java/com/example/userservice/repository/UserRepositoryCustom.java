@@ -0,0 +1,211 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.model.User;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+
+/**
+ * Операции над users, которые удобнее выразить на чистом JDBC
+ * Реализация - {@link UserRepositoryCustomImpl}, подмешивается в {@link UserRepository}
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+public interface UserRepositoryCustom {
+
+    /**
+     * Потоковое чтение всей таблицы серверным курсором
+     * Строки подтягиваются пачками по fetchSize, память не зависит от размера таблицы
+     * Поток держит соединение с БД, поэтому его обязательно закрывать (try-with-resources)
+     *
+     * @param fetchSize сколько строк забирать с сервера за раз
+     * @return поток пользователей по возрастанию ID
+     */
+    Stream<User> streamAll(int fetchSize);
+
+    /**
+     * Потоковое чтение всей таблицы, только выбранные колонки
+     * Сущности не создаются, строка - карта свойство -> значение
+     * Поток держит соединение с БД, поэтому его обязательно закрывать (try-with-resources)
+     *
+     * @param fields    выбранные поля
+     * @param fetchSize сколько строк забирать с сервера за раз
+     * @return поток строк по возрастанию ID
+     */
+    Stream<Map<String, Object>> streamFields(Set<UserField> fields, int fetchSize);
+
+    /**
+     * Keyset-страница, только выбранные колонки
+     *
+     * @param fields  выбранные поля, должны включать ID
+     * @param afterId ID последнего пользователя предыдущей страницы
+     * @param limit   максимальное количество строк
+     * @return строки с ID больше afterId по возрастанию ID
+     */
+    List<Map<String, Object>> findFieldsPage(Set<UserField> fields, long afterId, int limit);
+
+    /**
+     * Загрузка пачки новых пользователей через промежуточную таблицу
+     * На PostgreSQL пачка заливается COPY FROM STDIN, на остальных БД - JDBC batch
+     * Затем одной командой вливается в users всё, что не конфликтует по email и телефону:
+     * INSERT ... ON CONFLICT DO NOTHING на PostgreSQL, MERGE на остальных БД
+     * Отдельной проверки до вставки нет: пользователь, созданный параллельно, просто не даст вставить строку,
+     * а не уронит всю пачку; конфликты - это строки пачки, которых нет среди вставленных
+     * Должен вызываться внутри транзакции
+     *
+     * @param rows новые пользователи по номерам строк входных данных
+     * @return строки, которые не были вставлены из-за занятых email или телефона
+     */
+    List<ImportConflict> importChunk(Map<Long, User> rows);
+
+    /**
+     * Какие из email уже заняты - один запрос WHERE email = ANY(?) на всю пачку
+     *
+     * @param emails проверяемые email
+     * @return занятые email из переданных
+     */
+    Set<String> findExistingEmails(Collection<String> emails);
+
+    /**
+     * Какие из телефонов уже заняты - один запрос WHERE phone = ANY(?) на всю пачку
+     *
+     * @param phones проверяемые телефоны
+     * @return занятые телефоны из переданных
+     */
+    Set<String> findExistingPhones(Collection<String> phones);
+
+    /**
+     * Keyset-выборка ID по фильтру, используется для разбиения массовых операций на пачки
+     *
+     * @param filter  критерии отбора
+     * @param afterId ID последнего пользователя предыдущей пачки
+     * @param limit   размер пачки
+     * @return ID по возрастанию
+     */
+    List<Long> findIdsByFilter(UserFilter filter, long afterId, int limit);
+
+    /**
+     * Keyset-страница пользователей по фильтру
+     * Условия строятся только по заданным критериям, под них есть индексы из db/postgresql-indexes.sql
+     *
+     * @param filter  критерии отбора
+     * @param afterId ID последнего пользователя предыдущей страницы
+     * @param limit   максимальное количество строк
+     * @return пользователи с ID больше afterId по возрастанию ID
+     */
+    List<User> findPageByFilter(UserFilter filter, long afterId, int limit);
+
+    /**
+     * Удаление пачки одной командой DELETE ... WHERE id = ANY(?)
+     * Сущности не загружаются, удаленные строки возвращаются той же командой
+     *
+     * @param ids ID для удаления
+     * @return удаленные пользователи
+     */
+    List<User> deleteAllByIdReturning(List<Long> ids);
+
+    /**
+     * Удаление одного пользователя одной командой DELETE ... WHERE id = ? RETURNING
+     * Сущность не загружается, удаленная строка возвращается той же командой
+     *
+     * @param id ID для удаления
+     * @return удаленный пользователь, empty - такого не было
+     */
+    Optional<User> deleteByIdReturning(long id);
+
+    /**
+     * Обновление пачки одной командой UPDATE ... WHERE id = ANY(?)
+     *
+     * @param ids     ID для обновления
+     * @param name    новое имя, null - не менять
+     * @param surname новая фамилия, null - не менять
+     * @param age     новый возраст, null - не менять
+     * @return пользователи после обновления
+     */
+    List<User> updateAllByIdReturning(List<Long> ids, String name, String surname, Integer age);
+
+    /**
+     * Частичное обновление одного пользователя одной командой
+     * UPDATE users SET только переданные колонки, version = version + 1 WHERE id = ? [AND version = ?]
+     * Сущность не загружается, строка после обновления возвращается той же командой
+     *
+     * @param id              ID пользователя
+     * @param values          новые значения колонок, имена колонок берутся только из {@link UserField}
+     * @param expectedVersion ожидаемая версия, null - без проверки
+     * @return пользователь после обновления, empty - нет пользователя или версия не совпала
+     */
+    Optional<User> patchReturning(long id, Map<UserField, Object> values, Long expectedVersion);
+
+    /**
+     * Атомарное изменение баланса одной командой
+     * UPDATE users SET money = money + ?, version = version + 1 WHERE id = ? AND money >= -delta AND money <= MAX - delta
+     * Проверка и запись - одна команда, поэтому одновременные изменения не теряются, баланс не уходит в минус
+     * и не переполняет bigint; границы считаются заранее, в условии нет арифметики над money
+     *
+     * @param id    ID пользователя
+     * @param delta на сколько изменить баланс, отрицательное - списание
+     * @return пользователь после изменения, empty - нет пользователя, не хватает денег или баланс переполнился бы
+     */
+    Optional<User> addMoneyReturning(long id, long delta);
+
+    /**
+     * Блокировка строк для перевода: SELECT ... ORDER BY id FOR UPDATE
+     * Строки блокируются по возрастанию ID, поэтому встречные переводы не приводят к взаимной блокировке
+     * Вызывать только внутри транзакции, блокировки держатся до ее конца
+     *
+     * @param ids ID пользователей
+     * @return ID -> баланс по возрастанию ID, отсутствующих пользователей в ответе нет
+     */
+    Map<Long, Long> lockMoneyForUpdate(Collection<Long> ids);
+
+    /**
+     * Перевод одной командой UPDATE по двум строкам:
+     * у отправителя баланс уменьшается на amount, у получателя увеличивается
+     * Если денег у отправителя не хватает или баланс получателя переполнил бы bigint, не меняется ни одна строка
+     *
+     * @param fromId ID отправителя
+     * @param toId   ID получателя
+     * @param amount сумма перевода, больше 0
+     * @return оба пользователя после перевода, пусто - денег не хватает или переполнение, одна строка - получателя нет
+     */
+    List<User> transferMoneyReturning(long fromId, long toId, long amount);
+
+
+    /**
+     * Поиск по имени и фамилии
+     * PostgreSQL: префикс - по btree-индексам lower(name|surname) COLLATE "C" в порядке индекса,
+     * нечеткий - по GIN-индексу pg_trgm на lower(name || ' ' || surname) оператором word similarity,
+     * порог оператора (pg_trgm.word_similarity_threshold) выставляется перед запросом на том же соединении
+     * Остальные БД: префикс тем же запросом без индексов, нечеткий вырождается в поиск подстроки без порога
+     * Выполняется в read-only транзакции: соединение из пула берется только здесь, а не в сервисе,
+     * где на поиск может ответить индекс в памяти
+     *
+     * @param query          запрос в нижнем регистре, без пробелов по краям
+     * @param mode           режим поиска
+     * @param limit          максимальное количество результатов
+     * @param fuzzyThreshold минимальная похожесть для нечеткого поиска
+     * @return найденные пользователи в порядке ранжирования
+     */
+    @Transactional(readOnly = true)
+    List<UserSearchHit> searchByName(String query, SearchMode mode, int limit, double fuzzyThreshold);
+
+    /**
+     * @return true, если под репозиторием PostgreSQL
+     */
+    boolean isPostgres();
+
+    /**
+     * Количество пользователей и сумма баланса по корзинам возраста, одним проходом по таблице
+     * Используется только для сверки статистики в памяти, не на каждый запрос
+     *
+     * @return непустые корзины по возрастанию номера
+     */
+    List<AgeBucketAggregate> aggregateByAgeBucket();
+}
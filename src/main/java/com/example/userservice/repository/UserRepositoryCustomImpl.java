@@ -0,0 +1,500 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.model.User;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+
+/**
+ * JDBC-реализация {@link UserRepositoryCustom}
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    private static final String SQL_STREAM_ALL = "SELECT " + UserRowMapper.COLUMNS + " FROM users ORDER BY id";
+
+    private static final String IMPORT_COLUMNS = "line_no, name, surname, age, phone, email, money, created_at";
+    private static final String SQL_CREATE_IMPORT_TABLE_POSTGRES = """
+            CREATE TEMPORARY TABLE IF NOT EXISTS users_import (
+                line_no BIGINT, name VARCHAR(255), surname VARCHAR(255), age INTEGER,
+                phone VARCHAR(255), email VARCHAR(255), money BIGINT, created_at TIMESTAMP(6)
+            ) ON COMMIT DROP""";
+    private static final String SQL_CREATE_IMPORT_TABLE_H2 = """
+            CREATE LOCAL TEMPORARY TABLE IF NOT EXISTS users_import (
+                line_no BIGINT, name VARCHAR(255), surname VARCHAR(255), age INTEGER,
+                phone VARCHAR(255), email VARCHAR(255), money BIGINT, created_at TIMESTAMP(6)
+            ) TRANSACTIONAL""";
+    private static final String SQL_COPY_IMPORT = "COPY users_import (" + IMPORT_COLUMNS + ") FROM STDIN WITH (FORMAT csv)";
+    private static final String SQL_INSERT_IMPORT = "INSERT INTO users_import (" + IMPORT_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SQL_MERGE_IMPORT_POSTGRES = """
+            INSERT INTO users (name, surname, age, phone, email, money, created_at)
+            SELECT s.name, s.surname, s.age, s.phone, s.email, s.money, s.created_at
+            FROM users_import s
+            ORDER BY s.line_no
+            ON CONFLICT DO NOTHING""";
+    // H2 не пускает в MERGE несколько строк источника на одну строку users, поэтому занятые отсекаются в USING
+    // той же командой; два EXISTS вместо одного с OR - чтобы каждый шел по своему уникальному индексу
+    private static final String SQL_MERGE_IMPORT_H2 = """
+            MERGE INTO users u
+            USING (SELECT name, surname, age, phone, email, money, created_at FROM users_import i
+                   WHERE NOT EXISTS (SELECT 1 FROM users e WHERE e.email = i.email)
+                     AND NOT EXISTS (SELECT 1 FROM users p WHERE p.phone = i.phone)) s
+            ON u.email = s.email
+            WHEN NOT MATCHED THEN INSERT (name, surname, age, phone, email, money, created_at)
+                VALUES (s.name, s.surname, s.age, s.phone, s.email, s.money, s.created_at)""";
+    private static final String SQL_SELECT_IMPORT_CONFLICTS = """
+            SELECT s.line_no,
+                   EXISTS (SELECT 1 FROM users u WHERE u.email = s.email) AS email_taken,
+                   EXISTS (SELECT 1 FROM users u WHERE u.phone = s.phone) AS phone_taken
+            FROM users_import s
+            WHERE s.line_no = ANY(?)
+            ORDER BY s.line_no""";
+    private static final String SQL_CLEAR_IMPORT = "DELETE FROM users_import";
+
+    private static final String SQL_SELECT_EXISTING_EMAILS = "SELECT email FROM users WHERE email = ANY(?)";
+    private static final String SQL_SELECT_EXISTING_PHONES = "SELECT phone FROM users WHERE phone = ANY(?)";
+
+    private static final String SQL_SELECT_IDS_BY_FILTER = "SELECT id FROM users WHERE id > ?";
+    private static final String SQL_SELECT_PAGE_BY_FILTER = "SELECT " + UserRowMapper.COLUMNS + " FROM users WHERE id > ?";
+    private static final String SQL_DELETE_BY_IDS = "DELETE FROM users WHERE id = ANY(?)";
+    private static final String SQL_DELETE_BY_ID = "DELETE FROM users WHERE id = ?";
+    private static final String SQL_UPDATE_BY_IDS = """
+            UPDATE users SET name = COALESCE(?, name), surname = COALESCE(?, surname), age = COALESCE(?, age),
+                version = version + 1
+            WHERE id = ANY(?)""";
+    private static final String SQL_ADD_MONEY =
+            "UPDATE users SET money = money + ?, version = version + 1 WHERE id = ? AND money >= ? AND money <= ?";
+    private static final String SQL_LOCK_MONEY = "SELECT id, money FROM users WHERE id = ANY(?) ORDER BY id FOR UPDATE";
+    private static final String SQL_TRANSFER_MONEY = """
+            UPDATE users SET money = money + CASE WHEN id = ? THEN ? ELSE ? END, version = version + 1
+            WHERE id IN (?, ?) AND EXISTS (SELECT 1 FROM users f WHERE f.id = ? AND f.money >= ?)
+              AND EXISTS (SELECT 1 FROM users t WHERE t.id = ? AND t.money <= ?)""";
+
+    private static final String SQL_SEARCH_PREFIX = """
+            (SELECT id, name, surname, lower(name)%1$s AS matched FROM users
+             WHERE lower(name)%1$s LIKE ? ESCAPE '\\' ORDER BY lower(name)%1$s, id LIMIT ?)
+            UNION ALL
+            (SELECT id, name, surname, lower(surname)%1$s AS matched FROM users
+             WHERE lower(surname)%1$s LIKE ? ESCAPE '\\' ORDER BY lower(surname)%1$s, id LIMIT ?)
+            ORDER BY matched, id""";
+    private static final String SQL_SEARCH_PREFIX_POSTGRES = SQL_SEARCH_PREFIX.formatted(" COLLATE \"C\"");
+    private static final String SQL_SEARCH_PREFIX_OTHER = SQL_SEARCH_PREFIX.formatted("");
+    private static final String SQL_SET_WORD_SIMILARITY_THRESHOLD =
+            "SELECT set_config('pg_trgm.word_similarity_threshold', ?, ?)";
+    private static final String SQL_SEARCH_FUZZY_POSTGRES = """
+            SELECT id, name, surname, word_similarity(?, lower(name || ' ' || surname)) AS score
+            FROM users
+            WHERE ? <% lower(name || ' ' || surname)
+            ORDER BY score DESC, id
+            LIMIT ?""";
+    private static final String SQL_SEARCH_SUBSTRING = """
+            SELECT id, name, surname FROM users
+            WHERE lower(name || ' ' || surname) LIKE ? ESCAPE '\\'
+            ORDER BY lower(name), lower(surname), id
+            LIMIT ?""";
+
+    private static final String SQL_AGGREGATE_BY_AGE_BUCKET = """
+            SELECT age / %1$d AS bucket, COUNT(*) AS users, COALESCE(SUM(money), 0) AS money
+            FROM users
+            GROUP BY age / %1$d
+            ORDER BY bucket""".formatted(AgeBucketAggregate.WIDTH);
+
+    private static final UserRowMapper ROW_MAPPER = new UserRowMapper();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private volatile Boolean postgres;
+
+
+    public UserRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = jdbcTemplate.getDataSource();
+    }
+
+
+    @Override
+    public Stream<User> streamAll(int fetchSize) {
+        return stream(SQL_STREAM_ALL, ROW_MAPPER, fetchSize);
+    }
+
+
+    @Override
+    public Stream<Map<String, Object>> streamFields(Set<UserField> fields, int fetchSize) {
+        String sql = "SELECT " + UserField.columns(fields) + " FROM users ORDER BY id";
+        return stream(sql, (rs, rowNum) -> UserField.read(rs, fields), fetchSize);
+    }
+
+
+    @Override
+    public List<Map<String, Object>> findFieldsPage(Set<UserField> fields, long afterId, int limit) {
+        String sql = "SELECT " + UserField.columns(fields) + " FROM users WHERE id > ? ORDER BY id LIMIT ?";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> UserField.read(rs, fields), afterId, limit);
+    }
+
+
+    /**
+     * PostgreSQL отдает строки курсором только при выключенном autocommit,
+     * поэтому вне транзакции он выключается на время чтения и восстанавливается при закрытии
+     */
+    private <T> Stream<T> stream(String sql, RowMapper<T> rowMapper, int fetchSize) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        boolean restoreAutoCommit = false;
+        try {
+            if (connection.getAutoCommit()) {
+                connection.setAutoCommit(false);
+                restoreAutoCommit = true;
+            }
+            statement = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            resultSet = statement.executeQuery();
+        } catch (SQLException e) {
+            close(connection, statement, resultSet, restoreAutoCommit);
+            throw jdbcTemplate.getExceptionTranslator().translate("stream", sql, e);
+        }
+
+        ResultSet rs = resultSet;
+        PreparedStatement ps = statement;
+        boolean restore = restoreAutoCommit;
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            private int rowNum;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!rs.next()) return false;
+                    action.accept(rowMapper.mapRow(rs, rowNum++));
+                    return true;
+                } catch (SQLException e) {
+                    throw jdbcTemplate.getExceptionTranslator().translate("stream", sql, e);
+                }
+            }
+        };
+        return StreamSupport.stream(spliterator, false)
+                .onClose(() -> close(connection, ps, rs, restore));
+    }
+
+
+    @Override
+    public List<ImportConflict> importChunk(Map<Long, User> rows) {
+        if (rows.isEmpty()) return List.of();
+
+        return jdbcTemplate.execute((ConnectionCallback<List<ImportConflict>>) connection -> {
+            boolean postgres = isPostgres();
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(postgres ? SQL_CREATE_IMPORT_TABLE_POSTGRES : SQL_CREATE_IMPORT_TABLE_H2);
+            }
+
+            if (postgres) copyIn(connection, rows);
+            else batchInsert(connection, rows);
+
+            // email внутри пачки уникальны, поэтому по ним видно, какие строки вставлены
+            Set<String> inserted = new HashSet<>(jdbcTemplate.query(
+                    returning(postgres ? SQL_MERGE_IMPORT_POSTGRES : SQL_MERGE_IMPORT_H2, "FINAL"),
+                    (rs, rowNum) -> rs.getString("email")));
+            List<Long> rejected = new ArrayList<>();
+            rows.forEach((line, user) -> {
+                if (!inserted.contains(user.getEmail())) rejected.add(line);
+            });
+            List<ImportConflict> conflicts = rejected.isEmpty() ? List.of() : jdbcTemplate.query(SQL_SELECT_IMPORT_CONFLICTS,
+                    ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", rejected.toArray())),
+                    (rs, rowNum) -> new ImportConflict(rs.getLong("line_no"),
+                            rs.getBoolean("email_taken"), rs.getBoolean("phone_taken")));
+            jdbcTemplate.update(SQL_CLEAR_IMPORT);
+            return conflicts;
+        });
+    }
+
+
+    @Override
+    public Set<String> findExistingEmails(Collection<String> emails) {
+        return findExisting(SQL_SELECT_EXISTING_EMAILS, emails);
+    }
+
+
+    @Override
+    public Set<String> findExistingPhones(Collection<String> phones) {
+        return findExisting(SQL_SELECT_EXISTING_PHONES, phones);
+    }
+
+
+    private Set<String> findExisting(String sql, Collection<String> values) {
+        if (values.isEmpty()) return Set.of();
+        return new HashSet<>(jdbcTemplate.query(sql,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", values.toArray())),
+                (rs, rowNum) -> rs.getString(1)));
+    }
+
+
+    @Override
+    public List<Long> findIdsByFilter(UserFilter filter, long afterId, int limit) {
+        List<Object> args = new ArrayList<>();
+        String sql = keysetByFilter(SQL_SELECT_IDS_BY_FILTER, filter, afterId, limit, args);
+        return jdbcTemplate.queryForList(sql, Long.class, args.toArray());
+    }
+
+
+    @Override
+    public List<User> findPageByFilter(UserFilter filter, long afterId, int limit) {
+        List<Object> args = new ArrayList<>();
+        String sql = keysetByFilter(SQL_SELECT_PAGE_BY_FILTER, filter, afterId, limit, args);
+        return jdbcTemplate.query(sql, ROW_MAPPER, args.toArray());
+    }
+
+
+    /**
+     * Дописывает к "SELECT ... WHERE id > ?" условия фильтра и ORDER BY id LIMIT ?
+     * Заданы только те условия, что есть в фильтре - планировщик выбирает индекс под фактический набор
+     */
+    private static String keysetByFilter(String select, UserFilter filter, long afterId, int limit, List<Object> args) {
+        StringBuilder sql = new StringBuilder(select);
+        args.add(afterId);
+        filter.appendTo(sql, args);
+        sql.append(" ORDER BY id LIMIT ?");
+        args.add(limit);
+        return sql.toString();
+    }
+
+
+    @Override
+    public List<User> deleteAllByIdReturning(List<Long> ids) {
+        if (ids.isEmpty()) return List.of();
+        return jdbcTemplate.query(returning(SQL_DELETE_BY_IDS, "OLD"),
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray())),
+                ROW_MAPPER);
+    }
+
+
+    @Override
+    public Optional<User> deleteByIdReturning(long id) {
+        return jdbcTemplate.query(returning(SQL_DELETE_BY_ID, "OLD"), ROW_MAPPER, id).stream().findFirst();
+    }
+
+    @Override
+    public Optional<User> patchReturning(long id, Map<UserField, Object> values, Long expectedVersion) {
+        StringBuilder dml = new StringBuilder("UPDATE users SET ");
+        List<Object> args = new ArrayList<>(values.size() + 2);
+        values.forEach((field, value) -> {
+            dml.append(field.getColumn()).append(" = ?, ");
+            args.add(value);
+        });
+        dml.append("version = version + 1 WHERE id = ?");
+        args.add(id);
+        if (expectedVersion != null) {
+            dml.append(" AND version = ?");
+            args.add(expectedVersion);
+        }
+        return jdbcTemplate.query(returning(dml.toString(), "FINAL"), ROW_MAPPER, args.toArray()).stream().findFirst();
+    }
+
+    @Override
+    public Optional<User> addMoneyReturning(long id, long delta) {
+        long min = delta < 0 ? -delta : Long.MIN_VALUE;
+        long max = delta > 0 ? Long.MAX_VALUE - delta : Long.MAX_VALUE;
+        return jdbcTemplate.query(returning(SQL_ADD_MONEY, "FINAL"), ROW_MAPPER, delta, id, min, max).stream().findFirst();
+    }
+
+    @Override
+    public Map<Long, Long> lockMoneyForUpdate(Collection<Long> ids) {
+        Map<Long, Long> balances = new LinkedHashMap<>();
+        if (ids.isEmpty()) return balances;
+        jdbcTemplate.query(SQL_LOCK_MONEY,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray())),
+                rs -> {
+                    balances.put(rs.getLong("id"), rs.getLong("money"));
+                });
+        return balances;
+    }
+
+    @Override
+    public List<User> transferMoneyReturning(long fromId, long toId, long amount) {
+        return jdbcTemplate.query(returning(SQL_TRANSFER_MONEY, "FINAL"), ROW_MAPPER,
+                fromId, -amount, amount, fromId, toId, fromId, amount, toId, Long.MAX_VALUE - amount);
+    }
+
+    @Override
+    public List<User> updateAllByIdReturning(List<Long> ids, String name, String surname, Integer age) {
+        if (ids.isEmpty()) return List.of();
+        return jdbcTemplate.query(returning(SQL_UPDATE_BY_IDS, "FINAL"), ps -> {
+            ps.setString(1, name);
+            ps.setString(2, surname);
+            ps.setObject(3, age, Types.INTEGER);
+            ps.setArray(4, ps.getConnection().createArrayOf("bigint", ids.toArray()));
+        }, ROW_MAPPER);
+    }
+
+
+    @Override
+    public List<UserSearchHit> searchByName(String query, SearchMode mode, int limit, double fuzzyThreshold) {
+        String pattern = escapeLike(query);
+        return switch (mode) {
+            case PREFIX -> {
+                // пользователь с подходящими и именем, и фамилией приходит дважды, остается первое вхождение
+                Map<Long, UserSearchHit> hits = new LinkedHashMap<>();
+                jdbcTemplate.query(isPostgres() ? SQL_SEARCH_PREFIX_POSTGRES : SQL_SEARCH_PREFIX_OTHER, rs -> {
+                    if (hits.size() < limit) hits.putIfAbsent(rs.getLong("id"), new UserSearchHit(rs.getLong("id"),
+                            rs.getString("name"), rs.getString("surname"),
+                            (double) query.length() / rs.getString("matched").length()));
+                }, pattern + "%", limit, pattern + "%", limit);
+                yield new ArrayList<>(hits.values());
+            }
+            case FUZZY -> isPostgres()
+                    ? searchFuzzyPostgres(query, limit, fuzzyThreshold)
+                    : jdbcTemplate.query(SQL_SEARCH_SUBSTRING, (rs, rowNum) -> new UserSearchHit(rs.getLong("id"),
+                    rs.getString("name"), rs.getString("surname"),
+                    (double) query.length() / (rs.getString("name").length() + 1 + rs.getString("surname").length())),
+                    "%" + pattern + "%", limit);
+        };
+    }
+
+
+    /**
+     * Оператор <% берет порог из pg_trgm.word_similarity_threshold, а не из запроса - иначе не работает GIN-индекс
+     * Порог выставляется на том же соединении прямо перед запросом: в транзакции - до ее конца,
+     * вне транзакции - на сессию; каждый нечеткий поиск выставляет его заново, остаток на соединении из пула безвреден
+     */
+    private List<UserSearchHit> searchFuzzyPostgres(String query, int limit, double threshold) {
+        return jdbcTemplate.execute((ConnectionCallback<List<UserSearchHit>>) connection -> {
+            JdbcTemplate sameConnection = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            sameConnection.queryForObject(SQL_SET_WORD_SIMILARITY_THRESHOLD, String.class,
+                    String.valueOf(threshold), !connection.getAutoCommit());
+            return sameConnection.query(SQL_SEARCH_FUZZY_POSTGRES, (rs, rowNum) -> new UserSearchHit(rs.getLong("id"),
+                    rs.getString("name"), rs.getString("surname"), rs.getDouble("score")), query, query, limit);
+        });
+    }
+
+
+    @Override
+    public List<AgeBucketAggregate> aggregateByAgeBucket() {
+        return jdbcTemplate.query(SQL_AGGREGATE_BY_AGE_BUCKET, (rs, rowNum) ->
+                new AgeBucketAggregate(rs.getInt("bucket"), rs.getLong("users"), rs.getLong("money")));
+    }
+
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+
+    /**
+     * Изменяющая команда, возвращающая затронутые строки за тот же round trip
+     * PostgreSQL: ... RETURNING, H2: SELECT ... FROM OLD/FINAL TABLE (...)
+     *
+     * @param dml   UPDATE или DELETE
+     * @param delta OLD - строки до изменения, FINAL - после
+     */
+    private String returning(String dml, String delta) {
+        return isPostgres()
+                ? dml + " RETURNING " + UserRowMapper.COLUMNS
+                : "SELECT " + UserRowMapper.COLUMNS + " FROM " + delta + " TABLE (" + dml + ")";
+    }
+
+
+    @Override
+    public boolean isPostgres() {
+        Boolean result = postgres;
+        if (result == null) {
+            result = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> connection.isWrapperFor(PGConnection.class));
+            postgres = result;
+        }
+        return result;
+    }
+
+
+    /**
+     * COPY FROM STDIN: одна команда и один сетевой поток на всю пачку
+     */
+    private void copyIn(Connection connection, Map<Long, User> rows) throws SQLException {
+        StringBuilder csv = new StringBuilder(rows.size() * 128);
+        rows.forEach((line, user) -> {
+            csv.append(line).append(',');
+            appendCsv(csv, user.getName()).append(',');
+            appendCsv(csv, user.getSurname()).append(',');
+            csv.append(user.getAge()).append(',');
+            appendCsv(csv, user.getPhone()).append(',');
+            appendCsv(csv, user.getEmail()).append(',');
+            csv.append(user.getMoney()).append(',');
+            csv.append(new Timestamp(user.getCreatedAt().getTime())).append('\n');
+        });
+        try {
+            connection.unwrap(PGConnection.class).getCopyAPI().copyIn(SQL_COPY_IMPORT, new StringReader(csv.toString()));
+        } catch (IOException e) {
+            throw new SQLException(e);
+        }
+    }
+
+
+    private static StringBuilder appendCsv(StringBuilder csv, String value) {
+        return csv.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+
+    /**
+     * Запасной вариант для БД без COPY (H2 в тестах)
+     */
+    private void batchInsert(Connection connection, Map<Long, User> rows) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SQL_INSERT_IMPORT)) {
+            for (Map.Entry<Long, User> row : rows.entrySet()) {
+                User user = row.getValue();
+                statement.setLong(1, row.getKey());
+                statement.setString(2, user.getName());
+                statement.setString(3, user.getSurname());
+                statement.setInt(4, user.getAge());
+                statement.setString(5, user.getPhone());
+                statement.setString(6, user.getEmail());
+                statement.setLong(7, user.getMoney());
+                statement.setTimestamp(8, new Timestamp(user.getCreatedAt().getTime()));
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+
+    private void close(Connection connection, PreparedStatement statement, ResultSet resultSet, boolean restoreAutoCommit) {
+        JdbcUtils.closeResultSet(resultSet);
+        JdbcUtils.closeStatement(statement);
+        if (restoreAutoCommit) {
+            try {
+                connection.commit();
+                connection.setAutoCommit(true);
+            } catch (SQLException ignored) {
+                // соединение все равно возвращается в пул, Hikari сбросит его состояние
+            }
+        }
+        DataSourceUtils.releaseConnection(connection, dataSource);
+    }
+}
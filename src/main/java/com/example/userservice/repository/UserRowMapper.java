@@ -0,0 +1,35 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.model.User;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+
+/**
+ * Маппинг строки таблицы users в {@link User} для JDBC-запросов
+ * Полученная сущность не управляется Hibernate
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+public class UserRowMapper implements RowMapper<User> {
+
+    public static final String COLUMNS = "id, name, surname, age, phone, email, money, created_at, version";
+
+    @Override
+    public User mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return User.builder()
+                .id(rs.getLong("id"))
+                .name(rs.getString("name"))
+                .surname(rs.getString("surname"))
+                .age(rs.getInt("age"))
+                .phone(rs.getString("phone"))
+                .email(rs.getString("email"))
+                .money(rs.getLong("money"))
+                .createdAt(rs.getTimestamp("created_at"))
+                .version(rs.getLong("version"))
+                .build();
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.userservice.repository;
+
+/**
+ * Найденный пользователь: только то, что нужно, чтобы его выбрать
+ *
+ * @param id      ID пользователя
+ * @param name    имя
+ * @param surname фамилия
+ * @param score   похожесть от 0 до 1, 1 - точное совпадение
+ * @author vmarakushin
+ * @version 1.0
+ */
+public record UserSearchHit(long id, String name, String surname, double score) {}
@@ -0,0 +1,68 @@
+package com.example.userservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+/**
+ * Пересборка структуры в памяти в фоне, на отдельном виртуальном потоке
+ * Вызывающий (обычно слушатель события после коммита) не ждет чтения всей таблицы
+ * Запросы, пришедшие во время пересборки, схлопываются в одну следующую:
+ * она начнется после текущей и прочитает все, что закоммичено до нее
+ * <p>
+ * Ошибка пересборки логируется, структура остается прежней до следующего запроса
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+final class BackgroundReload {
+
+    private final String name;
+    private final Runnable reload;
+    private final Logger logger;
+
+    private final AtomicBoolean requested = new AtomicBoolean();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+
+    BackgroundReload(String name, Runnable reload) {
+        this.name = name;
+        this.reload = reload;
+        this.logger = LoggerFactory.getLogger(BackgroundReload.class);
+    }
+
+
+    /**
+     * Запрашивает пересборку, возвращается сразу
+     */
+    void request() {
+        requested.set(true);
+        if (running.compareAndSet(false, true)) Thread.ofVirtual().name(name).start(this::run);
+    }
+
+    /**
+     * @return true, если пересборка запрошена или идет
+     */
+    boolean isPending() {
+        return requested.get() || running.get();
+    }
+
+
+    private void run() {
+        try {
+            while (requested.getAndSet(false)) {
+                try {
+                    reload.run();
+                } catch (RuntimeException e) {
+                    logger.error("Не удалось пересобрать {}", name, e);
+                }
+            }
+        } finally {
+            running.set(false);
+            // запрос мог прийти между последней проверкой и сбросом running
+            if (requested.get() && running.compareAndSet(false, true)) Thread.ofVirtual().name(name).start(this::run);
+        }
+    }
+}
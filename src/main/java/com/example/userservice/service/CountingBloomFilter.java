@@ -0,0 +1,170 @@
+package com.example.userservice.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Счетный фильтр Блума для строк
+ * Каждая ячейка - 4-битный счетчик, 16 ячеек в одном long, поэтому элементы можно не только добавлять, но и удалять
+ * Ответ "нет" точный, ответ "возможно есть" ошибается с вероятностью около заданной при expectedInsertions элементах
+ * <p>
+ * Счетчик, дошедший до 15, больше не меняется: удаление не может обнулить ячейку, которую делят другие элементы,
+ * поэтому ложных "нет" не бывает, а ложных "возможно" от этого становится чуть больше
+ * Потокобезопасен без блокировок: ячейки меняются через CAS
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+final class CountingBloomFilter {
+
+    private static final int CELL_BITS = 4;
+    private static final int CELLS_PER_WORD = Long.SIZE / CELL_BITS;
+    private static final long CELL_MASK = (1L << CELL_BITS) - 1;
+    private static final long MAX_COUNT = CELL_MASK;
+
+    private final AtomicLongArray words;
+    private final long cells;
+    private final int hashes;
+    private final AtomicLong size = new AtomicLong();
+
+
+    /**
+     * @param expectedInsertions на сколько элементов рассчитан фильтр
+     * @param falsePositiveRate  допустимая доля ложных "возможно есть" при expectedInsertions элементах
+     */
+    CountingBloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions < 1) throw new IllegalArgumentException("expectedInsertions должен быть больше 0");
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1)
+            throw new IllegalArgumentException("falsePositiveRate должен быть в интервале (0, 1)");
+
+        double ln2 = Math.log(2);
+        long optimalCells = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (ln2 * ln2));
+        long wordCount = Math.max(1, (optimalCells + CELLS_PER_WORD - 1) / CELLS_PER_WORD);
+        if (wordCount > Integer.MAX_VALUE) throw new IllegalArgumentException("Фильтр не помещается в массив");
+
+        this.words = new AtomicLongArray((int) wordCount);
+        this.cells = wordCount * CELLS_PER_WORD;
+        this.hashes = Math.max(1, (int) Math.round((double) cells / expectedInsertions * ln2));
+    }
+
+
+    void add(String value) {
+        long h1 = hash(value);
+        long h2 = secondHash(h1);
+        for (int i = 0; i < hashes; i++) increment(cell(h1, h2, i));
+        size.incrementAndGet();
+    }
+
+    /**
+     * Удалять можно только то, что было добавлено, иначе появятся ложные "нет"
+     */
+    void remove(String value) {
+        long h1 = hash(value);
+        long h2 = secondHash(h1);
+        for (int i = 0; i < hashes; i++) decrement(cell(h1, h2, i));
+        size.decrementAndGet();
+    }
+
+    /**
+     * @return false - значения точно нет, true - возможно есть
+     */
+    boolean mightContain(String value) {
+        long h1 = hash(value);
+        long h2 = secondHash(h1);
+        for (int i = 0; i < hashes; i++) {
+            if (count(cell(h1, h2, i)) == 0) return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * @return сколько элементов сейчас в фильтре
+     */
+    long size() {
+        return size.get();
+    }
+
+    /**
+     * Ожидаемая доля ложных "возможно есть" при текущем количестве элементов: (1 - e^(-k*n/m))^k
+     */
+    double expectedFalsePositiveRate() {
+        long n = Math.max(0, size.get());
+        return Math.pow(1 - Math.exp(-(double) hashes * n / cells), hashes);
+    }
+
+    /**
+     * @return размер массива счетчиков в байтах
+     */
+    long memoryBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    int hashCount() {
+        return hashes;
+    }
+
+
+    /**
+     * Двойное хеширование Кирша-Митценмахера: i-я ячейка = h1 + i * h2
+     */
+    private long cell(long h1, long h2, int i) {
+        return Long.remainderUnsigned(h1 + i * h2, cells);
+    }
+
+    private long count(long cell) {
+        int shift = (int) (cell % CELLS_PER_WORD) * CELL_BITS;
+        return (words.get((int) (cell / CELLS_PER_WORD)) >>> shift) & CELL_MASK;
+    }
+
+    private void increment(long cell) {
+        int index = (int) (cell / CELLS_PER_WORD);
+        int shift = (int) (cell % CELLS_PER_WORD) * CELL_BITS;
+        long word;
+        do {
+            word = words.get(index);
+            if (((word >>> shift) & CELL_MASK) == MAX_COUNT) return;
+        } while (!words.compareAndSet(index, word, word + (1L << shift)));
+    }
+
+    private void decrement(long cell) {
+        int index = (int) (cell / CELLS_PER_WORD);
+        int shift = (int) (cell % CELLS_PER_WORD) * CELL_BITS;
+        long word;
+        do {
+            word = words.get(index);
+            long count = (word >>> shift) & CELL_MASK;
+            if (count == 0 || count == MAX_COUNT) return;
+        } while (!words.compareAndSet(index, word, word - (1L << shift)));
+    }
+
+
+    /**
+     * FNV-1a по символам строки с финальным перемешиванием из MurmurHash3
+     */
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    /**
+     * Нечетный шаг, чтобы ячейки i-й функции не повторялись раньше времени
+     */
+    private static long secondHash(long h1) {
+        return mix(h1 ^ 0x9e3779b97f4a7c15L) | 1L;
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
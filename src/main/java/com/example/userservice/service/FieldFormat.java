@@ -0,0 +1,99 @@
+package com.example.userservice.service;
+
+/**
+ * Проверки формата полей пользователя за один проход по символам, без регулярных выражений и аллокаций
+ * Каждая проверка принимает ровно те же строки, что и регулярное выражение в ее описании
+ * (с семантикой String.matches - совпадение со всей строкой)
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+final class FieldFormat {
+
+    private FieldFormat() {
+    }
+
+    /**
+     * ^[a-zA-Zа-яА-ЯёЁ\-\s]+$
+     * \s без флага UNICODE_CHARACTER_CLASS - только [ \t\n\x0B\f\r]
+     */
+    static boolean isNameOrSurname(String value) {
+        if (value == null) return false;
+        int length = value.length();
+        if (length == 0) return false;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (!(isLatinLetter(c) || isCyrillicLetter(c) || c == '-' || isRegexSpace(c))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * ^\+\d{11}$
+     * \d без флага UNICODE_CHARACTER_CLASS - только [0-9]
+     */
+    static boolean isPhone(String value) {
+        if (value == null || value.length() != 12 || value.charAt(0) != '+') return false;
+        for (int i = 1; i < 12; i++) {
+            if (!isDigit(value.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * ^[a-zA-Z0-9._%+-]{3,}@[a-zA-Z0-9.-]{3,}\.[a-zA-Z]{2,}$
+     * Ни один класс не содержит '@', поэтому локальная часть - все до первого '@'
+     * Зона состоит только из букв, поэтому точка перед ней - последняя точка домена
+     */
+    static boolean isEmail(String value) {
+        if (value == null) return false;
+        int length = value.length();
+        int at = -1;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '@') {
+                at = i;
+                break;
+            }
+            if (!isLocalPartChar(c)) return false;
+        }
+        if (at < 3) return false;
+
+        int lastDot = -1;
+        for (int i = at + 1; i < length; i++) {
+            char c = value.charAt(i);
+            if (!isDomainChar(c)) return false;
+            if (c == '.') lastDot = i;
+        }
+        if (lastDot - (at + 1) < 3 || length - lastDot - 1 < 2) return false;
+        for (int i = lastDot + 1; i < length; i++) {
+            if (!isLatinLetter(value.charAt(i))) return false;
+        }
+        return true;
+    }
+
+
+    private static boolean isLatinLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isCyrillicLetter(char c) {
+        return (c >= 'а' && c <= 'я') || (c >= 'А' && c <= 'Я') || c == 'ё' || c == 'Ё';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isRegexSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isLocalPartChar(char c) {
+        return isLatinLetter(c) || isDigit(c) || c == '.' || c == '_' || c == '%' || c == '+' || c == '-';
+    }
+
+    private static boolean isDomainChar(char c) {
+        return isLatinLetter(c) || isDigit(c) || c == '.' || c == '-';
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.userservice.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+
+/**
+ * Кодирование курсора keyset-пагинации
+ * Для клиента курсор непрозрачен, внутри лежит ID последнего пользователя страницы
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+public final class PageCursor {
+
+    private static final String EXCEPTION_MESSAGE_INVALID_CURSOR = "Некорректный курсор страницы";
+    private static final String PREFIX = "u:";
+
+    private PageCursor() {
+    }
+
+    /**
+     * @param lastId ID последнего пользователя на странице
+     * @return курсор для запроса следующей страницы
+     */
+    public static String encode(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @param cursor курсор от клиента, null или пустая строка - первая страница
+     * @return ID, после которого начинается страница
+     */
+    public static long decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) return 0L;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            if (!raw.startsWith(PREFIX))
+                throw new IllegalArgumentException(EXCEPTION_MESSAGE_INVALID_CURSOR);
+            long id = Long.parseLong(raw.substring(PREFIX.length()));
+            if (id < 0L)
+                throw new IllegalArgumentException(EXCEPTION_MESSAGE_INVALID_CURSOR);
+            return id;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(EXCEPTION_MESSAGE_INVALID_CURSOR);
+        }
+    }
+}
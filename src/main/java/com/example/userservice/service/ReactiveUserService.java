@@ -0,0 +1,30 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.RequestUserDTO;
+import com.example.userservice.dto.UserDTO;
+import com.example.userservice.dto.UserPageDTO;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+
+/**
+ * Реактивный аналог {@link UserService}
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+public interface ReactiveUserService {
+    Mono<UserDTO> createUser(UserDTO dto);
+
+    Mono<UserPageDTO> getUserPage(String cursor, Integer size);
+
+    Flux<UserDTO> streamAllUsers();
+
+    Mono<UserDTO> getUserById(RequestUserDTO requestUserDTO);
+
+    Mono<Long> getUserVersion(RequestUserDTO requestUserDTO);
+
+    Mono<UserDTO> updateUser(UserDTO userDTO, Long expectedVersion);
+
+    Mono<Void> deleteUser(RequestUserDTO requestUserDTO);
+}
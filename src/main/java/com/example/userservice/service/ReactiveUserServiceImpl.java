@@ -0,0 +1,203 @@
+package com.example.userservice.service;
+
+import com.example.userservice.config.UserServiceProperties;
+import com.example.userservice.dto.RequestUserDTO;
+import com.example.userservice.dto.UserDTO;
+import com.example.userservice.dto.UserPageDTO;
+import com.example.userservice.exception.RepositoryException;
+import com.example.userservice.exception.UserNotFoundException;
+import com.example.userservice.exception.VersionConflictException;
+import com.example.userservice.logging.RateLimitedLogger;
+import com.example.userservice.mapper.UserMapper;
+import com.example.userservice.model.User;
+import com.example.userservice.repository.ReactiveUserRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+
+/**
+ * Реактивный сервис для общения с базой данных (профиль reactive)
+ * Семантика та же, что у {@link UserServiceImpl}: те же проверки, те же исключения,
+ * но ни один метод не блокирует поток в ожидании БД
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Service
+@Profile("reactive")
+public class ReactiveUserServiceImpl implements ReactiveUserService {
+
+    private final ReactiveUserRepository userRepository;
+    private final UserMapper userMapper;
+    private final Validator validator;
+    private final UserServiceProperties properties;
+    private final RateLimitedLogger logger;
+
+    private static final String LOG_KEY_REPOSITORY = "repository";
+    private static final String LOG_KEY_NOT_UNIQUE = "not-unique";
+    private static final String REPOSITORY_EXCEPTION_MESSAGE = "Ошибка при обращении к репозиторию.";
+    private static final String EXCEPTION_MESSAGE_PAGE_SIZE = "Размер страницы должен быть больше 0";
+    private static final String EXCEPTION_MESSAGE_USER_NOT_FOUND = "Пользователь не найден";
+    private static final String EXCEPTION_MESSAGE_VERSION_CONFLICT = "Пользователь был изменен, перечитайте его и повторите запрос";
+
+
+    public ReactiveUserServiceImpl(ReactiveUserRepository userRepository, UserMapper userMapper,
+                                   Validator validator, UserServiceProperties properties) {
+        this.userRepository = userRepository;
+        this.userMapper = userMapper;
+        this.validator = validator;
+        this.properties = properties;
+        this.logger = RateLimitedLogger.getLogger(ReactiveUserServiceImpl.class);
+    }
+
+
+    /**
+     * Метод создания пользователя
+     * Проверит формат данных перед созданием
+     * Проверит, что id == 0
+     * Уникальность email и телефона проверяет БД той же командой INSERT
+     *
+     * @param dto данные пользователя
+     * @return созданный пользователь с ID и версией
+     */
+    public Mono<UserDTO> createUser(UserDTO dto) {
+        return Mono.fromRunnable(() -> validator.formatValidation(dto, Validator.Scope.CREATE))
+                .then(Mono.defer(() -> repositoryCall(userRepository.insert(userMapper.toEntity(dto)))))
+                .map(userMapper::toDto);
+    }
+
+
+    /**
+     * Метод постраничного получения пользователей (keyset-пагинация)
+     *
+     * @param cursor курсор из предыдущей страницы, null - первая страница
+     * @param size   желаемый размер страницы, null - размер по умолчанию
+     * @return страница пользователей и курсор следующей страницы
+     */
+    public Mono<UserPageDTO> getUserPage(String cursor, Integer size) {
+        return Mono.defer(() -> {
+            long afterId = PageCursor.decode(cursor);
+            int pageSize = pageSize(size);
+
+            return repositoryCall(userRepository.findPage(afterId, pageSize + 1).collectList())
+                    .map(rows -> {
+                        boolean hasNext = rows.size() > pageSize;
+                        List<UserDTO> users = rows.stream()
+                                .limit(pageSize)
+                                .map(userMapper::toDto)
+                                .toList();
+                        String nextCursor = hasNext ? PageCursor.encode(users.get(users.size() - 1).getId()) : null;
+                        return new UserPageDTO(users, nextCursor);
+                    });
+        });
+    }
+
+
+    /**
+     * Метод потокового получения всех пользователей
+     * Строки идут из БД с учетом backpressure подписчика
+     *
+     * @return поток всех пользователей по возрастанию ID
+     */
+    public Flux<UserDTO> streamAllUsers() {
+        return userRepository.findAll()
+                .map(userMapper::toDto)
+                .onErrorMap(this::toRepositoryException);
+    }
+
+
+    /**
+     * Метод получения данных по ID
+     * Проверит, что ID > 0
+     *
+     * @param dto RequestUserDTO с ID
+     * @return Mono с данными, пустой если пользователя нет
+     */
+    public Mono<UserDTO> getUserById(RequestUserDTO dto) {
+        return Mono.fromCallable(() -> validator.id(dto.getId()))
+                .flatMap(id -> repositoryCall(userRepository.findById(id)))
+                .map(userMapper::toDto);
+    }
+
+
+    /**
+     * Метод получения версии пользователя по ID
+     *
+     * @param dto RequestUserDTO с ID
+     * @return Mono с версией, пустой если пользователя нет
+     */
+    public Mono<Long> getUserVersion(RequestUserDTO dto) {
+        return Mono.fromCallable(() -> validator.id(dto.getId()))
+                .flatMap(id -> repositoryCall(userRepository.findVersionById(id)));
+    }
+
+
+    /**
+     * Метод условного обновления данных пользователя
+     * Проверка версии и обновление выполняются одним UPDATE ... WHERE version = ?
+     *
+     * @param dto             обновленные данные пользователя
+     * @param expectedVersion версия, которую видел клиент, null - обновить без условия
+     * @return пользователь после обновления с новой версией
+     */
+    public Mono<UserDTO> updateUser(UserDTO dto, Long expectedVersion) {
+        return Mono.fromRunnable(() -> validator.formatValidation(dto, Validator.Scope.UPDATE))
+                .then(Mono.defer(() -> repositoryCall(userRepository.findById(dto.getId()))))
+                .switchIfEmpty(Mono.error(() -> new UserNotFoundException(EXCEPTION_MESSAGE_USER_NOT_FOUND)))
+                .flatMap(current -> {
+                    long version = expectedVersion != null ? expectedVersion : current.getVersion();
+                    if (version != current.getVersion())
+                        return Mono.error(new VersionConflictException(EXCEPTION_MESSAGE_VERSION_CONFLICT));
+
+                    User user = userMapper.toEntity(dto);
+                    return repositoryCall(userRepository.update(user, version))
+                            .flatMap(updated -> updated
+                                    ? repositoryCall(userRepository.findById(dto.getId()))
+                                    : Mono.error(new VersionConflictException(EXCEPTION_MESSAGE_VERSION_CONFLICT)));
+                })
+                .map(userMapper::toDto);
+    }
+
+
+    /**
+     * Метод удаления пользователя
+     * Проверит, что ID > 0
+     *
+     * @param dto UserRequestDTO с ID
+     */
+    public Mono<Void> deleteUser(RequestUserDTO dto) {
+        return Mono.fromCallable(() -> validator.id(dto.getId()))
+                .flatMap(id -> repositoryCall(userRepository.deleteById(id)));
+    }
+
+
+    private int pageSize(Integer size) {
+        if (size == null) return properties.getPage().getDefaultSize();
+        if (size < 1) throw new IllegalArgumentException(EXCEPTION_MESSAGE_PAGE_SIZE);
+        return Math.min(size, properties.getPage().getMaxSize());
+    }
+
+    private <T> Mono<T> repositoryCall(Mono<T> call) {
+        return call.onErrorMap(this::toRepositoryException);
+    }
+
+    /**
+     * Нарушение уникальности email или телефона - ошибка данных клиента, остальное - ошибка репозитория
+     */
+    private Throwable toRepositoryException(Throwable e) {
+        if (e instanceof DataIntegrityViolationException) {
+            String message = UniqueConstraints.messageFor(e);
+            if (message != null) {
+                logger.warn(LOG_KEY_NOT_UNIQUE, "{}", message);
+                return new IllegalArgumentException(message);
+            }
+        }
+        logger.error(LOG_KEY_REPOSITORY, REPOSITORY_EXCEPTION_MESSAGE, e);
+        return new RepositoryException(REPOSITORY_EXCEPTION_MESSAGE);
+    }
+}
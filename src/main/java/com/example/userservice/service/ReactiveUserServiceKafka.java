@@ -0,0 +1,84 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.RequestUserDTO;
+import com.example.userservice.dto.UserDTO;
+import com.example.userservice.dto.UserPageDTO;
+import com.example.userservice.exception.UserServiceException;
+import com.example.userservice.kafka.ReactiveUserEventProducer;
+import com.example.userservice.logging.RateLimitedLogger;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+
+/**
+ * Декоратор {@link ReactiveUserServiceImpl} с Кафкой
+ * Как и {@link UserServiceKafka}, публикует CREATE, UPDATE и DELETE с email и телефоном -
+ * по ним остальные экземпляры поддерживают кеш и фильтр существования
+ *
+ * @author vmarakushin
+ * @version 2.0
+ */
+@Service
+@Profile("reactive")
+public class ReactiveUserServiceKafka implements ReactiveUserService {
+
+    private final ReactiveUserServiceImpl userService;
+
+    private static final String LOG_KEY_KAFKA = "kafka";
+    private static final String LOG_KAFKA_FAILED = "Не удалось отправить событие в Kafka";
+
+    private final RateLimitedLogger logger;
+
+    private final ReactiveUserEventProducer eventProducer;
+
+
+    public ReactiveUserServiceKafka(ReactiveUserEventProducer eventProducer, ReactiveUserServiceImpl userService) {
+        this.eventProducer = eventProducer;
+        this.userService = userService;
+        this.logger = RateLimitedLogger.getLogger(ReactiveUserServiceKafka.class);
+    }
+
+
+    public Mono<UserDTO> createUser(UserDTO dto) {
+        return userService.createUser(dto)
+                .flatMap(created -> send("CREATE", created).thenReturn(created));
+    }
+
+    public Mono<UserPageDTO> getUserPage(String cursor, Integer size) {
+        return userService.getUserPage(cursor, size);
+    }
+
+    public Flux<UserDTO> streamAllUsers() {
+        return userService.streamAllUsers();
+    }
+
+    public Mono<UserDTO> getUserById(RequestUserDTO dto) {
+        return userService.getUserById(dto);
+    }
+
+    public Mono<Long> getUserVersion(RequestUserDTO dto) {
+        return userService.getUserVersion(dto);
+    }
+
+    public Mono<UserDTO> updateUser(UserDTO dto, Long expectedVersion) {
+        return userService.updateUser(dto, expectedVersion)
+                .flatMap(updated -> send("UPDATE", updated).thenReturn(updated));
+    }
+
+    public Mono<Void> deleteUser(RequestUserDTO dto) {
+        return userService.getUserById(dto)
+                .flatMap(user -> userService.deleteUser(dto)
+                        .then(Mono.defer(() -> send("DELETE", user))));
+    }
+
+
+    private Mono<Void> send(String operation, UserDTO user) {
+        return eventProducer.sendUserEvent(operation, user)
+                .onErrorMap(e -> {
+                    logger.warn(LOG_KEY_KAFKA, LOG_KAFKA_FAILED, e);
+                    return new UserServiceException("Не удалось отправить сообщение в Kafka");
+                });
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.userservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+
+/**
+ * Объединение одинаковых одновременных чтений (single-flight)
+ * Первый вызов с ключом выполняет запрос, остальные, пришедшие до его окончания, ждут тот же результат
+ * Без блокировок: очередь ожидающих - это CompletableFuture в ConcurrentHashMap, занятый через putIfAbsent
+ * <p>
+ * Результат общий для всех ожидающих, поэтому объединять стоит чтение сущностей, а DTO строить каждому свое
+ * Исключение тоже получают все ожидающие; после окончания запроса ключ освобождается, ничего не кешируется
+ * <p>
+ * Метрики: userservice.coalescing.calls (теги operation, result = executed/coalesced),
+ * userservice.coalescing.in.flight - сколько запросов выполняется прямо сейчас
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Component
+public class RequestCoalescer {
+
+    private static final String METRIC_CALLS = "userservice.coalescing.calls";
+
+    private final Map<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counter[]> counters = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+
+    public RequestCoalescer(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("userservice.coalescing.in.flight", inFlight, Map::size)
+                .description("Выполняющиеся запросы, к которым могут присоединиться одинаковые")
+                .register(meterRegistry);
+    }
+
+
+    /**
+     * @param operation имя операции, ключи разных операций не пересекаются
+     * @param key       аргумент запроса, должен иметь equals/hashCode
+     * @param call      запрос, выполняется только если такого же сейчас нет
+     * @return результат своего или чужого запроса
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String operation, Object key, Supplier<T> call) {
+        Key flight = new Key(operation, key);
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(flight, mine);
+        Counter[] operationCounters = counters(operation);
+
+        if (running != null) {
+            operationCounters[1].increment();
+            try {
+                return (T) running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) throw cause;
+                if (e.getCause() instanceof Error cause) throw cause;
+                throw e;
+            }
+        }
+
+        operationCounters[0].increment();
+        try {
+            T result = call.get();
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flight, mine);
+        }
+    }
+
+
+    /**
+     * @return [executed, coalesced]
+     */
+    private Counter[] counters(String operation) {
+        return counters.computeIfAbsent(operation, name -> new Counter[]{
+                Counter.builder(METRIC_CALLS).tag("operation", name).tag("result", "executed")
+                        .description("Запросы, выполненные в БД").register(meterRegistry),
+                Counter.builder(METRIC_CALLS).tag("operation", name).tag("result", "coalesced")
+                        .description("Запросы, получившие результат уже выполнявшегося").register(meterRegistry)
+        });
+    }
+
+
+    private record Key(String operation, Object key) {}
+}
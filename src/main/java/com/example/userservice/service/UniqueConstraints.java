@@ -0,0 +1,48 @@
+package com.example.userservice.service;
+
+import com.example.userservice.model.User;
+import org.hibernate.exception.ConstraintViolationException;
+
+import java.util.Locale;
+
+
+/**
+ * Перевод нарушения ограничений уникальности users в сообщения валидации
+ * Ограничение ищется по имени: в исключении Hibernate, а если его нет (R2DBC) - в сообщениях цепочки причин
+ * PostgreSQL называет его как есть, H2 - именем индекса с тем же префиксом
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+final class UniqueConstraints {
+
+    private UniqueConstraints() {
+    }
+
+    /**
+     * @param e исключение записи в БД
+     * @return сообщение "Этот email уже используется!" или "Этот телефон уже используется!",
+     * null - если это не нарушение уникальности email или телефона
+     */
+    static String messageFor(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                String message = messageForName(violation.getConstraintName());
+                if (message != null) return message;
+            }
+            if (cause.getMessage() != null) {
+                String message = messageForName(cause.getMessage());
+                if (message != null) return message;
+            }
+            if (cause.getCause() == cause) break;
+        }
+        return null;
+    }
+
+    private static String messageForName(String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        if (lower.contains(User.EMAIL_UNIQUE_CONSTRAINT)) return Validator.EXCEPTION_MESSAGE_NOT_UNIQUE_EMAIL;
+        if (lower.contains(User.PHONE_UNIQUE_CONSTRAINT)) return Validator.EXCEPTION_MESSAGE_NOT_UNIQUE_PHONE;
+        return null;
+    }
+}
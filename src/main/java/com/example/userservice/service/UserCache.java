@@ -0,0 +1,182 @@
+package com.example.userservice.service;
+
+import com.example.userservice.config.UserServiceProperties;
+import com.example.userservice.dto.UserDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Date;
+import java.util.Optional;
+import java.util.function.LongFunction;
+
+
+/**
+ * Кеш пользователей по ID в памяти процесса (Caffeine, вытеснение W-TinyLFU)
+ * Хранит неизменяемые снимки, наружу каждый раз отдается новый UserDTO - вызывающий код может его менять
+ * Отсутствующие ID тоже кешируются, но на меньший срок
+ * <p>
+ * Записи обновляются событиями {@link UserChangedEvent} после коммита: создание и изменение кладут новый снимок,
+ * удаление - отметку "нет", импорт сбрасывает кеш целиком
+ * Загрузка и событие по одному ключу не перемешиваются: Caffeine выполняет их по очереди,
+ * а событие с более старой версией не затирает более новый снимок
+ * Изменения с других экземпляров приходят через Kafka, см. {@link #onRemoteUpdate(long, long)}
+ * <p>
+ * Метрики: cache.gets, cache.evictions, cache.size и т.д. с тегом cache=users,
+ * userservice.cache.hit.ratio - доля попаданий с запуска
+ *
+ * @author vmarakushin
+ * @version 3.0
+ */
+@Component
+public class UserCache {
+
+    private static final String CACHE_NAME = "users";
+
+    private final Cache<Long, Optional<Snapshot>> cache;
+    private final boolean enabled;
+
+
+    public UserCache(UserServiceProperties properties, MeterRegistry meterRegistry) {
+        UserServiceProperties.Cache settings = properties.getCache();
+        this.enabled = settings.isEnabled();
+        long ttl = settings.getTtl().toNanos();
+        long negativeTtl = settings.getNegativeTtl().toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(settings.getMaximumSize())
+                .expireAfter(new Expiry<Long, Optional<Snapshot>>() {
+                    @Override
+                    public long expireAfterCreate(Long id, Optional<Snapshot> user, long currentTime) {
+                        return user.isPresent() ? ttl : negativeTtl;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long id, Optional<Snapshot> user, long currentTime, long currentDuration) {
+                        return expireAfterCreate(id, user, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long id, Optional<Snapshot> user, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        Gauge.builder("userservice.cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .tag("cache", CACHE_NAME)
+                .description("Доля попаданий в кеш пользователей")
+                .register(meterRegistry);
+    }
+
+
+    /**
+     * Чтение через кеш
+     *
+     * @param id     ID пользователя
+     * @param loader чтение из БД при промахе, исключения не кешируются
+     * @return копия пользователя или empty, если его нет
+     */
+    public Optional<UserDTO> get(long id, LongFunction<Optional<UserDTO>> loader) {
+        if (!enabled) return loader.apply(id);
+        return cache.get(id, key -> loader.apply(key).map(Snapshot::of)).map(Snapshot::toDto);
+    }
+
+    /**
+     * Версия без обращения к БД, если пользователь уже в кеше
+     *
+     * @return {@link CachedVersion#MISS}, если в кеше ничего нет, иначе закешированная версия
+     */
+    public CachedVersion getVersionIfPresent(long id) {
+        if (!enabled) return CachedVersion.MISS;
+        Optional<Snapshot> user = cache.getIfPresent(id);
+        return user == null ? CachedVersion.MISS : new CachedVersion(true, user.map(Snapshot::version));
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (!enabled) return;
+        switch (event.type()) {
+            case CREATED, UPDATED -> event.users().forEach(user ->
+                    cache.asMap().merge(user.getId(), Optional.of(Snapshot.of(user)), UserCache::newer));
+            case DELETED -> event.users().forEach(user -> cache.put(user.getId(), Optional.empty()));
+            case IMPORTED -> cache.invalidateAll();
+        }
+    }
+
+    /**
+     * Слушатели двух одновременных изменений одного пользователя выполняются после коммита в любом порядке,
+     * поэтому снимок с меньшей версией не заменяет уже лежащий с большей
+     * Отметку "нет" заменяет любой снимок: она могла попасть в кеш до создания пользователя
+     */
+    private static Optional<Snapshot> newer(Optional<Snapshot> cached, Optional<Snapshot> changed) {
+        return cached.isPresent() && cached.get().version() > changed.get().version() ? cached : changed;
+    }
+
+    /**
+     * Изменение, сделанное другим экземпляром (или этим же - событие приходит всем)
+     * Запись сбрасывается, только если она старше события: опоздавшее событие со старой версией
+     * ничего не трогает, а сброс никогда не возвращает старые данные - следующее чтение пойдет в БД
+     *
+     * @param id      ID пользователя
+     * @param version версия после изменения
+     */
+    public void onRemoteUpdate(long id, long version) {
+        if (!enabled) return;
+        cache.asMap().computeIfPresent(id, (key, user) ->
+                user.isPresent() && user.get().version() >= version ? user : null);
+    }
+
+    /**
+     * Удаление, сделанное другим экземпляром: закешированный пользователь заменяется отметкой "нет"
+     * ID не переиспользуются, поэтому версию сверять не нужно
+     */
+    public void onRemoteDelete(long id) {
+        if (!enabled) return;
+        cache.asMap().computeIfPresent(id, (key, user) -> Optional.empty());
+    }
+
+    /**
+     * Импорт на другом экземпляре мог создать пользователей, закешированных здесь с отметкой "нет"
+     */
+    public void onRemoteImport() {
+        if (enabled) cache.invalidateAll();
+    }
+
+
+    /**
+     * Ответ кеша о версии пользователя
+     *
+     * @param cached  false - в кеше ничего нет, версию нужно читать из БД
+     * @param version версия из кеша, empty - закешировано, что пользователя нет
+     */
+    public record CachedVersion(boolean cached, Optional<Long> version) {
+
+        public static final CachedVersion MISS = new CachedVersion(false, Optional.empty());
+    }
+
+    /**
+     * Неизменяемый снимок UserDTO, дата хранится числом
+     */
+    private record Snapshot(long id, String name, String surname, int age, String phone, String email,
+                            long money, Long createdAt, long version) {
+
+        static Snapshot of(UserDTO dto) {
+            return new Snapshot(dto.getId(), dto.getName(), dto.getSurname(), dto.getAge(), dto.getPhone(),
+                    dto.getEmail(), dto.getMoney(), dto.getCreatedAt() == null ? null : dto.getCreatedAt().getTime(),
+                    dto.getVersion());
+        }
+
+        UserDTO toDto() {
+            return new UserDTO(id, name, surname, age, phone, email, money,
+                    createdAt == null ? null : new Date(createdAt), version);
+        }
+    }
+}
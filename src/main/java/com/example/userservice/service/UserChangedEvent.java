@@ -0,0 +1,33 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.UserDTO;
+
+import java.util.List;
+
+
+/**
+ * Событие приложения об изменении пользователей, публикуется {@link UserServiceImpl}
+ * Слушатели с @TransactionalEventListener получают его только после коммита
+ *
+ * @param type     что произошло
+ * @param users    затронутые пользователи; для DELETED - состояние до удаления, для IMPORTED список пуст
+ * @param previous для UPDATED - состояние до изменения в том же порядке, null - неизвестно
+ * @author vmarakushin
+ * @version 1.1
+ */
+public record UserChangedEvent(Type type, List<UserDTO> users, List<UserDTO> previous) {
+
+    public UserChangedEvent(Type type, List<UserDTO> users) {
+        this(type, users, null);
+    }
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        /**
+         * Массовый импорт: ID новых пользователей неизвестны, нужно перечитать
+         */
+        IMPORTED
+    }
+}
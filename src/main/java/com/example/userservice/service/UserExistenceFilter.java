@@ -0,0 +1,368 @@
+package com.example.userservice.service;
+
+import com.example.userservice.config.UserServiceProperties;
+import com.example.userservice.dto.UserDTO;
+import com.example.userservice.repository.UserField;
+import com.example.userservice.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+
+/**
+ * Фильтры Блума по email и телефону в памяти процесса
+ * Ответ "точно нет" не требует запроса в БД, только "возможно есть" проверяется запросом exists
+ * <p>
+ * Заполняется при старте одним потоковым чтением email и телефонов,
+ * дальше поддерживается событиями {@link UserChangedEvent} после коммита
+ * и изменениями с других экземпляров (консоль, реактивный стек) из топика user-events
+ * Уникальность при записи все равно гарантирует ограничение в БД, фильтр только экономит чтения
+ * После импорта и раз в userservice.existence.reload-interval фильтры пересобираются в фоне
+ * и подменяются одной volatile-записью, до подмены проверки идут в БД
+ * <p>
+ * Метрики (тег field = email/phone):
+ * userservice.existence.filter.size, .memory, .expected.fpp - состояние фильтра,
+ * userservice.existence.filter.checks (тег result = absent/maybe), .false.positives, .observed.fpp - его работа
+ *
+ * @author vmarakushin
+ * @version 2.0
+ */
+@Component
+public class UserExistenceFilter implements InitializingBean {
+
+    private static final Set<UserField> FIELDS = EnumSet.of(UserField.EMAIL, UserField.PHONE);
+    private static final String METRIC_PREFIX = "userservice.existence.filter";
+
+    private final UserRepository userRepository;
+    private final UserServiceProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Logger logger;
+
+    private final Map<Field, Metrics> metrics = new EnumMap<>(Field.class);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private final BackgroundReload backgroundReload;
+    private volatile Map<Field, CountingBloomFilter> filters;
+    private List<UserDTO> missed;
+    private volatile boolean enabled;
+    private volatile long lastReloadNanos;
+
+
+    public UserExistenceFilter(UserRepository userRepository, UserServiceProperties properties, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.logger = LoggerFactory.getLogger(UserExistenceFilter.class);
+        this.backgroundReload = new BackgroundReload("user-existence-filter-reload", this::reload);
+    }
+
+
+    @Override
+    public void afterPropertiesSet() {
+        enabled = properties.getExistence().isEnabled();
+        if (!enabled) return;
+        for (Field field : Field.values()) metrics.put(field, new Metrics(field));
+        reload();
+    }
+
+    /**
+     * @return true, если проверки существования идут через фильтр
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+
+    /**
+     * Проверка существования значения: сначала фильтр, запрос в БД - только если фильтр сказал "возможно есть"
+     * Пока фильтр пересобирается после импорта, в нем нет импортированных значений - проверка идет сразу в БД
+     *
+     * @param field    поле пользователя
+     * @param value    значение поля
+     * @param database запрос exists в БД
+     * @return true, если пользователь с таким значением есть
+     */
+    public boolean exists(Field field, String value, BooleanSupplier database) {
+        if (!enabled || backgroundReload.isPending()) return database.getAsBoolean();
+
+        Metrics fieldMetrics = metrics.get(field);
+        if (!filters.get(field).mightContain(value)) {
+            fieldMetrics.absent.increment();
+            return false;
+        }
+        fieldMetrics.maybe.increment();
+        boolean exists = database.getAsBoolean();
+        if (!exists) fieldMetrics.falsePositives.increment();
+        return exists;
+    }
+
+    /**
+     * Пакетная проверка: значения, которых точно нет, отбрасываются, в БД уходят только "возможно есть"
+     * Если таких не осталось, запроса в БД нет вовсе
+     *
+     * @param field    поле пользователя
+     * @param values   значения поля, null пропускаются
+     * @param database запрос в БД: какие из переданных значений заняты
+     * @return занятые значения
+     */
+    public Set<String> existing(Field field, Collection<String> values, Function<Collection<String>, Set<String>> database) {
+        if (!enabled || backgroundReload.isPending()) return database.apply(values);
+
+        Metrics fieldMetrics = metrics.get(field);
+        CountingBloomFilter filter = filters.get(field);
+        List<String> candidates = new ArrayList<>();
+        for (String value : values) {
+            if (value == null) continue;
+            if (filter.mightContain(value)) candidates.add(value);
+            else fieldMetrics.absent.increment();
+        }
+        if (candidates.isEmpty()) return Set.of();
+
+        fieldMetrics.maybe.increment(candidates.size());
+        Set<String> existing = database.apply(candidates);
+        fieldMetrics.falsePositives.increment(candidates.size() - existing.size());
+        return existing;
+    }
+
+
+    /**
+     * Импорт пересобирает фильтр в фоне: слушатель не ждет чтения всей таблицы и не держит блокировку на время чтения
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (!enabled) return;
+        if (event.type() == UserChangedEvent.Type.IMPORTED) {
+            backgroundReload.request();
+            return;
+        }
+        lock.lock();
+        try {
+            switch (event.type()) {
+                case CREATED -> event.users().forEach(user -> apply(user, null));
+                case UPDATED -> {
+                    List<UserDTO> previous = event.previous();
+                    for (int i = 0; i < event.users().size(); i++)
+                        apply(event.users().get(i), previous == null ? null : previous.get(i));
+                }
+                case DELETED -> event.users().forEach(user -> apply(null, user));
+                default -> {
+                }
+            }
+            if (missed != null && event.type() != UserChangedEvent.Type.DELETED) missed.addAll(event.users());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Изменение с другого экземпляра, см. UserEventListener; свои события сюда не приходят
+     * Новые значения добавляются всегда: лишний счет дает только ложное "возможно", а пропущенный - ложное "нет"
+     * Старые значения не удаляются, их в событии нет; они остаются ложными "возможно" до следующей пересборки
+     *
+     * @param email email после изменения
+     * @param phone телефон после изменения
+     */
+    public void onRemoteChange(String email, String phone) {
+        if (!enabled) return;
+        UserDTO user = UserDTO.builder().email(email).phone(phone).build();
+        lock.lock();
+        try {
+            for (Field field : Field.values()) {
+                String value = field.getter.apply(user);
+                if (value != null) filters.get(field).add(value);
+            }
+            if (missed != null) missed.add(user);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Импорт на другом экземпляре: фильтры пересобираются в фоне, как после своего импорта
+     */
+    public void onRemoteImport() {
+        if (enabled) backgroundReload.request();
+    }
+
+
+    /**
+     * Строит фильтры заново по данным из БД и подменяет ими текущие одной записью
+     * Размер берется с запасом: не меньше настройки и не меньше удвоенного количества пользователей
+     * <p>
+     * Значения из событий, пришедших во время чтения, добавляются в новые фильтры перед подменой
+     * Удаления не повторяются: убрать из счетного фильтра значение, которого там нет, - значит получить ложное "нет",
+     * а лишнее значение дает только лишний запрос в БД
+     */
+    public void reload() {
+        reloadLock.lock();
+        try {
+            lastReloadNanos = System.nanoTime();
+            lock.lock();
+            try {
+                missed = new ArrayList<>();
+            } finally {
+                lock.unlock();
+            }
+
+            long expected = properties.getExistence().getExpectedInsertions();
+            if (filters != null) expected = Math.max(expected, 2 * filters.get(Field.EMAIL).size());
+            double rate = properties.getExistence().getFalsePositiveRate();
+
+            Map<Field, CountingBloomFilter> fresh = new EnumMap<>(Field.class);
+            for (Field field : Field.values()) fresh.put(field, new CountingBloomFilter(expected, rate));
+            boolean read = false;
+            try (Stream<Map<String, Object>> rows = userRepository.streamFields(FIELDS, properties.getExport().getFetchSize())) {
+                rows.forEach(row -> {
+                    for (Field field : Field.values()) {
+                        Object value = row.get(field.userField.getProperty());
+                        if (value != null) fresh.get(field).add((String) value);
+                    }
+                });
+                read = true;
+            } finally {
+                lock.lock();
+                try {
+                    if (read) {
+                        for (UserDTO user : missed)
+                            for (Field field : Field.values()) addIfAbsent(fresh.get(field), field.getter.apply(user));
+                        filters = fresh;
+                    }
+                    missed = null;
+                } finally {
+                    lock.unlock();
+                }
+            }
+
+            CountingBloomFilter emails = fresh.get(Field.EMAIL);
+            logger.info("Фильтр существования: {} email, {} КБ на поле, ожидаемая доля ложных срабатываний {}",
+                    emails.size(), emails.memoryBytes() / 1024, emails.expectedFalsePositiveRate());
+            if (emails.size() > expected)
+                logger.warn("Пользователей больше, чем рассчитан фильтр существования ({}), доля ложных срабатываний выше заданной", expected);
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    /**
+     * Проверяется раз в секунду, пересборка - раз в userservice.existence.reload-interval
+     * Событие с другого экземпляра может не дойти (старт до назначения партиций, недоступный брокер,
+     * сбой отправки после коммита) - тогда фильтр отвечает "точно нет" для занятого значения,
+     * и только пересборка из БД это исправляет
+     */
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.SECONDS)
+    public void reloadIfDue() {
+        long interval = properties.getExistence().getReloadInterval().toNanos();
+        if (!enabled || interval <= 0 || backgroundReload.isPending()) return;
+        if (System.nanoTime() - lastReloadNanos >= interval) backgroundReload.request();
+    }
+
+    /**
+     * @return true, если фильтр сейчас пересобирается в фоне
+     */
+    boolean isReloading() {
+        return backgroundReload.isPending();
+    }
+
+
+    private static void addIfAbsent(CountingBloomFilter filter, String value) {
+        if (value != null && !filter.mightContain(value)) filter.add(value);
+    }
+
+
+    /**
+     * Удаляет старые значения и добавляет новые, неизменившиеся поля не трогает
+     * Без старого состояния ничего не удаляется: лишнее значение в фильтре дает только лишний запрос в БД
+     */
+    private void apply(UserDTO current, UserDTO previous) {
+        for (Field field : Field.values()) {
+            String now = current == null ? null : field.getter.apply(current);
+            String before = previous == null ? null : field.getter.apply(previous);
+            if (Objects.equals(now, before)) continue;
+            CountingBloomFilter filter = filters.get(field);
+            if (before != null) filter.remove(before);
+            if (now != null) filter.add(now);
+        }
+    }
+
+
+    /**
+     * Поля, по которым ведется фильтр
+     */
+    public enum Field {
+        EMAIL(UserField.EMAIL, UserDTO::getEmail),
+        PHONE(UserField.PHONE, UserDTO::getPhone);
+
+        private final UserField userField;
+        private final Function<UserDTO, String> getter;
+
+        Field(UserField userField, Function<UserDTO, String> getter) {
+            this.userField = userField;
+            this.getter = getter;
+        }
+    }
+
+
+    /**
+     * Метрики одного поля, gauge читают текущий фильтр, поэтому переживают его пересборку
+     */
+    private final class Metrics {
+
+        private final Counter absent;
+        private final Counter maybe;
+        private final Counter falsePositives;
+
+        Metrics(Field field) {
+            String tag = field.userField.getProperty();
+            absent = Counter.builder(METRIC_PREFIX + ".checks").tag("field", tag).tag("result", "absent")
+                    .description("Проверки, на которые фильтр ответил \"точно нет\" без запроса в БД")
+                    .register(meterRegistry);
+            maybe = Counter.builder(METRIC_PREFIX + ".checks").tag("field", tag).tag("result", "maybe")
+                    .description("Проверки, ушедшие в БД после ответа \"возможно есть\"")
+                    .register(meterRegistry);
+            falsePositives = Counter.builder(METRIC_PREFIX + ".false.positives").tag("field", tag)
+                    .description("Ответы \"возможно есть\", которые БД не подтвердила")
+                    .register(meterRegistry);
+
+            Gauge.builder(METRIC_PREFIX + ".size", UserExistenceFilter.this, self -> self.filters.get(field).size())
+                    .tag("field", tag).description("Значений в фильтре").register(meterRegistry);
+            Gauge.builder(METRIC_PREFIX + ".memory", UserExistenceFilter.this, self -> self.filters.get(field).memoryBytes())
+                    .tag("field", tag).baseUnit("bytes").description("Память под счетчики фильтра").register(meterRegistry);
+            Gauge.builder(METRIC_PREFIX + ".expected.fpp", UserExistenceFilter.this,
+                            self -> self.filters.get(field).expectedFalsePositiveRate())
+                    .tag("field", tag).description("Расчетная доля ложных срабатываний при текущем заполнении")
+                    .register(meterRegistry);
+            Gauge.builder(METRIC_PREFIX + ".observed.fpp", this, Metrics::observedFalsePositiveRate)
+                    .tag("field", tag).description("Доля ложных срабатываний среди отсутствующих значений")
+                    .register(meterRegistry);
+        }
+
+        /**
+         * Отсутствующие значения - это "точно нет" плюс ложные "возможно есть"
+         */
+        double observedFalsePositiveRate() {
+            double negatives = absent.count() + falsePositives.count();
+            return negatives == 0 ? 0 : falsePositives.count() / negatives;
+        }
+    }
+}
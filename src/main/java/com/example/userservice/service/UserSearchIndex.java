@@ -0,0 +1,291 @@
+package com.example.userservice.service;
+
+import com.example.userservice.config.UserServiceProperties;
+import com.example.userservice.dto.UserDTO;
+import com.example.userservice.repository.SearchMode;
+import com.example.userservice.repository.UserField;
+import com.example.userservice.repository.UserRepository;
+import com.example.userservice.repository.UserSearchHit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+
+/**
+ * Индекс имен и фамилий в памяти процесса
+ * Префиксный поиск - упорядоченное множество (слово, ID): O(log n + limit), без обращения к БД
+ * Нечеткий поиск - триграммы слов "имя фамилия", похожесть считается как word_similarity в pg_trgm
+ * <p>
+ * Включается, если БД не PostgreSQL (H2 в разработке и тестах) или userservice.search.in-memory=true
+ * Заполняется при старте одним потоковым чтением ID, имени и фамилии,
+ * дальше поддерживается событиями {@link UserChangedEvent} после коммита
+ * После импорта индекс пересобирается в фоне в новую структуру и подменяется одной volatile-записью,
+ * как фильтры в {@link UserExistenceFilter}: поиск никогда не видит наполовину заполненный индекс
+ *
+ * @author vmarakushin
+ * @version 2.0
+ */
+@Component
+public class UserSearchIndex implements InitializingBean {
+
+    private static final Set<UserField> FIELDS = EnumSet.of(UserField.ID, UserField.NAME, UserField.SURNAME);
+
+    private final UserRepository userRepository;
+    private final UserServiceProperties properties;
+    private final Logger logger;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private final BackgroundReload backgroundReload;
+    private volatile Postings postings = new Postings();
+    private List<UserChangedEvent> missed;
+    private volatile boolean enabled;
+
+
+    public UserSearchIndex(UserRepository userRepository, UserServiceProperties properties) {
+        this.userRepository = userRepository;
+        this.properties = properties;
+        this.logger = LoggerFactory.getLogger(UserSearchIndex.class);
+        this.backgroundReload = new BackgroundReload("user-search-index-reload", this::reload);
+    }
+
+
+    @Override
+    public void afterPropertiesSet() {
+        Boolean inMemory = properties.getSearch().getInMemory();
+        enabled = inMemory != null ? inMemory : !userRepository.isPostgres();
+        if (enabled) reload();
+    }
+
+    /**
+     * @return true, если поиск обслуживается этим индексом
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+
+    /**
+     * @param query запрос в нижнем регистре, без пробелов по краям
+     * @param mode  режим поиска
+     * @param limit максимальное количество результатов
+     * @return найденные пользователи в том же порядке, что и у {@link UserRepository#searchByName}
+     */
+    public List<UserSearchHit> search(String query, SearchMode mode, int limit) {
+        Postings current = postings;
+        return switch (mode) {
+            case PREFIX -> searchPrefix(current, query, limit);
+            case FUZZY -> searchFuzzy(current, query, limit);
+        };
+    }
+
+
+    private static List<UserSearchHit> searchPrefix(Postings current, String query, int limit) {
+        Map<Long, UserSearchHit> hits = new LinkedHashMap<>();
+        for (Posting posting : current.words.tailSet(new Posting(query, Long.MIN_VALUE), true)) {
+            if (!posting.word().startsWith(query) || hits.size() >= limit) break;
+            Entry entry = current.entries.get(posting.id());
+            if (entry != null) hits.putIfAbsent(posting.id(), entry.hit((double) query.length() / posting.word().length()));
+        }
+        return new ArrayList<>(hits.values());
+    }
+
+
+    /**
+     * Кандидаты - пользователи, у которых есть хотя бы одна триграмма запроса
+     * Похожесть - доля триграмм запроса, найденных в "имя фамилия"
+     */
+    private List<UserSearchHit> searchFuzzy(Postings current, String query, int limit) {
+        Set<String> queryTrigrams = trigrams(query);
+        if (queryTrigrams.isEmpty()) return List.of();
+
+        Map<Long, Integer> shared = new HashMap<>();
+        for (String trigram : queryTrigrams) {
+            Set<Long> ids = current.trigrams.get(trigram);
+            if (ids != null) ids.forEach(id -> shared.merge(id, 1, Integer::sum));
+        }
+
+        double threshold = properties.getSearch().getFuzzyThreshold();
+        return shared.entrySet().stream()
+                .map(candidate -> {
+                    Entry entry = current.entries.get(candidate.getKey());
+                    double score = (double) candidate.getValue() / queryTrigrams.size();
+                    return entry == null || score < threshold ? null : entry.hit(score);
+                })
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparingDouble(UserSearchHit::score).reversed()
+                        .thenComparingLong(UserSearchHit::id))
+                .limit(limit)
+                .toList();
+    }
+
+
+    /**
+     * Импорт пересобирает индекс в фоне: слушатель не ждет чтения всей таблицы, поиск до подмены идет по старому
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (!enabled) return;
+        if (event.type() == UserChangedEvent.Type.IMPORTED) {
+            backgroundReload.request();
+            return;
+        }
+        lock.lock();
+        try {
+            postings.apply(event);
+            if (missed != null) missed.add(event);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Перечитывает индекс из БД целиком в новую структуру и подменяет ею текущую одной записью
+     * События, пришедшие во время чтения, применяются к новой структуре повторно перед подменой:
+     * запись по ID целиком заменяется, поэтому повтор уже прочитанного изменения ничего не портит
+     */
+    public void reload() {
+        reloadLock.lock();
+        try {
+            lock.lock();
+            try {
+                missed = new ArrayList<>();
+            } finally {
+                lock.unlock();
+            }
+
+            Postings fresh = new Postings();
+            boolean read = false;
+            try (Stream<Map<String, Object>> rows = userRepository.streamFields(FIELDS, properties.getExport().getFetchSize())) {
+                rows.forEach(row -> fresh.put((Long) row.get(UserField.ID.getProperty()),
+                        (String) row.get(UserField.NAME.getProperty()), (String) row.get(UserField.SURNAME.getProperty())));
+                read = true;
+            } finally {
+                lock.lock();
+                try {
+                    if (read) {
+                        missed.forEach(fresh::apply);
+                        postings = fresh;
+                    }
+                    missed = null;
+                } finally {
+                    lock.unlock();
+                }
+            }
+            logger.info("Индекс поиска в памяти: {} пользователей", fresh.entries.size());
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    /**
+     * @return true, если индекс сейчас пересобирается в фоне
+     */
+    boolean isReloading() {
+        return backgroundReload.isPending();
+    }
+
+
+    /**
+     * Содержимое индекса: записи по ID, упорядоченные слова и триграммы
+     * Изменения - под lock, поиск читает без блокировок
+     */
+    private static final class Postings {
+
+        private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+        private final NavigableSet<Posting> words = new ConcurrentSkipListSet<>();
+        private final Map<String, Set<Long>> trigrams = new ConcurrentHashMap<>();
+
+        void apply(UserChangedEvent event) {
+            switch (event.type()) {
+                case CREATED, UPDATED -> event.users().forEach(user -> put(user.getId(), user.getName(), user.getSurname()));
+                case DELETED -> event.users().forEach(user -> remove(user.getId()));
+                case IMPORTED -> {
+                }
+            }
+        }
+
+        void put(long id, String name, String surname) {
+            remove(id);
+            Entry entry = new Entry(id, name, surname);
+            entries.put(id, entry);
+            for (String word : entry.words()) words.add(new Posting(word, id));
+            for (String trigram : entry.trigrams()) trigrams.computeIfAbsent(trigram, key -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+
+        void remove(long id) {
+            Entry entry = entries.remove(id);
+            if (entry == null) return;
+            for (String word : entry.words()) words.remove(new Posting(word, id));
+            for (String trigram : entry.trigrams()) {
+                Set<Long> ids = trigrams.get(trigram);
+                if (ids == null) continue;
+                ids.remove(id);
+                if (ids.isEmpty()) trigrams.remove(trigram);
+            }
+        }
+    }
+
+
+    /**
+     * Триграммы как в pg_trgm: каждое слово дополняется двумя пробелами слева и одним справа
+     */
+    static Set<String> trigrams(String text) {
+        Set<String> result = new HashSet<>();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) continue;
+            String padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) result.add(padded.substring(i, i + 3));
+        }
+        return result;
+    }
+
+
+    private record Entry(long id, String name, String surname) {
+
+        List<String> words() {
+            List<String> result = new ArrayList<>(2);
+            if (name != null) result.add(name.toLowerCase(Locale.ROOT));
+            if (surname != null) result.add(surname.toLowerCase(Locale.ROOT));
+            return result;
+        }
+
+        Set<String> trigrams() {
+            return UserSearchIndex.trigrams((name == null ? "" : name) + " " + (surname == null ? "" : surname));
+        }
+
+        UserSearchHit hit(double score) {
+            return new UserSearchHit(id, name, surname, score);
+        }
+    }
+
+
+    private record Posting(String word, long id) implements Comparable<Posting> {
+
+        @Override
+        public int compareTo(Posting other) {
+            int byWord = word.compareTo(other.word);
+            return byWord != 0 ? byWord : Long.compare(id, other.id);
+        }
+    }
+}
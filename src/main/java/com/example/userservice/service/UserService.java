@@ -1,10 +1,28 @@
 package com.example.userservice.service;
 
+import com.example.userservice.dto.BulkDeleteDTO;
+import com.example.userservice.dto.BulkResultDTO;
+import com.example.userservice.dto.BulkUpdateDTO;
+import com.example.userservice.dto.ImportReportDTO;
 import com.example.userservice.dto.RequestUserDTO;
+import com.example.userservice.dto.TransferDTO;
+import com.example.userservice.dto.UserAvailabilityDTO;
 import com.example.userservice.dto.UserDTO;
+import com.example.userservice.dto.UserFieldsPageDTO;
+import com.example.userservice.dto.UserFilterDTO;
+import com.example.userservice.dto.UserPageDTO;
+import com.example.userservice.dto.UserSearchHitDTO;
+import com.example.userservice.dto.UserStatsDTO;
+import com.example.userservice.dto.UserValidationResultDTO;
+import com.example.userservice.format.DataFormat;
+import com.example.userservice.repository.UserField;
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 
 /**
@@ -14,13 +32,49 @@ import java.util.Optional;
  * @version 1.0
  */
 public interface UserService {
-    void createUser(UserDTO dto);
+    UserDTO createUser(UserDTO dto);
+
+    ImportReportDTO importUsers(InputStream in, DataFormat format);
 
     List<UserDTO> getAllUsers();
 
+    UserPageDTO getUserPage(String cursor, Integer size);
+
+    UserFieldsPageDTO getUserPage(String cursor, Integer size, Set<UserField> fields);
+
+    UserPageDTO filterUsers(UserFilterDTO filter, String cursor, Integer size);
+
+    Stream<UserDTO> streamAllUsers();
+
+    Stream<Map<String, Object>> streamAllUsers(Set<UserField> fields);
+
     Optional<UserDTO> getUserById(RequestUserDTO requestUserDTO);
 
+    Optional<Long> getUserVersion(RequestUserDTO requestUserDTO);
+
+    List<UserSearchHitDTO> searchUsers(String query, String mode, Integer limit);
+
+    UserStatsDTO getStats();
+
+    UserAvailabilityDTO checkAvailability(String email, String phone);
+
     void updateUser(UserDTO userDTO);
 
-    void deleteUser(RequestUserDTO requestUserDTO);
+    UserDTO updateUser(UserDTO userDTO, Long expectedVersion);
+
+    UserDTO patchUser(long id, Map<String, Object> patch, Long expectedVersion);
+
+    UserDTO creditMoney(long id, long amount);
+
+    UserDTO debitMoney(long id, long amount);
+
+    List<UserDTO> transferMoney(TransferDTO transferDTO);
+
+    BulkResultDTO updateUsers(BulkUpdateDTO bulkUpdateDTO);
+
+    Optional<UserDTO> deleteUser(RequestUserDTO requestUserDTO);
+
+    BulkResultDTO deleteUsers(BulkDeleteDTO bulkDeleteDTO);
+
+    List<UserValidationResultDTO> validateUsers(List<UserDTO> users);
 }
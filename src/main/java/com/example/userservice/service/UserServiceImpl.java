@@ -1,20 +1,64 @@
 package com.example.userservice.service;
 
 
+import com.example.userservice.config.UserServiceProperties;
+import com.example.userservice.dto.BulkDeleteDTO;
+import com.example.userservice.dto.BulkResultDTO;
+import com.example.userservice.dto.BulkUpdateDTO;
+import com.example.userservice.dto.ImportErrorDTO;
+import com.example.userservice.dto.ImportReportDTO;
 import com.example.userservice.dto.RequestUserDTO;
+import com.example.userservice.dto.TransferDTO;
+import com.example.userservice.dto.UserAvailabilityDTO;
 import com.example.userservice.dto.UserDTO;
+import com.example.userservice.dto.UserFieldsPageDTO;
+import com.example.userservice.dto.UserFilterDTO;
+import com.example.userservice.dto.UserPageDTO;
+import com.example.userservice.dto.UserSearchHitDTO;
+import com.example.userservice.dto.UserStatsDTO;
+import com.example.userservice.dto.UserValidationResultDTO;
+import com.example.userservice.exception.BalanceOverflowException;
+import com.example.userservice.exception.InsufficientFundsException;
 import com.example.userservice.exception.RepositoryException;
+import com.example.userservice.exception.UserNotFoundException;
+import com.example.userservice.exception.VersionConflictException;
+import com.example.userservice.format.DataFormat;
+import com.example.userservice.format.ImportRow;
+import com.example.userservice.format.UserImportReader;
+import com.example.userservice.logging.RateLimitedLogger;
 import com.example.userservice.mapper.UserMapper;
 import com.example.userservice.model.User;
+import com.example.userservice.repository.ImportConflict;
+import com.example.userservice.repository.SearchMode;
+import com.example.userservice.repository.UserField;
+import com.example.userservice.repository.UserFilter;
 import com.example.userservice.repository.UserRepository;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 /**
@@ -29,63 +73,287 @@ public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
     private final UserMapper userMapper;
     private final Validator validator;
-    private final Logger logger;
-
+    private final UserServiceProperties properties;
+    private final UserImportReader importReader;
+    private final UserSearchIndex searchIndex;
+    private final UserStatistics statistics;
+    private final UserExistenceFilter existenceFilter;
+    private final UserCache userCache;
+    private final RequestCoalescer coalescer;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionOperations transactions;
+    private final RateLimitedLogger logger;
+
+    private static final String LOG_KEY_REPOSITORY = "repository";
+    private static final String LOG_KEY_NOT_UNIQUE = "not-unique";
+    private static final String LOG_KEY_IMPORT = "import";
+    private static final String OPERATION_FIND_BY_ID = "findById";
+    private static final String OPERATION_FIND_VERSION = "findVersionById";
     private static final String REPOSITORY_EXCEPTION_MESSAGE = "Ошибка при обращении к репозиторию.";
-
-
-    public UserServiceImpl(UserRepository userRepository, UserMapper userMapper, Validator validator) {
+    private static final String EXCEPTION_MESSAGE_PAGE_SIZE = "Размер страницы должен быть больше 0";
+    private static final String EXCEPTION_MESSAGE_IMPORT_READ = "Не удалось прочитать входные данные";
+    private static final String EXCEPTION_MESSAGE_BULK_TARGET = "Нужно указать либо список ID, либо непустой фильтр";
+    private static final String EXCEPTION_MESSAGE_BULK_NOTHING_TO_UPDATE = "Не указано ни одного поля для обновления";
+    private static final String EXCEPTION_MESSAGE_USER_NOT_FOUND = "Пользователь не найден";
+    private static final String EXCEPTION_MESSAGE_VERSION_CONFLICT = "Пользователь был изменен, перечитайте его и повторите запрос";
+    private static final String EXCEPTION_MESSAGE_AMOUNT = "Сумма должна быть больше 0";
+    private static final String EXCEPTION_MESSAGE_TRANSFER_PARTIES = "Нужно указать отправителя и получателя";
+    private static final String EXCEPTION_MESSAGE_TRANSFER_SELF = "Нельзя перевести деньги самому себе";
+    private static final String EXCEPTION_MESSAGE_INSUFFICIENT_FUNDS = "Недостаточно денег на балансе";
+    private static final String EXCEPTION_MESSAGE_BALANCE_OVERFLOW = "Баланс превысил бы допустимый максимум";
+    private static final String EXCEPTION_MESSAGE_FILTER_RANGE = "Нижняя граница фильтра больше верхней";
+    private static final String EXCEPTION_MESSAGE_SEARCH_QUERY = "Строка поиска не должна быть пустой";
+    private static final String EXCEPTION_MESSAGE_SEARCH_LIMIT = "Лимит результатов поиска должен быть больше 0";
+    private static final String EXCEPTION_MESSAGE_AVAILABILITY_EMPTY = "Нужно указать email или телефон";
+    private static final String EXCEPTION_MESSAGE_VALIDATION_EMPTY = "Нужно передать хотя бы одного пользователя";
+    private static final String EXCEPTION_MESSAGE_VALIDATION_TOO_LARGE = "Слишком много пользователей в одной проверке, максимум ";
+
+
+    public UserServiceImpl(UserRepository userRepository, UserMapper userMapper, Validator validator,
+                           UserServiceProperties properties, UserImportReader importReader,
+                           UserSearchIndex searchIndex, UserStatistics statistics,
+                           UserExistenceFilter existenceFilter, UserCache userCache, RequestCoalescer coalescer,
+                           ApplicationEventPublisher eventPublisher, TransactionOperations transactions) {
         this.userRepository = userRepository;
         this.userMapper = userMapper;
         this.validator = validator;
-        this.logger = LoggerFactory.getLogger(UserServiceImpl.class);
+        this.properties = properties;
+        this.importReader = importReader;
+        this.searchIndex = searchIndex;
+        this.statistics = statistics;
+        this.existenceFilter = existenceFilter;
+        this.userCache = userCache;
+        this.coalescer = coalescer;
+        this.eventPublisher = eventPublisher;
+        this.transactions = transactions;
+        this.logger = RateLimitedLogger.getLogger(UserServiceImpl.class);
     }
 
 
     /**
      * Метод создания пользователя
-     * Проверит данные на валидность перед созданием
+     * Проверит формат данных перед созданием
      * Проверит, что id == 0
+     * Уникальность email и телефона проверяет БД той же командой INSERT - без отдельных запросов и гонок
      *
      * @param dto данные пользователя
+     * @return созданный пользователь с ID и версией
      */
     @Transactional
-    public void createUser(UserDTO dto) {
+    public UserDTO createUser(UserDTO dto) {
 
-        validator.fullValidation(dto, Validator.Scope.CREATE);
+        validator.formatValidation(dto, Validator.Scope.CREATE);
 
         User user = userMapper.toEntity(dto);
         try {
             userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            throw notUnique(e);
         } catch (Exception e) {
-            logger.error(REPOSITORY_EXCEPTION_MESSAGE, e);
+            logger.error(LOG_KEY_REPOSITORY, REPOSITORY_EXCEPTION_MESSAGE, e);
             throw new RepositoryException(REPOSITORY_EXCEPTION_MESSAGE);
         }
+        UserDTO created = userMapper.toDto(user);
+        publish(UserChangedEvent.Type.CREATED, Collections.singletonList(created));
+        return created;
+    }
+
+
+    /**
+     * Метод массового импорта пользователей
+     * Строки читаются окнами по userservice.importing.chunk-size, формат окна проверяется пакетно,
+     * валидные копятся пачками того же размера и заливаются в БД одной командой на пачку
+     * Дубликаты внутри пачки отсекаются здесь, с существующими пользователями - в БД
+     * ID и createdAt из входных данных игнорируются, чтобы можно было загрузить выгрузку
+     * Каждая пачка - своя транзакция: длинная загрузка не держит одно соединение и одну транзакцию,
+     * а ошибка пачки не откатывает уже загруженные - счетчики отчета совпадают с тем, что лежит в БД
+     *
+     * @param in     входные данные
+     * @param format формат входных данных
+     * @return отчет со счетчиками и ошибками по строкам
+     * @throws RepositoryException если пачку не удалось записать; пачки до нее остаются в БД
+     */
+    public ImportReportDTO importUsers(InputStream in, DataFormat format) {
+
+        ImportReport report = new ImportReport(properties.getImporting().getMaxReportedErrors());
+        int chunkSize = properties.getImporting().getChunkSize();
+        Map<Long, User> chunk = new LinkedHashMap<>();
+        Set<String> chunkEmails = new HashSet<>();
+        Set<String> chunkPhones = new HashSet<>();
+
+        List<ImportRow> window = new ArrayList<>(chunkSize);
+
+        try (var rows = importReader.read(in, format)) {
+            Iterator<ImportRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                window.add(iterator.next());
+                if (window.size() < chunkSize && iterator.hasNext()) continue;
+
+                List<UserDTO> users = new ArrayList<>(window.size());
+                for (ImportRow row : window) {
+                    if (!row.isParsed()) continue;
+                    row.user().setId(0L);
+                    row.user().setCreatedAt(new Date());
+                    users.add(row.user());
+                }
+                Iterator<String> errors = validator.formatErrors(users, Validator.Scope.CREATE).iterator();
+
+                for (ImportRow row : window) {
+                    report.total++;
+                    if (!row.isParsed()) {
+                        report.reject(row.line(), row.error());
+                        continue;
+                    }
+                    String error = errors.next();
+                    if (error == null) error = duplicateError(row.user(), chunkEmails, chunkPhones);
+                    if (error != null) {
+                        report.reject(row.line(), error);
+                        continue;
+                    }
+                    chunk.put(row.line(), userMapper.toEntity(row.user()));
+
+                    if (chunk.size() >= chunkSize) {
+                        importChunk(chunk, report);
+                        chunkEmails.clear();
+                        chunkPhones.clear();
+                    }
+                }
+                window.clear();
+            }
+            importChunk(chunk, report);
+        } catch (UncheckedIOException e) {
+            logger.warn(LOG_KEY_IMPORT, EXCEPTION_MESSAGE_IMPORT_READ, e);
+            throw new IllegalArgumentException(EXCEPTION_MESSAGE_IMPORT_READ);
+        } finally {
+            // загруженные пачки уже закоммичены, кеш и индексы должны о них узнать и при ошибке
+            if (report.imported > 0) publish(UserChangedEvent.Type.IMPORTED, List.of());
+        }
+
+        return new ImportReportDTO(report.total, report.imported, report.rejected, report.errors);
+    }
+
+
+    private void importChunk(Map<Long, User> chunk, ImportReport report) {
+        if (chunk.isEmpty()) return;
+
+        List<ImportConflict> conflicts;
+        try {
+            conflicts = transactions.execute(status -> userRepository.importChunk(chunk));
+        } catch (Exception e) {
+            logger.error(LOG_KEY_REPOSITORY, REPOSITORY_EXCEPTION_MESSAGE, e);
+            throw new RepositoryException(REPOSITORY_EXCEPTION_MESSAGE);
+        }
+
+        for (ImportConflict conflict : conflicts) {
+            report.reject(conflict.line(), conflict.emailTaken()
+                    ? Validator.EXCEPTION_MESSAGE_NOT_UNIQUE_EMAIL
+                    : Validator.EXCEPTION_MESSAGE_NOT_UNIQUE_PHONE);
+        }
+        report.imported += chunk.size() - conflicts.size();
+        chunk.clear();
+    }
+
+
+    /**
+     * Дубликат email или телефона среди уже принятых в пачку, иначе значения запоминаются
+     *
+     * @return ошибка или null
+     */
+    private static String duplicateError(UserDTO dto, Set<String> emails, Set<String> phones) {
+        if (emails.contains(dto.getEmail())) return Validator.EXCEPTION_MESSAGE_NOT_UNIQUE_EMAIL;
+        if (phones.contains(dto.getPhone())) return Validator.EXCEPTION_MESSAGE_NOT_UNIQUE_PHONE;
+        emails.add(dto.getEmail());
+        phones.add(dto.getPhone());
+        return null;
+    }
+
+
+    /**
+     * Метод пакетной проверки пользователей перед созданием
+     * Формат проверяется параллельно, дубликаты внутри пачки - за один проход,
+     * занятость в БД - двумя запросами WHERE ... = ANY(?) на каждые userservice.validation.chunk-size пользователей;
+     * значения, которых точно нет по {@link UserExistenceFilter}, в запрос не попадают
+     * Ошибка одного пользователя не прерывает проверку остальных
+     *
+     * @param users пачка пользователей
+     * @return результат для каждого пользователя в том же порядке
+     */
+    public List<UserValidationResultDTO> validateUsers(List<UserDTO> users) {
+
+        if (users == null || users.isEmpty()) throw new IllegalArgumentException(EXCEPTION_MESSAGE_VALIDATION_EMPTY);
+        if (users.size() > properties.getValidation().getMaxBatchSize())
+            throw new IllegalArgumentException(EXCEPTION_MESSAGE_VALIDATION_TOO_LARGE + properties.getValidation().getMaxBatchSize());
+
+        String[] errors = validator.formatErrors(users, Validator.Scope.CREATE).toArray(new String[0]);
+
+        Set<String> emails = new HashSet<>();
+        Set<String> phones = new HashSet<>();
+        List<Integer> unique = new ArrayList<>(users.size());
+        for (int i = 0; i < errors.length; i++) {
+            if (errors[i] == null) errors[i] = duplicateError(users.get(i), emails, phones);
+            if (errors[i] == null) unique.add(i);
+        }
 
+        int chunkSize = properties.getValidation().getChunkSize();
+        for (int from = 0; from < unique.size(); from += chunkSize) {
+            List<Integer> chunk = unique.subList(from, Math.min(from + chunkSize, unique.size()));
+            List<String> chunkEmails = chunk.stream().map(i -> users.get(i).getEmail()).toList();
+            List<String> chunkPhones = chunk.stream().map(i -> users.get(i).getPhone()).toList();
+            Set<String> takenEmails = existenceFilter.existing(UserExistenceFilter.Field.EMAIL, chunkEmails,
+                    values -> callRepository(() -> userRepository.findExistingEmails(values)));
+            Set<String> takenPhones = existenceFilter.existing(UserExistenceFilter.Field.PHONE, chunkPhones,
+                    values -> callRepository(() -> userRepository.findExistingPhones(values)));
+            for (int i : chunk) {
+                if (takenEmails.contains(users.get(i).getEmail()))
+                    errors[i] = Validator.EXCEPTION_MESSAGE_NOT_UNIQUE_EMAIL;
+                else if (takenPhones.contains(users.get(i).getPhone()))
+                    errors[i] = Validator.EXCEPTION_MESSAGE_NOT_UNIQUE_PHONE;
+            }
+        }
+
+        List<UserValidationResultDTO> results = new ArrayList<>(errors.length);
+        for (int i = 0; i < errors.length; i++) results.add(new UserValidationResultDTO(i, errors[i] == null, errors[i]));
+        return results;
+    }
+
+
+    /**
+     * Накопитель отчета об импорте, хранит не больше maxErrors ошибок
+     */
+    private static final class ImportReport {
+        private final int maxErrors;
+        private final List<ImportErrorDTO> errors = new ArrayList<>();
+        private long total;
+        private long imported;
+        private long rejected;
+
+        ImportReport(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        void reject(long line, String message) {
+            rejected++;
+            if (errors.size() < maxErrors) errors.add(new ImportErrorDTO(line, message));
+        }
     }
 
 
     /**
      * Метод получения данных по ID
      * Проверит, что ID > 0
+     * Читает через {@link UserCache}, в БД идет только при промахе - поэтому без своей транзакции,
+     * иначе соединение из пула бралось бы и на попадании
+     * Одновременные промахи по одному ID делят один запрос ({@link RequestCoalescer}), DTO у каждого свой
      *
      * @param dto RequestUserDTO с ID
      * @return Optional с данными в UserDTO
      */
-    @Transactional(readOnly = true)
     public Optional<UserDTO> getUserById(RequestUserDTO dto) {
 
         validator.id(dto.getId());
 
-        try {
-            return userRepository.findById(dto.getId())
-                    .map(userMapper::toDto);
-
-        } catch (Exception e) {
-            logger.error(REPOSITORY_EXCEPTION_MESSAGE, e);
-            throw new RepositoryException(REPOSITORY_EXCEPTION_MESSAGE);
-        }
-
+        return userCache.get(dto.getId(), id -> callRepository(() ->
+                coalescer.execute(OPERATION_FIND_BY_ID, id, () -> userRepository.findById(id)).map(userMapper::toDto)));
     }
 
 
@@ -103,7 +371,189 @@ public class UserServiceImpl implements UserService {
                     .collect(Collectors.toList());
 
         } catch (Exception e) {
-            logger.error(REPOSITORY_EXCEPTION_MESSAGE, e);
+            logger.error(LOG_KEY_REPOSITORY, REPOSITORY_EXCEPTION_MESSAGE, e);
+            throw new RepositoryException(REPOSITORY_EXCEPTION_MESSAGE);
+        }
+    }
+
+
+    /**
+     * Метод постраничного получения пользователей (keyset-пагинация)
+     * Размер страницы ограничен сверху userservice.page.max-size,
+     * так что один запрос не может вытащить в память всю таблицу
+     *
+     * @param cursor курсор из предыдущей страницы, null - первая страница
+     * @param size   желаемый размер страницы, null - размер по умолчанию
+     * @return страница пользователей и курсор следующей страницы
+     */
+    @Transactional(readOnly = true)
+    public UserPageDTO getUserPage(String cursor, Integer size) {
+
+        long afterId = PageCursor.decode(cursor);
+        int pageSize = pageSize(size);
+
+        List<User> rows;
+        try {
+            rows = userRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(pageSize + 1));
+        } catch (Exception e) {
+            logger.error(LOG_KEY_REPOSITORY, REPOSITORY_EXCEPTION_MESSAGE, e);
+            throw new RepositoryException(REPOSITORY_EXCEPTION_MESSAGE);
+        }
+
+        boolean hasNext = rows.size() > pageSize;
+        List<UserDTO> users = rows.stream()
+                .limit(pageSize)
+                .map(userMapper::toDto)
+                .toList();
+        String nextCursor = hasNext ? PageCursor.encode(users.get(users.size() - 1).getId()) : null;
+
+        return new UserPageDTO(users, nextCursor);
+    }
+
+
+    /**
+     * Метод постраничного получения пользователей по фильтру (keyset-пагинация)
+     * В запрос попадают только заданные критерии, страница ограничена userservice.page.max-size,
+     * так что даже нераспространенный фильтр не вычитывает всю выборку разом
+     *
+     * @param filterDto критерии отбора, null - без отбора
+     * @param cursor    курсор из предыдущей страницы, null - первая страница
+     * @param size      желаемый размер страницы, null - размер по умолчанию
+     * @return страница пользователей и курсор следующей страницы
+     */
+    @Transactional(readOnly = true)
+    public UserPageDTO filterUsers(UserFilterDTO filterDto, String cursor, Integer size) {
+
+        long afterId = PageCursor.decode(cursor);
+        int pageSize = pageSize(size);
+        UserFilter filter = filterDto == null
+                ? new UserFilter(null, null, null, null, null, null)
+                : userMapper.toFilter(filterDto);
+        checkRange(filter.minAge(), filter.maxAge());
+        checkRange(filter.createdFrom(), filter.createdTo());
+        checkRange(filter.minMoney(), filter.maxMoney());
+
+        List<User> rows = callRepository(() -> userRepository.findPageByFilter(filter, afterId, pageSize + 1));
+
+        boolean hasNext = rows.size() > pageSize;
+        List<UserDTO> users = rows.stream()
+                .limit(pageSize)
+                .map(userMapper::toDto)
+                .toList();
+        String nextCursor = hasNext ? PageCursor.encode(users.get(users.size() - 1).getId()) : null;
+
+        return new UserPageDTO(users, nextCursor);
+    }
+
+
+    private static <T extends Comparable<? super T>> void checkRange(T from, T to) {
+        if (from != null && to != null && from.compareTo(to) > 0)
+            throw new IllegalArgumentException(EXCEPTION_MESSAGE_FILTER_RANGE);
+    }
+
+
+    /**
+     * Метод потокового получения всех пользователей
+     * Строки читаются курсором БД пачками по userservice.export.fetch-size,
+     * поэтому память не растет вместе с таблицей
+     * Поток держит соединение с БД - вызывающий обязан его закрыть
+     *
+     * @return поток данных всех пользователей по возрастанию ID
+     */
+    public Stream<UserDTO> streamAllUsers() {
+
+        try {
+            return userRepository.streamAll(properties.getExport().getFetchSize())
+                    .map(userMapper::toDto);
+
+        } catch (Exception e) {
+            logger.error(LOG_KEY_REPOSITORY, REPOSITORY_EXCEPTION_MESSAGE, e);
+            throw new RepositoryException(REPOSITORY_EXCEPTION_MESSAGE);
+        }
+    }
+
+
+    /**
+     * Метод постраничного получения пользователей с выбранными полями
+     * Читаются только нужные колонки, без сущностей Hibernate и без UserMapper
+     *
+     * @param cursor курсор предыдущей страницы, null - первая страница
+     * @param size   размер страницы, null - размер по умолчанию
+     * @param fields выбранные поля, должны включать ID
+     * @return страница строк и курсор следующей страницы
+     */
+    public UserFieldsPageDTO getUserPage(String cursor, Integer size, Set<UserField> fields) {
+
+        long afterId = PageCursor.decode(cursor);
+        int pageSize = pageSize(size);
+
+        List<Map<String, Object>> rows;
+        try {
+            rows = userRepository.findFieldsPage(fields, afterId, pageSize + 1);
+        } catch (Exception e) {
+            logger.error(LOG_KEY_REPOSITORY, REPOSITORY_EXCEPTION_MESSAGE, e);
+            throw new RepositoryException(REPOSITORY_EXCEPTION_MESSAGE);
+        }
+
+        boolean hasNext = rows.size() > pageSize;
+        List<Map<String, Object>> users = hasNext ? rows.subList(0, pageSize) : rows;
+        String nextCursor = hasNext
+                ? PageCursor.encode((Long) users.get(users.size() - 1).get(UserField.ID.getProperty()))
+                : null;
+
+        return new UserFieldsPageDTO(users, nextCursor);
+    }
+
+
+    /**
+     * Метод потокового получения всех пользователей с выбранными полями
+     * Поток держит соединение с БД - вызывающий обязан его закрыть
+     *
+     * @param fields выбранные поля
+     * @return поток строк по возрастанию ID
+     */
+    public Stream<Map<String, Object>> streamAllUsers(Set<UserField> fields) {
+
+        try {
+            return userRepository.streamFields(fields, properties.getExport().getFetchSize());
+
+        } catch (Exception e) {
+            logger.error(LOG_KEY_REPOSITORY, REPOSITORY_EXCEPTION_MESSAGE, e);
+            throw new RepositoryException(REPOSITORY_EXCEPTION_MESSAGE);
+        }
+    }
+
+
+    /**
+     * Приводит запрошенный размер страницы к допустимому
+     */
+    private int pageSize(Integer size) {
+        if (size == null) return properties.getPage().getDefaultSize();
+        if (size < 1) throw new IllegalArgumentException(EXCEPTION_MESSAGE_PAGE_SIZE);
+        return Math.min(size, properties.getPage().getMaxSize());
+    }
+
+
+    /**
+     * Метод получения версии пользователя по ID
+     * Читает одну колонку - для ответа 304 на If-None-Match без чтения всего пользователя
+     * Если пользователь уже в кеше, версия берется оттуда без запроса
+     *
+     * @param dto RequestUserDTO с ID
+     * @return Optional с версией
+     */
+    public Optional<Long> getUserVersion(RequestUserDTO dto) {
+
+        validator.id(dto.getId());
+
+        UserCache.CachedVersion cached = userCache.getVersionIfPresent(dto.getId());
+        if (cached.cached()) return cached.version();
+
+        try {
+            return coalescer.execute(OPERATION_FIND_VERSION, dto.getId(), () -> userRepository.findVersionById(dto.getId()));
+
+        } catch (Exception e) {
+            logger.error(LOG_KEY_REPOSITORY, REPOSITORY_EXCEPTION_MESSAGE, e);
             throw new RepositoryException(REPOSITORY_EXCEPTION_MESSAGE);
         }
     }
@@ -118,37 +568,433 @@ public class UserServiceImpl implements UserService {
      */
     @Transactional
     public void updateUser(UserDTO dto) {
+        updateUser(dto, null);
+    }
+
+
+    /**
+     * Метод условного обновления данных пользователя
+     * Проверит данные на валидность перед обновлением
+     * Версия из тела запроса не используется, условие задается только expectedVersion
+     *
+     * @param dto             обновленные данные пользователя
+     * @param expectedVersion версия, которую видел клиент, null - обновить без условия
+     * @return пользователь после обновления с новой версией
+     * @throws UserNotFoundException    если пользователя нет
+     * @throws VersionConflictException если версия уже другая
+     */
+    @Transactional
+    public UserDTO updateUser(UserDTO dto, Long expectedVersion) {
 
-        validator.fullValidation(dto, Validator.Scope.UPDATE);
+        validator.formatValidation(dto, Validator.Scope.UPDATE);
 
         try {
-            userRepository.save(userMapper.toEntity(dto));
+            User user = userRepository.findById(dto.getId())
+                    .orElseThrow(() -> new UserNotFoundException(EXCEPTION_MESSAGE_USER_NOT_FOUND));
+            if (expectedVersion != null && user.getVersion() != expectedVersion)
+                throw new VersionConflictException(EXCEPTION_MESSAGE_VERSION_CONFLICT);
+
+            UserDTO previous = userMapper.toDto(user);
+            user.setName(dto.getName())
+                    .setSurname(dto.getSurname())
+                    .setAge(dto.getAge())
+                    .setPhone(dto.getPhone())
+                    .setEmail(dto.getEmail())
+                    .setMoney(dto.getMoney());
             userRepository.flush();
+            UserDTO updated = userMapper.toDto(user);
+            eventPublisher.publishEvent(new UserChangedEvent(UserChangedEvent.Type.UPDATED,
+                    Collections.singletonList(updated), Collections.singletonList(previous)));
+            return updated;
+
+        } catch (UserNotFoundException | VersionConflictException e) {
+            throw e;
+        } catch (OptimisticLockingFailureException e) {
+            throw new VersionConflictException(EXCEPTION_MESSAGE_VERSION_CONFLICT);
+        } catch (DataIntegrityViolationException e) {
+            throw notUnique(e);
         } catch (Exception e) {
-            logger.error(REPOSITORY_EXCEPTION_MESSAGE, e);
+            logger.error(LOG_KEY_REPOSITORY, REPOSITORY_EXCEPTION_MESSAGE, e);
             throw new RepositoryException(REPOSITORY_EXCEPTION_MESSAGE);
         }
+    }
+
+
+    /**
+     * Метод частичного обновления пользователя (JSON Merge Patch)
+     * Проверяются только переданные поля, пишутся тоже только они - одной командой UPDATE ... RETURNING,
+     * без чтения сущности и без своей транзакции: удачное обновление - один round trip к БД
+     * Второй запрос - только при неудаче, чтобы отличить отсутствие пользователя от конфликта версий
+     * <p>
+     * Событие об изменении уходит без старого состояния, как у массового обновления:
+     * статистика пересчитается сверкой, из фильтра существования старые значения не удаляются
+     *
+     * @param id              ID пользователя
+     * @param patch           свойство -> новое значение
+     * @param expectedVersion версия, которую видел клиент, null - обновить без условия
+     * @return пользователь после обновления с новой версией
+     * @throws UserNotFoundException    если пользователя нет
+     * @throws VersionConflictException если версия уже другая
+     */
+    public UserDTO patchUser(long id, Map<String, Object> patch, Long expectedVersion) {
+
+        validator.id(id);
+        Map<UserField, Object> values = validator.patchValidation(patch);
+
+        Optional<User> patched;
+        try {
+            patched = userRepository.patchReturning(id, values, expectedVersion);
+        } catch (DataIntegrityViolationException e) {
+            throw notUnique(e);
+        } catch (Exception e) {
+            logger.error(LOG_KEY_REPOSITORY, REPOSITORY_EXCEPTION_MESSAGE, e);
+            throw new RepositoryException(REPOSITORY_EXCEPTION_MESSAGE);
+        }
+
+        if (patched.isEmpty()) {
+            if (expectedVersion != null && callRepository(() -> userRepository.existsById(id)))
+                throw new VersionConflictException(EXCEPTION_MESSAGE_VERSION_CONFLICT);
+            throw new UserNotFoundException(EXCEPTION_MESSAGE_USER_NOT_FOUND);
+        }
+        UserDTO updated = userMapper.toDto(patched.get());
+        publish(UserChangedEvent.Type.UPDATED, Collections.singletonList(updated));
+        return updated;
+    }
+
+
+    /**
+     * Метод зачисления денег пользователю
+     * Одна команда UPDATE ... SET money = money + ? RETURNING без своей транзакции и без чтения сущности:
+     * одновременные зачисления и списания не теряют друг друга, версия пользователя растет
+     *
+     * @param id     ID пользователя
+     * @param amount сумма, больше 0
+     * @return пользователь после зачисления
+     * @throws UserNotFoundException     если пользователя нет
+     * @throws BalanceOverflowException если баланс превысил бы максимум bigint
+     */
+    public UserDTO creditMoney(long id, long amount) {
+        return addMoney(id, amount, amount);
+    }
+
+
+    /**
+     * Метод списания денег у пользователя
+     * Так же одной командой, условие money - amount >= 0 проверяется той же командой, что и пишет
+     *
+     * @param id     ID пользователя
+     * @param amount сумма, больше 0
+     * @return пользователь после списания
+     * @throws UserNotFoundException      если пользователя нет
+     * @throws InsufficientFundsException если денег не хватает
+     */
+    public UserDTO debitMoney(long id, long amount) {
+        return addMoney(id, amount, -amount);
+    }
+
+
+    private UserDTO addMoney(long id, long amount, long delta) {
+
+        validator.id(id);
+        if (amount <= 0) throw new IllegalArgumentException(EXCEPTION_MESSAGE_AMOUNT);
+
+        Optional<User> changed = callRepository(() -> userRepository.addMoneyReturning(id, delta));
+        if (changed.isEmpty()) {
+            if (!callRepository(() -> userRepository.existsById(id)))
+                throw new UserNotFoundException(EXCEPTION_MESSAGE_USER_NOT_FOUND);
+            if (delta < 0) throw new InsufficientFundsException(EXCEPTION_MESSAGE_INSUFFICIENT_FUNDS);
+            throw new BalanceOverflowException(EXCEPTION_MESSAGE_BALANCE_OVERFLOW);
+        }
+        UserDTO updated = userMapper.toDto(changed.get());
+        eventPublisher.publishEvent(new UserChangedEvent(UserChangedEvent.Type.UPDATED,
+                List.of(updated), List.of(beforeMoneyChange(updated, delta))));
+        return updated;
+    }
 
+
+    /**
+     * Метод перевода денег между пользователями
+     * Обе строки блокируются по возрастанию ID (SELECT ... FOR UPDATE), поэтому встречные переводы
+     * A -> B и B -> A ждут друг друга, а не блокируют взаимно; затем обе строки меняются одной командой UPDATE
+     * Ошибка после блокировки откатывает транзакцию целиком - деньги не исчезают и не появляются
+     *
+     * @param dto отправитель, получатель и сумма
+     * @return [отправитель, получатель] после перевода
+     * @throws UserNotFoundException      если кого-то из пользователей нет
+     * @throws InsufficientFundsException если у отправителя не хватает денег
+     * @throws BalanceOverflowException   если баланс получателя превысил бы максимум bigint
+     */
+    @Transactional
+    public List<UserDTO> transferMoney(TransferDTO dto) {
+
+        if (dto.getFromId() == null || dto.getToId() == null)
+            throw new IllegalArgumentException(EXCEPTION_MESSAGE_TRANSFER_PARTIES);
+        long fromId = dto.getFromId();
+        long toId = dto.getToId();
+        validator.id(fromId);
+        validator.id(toId);
+        if (fromId == toId) throw new IllegalArgumentException(EXCEPTION_MESSAGE_TRANSFER_SELF);
+        if (dto.getAmount() == null || dto.getAmount() <= 0) throw new IllegalArgumentException(EXCEPTION_MESSAGE_AMOUNT);
+        long amount = dto.getAmount();
+
+        Map<Long, Long> balances = callRepository(() -> userRepository.lockMoneyForUpdate(List.of(fromId, toId)));
+        if (!balances.containsKey(fromId) || !balances.containsKey(toId))
+            throw new UserNotFoundException(EXCEPTION_MESSAGE_USER_NOT_FOUND);
+        if (balances.get(fromId) < amount) throw new InsufficientFundsException(EXCEPTION_MESSAGE_INSUFFICIENT_FUNDS);
+        if (balances.get(toId) > Long.MAX_VALUE - amount)
+            throw new BalanceOverflowException(EXCEPTION_MESSAGE_BALANCE_OVERFLOW);
+
+        List<User> changed = callRepository(() -> userRepository.transferMoneyReturning(fromId, toId, amount));
+        if (changed.size() != 2) throw new InsufficientFundsException(EXCEPTION_MESSAGE_INSUFFICIENT_FUNDS);
+
+        UserDTO from = userMapper.toDto(changed.get(0).getId() == fromId ? changed.get(0) : changed.get(1));
+        UserDTO to = userMapper.toDto(changed.get(0).getId() == fromId ? changed.get(1) : changed.get(0));
+        eventPublisher.publishEvent(new UserChangedEvent(UserChangedEvent.Type.UPDATED, List.of(from, to),
+                List.of(beforeMoneyChange(from, -amount), beforeMoneyChange(to, amount))));
+        return List.of(from, to);
+    }
+
+
+    /**
+     * Состояние до изменения баланса восстанавливается из строки после него: отличаются только баланс и версия
+     * Статистике и фильтру существования это избавляет от сверки
+     */
+    private static UserDTO beforeMoneyChange(UserDTO user, long delta) {
+        return new UserDTO(user.getId(), user.getName(), user.getSurname(), user.getAge(), user.getPhone(),
+                user.getEmail(), user.getMoney() - delta, user.getCreatedAt(), user.getVersion() - 1);
     }
 
 
     /**
      * Метод удаления пользователя
      * Проверит, что ID > 0
+     * Одна команда DELETE ... RETURNING без своей транзакции: удаленная строка для события об изменении
+     * и для сообщения в Kafka приходит той же командой, без предварительного чтения
      *
      * @param dto UserRequestDTO с ID
+     * @return удаленный пользователь, empty - такого не было
      */
-    @Transactional
-    public void deleteUser(RequestUserDTO dto) {
+    public Optional<UserDTO> deleteUser(RequestUserDTO dto) {
 
         validator.id(dto.getId());
 
+        Optional<UserDTO> deleted = callRepository(() -> userRepository.deleteByIdReturning(dto.getId()))
+                .map(userMapper::toDto);
+        deleted.ifPresent(user -> publish(UserChangedEvent.Type.DELETED, List.of(user)));
+        return deleted;
+    }
+
+
+    /**
+     * Метод массового обновления пользователей
+     *
+     * @param dto ID или фильтр и новые значения полей
+     * @return сколько пользователей обновлено
+     */
+    public BulkResultDTO updateUsers(BulkUpdateDTO dto) {
+        return updateUsers(dto, updated -> {
+        });
+    }
+
+
+    /**
+     * Метод массового обновления пользователей
+     * Новые значения проверяются один раз, затем пользователи обновляются пачками
+     * по userservice.bulk.chunk-size - одна команда UPDATE ... WHERE id = ANY(?) на пачку
+     * Пачки независимы: упавшая пачка не откатывает уже обновленные
+     *
+     * @param dto           ID или фильтр и новые значения полей
+     * @param chunkListener получает обновленных пользователей каждой пачки
+     * @return сколько пользователей обновлено
+     */
+    public BulkResultDTO updateUsers(BulkUpdateDTO dto, Consumer<List<UserDTO>> chunkListener) {
+
+        if (dto.getName() == null && dto.getSurname() == null && dto.getAge() == null)
+            throw new IllegalArgumentException(EXCEPTION_MESSAGE_BULK_NOTHING_TO_UPDATE);
+        if (dto.getName() != null) validator.validStringCreate(dto.getName(), validator::name);
+        if (dto.getSurname() != null) validator.validStringCreate(dto.getSurname(), validator::surname);
+        if (dto.getAge() != null) validator.age(dto.getAge());
+
+        return forEachChunk(dto.getIds(), dto.getFilter(),
+                ids -> userRepository.updateAllByIdReturning(ids, dto.getName(), dto.getSurname(), dto.getAge()),
+                UserChangedEvent.Type.UPDATED, chunkListener);
+    }
+
+
+    /**
+     * Метод массового удаления пользователей
+     *
+     * @param dto ID или фильтр
+     * @return сколько пользователей удалено
+     */
+    public BulkResultDTO deleteUsers(BulkDeleteDTO dto) {
+        return deleteUsers(dto, deleted -> {
+        });
+    }
+
+
+    /**
+     * Метод массового удаления пользователей
+     * Пользователи удаляются пачками по userservice.bulk.chunk-size -
+     * одна команда DELETE ... WHERE id = ANY(?) на пачку, без загрузки сущностей
+     * Пачки независимы: упавшая пачка не откатывает уже удаленные
+     *
+     * @param dto           ID или фильтр
+     * @param chunkListener получает удаленных пользователей каждой пачки
+     * @return сколько пользователей удалено
+     */
+    public BulkResultDTO deleteUsers(BulkDeleteDTO dto, Consumer<List<UserDTO>> chunkListener) {
+        return forEachChunk(dto.getIds(), dto.getFilter(), userRepository::deleteAllByIdReturning,
+                UserChangedEvent.Type.DELETED, chunkListener);
+    }
+
+
+    /**
+     * Разбивает отобранные ID на пачки и применяет к каждой action
+     * ID из списка берутся как есть, по фильтру - keyset-выборкой пачка за пачкой
+     */
+    private BulkResultDTO forEachChunk(List<Long> ids, UserFilterDTO filterDto,
+                                       Function<List<Long>, List<User>> action,
+                                       UserChangedEvent.Type type,
+                                       Consumer<List<UserDTO>> chunkListener) {
+
+        int chunkSize = properties.getBulk().getChunkSize();
+        long affected = 0;
+        int chunks = 0;
+
+        if (ids != null && !ids.isEmpty()) {
+            if (filterDto != null) throw new IllegalArgumentException(EXCEPTION_MESSAGE_BULK_TARGET);
+            ids.forEach(validator::id);
+            List<Long> distinct = ids.stream().distinct().toList();
+
+            for (int from = 0; from < distinct.size(); from += chunkSize) {
+                List<Long> chunk = distinct.subList(from, Math.min(from + chunkSize, distinct.size()));
+                affected += applyChunk(chunk, action, type, chunkListener);
+                chunks++;
+            }
+            return new BulkResultDTO(affected, chunks);
+        }
+
+        UserFilter filter = userMapper.toFilter(filterDto);
+        if (filter == null || filter.isEmpty()) throw new IllegalArgumentException(EXCEPTION_MESSAGE_BULK_TARGET);
+
+        long afterId = 0L;
+        while (true) {
+            long after = afterId;
+            List<Long> chunk = callRepository(() -> userRepository.findIdsByFilter(filter, after, chunkSize));
+            if (chunk.isEmpty()) break;
+            affected += applyChunk(chunk, action, type, chunkListener);
+            chunks++;
+            if (chunk.size() < chunkSize) break;
+            afterId = chunk.get(chunk.size() - 1);
+        }
+        return new BulkResultDTO(affected, chunks);
+    }
+
+
+    private int applyChunk(List<Long> chunk, Function<List<Long>, List<User>> action,
+                           UserChangedEvent.Type type, Consumer<List<UserDTO>> chunkListener) {
+        List<UserDTO> changed = callRepository(() -> action.apply(chunk)).stream()
+                .map(userMapper::toDto)
+                .toList();
+        if (!changed.isEmpty()) {
+            publish(type, changed);
+            chunkListener.accept(changed);
+        }
+        return changed.size();
+    }
+
+
+    /**
+     * Метод поиска пользователей по имени и фамилии
+     * Запрос приводится к нижнему регистру, limit ограничен userservice.search.max-limit
+     * Если включен индекс в памяти, БД не используется
+     *
+     * @param query строка поиска
+     * @param mode  prefix (по умолчанию) или fuzzy
+     * @param limit максимальное количество результатов, null - значение по умолчанию
+     * @return найденные пользователи, самые похожие первыми
+     */
+    public List<UserSearchHitDTO> searchUsers(String query, String mode, Integer limit) {
+
+        if (query == null || query.isBlank()) throw new IllegalArgumentException(EXCEPTION_MESSAGE_SEARCH_QUERY);
+        if (limit != null && limit < 1) throw new IllegalArgumentException(EXCEPTION_MESSAGE_SEARCH_LIMIT);
+        SearchMode searchMode = SearchMode.of(mode);
+        String normalized = query.trim().toLowerCase(Locale.ROOT);
+        int max = limit == null
+                ? properties.getSearch().getDefaultLimit()
+                : Math.min(limit, properties.getSearch().getMaxLimit());
+
+        if (searchIndex.isEnabled())
+            return searchIndex.search(normalized, searchMode, max).stream().map(userMapper::toDto).toList();
+
+        return callRepository(() -> userRepository.searchByName(normalized, searchMode, max,
+                properties.getSearch().getFuzzyThreshold())).stream()
+                .map(userMapper::toDto)
+                .toList();
+    }
+
+
+    /**
+     * Метод получения сводной статистики по пользователям
+     * Значения берутся из счетчиков в памяти, БД не используется
+     *
+     * @return количество, суммарный и средний баланс, гистограмма возраста
+     */
+    public UserStatsDTO getStats() {
+        return statistics.snapshot();
+    }
+
+
+    /**
+     * Метод проверки, свободны ли email и телефон
+     * Большинство проверяемых значений новые: фильтр в памяти отвечает "точно нет" без запроса в БД,
+     * запрос exists выполняется только на ответ "возможно есть"
+     *
+     * @param email email для проверки, null - не проверять
+     * @param phone телефон для проверки, null - не проверять
+     * @return свободно ли каждое из указанных значений
+     */
+    public UserAvailabilityDTO checkAvailability(String email, String phone) {
+        if (email == null && phone == null) throw new IllegalArgumentException(EXCEPTION_MESSAGE_AVAILABILITY_EMPTY);
+
+        Boolean emailAvailable = email == null ? null : !existenceFilter.exists(UserExistenceFilter.Field.EMAIL, email,
+                () -> callRepository(() -> userRepository.existsByEmailAndIdNot(email, 0L)));
+        Boolean phoneAvailable = phone == null ? null : !existenceFilter.exists(UserExistenceFilter.Field.PHONE, phone,
+                () -> callRepository(() -> userRepository.existsByPhoneAndIdNot(phone, 0L)));
+        return new UserAvailabilityDTO(emailAvailable, phoneAvailable);
+    }
+
+
+    /**
+     * Сообщает об изменении пользователей
+     * Слушатели с @TransactionalEventListener получат событие только после коммита
+     */
+    private void publish(UserChangedEvent.Type type, List<UserDTO> users) {
+        eventPublisher.publishEvent(new UserChangedEvent(type, users));
+    }
+
+
+    /**
+     * Нарушение уникальности email или телефона - ошибка данных клиента, остальное - ошибка репозитория
+     */
+    private RuntimeException notUnique(DataIntegrityViolationException e) {
+        String message = UniqueConstraints.messageFor(e);
+        if (message == null) {
+            logger.error(LOG_KEY_REPOSITORY, REPOSITORY_EXCEPTION_MESSAGE, e);
+            return new RepositoryException(REPOSITORY_EXCEPTION_MESSAGE);
+        }
+        logger.warn(LOG_KEY_NOT_UNIQUE, "{}", message);
+        return new IllegalArgumentException(message);
+    }
+
+
+    private <T> T callRepository(Supplier<T> call) {
         try {
-            userRepository.deleteById(dto.getId());
-            userRepository.flush();
+            return call.get();
         } catch (Exception e) {
-            logger.error(REPOSITORY_EXCEPTION_MESSAGE, e);
+            logger.error(LOG_KEY_REPOSITORY, REPOSITORY_EXCEPTION_MESSAGE, e);
             throw new RepositoryException(REPOSITORY_EXCEPTION_MESSAGE);
         }
     }
-}
\ No newline at end of file
+}
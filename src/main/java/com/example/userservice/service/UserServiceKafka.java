@@ -1,24 +1,41 @@
 package com.example.userservice.service;
 
+import com.example.userservice.dto.BulkDeleteDTO;
+import com.example.userservice.dto.BulkResultDTO;
+import com.example.userservice.dto.BulkUpdateDTO;
+import com.example.userservice.dto.ImportReportDTO;
 import com.example.userservice.dto.RequestUserDTO;
+import com.example.userservice.dto.TransferDTO;
+import com.example.userservice.dto.UserAvailabilityDTO;
 import com.example.userservice.dto.UserDTO;
+import com.example.userservice.dto.UserFieldsPageDTO;
+import com.example.userservice.dto.UserFilterDTO;
+import com.example.userservice.dto.UserPageDTO;
+import com.example.userservice.dto.UserSearchHitDTO;
+import com.example.userservice.dto.UserStatsDTO;
+import com.example.userservice.dto.UserValidationResultDTO;
 import com.example.userservice.exception.UserServiceException;
+import com.example.userservice.format.DataFormat;
 import com.example.userservice.kafka.UserEventProducer;
+import com.example.userservice.logging.RateLimitedLogger;
+import com.example.userservice.repository.UserField;
 import org.springframework.stereotype.Service;
 
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.util.Set;
+import java.util.stream.Stream;
 
 
 /**
  * Декоратор {@link UserServiceImpl} с Кафкой
- * Функционал дополнен только для методов create() и delete()
+ * Функционал дополнен только для методов create(), update(), delete(), массовых операций и импорта
  *
  * @author vmarakushin
- * @version 1.0
+ * @version 3.0
  */
 @Service
 public class UserServiceKafka implements UserService {
@@ -26,7 +43,10 @@ public class UserServiceKafka implements UserService {
 
     private final UserServiceImpl userService;
 
-    private final Logger logger;
+    private static final String LOG_KEY_KAFKA = "kafka";
+    private static final String LOG_KAFKA_FAILED = "Не удалось отправить событие в Kafka";
+
+    private final RateLimitedLogger logger;
 
     private final UserEventProducer eventProducer;
 
@@ -34,43 +54,153 @@ public class UserServiceKafka implements UserService {
     public UserServiceKafka(UserEventProducer eventProducer, UserServiceImpl userService) {
         this.eventProducer = eventProducer;
         this.userService = userService;
-        this.logger = LoggerFactory.getLogger(UserServiceKafka.class);
+        this.logger = RateLimitedLogger.getLogger(UserServiceKafka.class);
     }
 
 
-    public void createUser(UserDTO dto) {
-        userService.createUser(dto);
-        try {
-            eventProducer.sendUserEvent("CREATE", dto.getEmail());
-        }catch (Exception e){
-            logger.warn("Не удалось отправить событие в Kafka: ", e);
-            throw new UserServiceException("Не удалось отправить сообщение в Kafka");
-        }
+    public UserDTO createUser(UserDTO dto) {
+        UserDTO created = userService.createUser(dto);
+        send("CREATE", created);
+        return created;
+    }
+
+    /**
+     * Массовый импорт событий CREATE не публикует:
+     * сотни тысяч писем партнерским пользователям - не то, чего ждут от загрузки
+     * Вместо них одно пустое событие IMPORT: остальные экземпляры перечитывают кеш и фильтр существования
+     */
+    public ImportReportDTO importUsers(InputStream in, DataFormat format) {
+        ImportReportDTO report = userService.importUsers(in, format);
+        if (report.getImported() > 0) sendBatch("IMPORT", List.of());
+        return report;
     }
 
     public List<UserDTO> getAllUsers() {
         return userService.getAllUsers();
     }
 
+    public UserPageDTO getUserPage(String cursor, Integer size) {
+        return userService.getUserPage(cursor, size);
+    }
+
+    public UserFieldsPageDTO getUserPage(String cursor, Integer size, Set<UserField> fields) {
+        return userService.getUserPage(cursor, size, fields);
+    }
+
+    public UserPageDTO filterUsers(UserFilterDTO filter, String cursor, Integer size) {
+        return userService.filterUsers(filter, cursor, size);
+    }
+
+    public Stream<UserDTO> streamAllUsers() {
+        return userService.streamAllUsers();
+    }
+
+    public Stream<Map<String, Object>> streamAllUsers(Set<UserField> fields) {
+        return userService.streamAllUsers(fields);
+    }
+
     public Optional<UserDTO> getUserById(RequestUserDTO dto) {
         return userService.getUserById(dto);
     }
 
+    public Optional<Long> getUserVersion(RequestUserDTO dto) {
+        return userService.getUserVersion(dto);
+    }
+
+    public List<UserSearchHitDTO> searchUsers(String query, String mode, Integer limit) {
+        return userService.searchUsers(query, mode, limit);
+    }
+
+    public UserStatsDTO getStats() {
+        return userService.getStats();
+    }
+
+    public UserAvailabilityDTO checkAvailability(String email, String phone) {
+        return userService.checkAvailability(email, phone);
+    }
+
+    /**
+     * Изменение публикует UPDATE с новой версией - по нему остальные экземпляры сбрасывают свой кеш
+     */
     public void updateUser(UserDTO dto) {
-        userService.updateUser(dto);
-    }
-
-    public void deleteUser(RequestUserDTO dto) {
-        Optional<UserDTO> userOp = userService.getUserById(dto);
-        if (userOp.isPresent()) {
-            UserDTO user = userOp.get();
-            userService.deleteUser(dto);
-            try {
-                eventProducer.sendUserEvent("DELETE", user.getEmail());
-            }catch (Exception e){
-                logger.warn("Не удалось отправить событие в Kafka: ", e);
-                throw new UserServiceException("Не удалось отправить сообщение в Kafka");
-            }
+        updateUser(dto, null);
+    }
+
+    public UserDTO updateUser(UserDTO dto, Long expectedVersion) {
+        UserDTO updated = userService.updateUser(dto, expectedVersion);
+        send("UPDATE", updated);
+        return updated;
+    }
+
+    public UserDTO patchUser(long id, Map<String, Object> patch, Long expectedVersion) {
+        UserDTO updated = userService.patchUser(id, patch, expectedVersion);
+        send("UPDATE", updated);
+        return updated;
+    }
+
+    public UserDTO creditMoney(long id, long amount) {
+        UserDTO updated = userService.creditMoney(id, amount);
+        send("UPDATE", updated);
+        return updated;
+    }
+
+    public UserDTO debitMoney(long id, long amount) {
+        UserDTO updated = userService.debitMoney(id, amount);
+        send("UPDATE", updated);
+        return updated;
+    }
+
+    /**
+     * Перевод меняет двух пользователей - по событию UPDATE на каждого, как у обычного изменения
+     */
+    public List<UserDTO> transferMoney(TransferDTO dto) {
+        List<UserDTO> updated = userService.transferMoney(dto);
+        updated.forEach(user -> send("UPDATE", user));
+        return updated;
+    }
+
+    /**
+     * Массовое обновление публикует одно событие BULK_UPDATE на пачку
+     */
+    public BulkResultDTO updateUsers(BulkUpdateDTO dto) {
+        return userService.updateUsers(dto, updated -> sendBatch("BULK_UPDATE", updated));
+    }
+
+    /**
+     * Событие DELETE строится из строки, которую вернула сама команда удаления
+     */
+    public Optional<UserDTO> deleteUser(RequestUserDTO dto) {
+        Optional<UserDTO> deleted = userService.deleteUser(dto);
+        deleted.ifPresent(user -> send("DELETE", user));
+        return deleted;
+    }
+
+    /**
+     * Массовое удаление публикует одно событие BULK_DELETE на пачку
+     */
+    public BulkResultDTO deleteUsers(BulkDeleteDTO dto) {
+        return userService.deleteUsers(dto, deleted -> sendBatch("BULK_DELETE", deleted));
+    }
+
+    private void send(String operation, UserDTO user) {
+        try {
+            eventProducer.sendUserEvent(operation, user);
+        }catch (Exception e){
+            logger.warn(LOG_KEY_KAFKA, LOG_KAFKA_FAILED, e);
+            throw new UserServiceException("Не удалось отправить сообщение в Kafka");
         }
     }
+
+    private void sendBatch(String operation, List<UserDTO> users) {
+        try {
+            eventProducer.sendUserBatchEvent(operation, users);
+        }catch (Exception e){
+            logger.warn(LOG_KEY_KAFKA, LOG_KAFKA_FAILED, e);
+            throw new UserServiceException("Не удалось отправить сообщение в Kafka");
+        }
+    }
+
+    public List<UserValidationResultDTO> validateUsers(List<UserDTO> users) {
+        return userService.validateUsers(users);
+    }
 }
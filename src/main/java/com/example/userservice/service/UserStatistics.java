@@ -0,0 +1,158 @@
+package com.example.userservice.service;
+
+import com.example.userservice.config.UserServiceProperties;
+import com.example.userservice.dto.UserDTO;
+import com.example.userservice.dto.UserStatsDTO;
+import com.example.userservice.repository.AgeBucketAggregate;
+import com.example.userservice.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Статистика пользователей в памяти процесса: количество, суммарный баланс, гистограмма возраста
+ * Чтение - сумма фиксированного числа счетчиков, без обращения к БД
+ * <p>
+ * Счетчики - {@link LongAdder}: запись из множества потоков без блокировок и без борьбы за одну ячейку
+ * Обновляются событиями {@link UserChangedEvent} после коммита
+ * Если событие не несет состояния "до" (массовое обновление, импорт), статистика помечается устаревшей
+ * и сверяется с БД на ближайшей проверке, но не чаще раза в 10 секунд - серия пачек массовой операции
+ * дает одну сверку, а не сверку на пачку; без этого сверка идет раз в userservice.stats.reconcile-interval
+ * <p>
+ * Сверка не атомарна относительно идущих записей: изменение, попавшее между агрегатом и поправкой,
+ * может быть учтено дважды или потеряно до следующей сверки
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@Component
+public class UserStatistics implements InitializingBean {
+
+    private static final int MAX_AGE = 150;
+    private static final int BUCKETS = MAX_AGE / AgeBucketAggregate.WIDTH + 1;
+    private static final long STALE_RETRY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final UserRepository userRepository;
+    private final UserServiceProperties properties;
+    private final Logger logger;
+
+    private final LongAdder users = new LongAdder();
+    private final LongAdder money = new LongAdder();
+    private final LongAdder[] ageBuckets = new LongAdder[BUCKETS];
+    private volatile boolean stale;
+    private volatile long lastAttemptNanos;
+    private volatile Date reconciledAt;
+
+
+    public UserStatistics(UserRepository userRepository, UserServiceProperties properties) {
+        this.userRepository = userRepository;
+        this.properties = properties;
+        this.logger = LoggerFactory.getLogger(UserStatistics.class);
+        for (int i = 0; i < BUCKETS; i++) ageBuckets[i] = new LongAdder();
+    }
+
+
+    @Override
+    public void afterPropertiesSet() {
+        reconcile();
+    }
+
+
+    /**
+     * @return текущие значения счетчиков
+     */
+    public UserStatsDTO snapshot() {
+        long count = users.sum();
+        long total = money.sum();
+        Map<String, Long> histogram = new LinkedHashMap<>(BUCKETS * 2);
+        for (int i = 0; i < BUCKETS; i++) {
+            int from = i * AgeBucketAggregate.WIDTH;
+            histogram.put(from + "-" + (from + AgeBucketAggregate.WIDTH - 1), ageBuckets[i].sum());
+        }
+        return new UserStatsDTO(count, total, count == 0 ? 0.0 : (double) total / count, histogram, reconciledAt);
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        switch (event.type()) {
+            case CREATED -> event.users().forEach(user -> apply(user, 1));
+            case DELETED -> event.users().forEach(user -> apply(user, -1));
+            case UPDATED -> {
+                if (event.previous() == null) {
+                    stale = true;
+                    return;
+                }
+                event.previous().forEach(user -> apply(user, -1));
+                event.users().forEach(user -> apply(user, 1));
+            }
+            case IMPORTED -> stale = true;
+        }
+    }
+
+
+    private void apply(UserDTO user, int sign) {
+        if (user == null) return;
+        users.add(sign);
+        money.add(sign * user.getMoney());
+        ageBuckets[bucket(user.getAge())].add(sign);
+    }
+
+    private static int bucket(int age) {
+        return Math.max(0, Math.min(age / AgeBucketAggregate.WIDTH, BUCKETS - 1));
+    }
+
+
+    /**
+     * Проверяется раз в секунду, сама сверка - по флагу устаревания или по интервалу
+     */
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.SECONDS)
+    public void reconcileIfDue() {
+        long sinceAttempt = System.nanoTime() - lastAttemptNanos;
+        if ((stale && sinceAttempt >= STALE_RETRY_NANOS)
+                || sinceAttempt >= properties.getStats().getReconcileInterval().toNanos())
+            reconcile();
+    }
+
+
+    /**
+     * Сверяет счетчики с агрегатом из БД: к каждому добавляется разница, а не записывается значение,
+     * чтобы не терять изменения других потоков, пришедшие во время сверки
+     */
+    public synchronized void reconcile() {
+        lastAttemptNanos = System.nanoTime();
+        List<AgeBucketAggregate> aggregates;
+        try {
+            aggregates = userRepository.aggregateByAgeBucket();
+        } catch (Exception e) {
+            logger.warn("Не удалось сверить статистику пользователей с БД", e);
+            return;
+        }
+        stale = false;
+
+        long[] bucketUsers = new long[BUCKETS];
+        long totalUsers = 0;
+        long totalMoney = 0;
+        for (AgeBucketAggregate aggregate : aggregates) {
+            bucketUsers[Math.max(0, Math.min(aggregate.bucket(), BUCKETS - 1))] += aggregate.users();
+            totalUsers += aggregate.users();
+            totalMoney += aggregate.money();
+        }
+
+        users.add(totalUsers - users.sum());
+        money.add(totalMoney - money.sum());
+        for (int i = 0; i < BUCKETS; i++) ageBuckets[i].add(bucketUsers[i] - ageBuckets[i].sum());
+        reconciledAt = new Date();
+    }
+}
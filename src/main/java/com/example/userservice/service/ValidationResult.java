@@ -0,0 +1,63 @@
+package com.example.userservice.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Накопитель ошибок валидации
+ * Проверки не бросают исключений, а складывают сюда все найденные ошибки по полям
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+public final class ValidationResult {
+
+    private List<FieldError> errors;
+
+
+    /**
+     * @param field   поле пользователя, как в JSON
+     * @param message причина отказа
+     */
+    public void reject(String field, String message) {
+        if (errors == null) errors = new ArrayList<>(2);
+        errors.add(new FieldError(field, message));
+    }
+
+    /**
+     * Добавляет ошибку, если условие не выполнено
+     *
+     * @return условие, чтобы можно было не проверять зависимые поля
+     */
+    public boolean check(boolean valid, String field, String message) {
+        if (!valid) reject(field, message);
+        return valid;
+    }
+
+    public boolean isValid() {
+        return errors == null;
+    }
+
+    /**
+     * @return ошибки в порядке проверки, пустой список для корректных данных
+     */
+    public List<FieldError> getErrors() {
+        return errors == null ? List.of() : Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * @return сообщение первой ошибки или null
+     */
+    public String firstMessage() {
+        return errors == null ? null : errors.get(0).message();
+    }
+
+
+    /**
+     * Ошибка одного поля
+     */
+    public record FieldError(String field, String message) {
+    }
+}
@@ -3,26 +3,33 @@ package com.example.userservice.service;
 import com.example.userservice.app.ThrowingFunction;
 import com.example.userservice.dto.UserDTO;
 import com.example.userservice.exception.UserServiceException;
-import com.example.userservice.repository.UserRepository;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.example.userservice.exception.ValidationException;
+import com.example.userservice.logging.RateLimitedLogger;
+import com.example.userservice.repository.UserField;
 import org.springframework.stereotype.Service;
 
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
 
 /**
  * Класс для валидации всего на свете
+ * Основной API - {@link #validate}: собирает все ошибки без исключений
+ * Методы, которые бросают исключения (для UserConsoleApp и сервисов), бросают {@link ValidationException} без стека
  *
  * @author vmarakushin
- * @version 2.0
+ * @version 5.0
  */
 @Service
 public class Validator {
 
-    UserRepository userRepository;
-
-    private final Logger logger = LoggerFactory.getLogger(Validator.class);
+    private final RateLimitedLogger logger = RateLimitedLogger.getLogger(Validator.class);
 
-    private static final String EXCEPTION_VALIDATOR_MESSAGE_PREFIX = "Ошибка валидации: ";
+    private static final String LOG_KEY = "validation";
+    private static final String LOG_VALIDATION_FAILED = "Ошибка валидации: {}";
     private static final String EXCEPTION_MESSAGE_NUMBER_PARSER = "Необходимо целое число.";
     private static final String EXCEPTION_MESSAGE_NAME = "Имя может содержать только буквы, дефис и пробел";
     private static final String EXCEPTION_MESSAGE_SURNAME = "Фамилия может содержать только буквы, дефис и пробел";
@@ -31,15 +38,24 @@ public class Validator {
     private static final String EXCEPTION_MESSAGE_EMAIL = "Email должен соответствовать формату , например example@example.com";
     private static final String EXCEPTION_MESSAGE_ID_SHOULD_BE_POSITIVE = "ID не может быть меньше 1";
     private static final String EXCEPTION_MESSAGE_ID_SHOULD_BE_0 = "Id должен быть равен 0";
-    private static final String EXCEPTION_MESSAGE_NOT_UNIQUE_EMAIL = "Этот email уже используется!";
-    private static final String EXCEPTION_MESSAGE_NOT_UNIQUE_PHONE = "Этот телефон уже используется!";
-    private static final String REGEX_FOR_NAME_SURNAME = "^[a-zA-Zа-яА-ЯёЁ\\-\\s]+$";
-    private static final String REGEX_FOR_PHONE = "^\\+\\d{11}$";
-    private static final String REGEX_FOR_EMAIL = "^[a-zA-Z0-9._%+-]{3,}@[a-zA-Z0-9.-]{3,}\\.[a-zA-Z]{2,}$";
-
-    public Validator(UserRepository userRepository) {
-        this.userRepository = userRepository;
-    }
+    static final String EXCEPTION_MESSAGE_NOT_UNIQUE_EMAIL = "Этот email уже используется!";
+    static final String EXCEPTION_MESSAGE_NOT_UNIQUE_PHONE = "Этот телефон уже используется!";
+    private static final int MIN_AGE = 1;
+    private static final int MAX_AGE = 150;
+    private static final String EXCEPTION_MESSAGE_EMPTY_USER = "Нет данных пользователя";
+    private static final int PARALLEL_THRESHOLD = 1024;
+    private static final String FIELD_USER = "user";
+    private static final String FIELD_INPUT = "input";
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_NAME = "name";
+    private static final String FIELD_SURNAME = "surname";
+    private static final String FIELD_AGE = "age";
+    private static final String FIELD_PHONE = "phone";
+    private static final String FIELD_EMAIL = "email";
+    private static final String EXCEPTION_MESSAGE_EMPTY_PATCH = "Не указано ни одного поля для обновления";
+    private static final String EXCEPTION_MESSAGE_UNKNOWN_FIELD = "Неизвестное поле";
+    private static final String EXCEPTION_MESSAGE_READ_ONLY_FIELD = "Поле нельзя изменить";
+    private static final String EXCEPTION_MESSAGE_NULL_FIELD = "Поле нельзя удалить";
 
     /**
      * Валидирует int
@@ -51,9 +67,8 @@ public class Validator {
         try {
             return Integer.parseInt(input);
         } catch (IllegalArgumentException e) {
-            logger.warn(EXCEPTION_VALIDATOR_MESSAGE_PREFIX
-                    + EXCEPTION_MESSAGE_NUMBER_PARSER);
-            throw new IllegalArgumentException(EXCEPTION_MESSAGE_NUMBER_PARSER);
+            logger.warn(LOG_KEY, LOG_VALIDATION_FAILED, EXCEPTION_MESSAGE_NUMBER_PARSER);
+            throw new ValidationException(FIELD_INPUT, EXCEPTION_MESSAGE_NUMBER_PARSER);
         }
     }
 
@@ -67,9 +82,8 @@ public class Validator {
         try {
             return Long.parseLong(input);
         } catch (IllegalArgumentException e) {
-            logger.warn(EXCEPTION_VALIDATOR_MESSAGE_PREFIX
-                    + EXCEPTION_MESSAGE_NUMBER_PARSER);
-            throw new IllegalArgumentException(EXCEPTION_MESSAGE_NUMBER_PARSER);
+            logger.warn(LOG_KEY, LOG_VALIDATION_FAILED, EXCEPTION_MESSAGE_NUMBER_PARSER);
+            throw new ValidationException(FIELD_INPUT, EXCEPTION_MESSAGE_NUMBER_PARSER);
         }
     }
 
@@ -85,7 +99,7 @@ public class Validator {
         try {
             return parser.apply(input);
         } catch (IllegalArgumentException e) {
-            logger.warn(EXCEPTION_VALIDATOR_MESSAGE_PREFIX + e.getMessage());
+            logger.warn(LOG_KEY, LOG_VALIDATION_FAILED, e.getMessage());
             throw e;
         }
     }
@@ -102,7 +116,7 @@ public class Validator {
             int number = validInt(input);
             return parser.apply(number);
         } catch (IllegalArgumentException e) {
-            logger.warn(EXCEPTION_VALIDATOR_MESSAGE_PREFIX + e.getMessage());
+            logger.warn(LOG_KEY, LOG_VALIDATION_FAILED, e.getMessage());
             throw e;
         }
     }
@@ -119,7 +133,7 @@ public class Validator {
             long number = validLong(input);
             return parser.apply(number);
         } catch (RuntimeException e) {
-            logger.warn(EXCEPTION_VALIDATOR_MESSAGE_PREFIX + e.getMessage());
+            logger.warn(LOG_KEY, LOG_VALIDATION_FAILED, e.getMessage());
             throw e;
         }
     }
@@ -132,8 +146,8 @@ public class Validator {
      * @return валидированное имя
      */
     public String name(String name) {
-        if (!name.matches(REGEX_FOR_NAME_SURNAME))
-            throw new IllegalArgumentException(EXCEPTION_MESSAGE_NAME);
+        if (!FieldFormat.isNameOrSurname(name))
+            throw new ValidationException(FIELD_NAME, EXCEPTION_MESSAGE_NAME);
         return name;
     }
 
@@ -144,8 +158,8 @@ public class Validator {
      * @return валидированная фамилия
      */
     public String surname(String surname) {
-        if (!surname.matches(REGEX_FOR_NAME_SURNAME))
-            throw new IllegalArgumentException(EXCEPTION_MESSAGE_SURNAME);
+        if (!FieldFormat.isNameOrSurname(surname))
+            throw new ValidationException(FIELD_SURNAME, EXCEPTION_MESSAGE_SURNAME);
         return surname;
     }
 
@@ -156,8 +170,8 @@ public class Validator {
      * @return валидированный возраст
      */
     public int age(int age) {
-        if (age < 1 || age > 150)
-            throw new IllegalArgumentException(EXCEPTION_MESSAGE_AGE);
+        if (age < MIN_AGE || age > MAX_AGE)
+            throw new ValidationException(FIELD_AGE, EXCEPTION_MESSAGE_AGE);
         return age;
     }
 
@@ -168,8 +182,8 @@ public class Validator {
      * @return валидированный телефон
      */
     public String phone(String phone) {
-        if (!phone.matches(REGEX_FOR_PHONE))
-            throw new IllegalArgumentException(EXCEPTION_MESSAGE_PHONE);
+        if (!FieldFormat.isPhone(phone))
+            throw new ValidationException(FIELD_PHONE, EXCEPTION_MESSAGE_PHONE);
         return phone;
     }
 
@@ -180,8 +194,8 @@ public class Validator {
      * @return валидированный емейл
      */
     public String email(String email) {
-        if (!email.matches(REGEX_FOR_EMAIL))
-            throw new IllegalArgumentException(EXCEPTION_MESSAGE_EMAIL);
+        if (!FieldFormat.isEmail(email))
+            throw new ValidationException(FIELD_EMAIL, EXCEPTION_MESSAGE_EMAIL);
         return email;
     }
 
@@ -193,9 +207,8 @@ public class Validator {
      */
     public long id(long id) {
         if (id < 1L) {
-            logger.warn(EXCEPTION_VALIDATOR_MESSAGE_PREFIX
-                    + EXCEPTION_MESSAGE_ID_SHOULD_BE_POSITIVE);
-            throw new IllegalArgumentException(EXCEPTION_MESSAGE_ID_SHOULD_BE_POSITIVE);
+            logger.warn(LOG_KEY, LOG_VALIDATION_FAILED, EXCEPTION_MESSAGE_ID_SHOULD_BE_POSITIVE);
+            throw new ValidationException(FIELD_ID, EXCEPTION_MESSAGE_ID_SHOULD_BE_POSITIVE);
         }
         return id;
     }
@@ -205,45 +218,102 @@ public class Validator {
     }
 
     /**
-     * Валидация данных
-     * Scope.CREATE - проверка ID == 0 при создании
-     * Scope.UPDATE - проверка ID > 0 при обновлении
-     * Проверка полей общая для обоих случаев
+     * Валидация формата данных без обращения к БД
+     * Уникальность email и телефона обеспечивают ограничения users_email_key и users_phone_key в БД
      *
      * @param dto   UserDTO с данными
      * @param scope применение метода
+     * @throws ValidationException со всеми ошибками по полям, без стека
      */
-    public void fullValidation(UserDTO dto, Scope scope) {
+    public void formatValidation(UserDTO dto, Scope scope) {
+        ValidationResult result = validate(dto, scope);
+        if (result.isValid()) return;
+        logger.warn(LOG_KEY, LOG_VALIDATION_FAILED, result.firstMessage());
+        throw new ValidationException(result);
+    }
+
+    /**
+     * Валидация формата без исключений: проверяются все поля, собираются все ошибки
+     *
+     * @param dto   UserDTO с данными
+     * @param scope применение метода
+     * @return ошибки по полям, isValid() - данные корректны
+     */
+    public ValidationResult validate(UserDTO dto, Scope scope) {
+        ValidationResult result = new ValidationResult();
+        if (dto == null) {
+            result.reject(FIELD_USER, EXCEPTION_MESSAGE_EMPTY_USER);
+            return result;
+        }
 
         switch (scope) {
-            case CREATE -> {
-                if (dto.getId() != 0L) {
-                    logger.warn(EXCEPTION_VALIDATOR_MESSAGE_PREFIX
-                            + EXCEPTION_MESSAGE_ID_SHOULD_BE_0);
-                    throw new IllegalArgumentException(EXCEPTION_MESSAGE_ID_SHOULD_BE_0);
-                }
-            }
-            case UPDATE -> id(dto.getId());
+            case CREATE -> result.check(dto.getId() == 0L, FIELD_ID, EXCEPTION_MESSAGE_ID_SHOULD_BE_0);
+            case UPDATE -> result.check(dto.getId() >= 1L, FIELD_ID, EXCEPTION_MESSAGE_ID_SHOULD_BE_POSITIVE);
         }
+        result.check(FieldFormat.isNameOrSurname(dto.getName()), FIELD_NAME, EXCEPTION_MESSAGE_NAME);
+        result.check(FieldFormat.isNameOrSurname(dto.getSurname()), FIELD_SURNAME, EXCEPTION_MESSAGE_SURNAME);
+        result.check(dto.getAge() >= MIN_AGE && dto.getAge() <= MAX_AGE, FIELD_AGE, EXCEPTION_MESSAGE_AGE);
+        result.check(FieldFormat.isPhone(dto.getPhone()), FIELD_PHONE, EXCEPTION_MESSAGE_PHONE);
+        result.check(FieldFormat.isEmail(dto.getEmail()), FIELD_EMAIL, EXCEPTION_MESSAGE_EMAIL);
+        return result;
+    }
 
+    /**
+     * Валидация частичного изменения (JSON Merge Patch): проверяются только переданные поля
+     * null в merge patch означает удаление поля, а у пользователя все поля обязательные - это ошибка
+     * ID, дата создания и версия не меняются, версию передают в If-Match
+     * Баланс тоже: перезапись абсолютным значением теряет параллельные зачисления и обходит проверку границ,
+     * он меняется только через зачисление, списание и перевод
+     *
+     * @param patch свойство -> значение из тела запроса
+     * @return значения, приведенные к типам колонок, в порядке объявления полей
+     * @throws ValidationException со всеми ошибками по полям, без стека
+     */
+    public Map<UserField, Object> patchValidation(Map<String, Object> patch) {
+        ValidationResult result = new ValidationResult();
+        Map<UserField, Object> values = new EnumMap<>(UserField.class);
+        if (patch == null || patch.isEmpty()) result.reject(FIELD_USER, EXCEPTION_MESSAGE_EMPTY_PATCH);
+        else patch.forEach((property, value) -> {
+            UserField field = UserField.ofPropertyOrNull(property);
+            if (!result.check(field != null, property, EXCEPTION_MESSAGE_UNKNOWN_FIELD)) return;
+            if (!result.check(field != UserField.ID && field != UserField.CREATED_AT && field != UserField.VERSION
+                    && field != UserField.MONEY, property, EXCEPTION_MESSAGE_READ_ONLY_FIELD)) return;
+            if (!result.check(value != null, property, EXCEPTION_MESSAGE_NULL_FIELD)) return;
 
-        validStringCreate(dto.getName(), this::name);
-        validStringCreate(dto.getSurname(), this::surname);
-        validIntCreate(String.valueOf(dto.getAge()), this::age);
-        validStringCreate(dto.getPhone(), this::phone);
-        validStringCreate(dto.getEmail(), this::email);
+            Object column = switch (field) {
+                case NAME -> result.check(value instanceof String name && FieldFormat.isNameOrSurname(name),
+                        FIELD_NAME, EXCEPTION_MESSAGE_NAME) ? value : null;
+                case SURNAME -> result.check(value instanceof String surname && FieldFormat.isNameOrSurname(surname),
+                        FIELD_SURNAME, EXCEPTION_MESSAGE_SURNAME) ? value : null;
+                case AGE -> result.check(value instanceof Integer age && age >= MIN_AGE && age <= MAX_AGE,
+                        FIELD_AGE, EXCEPTION_MESSAGE_AGE) ? value : null;
+                case PHONE -> result.check(value instanceof String phone && FieldFormat.isPhone(phone),
+                        FIELD_PHONE, EXCEPTION_MESSAGE_PHONE) ? value : null;
+                case EMAIL -> result.check(value instanceof String email && FieldFormat.isEmail(email),
+                        FIELD_EMAIL, EXCEPTION_MESSAGE_EMAIL) ? value : null;
+                default -> null;
+            };
+            if (column != null) values.put(field, column);
+        });
 
-        if (userRepository.existsByEmailAndIdNot(dto.getEmail(), dto.getId())) {
-            logger.warn(EXCEPTION_VALIDATOR_MESSAGE_PREFIX
-                    + EXCEPTION_MESSAGE_NOT_UNIQUE_EMAIL);
-            throw new IllegalArgumentException(EXCEPTION_MESSAGE_NOT_UNIQUE_EMAIL);
-        }
-        if (userRepository.existsByPhoneAndIdNot(dto.getPhone(), dto.getId())) {
-            logger.warn(EXCEPTION_VALIDATOR_MESSAGE_PREFIX
-                    + EXCEPTION_MESSAGE_NOT_UNIQUE_PHONE);
-            throw new IllegalArgumentException(EXCEPTION_MESSAGE_NOT_UNIQUE_PHONE);
-        }
+        if (result.isValid()) return values;
+        logger.warn(LOG_KEY, LOG_VALIDATION_FAILED, result.firstMessage());
+        throw new ValidationException(result);
     }
-}
-
 
+    /**
+     * Пакетная валидация формата без обращения к БД и без исключений
+     * Большие пачки проверяются параллельно в общем ForkJoinPool, маленьким распараллеливание обходится дороже проверки
+     *
+     * @param users пачка UserDTO
+     * @param scope применение метода
+     * @return первая ошибка для каждого элемента в том же порядке, null - элемент корректен
+     */
+    public List<String> formatErrors(List<UserDTO> users, Scope scope) {
+        String[] errors = new String[users.size()];
+        IntStream indexes = IntStream.range(0, errors.length);
+        if (errors.length >= PARALLEL_THRESHOLD) indexes = indexes.parallel();
+        indexes.forEach(i -> errors[i] = validate(users.get(i), scope).firstMessage());
+        return Arrays.asList(errors);
+    }
+}
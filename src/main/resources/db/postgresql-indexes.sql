@@ -0,0 +1,20 @@
+-- Индексы для поиска и фильтров, только для PostgreSQL
+-- Выполняется при старте приложения, каждая команда идемпотентна
+-- CONCURRENTLY не блокирует запись в users, но не работает внутри транзакции
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Префиксный поиск: lower(...) LIKE 'abc%' и упорядоченная выдача по одному индексу
+-- Побайтовое сравнение "C" нужно, чтобы B-tree годился для LIKE при любой локали БД
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_name_prefix_idx ON users ((lower(name) COLLATE "C"), id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_surname_prefix_idx ON users ((lower(surname) COLLATE "C"), id);
+
+-- Нечеткий поиск: оператор <% (word_similarity) по "имя фамилия"
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_full_name_trgm_idx ON users USING gin ((lower(name || ' ' || surname)) gin_trgm_ops);
+
+-- Фильтр по возрасту, дате создания и балансу с keyset-пагинацией по id
+-- (age, id): диапазон возраста сразу отдает строки вместе с ID для id > ?
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_age_id_idx ON users (age, id);
+-- created_at растет вместе с id, BRIN на такой колонке в сотни раз меньше B-tree
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_created_at_brin_idx ON users USING brin (created_at);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_money_idx ON users (money);
@@ -0,0 +1,268 @@
+package com.example.userservice.controller;
+
+
+import com.example.userservice.dto.RequestUserDTO;
+import com.example.userservice.dto.UserDTO;
+import com.example.userservice.dto.UserPageDTO;
+import com.example.userservice.exception.RepositoryException;
+import com.example.userservice.exception.UserNotFoundException;
+import com.example.userservice.exception.UserServiceException;
+import com.example.userservice.exception.VersionConflictException;
+import com.example.userservice.format.UserExportWriter;
+import com.example.userservice.service.ReactiveUserService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+
+/**
+ * Тесты для реактивного контроллера
+ * Маршруты и коды ответов должны совпадать с {@link UserControllerTest}
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@WebFluxTest(ReactiveUserController.class)
+@ActiveProfiles("reactive")
+@Import(UserExportWriter.class)
+public class ReactiveUserControllerTest {
+
+    private static final MediaType JSON_UTF8 = MediaType.parseMediaType("application/json;charset=UTF-8");
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean(name = "reactiveUserServiceKafka")
+    private ReactiveUserService userService;
+
+
+    private static UserDTO user(long id, long version) {
+        return UserDTO.builder()
+                .id(id)
+                .name("Ivan")
+                .surname("Pivnov")
+                .age(47)
+                .phone("+71111111111")
+                .email("ivan@pivnov.ru")
+                .money(60000)
+                .createdAt(new Date(0))
+                .version(version)
+                .build();
+    }
+
+
+    @DisplayName("Проверка POST при валидных значениях")
+    @Test
+    public void testPostShouldReturn201() {
+        when(userService.createUser(any(UserDTO.class))).thenReturn(Mono.just(user(1, 0)));
+
+        webTestClient.post().uri("/api/users")
+                .contentType(JSON_UTF8)
+                .bodyValue(user(0, 0))
+                .exchange()
+                .expectStatus().isCreated();
+
+        verify(userService).createUser(any(UserDTO.class));
+    }
+
+    @DisplayName("Проверка POST при невалидных данных и недоступной Kafka")
+    @Test
+    public void testPostShouldReturn400() {
+        when(userService.createUser(any(UserDTO.class)))
+                .thenReturn(Mono.error(new IllegalArgumentException("Такой email уже используется!")))
+                .thenReturn(Mono.error(new UserServiceException("Не удалось отправить сообщение в Kafka")));
+
+        webTestClient.post().uri("/api/users")
+                .contentType(JSON_UTF8)
+                .bodyValue(user(0, 0))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class).isEqualTo("Такой email уже используется!");
+        webTestClient.post().uri("/api/users")
+                .contentType(JSON_UTF8)
+                .bodyValue(user(0, 0))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @DisplayName("Проверка GET страницы")
+    @Test
+    public void testGetPage() {
+        when(userService.getUserPage("abc", 1)).thenReturn(Mono.just(new UserPageDTO(List.of(user(1, 0)), "next")));
+
+        webTestClient.get().uri("/api/users?cursor=abc&size=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.users[0].id").isEqualTo(1)
+                .jsonPath("$.nextCursor").isEqualTo("next")
+                .jsonPath("$.links").doesNotExist();
+    }
+
+    @DisplayName("Проверка GET страницы при ошибке БД")
+    @Test
+    public void testGetPageRepositoryException() {
+        when(userService.getUserPage(isNull(), isNull()))
+                .thenReturn(Mono.error(new RepositoryException("Ошибка при обращении к репозиторию.")));
+
+        webTestClient.get().uri("/api/users")
+                .exchange()
+                .expectStatus().is5xxServerError();
+    }
+
+    @DisplayName("Проверка потоковой выгрузки в NDJSON и CSV")
+    @Test
+    public void testExport() {
+        when(userService.streamAllUsers()).thenAnswer(inv -> Flux.just(user(1, 0), user(2, 0)));
+
+        String ndjson = webTestClient.get().uri("/api/users/export")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith("application/x-ndjson")
+                .expectBody(String.class).returnResult().getResponseBody();
+        String csv = webTestClient.get().uri("/api/users/export?format=CSV")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith("text/csv")
+                .expectHeader().valueEquals(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users.csv\"")
+                .expectBody(String.class).returnResult().getResponseBody();
+
+        assertEquals(2, ndjson.lines().count());
+        assertEquals(List.of(
+                UserExportWriter.CSV_HEADER,
+                "1,Ivan,Pivnov,47,+71111111111,ivan@pivnov.ru,60000,1970-01-01T00:00:00Z",
+                "2,Ivan,Pivnov,47,+71111111111,ivan@pivnov.ru,60000,1970-01-01T00:00:00Z"), csv.lines().toList());
+    }
+
+    @DisplayName("Проверка выгрузки в неизвестном формате")
+    @Test
+    public void testExportUnknownFormat() {
+        webTestClient.get().uri("/api/users/export?format=xml")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verifyNoInteractions(userService);
+    }
+
+    @DisplayName("Проверка GET по ID: тело и ETag")
+    @Test
+    public void testGetById() {
+        when(userService.getUserById(any(RequestUserDTO.class))).thenReturn(Mono.just(user(1, 3)));
+
+        webTestClient.get().uri("/api/users/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"")
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(1)
+                .jsonPath("$.version").isEqualTo(3);
+    }
+
+    @DisplayName("Проверка GET по ID несуществующего и невалидного ID")
+    @Test
+    public void testGetByIdNotFoundAndInvalid() {
+        when(userService.getUserById(any(RequestUserDTO.class)))
+                .thenReturn(Mono.empty())
+                .thenReturn(Mono.error(new IllegalArgumentException("ID не может быть меньше 1")));
+
+        webTestClient.get().uri("/api/users/2").exchange().expectStatus().isNotFound();
+        webTestClient.get().uri("/api/users/0").exchange().expectStatus().isBadRequest();
+    }
+
+    @DisplayName("Проверка If-None-Match: 304 без чтения пользователя")
+    @Test
+    public void testGetByIdNotModified() {
+        when(userService.getUserVersion(any(RequestUserDTO.class))).thenReturn(Mono.just(3L));
+
+        webTestClient.get().uri("/api/users/1")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+
+        verify(userService, never()).getUserById(any());
+    }
+
+    @DisplayName("Проверка If-None-Match с устаревшей версией и для несуществующего пользователя")
+    @Test
+    public void testGetByIdModified() {
+        when(userService.getUserVersion(any(RequestUserDTO.class))).thenReturn(Mono.just(4L)).thenReturn(Mono.empty());
+        when(userService.getUserById(any(RequestUserDTO.class))).thenReturn(Mono.just(user(1, 4)));
+
+        webTestClient.get().uri("/api/users/1")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"4\"");
+        webTestClient.get().uri("/api/users/2")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3\"")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @DisplayName("Проверка PUT с If-Match: новый ETag")
+    @Test
+    public void testPutWithIfMatch() {
+        when(userService.updateUser(any(UserDTO.class), eq(3L))).thenReturn(Mono.just(user(1, 4)));
+
+        webTestClient.put().uri("/api/users/1")
+                .contentType(JSON_UTF8)
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .bodyValue(user(1, 0))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"4\"");
+    }
+
+    @DisplayName("Проверка PUT: конфликт версий, нет пользователя, ID не совпадают")
+    @Test
+    public void testPutErrors() {
+        when(userService.updateUser(any(UserDTO.class), any()))
+                .thenReturn(Mono.error(new VersionConflictException("Пользователь был изменен, перечитайте его и повторите запрос")))
+                .thenReturn(Mono.error(new UserNotFoundException("Пользователь не найден")));
+
+        webTestClient.put().uri("/api/users/1").contentType(JSON_UTF8)
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .bodyValue(user(1, 0))
+                .exchange()
+                .expectStatus().isEqualTo(412);
+        webTestClient.put().uri("/api/users/1").contentType(JSON_UTF8)
+                .bodyValue(user(1, 0))
+                .exchange()
+                .expectStatus().isNotFound();
+        webTestClient.put().uri("/api/users/2").contentType(JSON_UTF8)
+                .bodyValue(user(1, 0))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @DisplayName("Проверка DELETE")
+    @Test
+    public void testDelete() {
+        when(userService.deleteUser(any(RequestUserDTO.class))).thenReturn(Mono.empty());
+
+        webTestClient.delete().uri("/api/users/1")
+                .exchange()
+                .expectStatus().isNoContent();
+
+        verify(userService).deleteUser(new RequestUserDTO(1));
+    }
+}
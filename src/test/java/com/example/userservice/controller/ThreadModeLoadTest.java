@@ -0,0 +1,178 @@
+package com.example.userservice.controller;
+
+import com.example.userservice.app.UserConsoleApp;
+import com.example.userservice.dto.RequestUserDTO;
+import com.example.userservice.dto.UserDTO;
+import com.example.userservice.service.UserServiceImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+/**
+ * Нагрузочное сравнение обработки запросов на платформенных и виртуальных потоках
+ * Запускается только явно: mvn test -Denv=test -Dload=true -Dtest=ThreadModeLoadTest
+ * Параметры: -Dload.requests, -Dload.concurrency, -Dload.blocking-ms
+ * <p>
+ * Сервис подменен заглушкой с двумя видами ожидания на запрос:
+ * блокировка вне БД (как ожидание метаданных в KafkaTemplate.send) и запрос к БД через пул из POOL_SIZE соединений.
+ * На платформенных потоках пропускную способность режет пул Tomcat,
+ * на виртуальных - только пул соединений
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@EnabledIfSystemProperty(named = "load", matches = "true")
+public class ThreadModeLoadTest {
+
+    private static final int REQUESTS = Integer.getInteger("load.requests", 5000);
+    private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 1000);
+    private static final int POOL_SIZE = 20;
+    private static final long BLOCKING_MS = Long.getLong("load.blocking-ms", 200);
+    private static final long DB_MS = 2;
+
+    private static final String H2 = "spring.datasource.url=jdbc:h2:mem:load;DB_CLOSE_DELAY=-1";
+    private static final String H2_DRIVER = "spring.datasource.driver-class-name=org.h2.Driver";
+    private static final String H2_DIALECT = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect";
+    private static final String QUIET = "logging.level.root=WARN";
+
+
+    @Nested
+    @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+            properties = {H2, H2_DRIVER, H2_DIALECT, QUIET, "spring.threads.virtual.enabled=false"})
+    @Import(SlowServiceConfig.class)
+    class PlatformThreads extends Scenario {
+    }
+
+
+    @Nested
+    @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+            properties = {H2, H2_DRIVER, H2_DIALECT, QUIET, "spring.threads.virtual.enabled=true"})
+    @Import(SlowServiceConfig.class)
+    class VirtualThreads extends Scenario {
+    }
+
+
+    /**
+     * Заглушка сервиса без Mockito: мок синхронизирует запись вызовов и сам становится узким местом
+     * Транзакция отключена, иначе настоящий пул Hikari держался бы весь запрос; пул БД изображает семафор
+     */
+    @TestConfiguration
+    static class SlowServiceConfig {
+
+        @Bean
+        @Primary
+        UserServiceImpl slowUserService() {
+            Semaphore connections = new Semaphore(POOL_SIZE, true);
+            return new UserServiceImpl(null, null, null, null, null, null, null, null, null, null, null, null) {
+                @Override
+                @Transactional(propagation = Propagation.NOT_SUPPORTED)
+                public Optional<UserDTO> getUserById(RequestUserDTO dto) {
+                    try {
+                        Thread.sleep(BLOCKING_MS);
+                        connections.acquire();
+                        try {
+                            Thread.sleep(DB_MS);
+                        } finally {
+                            connections.release();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException(e);
+                    }
+                    return Optional.of(UserDTO.builder().id(dto.getId()).name("Vasya").build());
+                }
+            };
+        }
+    }
+
+
+    abstract static class Scenario {
+
+        @LocalServerPort
+        private int port;
+
+        @MockBean
+        private UserConsoleApp consoleApp;
+
+        @DisplayName("Нагрузка на GET /api/users/{id}")
+        @Test
+        void load() throws Exception {
+            HttpClient client = HttpClient.newBuilder().build();
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/users/1")).build();
+
+            run(client, request, REQUESTS / 2);
+            List<Long> latencies = Collections.synchronizedList(new ArrayList<>(REQUESTS));
+            long started = System.nanoTime();
+            int ok = run(client, request, REQUESTS, latencies);
+            long elapsed = System.nanoTime() - started;
+
+            List<Long> sorted = latencies.stream().sorted().toList();
+            System.out.printf("%s: %d requests in %d ms, %.0f req/s, p50 %d ms, p99 %d ms%n",
+                    getClass().getSimpleName(), REQUESTS, elapsed / 1_000_000,
+                    REQUESTS * 1e9 / elapsed,
+                    sorted.get(sorted.size() / 2) / 1_000_000,
+                    sorted.get(sorted.size() * 99 / 100) / 1_000_000);
+            assertEquals(REQUESTS, ok);
+        }
+
+        /**
+         * Прогрев: соединения клиента и JIT
+         */
+        private void run(HttpClient client, HttpRequest request, int count) throws Exception {
+            run(client, request, count, new ArrayList<>());
+        }
+
+        /**
+         * Держит в полете не больше CONCURRENCY запросов
+         *
+         * @return сколько запросов получили 200
+         */
+        private int run(HttpClient client, HttpRequest request, int count, List<Long> latencies) throws Exception {
+            Semaphore inFlight = new Semaphore(CONCURRENCY);
+            AtomicInteger ok = new AtomicInteger();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < count; i++) {
+                    inFlight.acquire();
+                    executor.submit(() -> {
+                        long begin = System.nanoTime();
+                        try {
+                            if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200)
+                                ok.incrementAndGet();
+                        } finally {
+                            latencies.add(System.nanoTime() - begin);
+                            inFlight.release();
+                        }
+                        return null;
+                    });
+                }
+            }
+            return ok.get();
+        }
+    }
+}
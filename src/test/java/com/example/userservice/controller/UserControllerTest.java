@@ -1,39 +1,88 @@
 package com.example.userservice.controller;
 
 
+import com.example.userservice.dto.BulkDeleteDTO;
+import com.example.userservice.dto.BulkResultDTO;
+import com.example.userservice.dto.BulkUpdateDTO;
+import com.example.userservice.dto.ImportErrorDTO;
+import com.example.userservice.dto.ImportReportDTO;
 import com.example.userservice.dto.RequestUserDTO;
+import com.example.userservice.dto.TransferDTO;
 import com.example.userservice.dto.UserDTO;
+import com.example.userservice.dto.UserFieldsPageDTO;
+import com.example.userservice.dto.UserFilterDTO;
+import com.example.userservice.dto.UserPageDTO;
+import com.example.userservice.dto.UserSearchHitDTO;
+import com.example.userservice.dto.UserStatsDTO;
+import com.example.userservice.exception.BalanceOverflowException;
+import com.example.userservice.exception.InsufficientFundsException;
 import com.example.userservice.exception.RepositoryException;
+import com.example.userservice.format.DataFormat;
+import com.example.userservice.format.UserExportWriter;
+import com.example.userservice.format.UserProtobufHttpMessageConverter;
+import com.example.userservice.format.proto.User;
+import com.example.userservice.format.proto.UserPage;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.example.userservice.exception.UserNotFoundException;
 import com.example.userservice.exception.UserServiceException;
+import com.example.userservice.exception.ValidationException;
+import com.example.userservice.exception.VersionConflictException;
+import com.example.userservice.repository.UserField;
+import com.example.userservice.kafka.UserEventProducer;
 import com.example.userservice.service.UserServiceImpl;
+import com.example.userservice.service.UserServiceKafka;
+import com.example.userservice.service.ValidationResult;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.MockMvc;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 
 
-import java.util.ArrayList;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.Date;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 
 /**
  * Тесты для контроллера
+ * Контроллер работает через настоящий {@link UserServiceKafka}: замокан только UserServiceImpl под ним
+ * и продюсер, поэтому видно, какие события уходят в Kafka на каждый запрос
  *
  * @author vmarakushin
- * @version 1.0
+ * @version 2.0
  */
 @WebMvcTest(UserController.class)
+@Import({UserExportWriter.class, UserProtobufHttpMessageConverter.class, UserControllerTest.Config.class})
 public class UserControllerTest {
 
     @Autowired
@@ -42,6 +91,9 @@ public class UserControllerTest {
     @MockBean
     private UserServiceImpl userService;
 
+    @MockBean
+    private UserEventProducer eventProducer;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -60,7 +112,7 @@ public class UserControllerTest {
                 60000,
                 new Date());
 
-        doNothing().when(userService).createUser(userDto);
+        doReturn(userDto).when(userService).createUser(userDto);
 
         mockMvc.perform(post("/api/users")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -118,6 +170,26 @@ public class UserControllerTest {
                 .andExpect(content().string(message));
     }
 
+    @DisplayName("Проверка POST при ValidationException: все ошибки по полям в JSON")
+    @Test
+    public void testPostShouldReturn400ValidationErrors() throws Exception {
+        UserDTO userDto = new UserDTO(0, "Iv4n", "Pivnov", 200, "+71111111111", "ivan@pivnov.ru", 60000, new Date());
+        ValidationResult result = new ValidationResult();
+        result.reject("name", "Имя может содержать только буквы, дефис и пробел");
+        result.reject("age", "Возраст от 1 до 150");
+
+        doThrow(new ValidationException(result)).when(userService).createUser(userDto);
+
+        mockMvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(userDto)))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.message").value("Имя может содержать только буквы, дефис и пробел"))
+                .andExpect(jsonPath("$.errors[1].field").value("age"))
+                .andExpect(jsonPath("$.errors[1].message").value("Возраст от 1 до 150"));
+    }
+
     @DisplayName("Проверка POST при RepositoryException")
     @Test
     public void testPostShouldReturn500RepositoryException() throws Exception {
@@ -143,19 +215,36 @@ public class UserControllerTest {
                 .andExpect(content().string(message));
     }
 
-    @DisplayName("Проверка GET ALL при успехе")
+    @DisplayName("Проверка импорта CSV")
     @Test
-    public void testGetAllShouldReturn200AllUsers() throws Exception {
+    public void testImportShouldReturn200Report() throws Exception {
 
-        UserDTO userDto0 = new UserDTO(
-                0,
-                "Ivan",
-                "Pivnov",
-                47,
-                "+71111111111",
-                "ivan@pivnov.ru",
-                60000,
-                new Date());
+        ImportReportDTO report = new ImportReportDTO(3, 2, 1,
+                List.of(new ImportErrorDTO(3, "Этот email уже используется!")));
+
+        doReturn(report).when(userService).importUsers(any(InputStream.class), eq(DataFormat.CSV));
+
+        mockMvc.perform(post("/api/users/import")
+                        .contentType("text/csv")
+                        .content("name,surname,age,phone,email\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.errors[0].line").value(3));
+    }
+
+    @DisplayName("Проверка импорта в неподдерживаемом формате")
+    @Test
+    public void testImportShouldReturn415UnsupportedFormat() throws Exception {
+        mockMvc.perform(post("/api/users/import")
+                        .contentType(MediaType.APPLICATION_XML)
+                        .content("<users/>"))
+                .andExpect(status().isUnsupportedMediaType());
+        verifyNoInteractions(userService);
+    }
+
+    @DisplayName("Проверка GET ALL при успехе: страница и ссылка next")
+    @Test
+    public void testGetAllShouldReturn200UserPage() throws Exception {
 
         UserDTO userDto1 = new UserDTO(
                 1,
@@ -177,18 +266,116 @@ public class UserControllerTest {
                 180000,
                 new Date());
 
-        List<UserDTO> users = new ArrayList<>();
-        users.add(userDto0);
-        users.add(userDto1);
-        users.add(userDto2);
+        UserPageDTO page = new UserPageDTO(List.of(userDto1, userDto2), "next-cursor");
 
-        String expectedJson = objectMapper.writeValueAsString(users);
+        doReturn(page).when(userService).getUserPage(null, 2);
 
-        doReturn(users).when(userService).getAllUsers();
+        mockMvc.perform(get("/api/users").param("size", "2").accept(MediaTypes.HAL_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.userDTOList.length()").value(2))
+                .andExpect(jsonPath("$._embedded.userDTOList[1].email").value("john@doe.com"))
+                .andExpect(jsonPath("$._links.next.href").value("http://localhost/api/users?cursor=next-cursor&size=2"));
+    }
 
-        mockMvc.perform(get("/api/users"))
+    @DisplayName("Проверка GET ALL в обычном JSON без HAL-ссылок")
+    @Test
+    public void testGetAllShouldReturn200PlainJson() throws Exception {
+
+        UserDTO userDto = new UserDTO(
+                7,
+                "Jonh",
+                "Doe",
+                33,
+                "+12345678900",
+                "john@doe.com",
+                180000,
+                new Date());
+
+        doReturn(new UserPageDTO(List.of(userDto), "next-cursor")).when(userService).getUserPage(null, null);
+
+        mockMvc.perform(get("/api/users").accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
-                .andExpect(content().string(expectedJson));
+                .andExpect(jsonPath("$.users[0].email").value("john@doe.com"))
+                .andExpect(jsonPath("$.nextCursor").value("next-cursor"))
+                .andExpect(jsonPath("$.users[0]._links").doesNotExist());
+    }
+
+    @DisplayName("Проверка GET ALL в HAL: ссылки элементов из одного шаблона")
+    @Test
+    public void testGetAllShouldReturn200HalItemLinks() throws Exception {
+
+        UserDTO userDto = new UserDTO(
+                7,
+                "Jonh",
+                "Doe",
+                33,
+                "+12345678900",
+                "john@doe.com",
+                180000,
+                new Date());
+
+        doReturn(new UserPageDTO(List.of(userDto), null)).when(userService).getUserPage(null, null);
+
+        mockMvc.perform(get("/api/users").accept(MediaTypes.HAL_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.userDTOList[0]._links.self.href").value("http://localhost/api/users/7"))
+                .andExpect(jsonPath("$._embedded.userDTOList[0]._links.delete.href").value("http://localhost/api/users/7"))
+                .andExpect(jsonPath("$._links.self.href").value("http://localhost/api/users"));
+    }
+
+    @DisplayName("Проверка GET ALL с выбранными полями")
+    @Test
+    public void testGetAllShouldReturn200SelectedFields() throws Exception {
+
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", 7L);
+        row.put("email", "john@doe.com");
+
+        doReturn(new UserFieldsPageDTO(List.of(row), "next-cursor")).when(userService)
+                .getUserPage(null, 10, EnumSet.of(UserField.ID, UserField.EMAIL));
+
+        mockMvc.perform(get("/api/users").param("size", "10").param("fields", "email,id"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users[0].id").value(7))
+                .andExpect(jsonPath("$.users[0].email").value("john@doe.com"))
+                .andExpect(jsonPath("$.users[0].name").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").value("next-cursor"));
+        verify(userService, never()).getUserPage(any(), any());
+    }
+
+    @DisplayName("Проверка GET ALL с неизвестным полем")
+    @Test
+    public void testGetAllShouldReturn400UnknownField() throws Exception {
+        mockMvc.perform(get("/api/users").param("fields", "id,password"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Неизвестное поле: password"));
+        verifyNoInteractions(userService);
+    }
+
+    @DisplayName("Проверка GET ALL последняя страница без ссылки next")
+    @Test
+    public void testGetAllShouldReturn200LastPage() throws Exception {
+
+        doReturn(new UserPageDTO(List.of(), null)).when(userService).getUserPage("abc", null);
+
+        mockMvc.perform(get("/api/users").param("cursor", "abc").accept(MediaTypes.HAL_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._links.self.href").value("http://localhost/api/users?cursor=abc"))
+                .andExpect(jsonPath("$._links.next").doesNotExist());
+    }
+
+    @DisplayName("Проверка GET ALL при некорректном курсоре")
+    @Test
+    public void testGetAllShouldReturn400InvalidCursor() throws Exception {
+
+        String message = "Некорректный курсор страницы";
+
+        doThrow(new IllegalArgumentException(message))
+                .when(userService).getUserPage("broken", null);
+
+        mockMvc.perform(get("/api/users").param("cursor", "broken"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(message));
     }
 
     @DisplayName("Проверка GET ALL при RepositoryException")
@@ -198,13 +385,96 @@ public class UserControllerTest {
         String message = "Ошибка при обращении к БД";
 
         doThrow(new RepositoryException(message))
-                .when(userService).getAllUsers();
+                .when(userService).getUserPage(null, null);
 
         mockMvc.perform(get("/api/users"))
                 .andExpect(status().isInternalServerError())
                 .andExpect(content().string(message));
     }
 
+    @DisplayName("Проверка выгрузки в NDJSON")
+    @Test
+    public void testExportShouldStreamNdjson() throws Exception {
+
+        UserDTO userDto1 = UserDTO.builder().id(1).name("Ivan").email("ivan@pivnov.ru").build();
+        UserDTO userDto2 = UserDTO.builder().id(2).name("Jonh").email("john@doe.com").build();
+
+        doReturn(Stream.of(userDto1, userDto2)).when(userService).streamAllUsers();
+
+        MvcResult result = mockMvc.perform(get("/api/users/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/x-ndjson;charset=UTF-8"))
+                .andExpect(content().string(objectMapper.writeValueAsString(userDto1) + "\n"
+                        + objectMapper.writeValueAsString(userDto2) + "\n"));
+    }
+
+    @DisplayName("Проверка выгрузки выбранных полей в CSV")
+    @Test
+    public void testExportShouldStreamSelectedFieldsCsv() throws Exception {
+
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", 1L);
+        row.put("email", "ivan@pivnov.ru");
+
+        doReturn(Stream.of(row)).when(userService).streamAllUsers(EnumSet.of(UserField.ID, UserField.EMAIL));
+
+        MvcResult result = mockMvc.perform(get("/api/users/export")
+                        .param("format", "csv")
+                        .param("fields", "email"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string("id,email\n1,ivan@pivnov.ru\n"));
+        verify(userService, never()).streamAllUsers();
+    }
+
+    @DisplayName("Проверка выгрузки в CSV со сжатием")
+    @Test
+    public void testExportShouldStreamGzipCsv() throws Exception {
+
+        UserDTO userDto = new UserDTO(
+                1,
+                "Ivan",
+                "Pivnov",
+                47,
+                "+71111111111",
+                "ivan,pivnov@\"ru\"",
+                60000,
+                null);
+
+        doReturn(Stream.of(userDto)).when(userService).streamAllUsers();
+
+        MvcResult result = mockMvc.perform(get("/api/users/export").param("format", "csv").param("gzip", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        String csv;
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            csv = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        assertEquals("id,name,surname,age,phone,email,money,createdAt\n"
+                + "1,Ivan,Pivnov,47,+71111111111,\"ivan,pivnov@\"\"ru\"\"\",60000,\n", csv);
+    }
+
+    @DisplayName("Проверка выгрузки в неизвестном формате")
+    @Test
+    public void testExportShouldReturn400UnknownFormat() throws Exception {
+        mockMvc.perform(get("/api/users/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(userService);
+    }
+
     @DisplayName("Проверка GET при успехе")
     @Test
     public void testGetByIdShouldReturn200UserById() throws Exception {
@@ -230,6 +500,72 @@ public class UserControllerTest {
                 .andExpect(content().string(expectedJson));
     }
 
+    @DisplayName("Проверка GET в HAL при явном запросе")
+    @Test
+    public void testGetByIdShouldReturn200HalUserById() throws Exception {
+
+        UserDTO userDto = new UserDTO(
+                1,
+                "Ivan",
+                "Pivnov",
+                47,
+                "+71111111111",
+                "ivan@pivnov.ru",
+                60000,
+                new Date());
+
+        doReturn(Optional.of(userDto)).when(userService).getUserById(any(RequestUserDTO.class));
+
+        mockMvc.perform(get("/api/users/1").accept(MediaTypes.HAL_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value("ivan@pivnov.ru"))
+                .andExpect(jsonPath("$._links.self.href").value("http://localhost/api/users/1"))
+                .andExpect(jsonPath("$._links.users.href").value("http://localhost/api/users{?cursor,size}"));
+    }
+
+    @DisplayName("Проверка GET отдает ETag из версии")
+    @Test
+    public void testGetByIdShouldReturnETag() throws Exception {
+
+        UserDTO userDto = UserDTO.builder().id(1L).name("Ivan").version(5L).build();
+
+        doReturn(Optional.of(userDto)).when(userService).getUserById(any(RequestUserDTO.class));
+
+        mockMvc.perform(get("/api/users/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"5\""));
+        mockMvc.perform(get("/api/users/1").accept(MediaTypes.HAL_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"5-hal\""));
+    }
+
+    @DisplayName("Проверка GET с актуальным If-None-Match: 304 без чтения пользователя")
+    @Test
+    public void testGetByIdShouldReturn304NotModified() throws Exception {
+
+        doReturn(Optional.of(5L)).when(userService).getUserVersion(any(RequestUserDTO.class));
+
+        mockMvc.perform(get("/api/users/1").header(HttpHeaders.IF_NONE_MATCH, "\"5\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        verify(userService, never()).getUserById(any(RequestUserDTO.class));
+    }
+
+    @DisplayName("Проверка GET с устаревшим If-None-Match")
+    @Test
+    public void testGetByIdShouldReturn200StaleETag() throws Exception {
+
+        UserDTO userDto = UserDTO.builder().id(1L).name("Ivan").version(6L).build();
+
+        doReturn(Optional.of(6L)).when(userService).getUserVersion(any(RequestUserDTO.class));
+        doReturn(Optional.of(userDto)).when(userService).getUserById(any(RequestUserDTO.class));
+
+        mockMvc.perform(get("/api/users/1").header(HttpHeaders.IF_NONE_MATCH, "\"5\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"6\""))
+                .andExpect(jsonPath("$.name").value("Ivan"));
+    }
+
     @DisplayName("Проверка GET пользователь не найден")
     @Test
     public void testGetByIdShouldReturn404UserById() throws Exception {
@@ -277,12 +613,221 @@ public class UserControllerTest {
                 60000,
                 new Date());
 
-        doNothing().when(userService).updateUser(any(UserDTO.class));
+        doReturn(UserDTO.builder().id(1L).version(4L).build()).when(userService).updateUser(any(UserDTO.class), isNull());
 
         mockMvc.perform(put("/api/users/1")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(userDto)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+    }
+
+    @DisplayName("Проверка PUT с If-Match")
+    @Test
+    public void testPutShouldPassIfMatchVersion() throws Exception {
+        UserDTO userDto = new UserDTO(
+                1,
+                "Ivan",
+                "Pivnov",
+                47,
+                "+71111111111",
+                "ivan@pivnov.ru",
+                60000,
+                new Date());
+
+        doReturn(UserDTO.builder().id(1L).version(4L).build()).when(userService).updateUser(any(UserDTO.class), eq(3L));
+
+        mockMvc.perform(put("/api/users/1")
+                        .header(HttpHeaders.IF_MATCH, "\"3-hal\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(userDto)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+    }
+
+    @DisplayName("Проверка PATCH merge patch с If-Match")
+    @Test
+    public void testPatchShouldPassFieldsAndVersion() throws Exception {
+        doReturn(UserDTO.builder().id(1L).version(4L).build())
+                .when(userService).patchUser(1L, Map.of("surname", "Sidorov", "age", 30), 3L);
+
+        mockMvc.perform(patch("/api/users/1")
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .contentType("application/merge-patch+json")
+                        .content("{\"surname\":\"Sidorov\",\"age\":30}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+    }
+
+    @DisplayName("Проверка: изменения через REST публикуют события для остальных экземпляров")
+    @Test
+    public void testWritesPublishUserEvents() throws Exception {
+        UserDTO patched = UserDTO.builder().id(1L).email("ivan@pivnov.ru").version(4L).build();
+        doReturn(patched).when(userService).patchUser(1L, Map.of("age", 30), null);
+        doReturn(Optional.of(patched)).when(userService).deleteUser(new RequestUserDTO(1L));
+
+        mockMvc.perform(patch("/api/users/1")
+                        .contentType("application/merge-patch+json")
+                        .content("{\"age\":30}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/api/users/1"))
+                .andExpect(status().isNoContent());
+
+        verify(eventProducer).sendUserEvent("UPDATE", patched);
+        verify(eventProducer).sendUserEvent("DELETE", patched);
+    }
+
+    @DisplayName("Проверка PATCH с неверными полями")
+    @Test
+    public void testPatchShouldReturn400ValidationErrors() throws Exception {
+        ValidationResult result = new ValidationResult();
+        result.reject("surname", "Поле нельзя удалить");
+        doThrow(new ValidationException(result)).when(userService).patchUser(eq(1L), anyMap(), isNull());
+
+        mockMvc.perform(patch("/api/users/1")
+                        .contentType("application/merge-patch+json")
+                        .content("{\"surname\":null}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors[0].field").value("surname"));
+    }
+
+    @DisplayName("Проверка зачисления: баланс и новый ETag")
+    @Test
+    public void testCreditShouldReturnBalance() throws Exception {
+        doReturn(UserDTO.builder().id(1L).money(1500L).version(4L).build()).when(userService).creditMoney(1L, 500L);
+
+        mockMvc.perform(post("/api/users/1/credit")
+                        .contentType("application/json;charset=UTF-8")
+                        .content("{\"amount\":500}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""))
+                .andExpect(jsonPath("$.id").value(1))
+                .andExpect(jsonPath("$.money").value(1500));
+    }
+
+    @DisplayName("Проверка списания: денег не хватает - 409, сумма не указана - 400")
+    @Test
+    public void testDebitShouldReturn409InsufficientFunds() throws Exception {
+        String message = "Недостаточно денег на балансе";
+        doThrow(new InsufficientFundsException(message)).when(userService).debitMoney(1L, 500L);
+
+        mockMvc.perform(post("/api/users/1/debit")
+                        .contentType("application/json;charset=UTF-8")
+                        .content("{\"amount\":500}"))
+                .andExpect(status().isConflict())
+                .andExpect(content().string(message));
+
+        mockMvc.perform(post("/api/users/1/debit")
+                        .contentType("application/json;charset=UTF-8")
+                        .content("{}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @DisplayName("Проверка зачисления: баланс превысил бы максимум - 409")
+    @Test
+    public void testCreditShouldReturn409BalanceOverflow() throws Exception {
+        String message = "Баланс превысил бы допустимый максимум";
+        doThrow(new BalanceOverflowException(message)).when(userService).creditMoney(1L, Long.MAX_VALUE);
+
+        mockMvc.perform(post("/api/users/1/credit")
+                        .contentType("application/json;charset=UTF-8")
+                        .content("{\"amount\":" + Long.MAX_VALUE + "}"))
+                .andExpect(status().isConflict())
+                .andExpect(content().string(message));
+        verifyNoInteractions(eventProducer);
+    }
+
+    @DisplayName("Проверка: зачисление, списание и перевод публикуют UPDATE на каждого измененного")
+    @Test
+    public void testMoneyWritesPublishUserEvents() throws Exception {
+        UserDTO credited = UserDTO.builder().id(1L).money(1500L).version(4L).build();
+        UserDTO debited = UserDTO.builder().id(1L).money(1000L).version(5L).build();
+        UserDTO from = UserDTO.builder().id(1L).money(600L).version(6L).build();
+        UserDTO to = UserDTO.builder().id(2L).money(900L).version(3L).build();
+        doReturn(credited).when(userService).creditMoney(1L, 500L);
+        doReturn(debited).when(userService).debitMoney(1L, 500L);
+        doReturn(List.of(from, to)).when(userService).transferMoney(new TransferDTO(1L, 2L, 400L));
+
+        mockMvc.perform(post("/api/users/1/credit")
+                        .contentType("application/json;charset=UTF-8")
+                        .content("{\"amount\":500}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/users/1/debit")
+                        .contentType("application/json;charset=UTF-8")
+                        .content("{\"amount\":500}"))
                 .andExpect(status().isOk());
+        mockMvc.perform(post("/api/users/transfer")
+                        .contentType("application/json;charset=UTF-8")
+                        .content("{\"fromId\":1,\"toId\":2,\"amount\":400}"))
+                .andExpect(status().isOk());
+
+        verify(eventProducer).sendUserEvent("UPDATE", credited);
+        verify(eventProducer).sendUserEvent("UPDATE", debited);
+        verify(eventProducer).sendUserEvent("UPDATE", from);
+        verify(eventProducer).sendUserEvent("UPDATE", to);
+        verifyNoMoreInteractions(eventProducer);
+    }
+
+    @DisplayName("Проверка перевода: балансы обоих пользователей")
+    @Test
+    public void testTransferShouldReturnBothBalances() throws Exception {
+        doReturn(List.of(UserDTO.builder().id(1L).money(600L).version(2L).build(),
+                UserDTO.builder().id(2L).money(900L).version(5L).build()))
+                .when(userService).transferMoney(new TransferDTO(1L, 2L, 400L));
+
+        mockMvc.perform(post("/api/users/transfer")
+                        .contentType("application/json;charset=UTF-8")
+                        .content("{\"fromId\":1,\"toId\":2,\"amount\":400}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.from.money").value(600))
+                .andExpect(jsonPath("$.to.id").value(2))
+                .andExpect(jsonPath("$.to.version").value(5));
+    }
+
+    @DisplayName("Проверка PUT с устаревшим If-Match")
+    @Test
+    public void testPutShouldReturn412VersionConflict() throws Exception {
+        UserDTO userDto = new UserDTO(
+                1,
+                "Ivan",
+                "Pivnov",
+                47,
+                "+71111111111",
+                "ivan@pivnov.ru",
+                60000,
+                new Date());
+
+        String message = "Пользователь был изменен, перечитайте его и повторите запрос";
+
+        doThrow(new VersionConflictException(message)).when(userService).updateUser(any(UserDTO.class), eq(3L));
+
+        mockMvc.perform(put("/api/users/1")
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(userDto)))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(content().string(message));
+    }
+
+    @DisplayName("Проверка PUT несуществующего пользователя")
+    @Test
+    public void testPutShouldReturn404UserNotFound() throws Exception {
+        UserDTO userDto = new UserDTO(
+                1,
+                "Ivan",
+                "Pivnov",
+                47,
+                "+71111111111",
+                "ivan@pivnov.ru",
+                60000,
+                new Date());
+
+        doThrow(new UserNotFoundException("Пользователь не найден")).when(userService).updateUser(any(UserDTO.class), isNull());
+
+        mockMvc.perform(put("/api/users/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(userDto)))
+                .andExpect(status().isNotFound());
     }
 
     @DisplayName("Проверка PUT при несовпадающих ID")
@@ -320,7 +865,7 @@ public class UserControllerTest {
 
         String message = "Этот email уже используется";
 
-        doThrow(new UserServiceException(message)).when(userService).updateUser(any(UserDTO.class));
+        doThrow(new UserServiceException(message)).when(userService).updateUser(any(UserDTO.class), isNull());
 
         mockMvc.perform(put("/api/users/1")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -344,7 +889,7 @@ public class UserControllerTest {
 
         String message = "Возраст от 1 до 150";
 
-        doThrow(new IllegalArgumentException(message)).when(userService).updateUser(any(UserDTO.class));
+        doThrow(new IllegalArgumentException(message)).when(userService).updateUser(any(UserDTO.class), isNull());
 
         mockMvc.perform(put("/api/users/1")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -368,7 +913,7 @@ public class UserControllerTest {
 
         String message = "БД устала от тестов, потому и упала";
 
-        doThrow(new RepositoryException(message)).when(userService).updateUser(any(UserDTO.class));
+        doThrow(new RepositoryException(message)).when(userService).updateUser(any(UserDTO.class), isNull());
 
         mockMvc.perform(put("/api/users/1")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -381,7 +926,7 @@ public class UserControllerTest {
     @Test
     public void testDeleteShouldReturn204UserById() throws Exception {
 
-        doNothing().when(userService).deleteUser(any(RequestUserDTO.class));
+        doReturn(Optional.empty()).when(userService).deleteUser(any(RequestUserDTO.class));
 
         mockMvc.perform(delete("/api/users/1"))
                 .andExpect(status().isNoContent());
@@ -414,6 +959,79 @@ public class UserControllerTest {
 
     }
 
+    @DisplayName("Проверка массового удаления по фильтру")
+    @Test
+    public void testBulkDeleteShouldReturn200Result() throws Exception {
+
+        BulkDeleteDTO dto = BulkDeleteDTO.builder()
+                .filter(UserFilterDTO.builder().maxAge(18).build())
+                .build();
+
+        doReturn(new BulkResultDTO(1500L, 2)).when(userService).deleteUsers(eq(dto), any());
+
+        mockMvc.perform(post("/api/users/bulk-delete")
+                        .contentType("application/json;charset=UTF-8")
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(1500))
+                .andExpect(jsonPath("$.chunks").value(2));
+    }
+
+    @DisplayName("Проверка массовых операций: одно событие в Kafka на каждую пачку")
+    @Test
+    public void testBulkShouldPublishOneEventPerChunk() throws Exception {
+
+        BulkUpdateDTO updateDto = BulkUpdateDTO.builder().ids(List.of(1L, 2L, 3L)).surname("Sidorov").build();
+        BulkDeleteDTO deleteDto = BulkDeleteDTO.builder().ids(List.of(1L, 2L, 3L)).build();
+        List<UserDTO> first = List.of(UserDTO.builder().id(1L).build(), UserDTO.builder().id(2L).build());
+        List<UserDTO> second = List.of(UserDTO.builder().id(3L).build());
+        doAnswer(inv -> {
+            Consumer<List<UserDTO>> listener = inv.getArgument(1);
+            listener.accept(first);
+            listener.accept(second);
+            return new BulkResultDTO(3L, 2);
+        }).when(userService).updateUsers(eq(updateDto), any());
+        doAnswer(inv -> {
+            Consumer<List<UserDTO>> listener = inv.getArgument(1);
+            listener.accept(first);
+            listener.accept(second);
+            return new BulkResultDTO(3L, 2);
+        }).when(userService).deleteUsers(eq(deleteDto), any());
+
+        mockMvc.perform(post("/api/users/bulk-update")
+                        .contentType("application/json;charset=UTF-8")
+                        .content(objectMapper.writeValueAsString(updateDto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.chunks").value(2));
+        mockMvc.perform(post("/api/users/bulk-delete")
+                        .contentType("application/json;charset=UTF-8")
+                        .content(objectMapper.writeValueAsString(deleteDto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(3));
+
+        verify(eventProducer).sendUserBatchEvent("BULK_UPDATE", first);
+        verify(eventProducer).sendUserBatchEvent("BULK_UPDATE", second);
+        verify(eventProducer).sendUserBatchEvent("BULK_DELETE", first);
+        verify(eventProducer).sendUserBatchEvent("BULK_DELETE", second);
+        verify(eventProducer, never()).sendUserEvent(anyString(), any());
+    }
+
+    @DisplayName("Проверка массового обновления при неправильных данных")
+    @Test
+    public void testBulkUpdateShouldReturn400IllegalArgumentException() throws Exception {
+
+        String message = "Не указано ни одного поля для обновления";
+        BulkUpdateDTO dto = BulkUpdateDTO.builder().ids(List.of(1L, 2L)).build();
+
+        doThrow(new IllegalArgumentException(message)).when(userService).updateUsers(eq(dto), any());
+
+        mockMvc.perform(post("/api/users/bulk-update")
+                        .contentType("application/json;charset=UTF-8")
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(message));
+    }
+
     @DisplayName("Проверка при неожиданном исключении")
     @Test
     public void testShouldReturn500UnknownException() throws Exception {
@@ -426,4 +1044,156 @@ public class UserControllerTest {
                 .andExpect(status().isInternalServerError())
                 .andExpect(content().string(message));
     }
+
+
+    @DisplayName("Проверка GET в CBOR и Smile по Accept")
+    @Test
+    public void testGetByIdShouldReturnCborAndSmile() throws Exception {
+
+        UserDTO userDto = UserDTO.builder().id(1L).name("Ivan").email("ivan@pivnov.ru").money(60000).version(2L).build();
+
+        doReturn(Optional.of(userDto)).when(userService).getUserById(any(RequestUserDTO.class));
+
+        byte[] cbor = mockMvc.perform(get("/api/users/1").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+        byte[] smile = mockMvc.perform(get("/api/users/1").accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertEquals(userDto, new CBORMapper().readValue(cbor, UserDTO.class));
+        assertEquals(userDto, new SmileMapper().readValue(smile, UserDTO.class));
+    }
+
+    @DisplayName("Проверка GET пользователя и страницы в Protobuf по Accept")
+    @Test
+    public void testGetShouldReturnProtobuf() throws Exception {
+
+        UserDTO userDto = new UserDTO(1, "Ivan", "Pivnov", 47, "+71111111111", "ivan@pivnov.ru", 60000, new Date(), 3L);
+
+        doReturn(Optional.of(userDto)).when(userService).getUserById(any(RequestUserDTO.class));
+        doReturn(new UserPageDTO(List.of(userDto), "next")).when(userService).getUserPage(null, null);
+
+        byte[] user = mockMvc.perform(get("/api/users/1").accept(UserProtobufHttpMessageConverter.PROTOBUF))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(UserProtobufHttpMessageConverter.PROTOBUF))
+                .andReturn().getResponse().getContentAsByteArray();
+        byte[] page = mockMvc.perform(get("/api/users").accept(UserProtobufHttpMessageConverter.PROTOBUF))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertEquals(userDto, UserProtobufHttpMessageConverter.toDto(User.parseFrom(user)));
+        UserPage decoded = UserPage.parseFrom(page);
+        assertEquals("next", decoded.getNextCursor());
+        assertEquals(userDto, UserProtobufHttpMessageConverter.toDto(decoded.getUsers(0)));
+    }
+
+    @DisplayName("Проверка POST в Protobuf и CBOR по Content-Type")
+    @Test
+    public void testPostShouldAcceptBinaryFormats() throws Exception {
+
+        UserDTO userDto = new UserDTO(0, "Ivan", "Pivnov", 47, "+71111111111", "ivan@pivnov.ru", 60000, null);
+
+        mockMvc.perform(post("/api/users")
+                        .contentType(UserProtobufHttpMessageConverter.PROTOBUF)
+                        .content(UserProtobufHttpMessageConverter.toProto(userDto).toByteArray()))
+                .andExpect(status().isCreated());
+        mockMvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .content(new CBORMapper().writeValueAsBytes(userDto)))
+                .andExpect(status().isCreated());
+
+        verify(userService, times(2)).createUser(userDto);
+    }
+
+    @DisplayName("Проверка выбранных полей в Protobuf: 406, схема фиксирована")
+    @Test
+    public void testGetFieldsShouldReturn406Protobuf() throws Exception {
+
+        doReturn(new UserFieldsPageDTO(List.of(), null)).when(userService).getUserPage(isNull(), isNull(), anySet());
+
+        mockMvc.perform(get("/api/users").param("fields", "email").accept(UserProtobufHttpMessageConverter.PROTOBUF))
+                .andExpect(status().isNotAcceptable());
+    }
+
+    @DisplayName("Проверка GET /search: найденные пользователи с похожестью")
+    @Test
+    public void testSearchShouldReturn200() throws Exception {
+
+        doReturn(List.of(new UserSearchHitDTO(4L, "Petr", "Ivanov", 0.71)))
+                .when(userService).searchUsers("ivanof", "fuzzy", 5);
+
+        mockMvc.perform(get("/api/users/search").param("q", "ivanof").param("mode", "fuzzy").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(4))
+                .andExpect(jsonPath("$[0].surname").value("Ivanov"))
+                .andExpect(jsonPath("$[0].score").value(0.71));
+    }
+
+    @DisplayName("Проверка GET /search при неизвестном режиме: 400")
+    @Test
+    public void testSearchShouldReturn400InvalidMode() throws Exception {
+
+        doThrow(new IllegalArgumentException("Поддерживаются режимы поиска prefix и fuzzy"))
+                .when(userService).searchUsers("an", "exact", null);
+
+        mockMvc.perform(get("/api/users/search").param("q", "an").param("mode", "exact"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @DisplayName("Проверка GET /filter: критерии из query-параметров, даты в ISO 8601")
+    @Test
+    public void testFilterShouldReturn200() throws Exception {
+
+        UserFilterDTO filter = UserFilterDTO.builder()
+                .minAge(18).maxAge(25)
+                .createdFrom(Date.from(Instant.parse("2024-05-01T00:00:00Z")))
+                .minMoney(1000L)
+                .build();
+        doReturn(new UserPageDTO(List.of(UserDTO.builder().id(7L).build()), "next"))
+                .when(userService).filterUsers(filter, null, 10);
+
+        mockMvc.perform(get("/api/users/filter")
+                        .param("minAge", "18").param("maxAge", "25")
+                        .param("createdFrom", "2024-05-01T00:00:00Z")
+                        .param("minMoney", "1000").param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users[0].id").value(7))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    @DisplayName("Проверка GET /filter с нечитаемым параметром: 400")
+    @Test
+    public void testFilterShouldReturn400InvalidParam() throws Exception {
+
+        mockMvc.perform(get("/api/users/filter").param("minAge", "old"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @DisplayName("Проверка GET /stats")
+    @Test
+    public void testStatsShouldReturn200() throws Exception {
+
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        histogram.put("20-29", 2L);
+        doReturn(new UserStatsDTO(2, 500, 250.0, histogram, new Date())).when(userService).getStats();
+
+        mockMvc.perform(get("/api/users/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users").value(2))
+                .andExpect(jsonPath("$.averageMoney").value(250.0))
+                .andExpect(jsonPath("$.ageHistogram.20-29").value(2));
+    }
+
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        public UserServiceKafka userServiceKafka(UserEventProducer eventProducer, UserServiceImpl userService) {
+            return new UserServiceKafka(eventProducer, userService);
+        }
+    }
 }
@@ -0,0 +1,82 @@
+package com.example.userservice.format;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * Тесты разбора входных данных импорта
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+public class UserImportReaderTest {
+
+    UserImportReader reader = new UserImportReader(new ObjectMapper());
+
+    private List<ImportRow> read(String text, DataFormat format) {
+        return reader.read(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), format).toList();
+    }
+
+    @DisplayName("Разбор NDJSON: битая строка не прерывает чтение, пустые пропускаются")
+    @Test
+    public void testReadNdjson() {
+
+        List<ImportRow> rows = read("""
+                {"name":"Vasya","surname":"Petrov","age":32,"phone":"+79991112233","email":"vasya@petrov.com"}
+
+                {"name":"Petya",
+                {"name":"Kolya","surname":"Ivanov","age":40,"phone":"+79991112234","email":"kolya@ivanov.com","money":15}
+                """, DataFormat.NDJSON);
+
+        assertEquals(3, rows.size());
+        assertEquals(1, rows.get(0).line());
+        assertEquals("vasya@petrov.com", rows.get(0).user().getEmail());
+        assertEquals(3, rows.get(1).line());
+        assertFalse(rows.get(1).isParsed());
+        assertEquals(4, rows.get(2).line());
+        assertEquals(15, rows.get(2).user().getMoney());
+    }
+
+    @DisplayName("Разбор CSV: колонки по заголовку, кавычки и ошибки по строкам")
+    @Test
+    public void testReadCsv() {
+
+        List<ImportRow> rows = read("""
+                email,name,surname,age,phone
+                vasya@petrov.com,Vasya,"Petrov \"\"Jr\"\"",32,+79991112233
+                kolya@ivanov.com,Kolya,Ivanov,сорок,+79991112234
+                petya@ivanov.com,Petya,Ivanov
+                "broken,Petya,Ivanov,20,+79991112235
+                """, DataFormat.CSV);
+
+        assertEquals(4, rows.size());
+        assertEquals(2, rows.get(0).line());
+        assertEquals("Petrov \"Jr\"", rows.get(0).user().getSurname());
+        assertEquals(32, rows.get(0).user().getAge());
+        assertEquals(0, rows.get(0).user().getMoney());
+        assertFalse(rows.get(1).isParsed());
+        assertFalse(rows.get(2).isParsed());
+        assertFalse(rows.get(3).isParsed());
+    }
+
+    @DisplayName("Разбор CSV без нужных колонок в заголовке")
+    @Test
+    public void testReadCsvWithoutHeader() {
+
+        List<ImportRow> rows = read("""
+                Vasya,Petrov,32,+79991112233,vasya@petrov.com
+                Kolya,Ivanov,40,+79991112234,kolya@ivanov.com
+                """, DataFormat.CSV);
+
+        assertEquals(2, rows.size());
+        assertTrue(rows.stream().noneMatch(ImportRow::isParsed));
+    }
+}
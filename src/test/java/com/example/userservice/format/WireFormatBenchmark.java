@@ -0,0 +1,122 @@
+package com.example.userservice.format;
+
+import com.example.userservice.dto.UserDTO;
+import com.example.userservice.dto.UserPageDTO;
+import com.example.userservice.format.proto.UserPage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Сравнение форматов обмена: размер страницы пользователей и стоимость кодирования/декодирования
+ * Запускается только явно: mvn test -Denv=test -Dtest=WireFormatBenchmark -Dbenchmark=true
+ * Сначала печатает размеры, затем прогоняет JMH (среднее время на операцию)
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    @Param({"1", "100"})
+    public int users;
+
+    @Param({"JSON", "CBOR", "SMILE", "PROTOBUF"})
+    public WireFormat format;
+
+    private UserPageDTO page;
+    private byte[] encoded;
+
+
+    @Setup
+    public void setUp() throws IOException {
+        page = samplePage(users);
+        encoded = format.encode(page);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return format.encode(page);
+    }
+
+    @Benchmark
+    public UserPageDTO decode() throws IOException {
+        return format.decode(encoded);
+    }
+
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    public void run() throws Exception {
+        for (int size : new int[]{1, 100}) {
+            UserPageDTO sample = samplePage(size);
+            for (WireFormat wireFormat : WireFormat.values()) {
+                System.out.printf("%-8s users=%-3d %6d bytes%n", wireFormat, size, wireFormat.encode(sample).length);
+            }
+        }
+        new Runner(new OptionsBuilder()
+                .include(WireFormatBenchmark.class.getName())
+                .build())
+                .run();
+    }
+
+
+    static UserPageDTO samplePage(int size) {
+        List<UserDTO> list = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            list.add(new UserDTO(i, "Василий", "Иванов", 20 + i % 50, "+7911000" + String.format("%04d", i),
+                    "user" + i + "@example.com", 1_000_000L + i, new Date(1_700_000_000_000L + i), i % 5));
+        }
+        return new UserPageDTO(list, "dTo" + size);
+    }
+
+
+    public enum WireFormat {
+        JSON(Jackson2ObjectMapperBuilder.json().build()),
+        CBOR(Jackson2ObjectMapperBuilder.cbor().build()),
+        SMILE(Jackson2ObjectMapperBuilder.smile().build()),
+        PROTOBUF(null);
+
+        private final ObjectMapper mapper;
+
+        WireFormat(ObjectMapper mapper) {
+            this.mapper = mapper;
+        }
+
+        byte[] encode(UserPageDTO page) throws IOException {
+            if (mapper == null) return UserProtobufHttpMessageConverter.toProto(page).toByteArray();
+            return mapper.writeValueAsBytes(page);
+        }
+
+        UserPageDTO decode(byte[] bytes) throws IOException {
+            if (mapper == null) return UserProtobufHttpMessageConverter.toDto(UserPage.parseFrom(bytes));
+            return mapper.readValue(bytes, UserPageDTO.class);
+        }
+    }
+}
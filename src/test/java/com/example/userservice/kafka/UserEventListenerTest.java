@@ -0,0 +1,173 @@
+package com.example.userservice.kafka;
+
+import com.example.userservice.config.UserServiceProperties;
+import com.example.userservice.dto.UserDTO;
+import com.example.userservice.service.UserCache;
+import com.example.userservice.service.UserExistenceFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+
+/**
+ * Тесты согласования кеша и фильтра существования через user-events на встроенном брокере Kafka
+ * Продюсер, подписчик и настройки сериализации - те же, что в приложении
+ *
+ * @author vmarakushin
+ * @version 2.0
+ */
+@SpringBootTest(classes = UserEventListenerTest.Config.class,
+        properties = "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}")
+@EmbeddedKafka(partitions = 1, topics = UserEventProducer.TOPIC)
+public class UserEventListenerTest {
+
+    @Autowired
+    private UserEventProducer producer;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry registry;
+
+    @MockBean
+    private UserExistenceFilter existenceFilter;
+
+
+    @BeforeEach
+    public void awaitAssignment() {
+        for (MessageListenerContainer container : registry.getListenerContainers())
+            ContainerTestUtils.waitForAssignment(container, 1);
+    }
+
+
+    @DisplayName("UPDATE сбрасывает более старую запись, опоздавшее событие со старой версией игнорируется")
+    @Test
+    public void testUpdateVersionCheck() throws InterruptedException {
+        cache(user(1L, 1L));
+        cache(user(2L, 5L));
+
+        producer.sendUserEvent("UPDATE", user(2L, 4L));
+        producer.sendUserEvent("UPDATE", user(1L, 2L));
+
+        await(() -> !userCache.getVersionIfPresent(1L).cached());
+        assertEquals(Optional.of(5L), userCache.getVersionIfPresent(2L).version());
+    }
+
+    @DisplayName("Удаление и массовое обновление с другого экземпляра")
+    @Test
+    public void testBatchEvents() throws InterruptedException {
+        cache(user(3L, 1L));
+        cache(user(4L, 1L));
+        cache(user(5L, 1L));
+
+        producer.sendUserBatchEvent("BULK_DELETE", List.of(user(3L, 1L), user(4L, 1L)));
+        producer.sendUserBatchEvent("BULK_UPDATE", List.of(user(5L, 2L)));
+
+        await(() -> !userCache.getVersionIfPresent(5L).cached());
+        assertEquals(new UserCache.CachedVersion(true, Optional.empty()), userCache.getVersionIfPresent(3L));
+        assertEquals(new UserCache.CachedVersion(true, Optional.empty()), userCache.getVersionIfPresent(4L));
+    }
+
+    @DisplayName("CREATE сбрасывает отметку \"нет\", закешированную до создания")
+    @Test
+    public void testCreateEvictsNegativeEntry() throws InterruptedException {
+        userCache.get(6L, id -> Optional.empty());
+
+        producer.sendUserEvent("CREATE", user(6L, 0L));
+
+        await(() -> !userCache.getVersionIfPresent(6L).cached());
+    }
+
+    @DisplayName("CREATE и UPDATE с другого экземпляра доносят email и телефон до фильтра, DELETE и свои события - нет")
+    @Test
+    public void testExistenceFilterFeed() {
+        producer.sendUserEvent("CREATE", user(10L, 0L));
+        sendFromOtherInstance(new UserEvent("DELETE", "vasya8@pupkin.com", 8L, 1L, "+79001112288"));
+        sendFromOtherInstance(new UserEvent("CREATE", "vasya7@pupkin.com", 7L, 0L, "+79001112233"));
+
+        verify(existenceFilter, timeout(30_000)).onRemoteChange("vasya7@pupkin.com", "+79001112233");
+        verify(existenceFilter, never()).onRemoteChange(eq("vasya8@pupkin.com"), any());
+        verify(existenceFilter, never()).onRemoteChange(eq("vasya10@pupkin.com"), any());
+    }
+
+    @DisplayName("Импорт на другом экземпляре сбрасывает кеш и пересобирает фильтр существования, свой - нет")
+    @Test
+    public void testImportEvent() throws InterruptedException {
+        cache(user(9L, 1L));
+
+        producer.sendUserBatchEvent("IMPORT", List.of());
+        sendFromOtherInstance(new UserBatchEvent("IMPORT", List.of(), List.of(), List.of()));
+
+        await(() -> !userCache.getVersionIfPresent(9L).cached());
+        verify(existenceFilter, timeout(30_000)).onRemoteImport();
+        verify(existenceFilter, times(1)).onRemoteImport();
+    }
+
+
+    private void sendFromOtherInstance(Object event) {
+        kafkaTemplate.send(new ProducerRecord<>(UserEventProducer.TOPIC, null, (String) null, event,
+                List.of(new RecordHeader(UserEventProducer.ORIGIN_HEADER, "other".getBytes(StandardCharsets.UTF_8)))));
+    }
+
+    private void cache(UserDTO user) {
+        userCache.get(user.getId(), id -> Optional.of(user));
+    }
+
+    private static UserDTO user(long id, long version) {
+        return UserDTO.builder().id(id).name("Vasya").email("vasya" + id + "@pupkin.com").version(version).build();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) fail("Событие не дошло до кеша за 30 секунд");
+            Thread.sleep(50);
+        }
+    }
+
+
+    @Configuration
+    @EnableConfigurationProperties(UserServiceProperties.class)
+    @ImportAutoConfiguration(KafkaAutoConfiguration.class)
+    @Import({UserCache.class, UserEventProducer.class, UserEventListener.class})
+    static class Config {
+
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.userservice.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * Тесты логгера с ограничением частоты
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+public class RateLimitedLoggerTest {
+
+    private static final long WINDOW = 1_000_000_000L;
+
+    private final AtomicLong clock = new AtomicLong();
+    private Logger logbackLogger;
+    private ListAppender<ILoggingEvent> appender;
+    private RateLimitedLogger logger;
+
+
+    @BeforeEach
+    public void setUp() {
+        logbackLogger = (Logger) LoggerFactory.getLogger(RateLimitedLoggerTest.class);
+        appender = new ListAppender<>();
+        appender.start();
+        logbackLogger.addAppender(appender);
+        logger = new RateLimitedLogger(logbackLogger, 3, WINDOW, clock::get);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        logbackLogger.detachAppender(appender);
+    }
+
+
+    @DisplayName("Сверх лимита окна сообщения подавляются, в следующем окне выводится сводка")
+    @Test
+    public void testSuppressAndSummary() {
+        for (int i = 0; i < 10; i++) logger.warn("validation", "Ошибка валидации: {}", i);
+        assertEquals(3, appender.list.size());
+        assertEquals("Ошибка валидации: 2", appender.list.get(2).getFormattedMessage());
+
+        clock.addAndGet(WINDOW);
+        logger.warn("validation", "Ошибка валидации: {}", 10);
+
+        assertEquals(5, appender.list.size());
+        ILoggingEvent summary = appender.list.get(3);
+        assertEquals("Подавлено 7 сообщений за 1000 мс", summary.getFormattedMessage());
+        assertTrue(summary.getKeyValuePairs().stream().anyMatch(kv -> kv.key.equals("suppressed") && kv.value.equals(7L)));
+        assertEquals("Ошибка валидации: 10", appender.list.get(4).getFormattedMessage());
+    }
+
+    @DisplayName("Ключи считаются отдельно, сводка по затихшему ключу выводится при flush")
+    @Test
+    public void testKeysAndFlush() {
+        for (int i = 0; i < 5; i++) logger.warn("validation", "a");
+        logger.warn("not-unique", "b");
+        assertEquals(4, appender.list.size());
+
+        logger.flush();
+        assertEquals(4, appender.list.size());
+
+        clock.addAndGet(WINDOW);
+        logger.flush();
+        assertEquals(5, appender.list.size());
+        assertEquals("Подавлено 2 сообщений за 1000 мс", appender.list.get(4).getFormattedMessage());
+    }
+
+    @DisplayName("Стек исключения только у первого события окна, ключ учитывает класс исключения")
+    @Test
+    public void testStackTraceSampling() {
+        logger.error("repository", "Ошибка при обращении к репозиторию.", new IllegalStateException("one"));
+        logger.error("repository", "Ошибка при обращении к репозиторию.", new IllegalStateException("two"));
+        logger.error("repository", "Ошибка при обращении к репозиторию.", new RuntimeException("other"));
+
+        assertNotNull(appender.list.get(0).getThrowableProxy());
+        assertNull(appender.list.get(1).getThrowableProxy());
+        assertTrue(appender.list.get(1).getKeyValuePairs().stream()
+                .anyMatch(kv -> kv.value.equals("java.lang.IllegalStateException: two")));
+        assertNotNull(appender.list.get(2).getThrowableProxy());
+    }
+}
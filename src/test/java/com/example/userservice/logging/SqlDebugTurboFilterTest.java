@@ -0,0 +1,53 @@
+package com.example.userservice.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * Тесты включения лога SQL для одного запроса
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+public class SqlDebugTurboFilterTest {
+
+    private final LoggerContext context = new LoggerContext();
+
+
+    @AfterEach
+    public void tearDown() {
+        MDC.remove(SqlDebugTurboFilter.MDC_KEY);
+        context.stop();
+    }
+
+
+    @DisplayName("Отмеченный запрос видит SQL и параметры, остальные логгеры и запросы - нет")
+    @Test
+    public void testOnlyMarkedRequest() {
+        SqlDebugTurboFilter filter = new SqlDebugTurboFilter();
+        filter.start();
+        context.addTurboFilter(filter);
+        context.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.WARN);
+        Logger sql = context.getLogger("org.hibernate.SQL");
+        Logger bind = context.getLogger("org.hibernate.orm.jdbc.bind");
+        Logger other = context.getLogger("com.example.userservice.service.UserServiceImpl");
+
+        assertFalse(sql.isDebugEnabled());
+
+        MDC.put(SqlDebugTurboFilter.MDC_KEY, "true");
+        assertTrue(sql.isDebugEnabled());
+        assertTrue(bind.isTraceEnabled());
+        assertFalse(other.isDebugEnabled());
+
+        MDC.remove(SqlDebugTurboFilter.MDC_KEY);
+        assertFalse(bind.isTraceEnabled());
+    }
+}
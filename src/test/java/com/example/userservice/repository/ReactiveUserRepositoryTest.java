@@ -0,0 +1,127 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.test.StepVerifier;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты реактивного репозитория на H2 через R2DBC
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@DataR2dbcTest(properties = "spring.r2dbc.url=r2dbc:h2:mem:///reactive;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("reactive")
+@Import(ReactiveUserRepository.class)
+public class ReactiveUserRepositoryTest {
+
+    @Autowired
+    private ReactiveUserRepository userRepository;
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @BeforeEach
+    public void createTable() {
+        databaseClient.sql("DROP TABLE IF EXISTS users").then().block();
+        databaseClient.sql("""
+                CREATE TABLE users (
+                    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                    name VARCHAR(255), surname VARCHAR(255), age INT,
+                    phone VARCHAR(255), email VARCHAR(255), money BIGINT,
+                    created_at TIMESTAMP, version BIGINT DEFAULT 0 NOT NULL)""").then().block();
+    }
+
+    private static User user(String email, String phone) {
+        return User.builder()
+                .name("John")
+                .surname("Smith")
+                .age(35)
+                .phone(phone)
+                .email(email)
+                .money(100L)
+                .createdAt(new Date())
+                .build();
+    }
+
+    @DisplayName("Проверка записи и чтения по ID")
+    @Test
+    public void testInsertAndFindById() {
+        User inserted = userRepository.insert(user("john@smith.com", "+78005553535")).block();
+
+        assertNotNull(inserted);
+        assertEquals(0L, inserted.getVersion());
+        User found = userRepository.findById(inserted.getId()).block();
+
+        assertNotNull(found);
+        assertEquals(inserted.getId(), found.getId());
+        assertEquals("john@smith.com", found.getEmail());
+        assertEquals("+78005553535", found.getPhone());
+        assertEquals(0L, found.getVersion());
+        assertNotNull(found.getCreatedAt());
+    }
+
+    @DisplayName("Проверка пустого результата для несуществующего ID")
+    @Test
+    public void testFindByIdMissing() {
+        StepVerifier.create(userRepository.findById(42L)).verifyComplete();
+        StepVerifier.create(userRepository.findVersionById(42L)).verifyComplete();
+    }
+
+    @DisplayName("Проверка keyset-страницы и потокового чтения")
+    @Test
+    public void testFindPageAndAll() {
+        for (int i = 1; i <= 5; i++) userRepository.insert(user("u" + i + "@mail.ru", "+7900000000" + i)).block();
+
+        StepVerifier.create(userRepository.findPage(2L, 2).map(User::getId))
+                .expectNext(3L, 4L)
+                .verifyComplete();
+        StepVerifier.create(userRepository.findAll().map(User::getId))
+                .expectNext(1L, 2L, 3L, 4L, 5L)
+                .verifyComplete();
+    }
+
+    @DisplayName("Проверка обновления с проверкой версии в UPDATE")
+    @Test
+    public void testUpdateChecksVersion() {
+        long id = userRepository.insert(user("john@smith.com", "+78005553535")).block().getId();
+        User changed = User.builder()
+                .id(id)
+                .name("Johnny")
+                .surname("Smith")
+                .age(35)
+                .phone("+78005553535")
+                .email("new@smith.com")
+                .money(100L)
+                .build();
+
+        assertEquals(Boolean.TRUE, userRepository.update(changed, 0L).block());
+        assertEquals(Boolean.FALSE, userRepository.update(changed, 0L).block());
+
+        User found = userRepository.findById(id).block();
+        assertEquals("Johnny", found.getName());
+        assertEquals("new@smith.com", found.getEmail());
+        assertEquals(1L, found.getVersion());
+        assertEquals(1L, userRepository.findVersionById(id).block());
+    }
+
+    @DisplayName("Проверка удаления")
+    @Test
+    public void testDelete() {
+        long id = userRepository.insert(user("john@smith.com", "+78005553535")).block().getId();
+
+        userRepository.deleteById(id).block();
+
+        StepVerifier.create(userRepository.findById(id)).verifyComplete();
+    }
+}
@@ -6,14 +6,22 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.Limit;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Тесты для Repository слоя
@@ -147,6 +155,334 @@ public class UserRepositoryTest {
         assertEquals(user3, users.get(3));
     }
 
+    @DisplayName("Проверка keyset-страницы")
+    @Sql(statements = """
+    INSERT INTO users (id, name, surname, age, phone, email, money)
+    VALUES(1, 'John', 'Smith', 35, '+78005553535', 'luchshe@pozvonit.chemukogotozanomat', 999999999999),
+      (2,'Vasya','Petrov',25,'+71111111111','vasya@petrov.com',1000),
+      (3, 'Petr', 'Ivanov', 76, '+72222222222', 'petr@ivanov.com', 320),
+      (4, 'Sam', 'Moyer', 43, '+73333333333', 'sam@moyaer.com', 65536);
+    """)
+    @Test
+    public void testKeysetPage() {
+
+        List<User> page = userRepository.findByIdGreaterThanOrderByIdAsc(1L, Limit.of(2));
+
+        assertEquals(2, page.size());
+        assertEquals(2L, page.get(0).getId());
+        assertEquals(3L, page.get(1).getId());
+        assertTrue(userRepository.findByIdGreaterThanOrderByIdAsc(4L, Limit.of(2)).isEmpty());
+    }
+
+    @DisplayName("Проверка занятых email и телефонов одним запросом на пачку")
+    @Sql(statements = """
+    INSERT INTO users (id, name, surname, age, phone, email, money)
+    VALUES(1, 'John', 'Smith', 35, '+78005553535', 'luchshe@pozvonit.chemukogotozanomat', 999999999999),
+      (2,'Vasya','Petrov',25,'+71111111111','vasya@petrov.com',1000);
+    """)
+    @Test
+    public void testFindExisting() {
+
+        assertEquals(Set.of("vasya@petrov.com"),
+                userRepository.findExistingEmails(List.of("vasya@petrov.com", "new@petrov.com")));
+        assertEquals(Set.of("+78005553535", "+71111111111"),
+                userRepository.findExistingPhones(List.of("+78005553535", "+71111111111", "+79999999999")));
+        assertTrue(userRepository.findExistingEmails(List.of()).isEmpty());
+    }
+
+    @DisplayName("Проверка потокового чтения курсором")
+    @Sql(statements = """
+    INSERT INTO users (id, name, surname, age, phone, email, money)
+    VALUES(1, 'John', 'Smith', 35, '+78005553535', 'luchshe@pozvonit.chemukogotozanomat', 999999999999),
+      (3, 'Petr', 'Ivanov', 76, '+72222222222', 'petr@ivanov.com', 320),
+      (2,'Vasya','Petrov',25,'+71111111111','vasya@petrov.com',1000);
+    """)
+    @Test
+    public void testStreamAll() {
+
+        List<User> users;
+        try (Stream<User> stream = userRepository.streamAll(2)) {
+            users = stream.toList();
+        }
+
+        assertEquals(List.of(1L, 2L, 3L), users.stream().map(User::getId).toList());
+        assertEquals("vasya@petrov.com", users.get(1).getEmail());
+        assertEquals(1000L, users.get(1).getMoney());
+    }
+
+    @DisplayName("Проверка версии: чтение без сущности и рост при обновлении")
+    @Sql(statements = """
+    INSERT INTO users (id, name, surname, age, phone, email, money)
+    VALUES (1, 'John', 'Smith', 35, '+78005553535', 'luchshe@pozvonit.chemukogotozanomat', 999999999999);
+    """)
+    @Test
+    public void testVersion() {
+
+        assertEquals(Optional.of(0L), userRepository.findVersionById(1L));
+        assertTrue(userRepository.findVersionById(2L).isEmpty());
+
+        userRepository.findById(1L).get().setName("Ivan");
+        userRepository.flush();
+
+        assertEquals(Optional.of(1L), userRepository.findVersionById(1L));
+    }
+
+    @DisplayName("Проверка выборки ID по фильтру")
+    @Sql(statements = """
+    INSERT INTO users (id, name, surname, age, phone, email, money)
+    VALUES(1, 'John', 'Smith', 35, '+78005553535', 'luchshe@pozvonit.chemukogotozanomat', 999999999999),
+      (2,'Vasya','Petrov',25,'+71111111111','vasya@petrov.com',1000),
+      (3, 'Petr', 'Ivanov', 76, '+72222222222', 'petr@ivanov.com', 320),
+      (4, 'Sam', 'Moyer', 43, '+73333333333', 'sam@moyaer.com', 65536);
+    """)
+    @Test
+    public void testFindIdsByFilter() {
+        UserFilter filter = new UserFilter(30, null, null, null, null, 100_000L);
+
+        assertEquals(List.of(3L, 4L), userRepository.findIdsByFilter(filter, 0L, 10));
+        assertEquals(List.of(4L), userRepository.findIdsByFilter(filter, 3L, 10));
+        assertEquals(List.of(3L), userRepository.findIdsByFilter(filter, 0L, 1));
+    }
+
+    @DisplayName("Проверка keyset-страницы по фильтру")
+    @Sql(statements = """
+    INSERT INTO users (id, name, surname, age, phone, email, money, created_at)
+    VALUES(1, 'John', 'Smith', 35, '+78005553535', 'luchshe@pozvonit.chemukogotozanomat', 999999999999, '2024-01-01 00:00:00'),
+      (2,'Vasya','Petrov',25,'+71111111111','vasya@petrov.com',1000, '2024-02-01 00:00:00'),
+      (3, 'Petr', 'Ivanov', 19, '+72222222222', 'petr@ivanov.com', 320, '2024-03-01 00:00:00'),
+      (4, 'Sam', 'Moyer', 22, '+73333333333', 'sam@moyaer.com', 65536, '2024-04-01 00:00:00');
+    """)
+    @Test
+    public void testFindPageByFilter() {
+        Date from = Timestamp.valueOf("2024-01-15 00:00:00");
+        UserFilter filter = new UserFilter(18, 25, from, null, 500L, null);
+
+        List<User> page = userRepository.findPageByFilter(filter, 0L, 10);
+        assertEquals(List.of(2L, 4L), page.stream().map(User::getId).toList());
+        assertEquals("Vasya", page.get(0).getName());
+
+        assertEquals(List.of(4L), userRepository.findPageByFilter(filter, 2L, 10).stream().map(User::getId).toList());
+        assertEquals(4, userRepository.findPageByFilter(new UserFilter(null, null, null, null, null, null), 0L, 10).size());
+    }
+
+    @DisplayName("Проверка агрегата по корзинам возраста")
+    @Sql(statements = """
+    INSERT INTO users (id, name, surname, age, phone, email, money)
+    VALUES(1, 'John', 'Smith', 35, '+78005553535', 'luchshe@pozvonit.chemukogotozanomat', 100),
+      (2,'Vasya','Petrov',25,'+71111111111','vasya@petrov.com',1000),
+      (3, 'Petr', 'Ivanov', 29, '+72222222222', 'petr@ivanov.com', 320),
+      (4, 'Sam', 'Moyer', 150, '+73333333333', 'sam@moyaer.com', 65536);
+    """)
+    @Test
+    public void testAggregateByAgeBucket() {
+        assertEquals(List.of(
+                        new AgeBucketAggregate(2, 2, 1320),
+                        new AgeBucketAggregate(3, 1, 100),
+                        new AgeBucketAggregate(15, 1, 65536)),
+                userRepository.aggregateByAgeBucket());
+    }
+
+    @DisplayName("Проверка ограничений уникальности email и телефона: имя ограничения есть в ошибке")
+    @Sql(statements = """
+    INSERT INTO users (id, name, surname, age, phone, email, money)
+    VALUES (1, 'John', 'Smith', 35, '+78005553535', 'luchshe@pozvonit.chemukogotozanomat', 999999999999);
+    """)
+    @Test
+    public void testUniqueConstraints() {
+        DataIntegrityViolationException email = assertThrows(DataIntegrityViolationException.class, () ->
+                userRepository.saveAndFlush(User.builder().name("Ivan").surname("Ivanov").age(20)
+                        .phone("+71111111111").email("luchshe@pozvonit.chemukogotozanomat").build()));
+        assertTrue(email.getMostSpecificCause().getMessage().toLowerCase().contains(User.EMAIL_UNIQUE_CONSTRAINT));
+
+        DataIntegrityViolationException phone = assertThrows(DataIntegrityViolationException.class, () ->
+                userRepository.saveAndFlush(User.builder().name("Ivan").surname("Ivanov").age(20)
+                        .phone("+78005553535").email("ivan@ivanov.ru").build()));
+        assertTrue(phone.getMostSpecificCause().getMessage().toLowerCase().contains(User.PHONE_UNIQUE_CONSTRAINT));
+    }
+
+    @DisplayName("Проверка массового удаления с возвратом удаленных")
+    @Sql(statements = """
+    INSERT INTO users (id, name, surname, age, phone, email, money)
+    VALUES(1, 'John', 'Smith', 35, '+78005553535', 'luchshe@pozvonit.chemukogotozanomat', 999999999999),
+      (2,'Vasya','Petrov',25,'+71111111111','vasya@petrov.com',1000),
+      (3, 'Petr', 'Ivanov', 76, '+72222222222', 'petr@ivanov.com', 320);
+    """)
+    @Test
+    public void testDeleteAllByIdReturning() {
+
+        List<User> deleted = userRepository.deleteAllByIdReturning(List.of(1L, 3L, 42L));
+
+        assertEquals(List.of("luchshe@pozvonit.chemukogotozanomat", "petr@ivanov.com"),
+                deleted.stream().map(User::getEmail).sorted().toList());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class));
+    }
+
+    @DisplayName("Проверка удаления одного пользователя с возвратом удаленного")
+    @Sql(statements = """
+    INSERT INTO users (id, name, surname, age, phone, email, money)
+    VALUES(1, 'John', 'Smith', 35, '+78005553535', 'luchshe@pozvonit.chemukogotozanomat', 999999999999),
+      (2,'Vasya','Petrov',25,'+71111111111','vasya@petrov.com',1000);
+    """)
+    @Test
+    public void testDeleteByIdReturning() {
+
+        User deleted = userRepository.deleteByIdReturning(2L).orElseThrow();
+
+        assertEquals("vasya@petrov.com", deleted.getEmail());
+        assertEquals(1000L, deleted.getMoney());
+        assertTrue(userRepository.deleteByIdReturning(2L).isEmpty());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class));
+    }
+
+    @DisplayName("Проверка массового обновления с возвратом обновленных")
+    @Sql(statements = """
+    INSERT INTO users (id, name, surname, age, phone, email, money)
+    VALUES(1, 'John', 'Smith', 35, '+78005553535', 'luchshe@pozvonit.chemukogotozanomat', 999999999999),
+      (2,'Vasya','Petrov',25,'+71111111111','vasya@petrov.com',1000);
+    """)
+    @Test
+    public void testUpdateAllByIdReturning() {
+
+        List<User> updated = userRepository.updateAllByIdReturning(List.of(2L), null, "Sidorov", 30);
+
+        assertEquals(1, updated.size());
+        assertEquals("Vasya", updated.get(0).getName());
+        assertEquals("Sidorov", updated.get(0).getSurname());
+        assertEquals(30, updated.get(0).getAge());
+        assertEquals(1L, updated.get(0).getVersion());
+        Map<String, Object> untouched = jdbcTemplate.queryForMap("SELECT * FROM users WHERE id = 1");
+        assertEquals("Smith", untouched.get("surname"));
+    }
+
+    @DisplayName("Проверка частичного обновления одной командой")
+    @Sql(statements = """
+    INSERT INTO users (id, name, surname, age, phone, email, money)
+    VALUES(1, 'John', 'Smith', 35, '+78005553535', 'luchshe@pozvonit.chemukogotozanomat', 999999999999),
+      (2,'Vasya','Petrov',25,'+71111111111','vasya@petrov.com',1000);
+    """)
+    @Test
+    public void testPatchReturning() {
+        Map<UserField, Object> values = new EnumMap<>(UserField.class);
+        values.put(UserField.SURNAME, "Sidorov");
+        values.put(UserField.MONEY, 5L);
+
+        User patched = userRepository.patchReturning(2L, values, 0L).orElseThrow();
+
+        assertEquals("Vasya", patched.getName());
+        assertEquals("Sidorov", patched.getSurname());
+        assertEquals(5L, patched.getMoney());
+        assertEquals(1L, patched.getVersion());
+        assertTrue(userRepository.patchReturning(2L, values, 0L).isEmpty());
+        assertTrue(userRepository.patchReturning(42L, values, null).isEmpty());
+        assertEquals("Smith", jdbcTemplate.queryForObject("SELECT surname FROM users WHERE id = 1", String.class));
+    }
+
+    @DisplayName("Проверка атомарного изменения баланса")
+    @Sql(statements = """
+    INSERT INTO users (id, name, surname, age, phone, email, money)
+    VALUES(1, 'John', 'Smith', 35, '+78005553535', 'luchshe@pozvonit.chemukogotozanomat', 999999999999),
+      (2,'Vasya','Petrov',25,'+71111111111','vasya@petrov.com',1000);
+    """)
+    @Test
+    public void testAddMoneyReturning() {
+
+        User credited = userRepository.addMoneyReturning(2L, 500L).orElseThrow();
+        User debited = userRepository.addMoneyReturning(2L, -1500L).orElseThrow();
+
+        assertEquals(1500L, credited.getMoney());
+        assertEquals(1L, credited.getVersion());
+        assertEquals(0L, debited.getMoney());
+        assertEquals(2L, debited.getVersion());
+        assertTrue(userRepository.addMoneyReturning(2L, -1L).isEmpty());
+        assertTrue(userRepository.addMoneyReturning(42L, 1L).isEmpty());
+        assertEquals(0L, jdbcTemplate.queryForObject("SELECT money FROM users WHERE id = 2", Long.class));
+        assertEquals(2L, jdbcTemplate.queryForObject("SELECT version FROM users WHERE id = 2", Long.class));
+
+        assertEquals(Long.MAX_VALUE, userRepository.addMoneyReturning(2L, Long.MAX_VALUE).orElseThrow().getMoney());
+        assertTrue(userRepository.addMoneyReturning(2L, 1L).isEmpty());
+        assertEquals(Long.MAX_VALUE, jdbcTemplate.queryForObject("SELECT money FROM users WHERE id = 2", Long.class));
+    }
+
+    @DisplayName("Проверка перевода одной командой и блокировки строк по возрастанию ID")
+    @Sql(statements = """
+    INSERT INTO users (id, name, surname, age, phone, email, money)
+    VALUES(1, 'John', 'Smith', 35, '+78005553535', 'luchshe@pozvonit.chemukogotozanomat', 100),
+      (2,'Vasya','Petrov',25,'+71111111111','vasya@petrov.com',1000);
+    """)
+    @Test
+    public void testTransferMoneyReturning() {
+
+        assertEquals(List.of(1L, 2L), List.copyOf(userRepository.lockMoneyForUpdate(List.of(2L, 1L, 42L)).keySet()));
+        assertEquals(Map.of(1L, 100L), userRepository.lockMoneyForUpdate(List.of(1L)));
+
+        Map<Long, User> moved = new LinkedHashMap<>();
+        userRepository.transferMoneyReturning(2L, 1L, 400L).forEach(user -> moved.put(user.getId(), user));
+
+        assertEquals(600L, moved.get(2L).getMoney());
+        assertEquals(500L, moved.get(1L).getMoney());
+        assertEquals(1L, moved.get(1L).getVersion());
+        assertEquals(1L, moved.get(2L).getVersion());
+
+        assertTrue(userRepository.transferMoneyReturning(1L, 2L, 501L).isEmpty());
+        assertEquals(600L, jdbcTemplate.queryForObject("SELECT money FROM users WHERE id = 2", Long.class));
+
+        jdbcTemplate.update("UPDATE users SET money = ? WHERE id = 1", Long.MAX_VALUE - 100);
+        assertTrue(userRepository.transferMoneyReturning(2L, 1L, 101L).isEmpty());
+        assertEquals(600L, jdbcTemplate.queryForObject("SELECT money FROM users WHERE id = 2", Long.class));
+        assertEquals(2, userRepository.transferMoneyReturning(2L, 1L, 100L).size());
+    }
+
+    @DisplayName("Проверка чтения выбранных колонок")
+    @Sql(statements = """
+    INSERT INTO users (id, name, surname, age, phone, email, money)
+    VALUES(1, 'John', 'Smith', 35, '+78005553535', 'luchshe@pozvonit.chemukogotozanomat', 999999999999),
+      (2,'Vasya','Petrov',25,'+71111111111','vasya@petrov.com',1000),
+      (3, 'Petr', 'Ivanov', 76, '+72222222222', 'petr@ivanov.com', 320);
+    """)
+    @Test
+    public void testSelectedFields() {
+        Set<UserField> fields = UserField.parse("email,age");
+
+        List<Map<String, Object>> page = userRepository.findFieldsPage(fields, 1L, 1);
+
+        assertEquals(List.of(Map.of("id", 2L, "age", 25, "email", "vasya@petrov.com")), page);
+        assertEquals(List.of("id", "age", "email"), List.copyOf(page.get(0).keySet()));
+
+        List<Map<String, Object>> rows;
+        try (Stream<Map<String, Object>> stream = userRepository.streamFields(fields, 2)) {
+            rows = stream.toList();
+        }
+        assertEquals(List.of(1L, 2L, 3L), rows.stream().map(row -> row.get("id")).toList());
+    }
+
+    @DisplayName("Проверка импорта пачки через промежуточную таблицу")
+    @Sql(statements = """
+    INSERT INTO users (id, name, surname, age, phone, email, money)
+    VALUES (100, 'John', 'Smith', 35, '+78005553535', 'luchshe@pozvonit.chemukogotozanomat', 999999999999);
+    """)
+    @Test
+    public void testImportChunk() {
+
+        Map<Long, User> rows = new LinkedHashMap<>();
+        rows.put(2L, User.builder().name("Vasya").surname("Petrov").age(25)
+                .phone("+71111111111").email("vasya@petrov.com").money(1000).createdAt(new Date()).build());
+        rows.put(3L, User.builder().name("Petr").surname("Ivanov").age(76)
+                .phone("+72222222222").email("luchshe@pozvonit.chemukogotozanomat").createdAt(new Date()).build());
+        rows.put(5L, User.builder().name("Sam").surname("Moyer").age(43)
+                .phone("+78005553535").email("sam@moyaer.com").createdAt(new Date()).build());
+
+        List<ImportConflict> conflicts = userRepository.importChunk(rows);
+
+        assertEquals(List.of(new ImportConflict(3L, true, false), new ImportConflict(5L, false, true)), conflicts);
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT count(*) FROM users", Integer.class));
+        assertEquals(1000L, jdbcTemplate.queryForObject(
+                "SELECT money FROM users WHERE email = 'vasya@petrov.com'", Long.class));
+
+        rows.remove(3L);
+        rows.remove(5L);
+        assertEquals(List.of(new ImportConflict(2L, true, true)), userRepository.importChunk(rows));
+    }
+
     @DisplayName("Проверка обновления юзера")
     @Sql(statements = """
     INSERT INTO users (id, name, surname, age, phone, email, money)
@@ -252,4 +588,66 @@ public class UserRepositoryTest {
     public void testCheckPhoneNotUnique() {
         assertFalse(userRepository.existsByPhoneAndIdNot("+71111111111",2));
     }
+
+    @DisplayName("Префиксный поиск по имени и фамилии: по алфавиту совпавшего слова, без дублей, с лимитом")
+    @Sql(statements = """
+    INSERT INTO users (id, name, surname, age, phone, email, money) VALUES
+    (1, 'Anna', 'Annenkova', 30, '+79990000001', 'anna@mail.ru', 0),
+    (2, 'Boris', 'Anisimov', 40, '+79990000002', 'boris@mail.ru', 0),
+    (3, 'Ann_a', 'Petrova', 25, '+79990000003', 'ann_a@mail.ru', 0),
+    (4, 'Petr', 'Ivanov', 50, '+79990000004', 'petr@mail.ru', 0);
+    """)
+    @Test
+    public void testSearchByNamePrefix() {
+        List<UserSearchHit> hits = userRepository.searchByName("an", SearchMode.PREFIX, 10, 0.6);
+        assertEquals(List.of(2L, 3L, 1L), hits.stream().map(UserSearchHit::id).toList());
+
+        List<UserSearchHit> limited = userRepository.searchByName("an", SearchMode.PREFIX, 2, 0.6);
+        assertEquals(List.of(2L, 3L), limited.stream().map(UserSearchHit::id).toList());
+    }
+
+    @DisplayName("Точное совпадение слова дает похожесть 1")
+    @Sql(statements = """
+    INSERT INTO users (id, name, surname, age, phone, email, money) VALUES
+    (1, 'Anna', 'Annenkova', 30, '+79990000001', 'anna@mail.ru', 0),
+    (2, 'Boris', 'Anisimov', 40, '+79990000002', 'boris@mail.ru', 0),
+    (3, 'Ann_a', 'Petrova', 25, '+79990000003', 'ann_a@mail.ru', 0),
+    (4, 'Petr', 'Ivanov', 50, '+79990000004', 'petr@mail.ru', 0);
+    """)
+    @Test
+    public void testSearchByNamePrefixScore() {
+        UserSearchHit hit = userRepository.searchByName("anna", SearchMode.PREFIX, 10, 0.6).get(0);
+        assertEquals(1L, hit.id());
+        assertEquals("Anna", hit.name());
+        assertEquals(1.0, hit.score());
+    }
+
+    @DisplayName("Символы шаблона LIKE в запросе ищутся буквально")
+    @Sql(statements = """
+    INSERT INTO users (id, name, surname, age, phone, email, money) VALUES
+    (1, 'Anna', 'Annenkova', 30, '+79990000001', 'anna@mail.ru', 0),
+    (2, 'Boris', 'Anisimov', 40, '+79990000002', 'boris@mail.ru', 0),
+    (3, 'Ann_a', 'Petrova', 25, '+79990000003', 'ann_a@mail.ru', 0),
+    (4, 'Petr', 'Ivanov', 50, '+79990000004', 'petr@mail.ru', 0);
+    """)
+    @Test
+    public void testSearchByNameEscapesLike() {
+        List<UserSearchHit> hits = userRepository.searchByName("ann_", SearchMode.PREFIX, 10, 0.6);
+        assertEquals(List.of(3L), hits.stream().map(UserSearchHit::id).toList());
+    }
+
+    @DisplayName("Нечеткий поиск вне PostgreSQL ищет подстроку в имени и фамилии")
+    @Sql(statements = """
+    INSERT INTO users (id, name, surname, age, phone, email, money) VALUES
+    (1, 'Anna', 'Annenkova', 30, '+79990000001', 'anna@mail.ru', 0),
+    (2, 'Boris', 'Anisimov', 40, '+79990000002', 'boris@mail.ru', 0),
+    (3, 'Ann_a', 'Petrova', 25, '+79990000003', 'ann_a@mail.ru', 0),
+    (4, 'Petr', 'Ivanov', 50, '+79990000004', 'petr@mail.ru', 0);
+    """)
+    @Test
+    public void testSearchByNameFuzzyFallback() {
+        List<UserSearchHit> hits = userRepository.searchByName("nisim", SearchMode.FUZZY, 10, 0.6);
+        assertEquals(List.of(2L), hits.stream().map(UserSearchHit::id).toList());
+        assertTrue(hits.get(0).score() > 0 && hits.get(0).score() < 1);
+    }
 }
@@ -0,0 +1,83 @@
+package com.example.userservice.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * Тесты счетного фильтра Блума
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+public class CountingBloomFilterTest {
+
+    @DisplayName("Добавленные значения всегда \"возможно есть\", ложных \"нет\" не бывает")
+    @Test
+    public void testNoFalseNegatives() {
+        CountingBloomFilter filter = new CountingBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) filter.add("user" + i + "@mail.ru");
+
+        for (int i = 0; i < 10_000; i++) assertTrue(filter.mightContain("user" + i + "@mail.ru"));
+        assertEquals(10_000, filter.size());
+    }
+
+    @DisplayName("Доля ложных срабатываний при расчетном заполнении близка к заданной")
+    @Test
+    public void testFalsePositiveRate() {
+        CountingBloomFilter filter = new CountingBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) filter.add("+7900" + i);
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("+7800" + i)) falsePositives++;
+        }
+
+        assertTrue(falsePositives / 100_000.0 < 0.02, "Доля ложных срабатываний " + falsePositives / 100_000.0);
+        assertEquals(0.01, filter.expectedFalsePositiveRate(), 0.002);
+        assertEquals(7, filter.hashCount());
+    }
+
+    @DisplayName("Удаленное значение пропадает, остальные остаются")
+    @Test
+    public void testRemove() {
+        CountingBloomFilter filter = new CountingBloomFilter(1000, 0.01);
+        filter.add("a@mail.ru");
+        filter.add("b@mail.ru");
+
+        filter.remove("a@mail.ru");
+
+        assertFalse(filter.mightContain("a@mail.ru"));
+        assertTrue(filter.mightContain("b@mail.ru"));
+        assertEquals(1, filter.size());
+    }
+
+    @DisplayName("Переполненный счетчик не уменьшается: удаления не дают ложных \"нет\"")
+    @Test
+    public void testSaturatedCounters() {
+        CountingBloomFilter filter = new CountingBloomFilter(1, 0.5);
+        for (int i = 0; i < 20; i++) filter.add("same@mail.ru");
+        filter.add("other@mail.ru");
+
+        for (int i = 0; i < 20; i++) filter.remove("same@mail.ru");
+
+        assertTrue(filter.mightContain("other@mail.ru"));
+    }
+
+    @DisplayName("Память - 4 бита на ячейку")
+    @Test
+    public void testMemory() {
+        CountingBloomFilter filter = new CountingBloomFilter(1_000_000, 0.01);
+        assertEquals(9_585_059 / 2, filter.memoryBytes(), 8);
+    }
+
+    @DisplayName("Некорректные параметры фильтра")
+    @Test
+    public void testInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new CountingBloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new CountingBloomFilter(100, 0));
+        assertThrows(IllegalArgumentException.class, () -> new CountingBloomFilter(100, 1));
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.userservice.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * Дифференциальные тесты {@link FieldFormat} против регулярных выражений, которые он заменил
+ * Случайные строки собираются из символов, на которых выражения различают принятие и отказ
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+public class FieldFormatTest {
+
+    private static final Pattern NAME_SURNAME = Pattern.compile("^[a-zA-Zа-яА-ЯёЁ\\-\\s]+$");
+    private static final Pattern PHONE = Pattern.compile("^\\+\\d{11}$");
+    private static final Pattern EMAIL = Pattern.compile("^[a-zA-Z0-9._%+-]{3,}@[a-zA-Z0-9.-]{3,}\\.[a-zA-Z]{2,}$");
+
+    /**
+     * Границы диапазонов и их соседи, символы-разделители, похожие на цифры и пробелы символы Unicode
+     */
+    private static final String EXOTIC = "`{[^/:@ \t\n\u000B\f\r\u00A0\u2003ѐђЀЂ٣０ßé!#$*()";
+    private static final String NAME_ALPHABET = "aAzZmMабяюАЯЮёЁеЕ- " + EXOTIC;
+    private static final String PHONE_ALPHABET = "01234567890123456789+" + EXOTIC;
+    private static final String EMAIL_ALPHABET = "aAzZmMaz09aaZZ...--_%+@@" + EXOTIC;
+    private static final long SEED = 20240517L;
+    private static final int CASES = 200_000;
+
+
+    @DisplayName("Имя и фамилия: совпадение с регулярным выражением на случайных строках")
+    @Test
+    public void nameMatchesRegex() {
+        int accepted = differential(NAME_SURNAME, FieldFormat::isNameOrSurname, NAME_ALPHABET, "", 0, 6);
+        assertTrue(accepted > 0);
+    }
+
+    @DisplayName("Телефон: совпадение с регулярным выражением на случайных строках")
+    @Test
+    public void phoneMatchesRegex() {
+        int accepted = differential(PHONE, FieldFormat::isPhone, PHONE_ALPHABET, "+", 10, 2)
+                + differential(PHONE, FieldFormat::isPhone, PHONE_ALPHABET, "", 0, 14);
+        assertTrue(accepted > 0);
+    }
+
+    @DisplayName("Email: совпадение с регулярным выражением на случайных строках")
+    @Test
+    public void emailMatchesRegex() {
+        int accepted = differential(EMAIL, FieldFormat::isEmail, EMAIL_ALPHABET, "", 6, 10)
+                + differential(EMAIL, FieldFormat::isEmail, EMAIL_ALPHABET, "abc@", 0, 8)
+                + differential(EMAIL, FieldFormat::isEmail, EMAIL_ALPHABET, "abc@mail", 0, 6);
+        assertTrue(accepted > 0);
+    }
+
+    @DisplayName("Граничные строки")
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "", " ", "-", "ab", "Ёж", "ёЁ", "Anna Maria", "Anna\n", "Anna ",
+            "+79991112233", "+7999111223", "+799911122334", "+79991112233\n", "+7999111223٣", "79991112233",
+            "abc@abc.ru", "ab@abc.ru", "abc@ab.ru", "abc@abc.r", "abc@abc.ru1", "abc@a.b.ru", "abc@abc..ru",
+            "abc@abc.ru.", "abc@@abc.ru", "a.c@abc.ru", "abc@abc.r-u", "abc@-.-.ru", "abc@...ru", "abc@abc.ru\n",
+            "a%+@x-y.COM", "abc@abc.ru@abc.ru", "abc@abc.рф"
+    })
+    public void edgeCases(String value) {
+        assertEquals(NAME_SURNAME.matcher(value).matches(), FieldFormat.isNameOrSurname(value), value);
+        assertEquals(PHONE.matcher(value).matches(), FieldFormat.isPhone(value), value);
+        assertEquals(EMAIL.matcher(value).matches(), FieldFormat.isEmail(value), value);
+    }
+
+
+    /**
+     * Сравнивает проверку с выражением на CASES строках: prefix + случайный хвост из alphabet
+     * длиной от minLength до minLength + spread
+     *
+     * @return сколько строк приняло выражение - чтобы генератор заведомо покрывал и принятие
+     */
+    private static int differential(Pattern regex, Predicate<String> scanner, String alphabet,
+                                    String prefix, int minLength, int spread) {
+        Random random = new Random(SEED);
+        int accepted = 0;
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < CASES; i++) {
+            value.setLength(0);
+            value.append(prefix);
+            int length = minLength + random.nextInt(spread + 1);
+            for (int j = 0; j < length; j++) value.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            String candidate = value.toString();
+
+            boolean expected = regex.matcher(candidate).matches();
+            assertEquals(expected, scanner.test(candidate), () -> "Расхождение на \"" + candidate + "\"");
+            if (expected) accepted++;
+        }
+        return accepted;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.userservice.service;
+
+import com.example.userservice.config.UserServiceProperties;
+import com.example.userservice.dto.ImportReportDTO;
+import com.example.userservice.dto.UserDTO;
+import com.example.userservice.format.DataFormat;
+import com.example.userservice.format.UserImportReader;
+import com.example.userservice.mapper.UserMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * Нагрузочное сравнение импорта с созданием по одному на настоящей БД (H2, ветка JDBC batch)
+ * Сначала CREATES пользователей создаются по одному через createUser, затем ROWS загружаются одним импортом CSV;
+ * сравнивается число строк в секунду. Перед замером оба пути прогреваются на небольшом объеме
+ * <p>
+ * Цель - импорт хотя бы в 10 раз быстрее. На PostgreSQL разрыв больше: COPY вместо batch
+ * и сетевой круг на каждое создание, которого у H2 в памяти нет
+ * Объем: -Dimport.rows, -Dimport.creates, порог: -Dimport.min-speedup
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(ImportThroughputTest.Config.class)
+public class ImportThroughputTest {
+
+    private static final int ROWS = Integer.getInteger("import.rows", 20_000);
+    private static final int CREATES = Integer.getInteger("import.creates", 2_000);
+    private static final double MIN_SPEEDUP = Double.parseDouble(System.getProperty("import.min-speedup", "10"));
+    private static final int WARMUP = 500;
+
+    @Autowired
+    private UserServiceImpl userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private UserSearchIndex searchIndex;
+
+    @MockBean
+    private UserStatistics statistics;
+
+    @MockBean
+    private UserExistenceFilter existenceFilter;
+
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+
+    @DisplayName("Импорт загружает строки хотя бы в 10 раз быстрее создания по одному")
+    @Test
+    public void testImportThroughput() {
+        createOneByOne(0, WARMUP);
+        importCsv(WARMUP, WARMUP);
+
+        long started = System.nanoTime();
+        createOneByOne(2 * WARMUP, CREATES);
+        double createRate = CREATES / ((System.nanoTime() - started) / 1e9);
+
+        started = System.nanoTime();
+        ImportReportDTO report = importCsv(2 * WARMUP + CREATES, ROWS);
+        double importRate = ROWS / ((System.nanoTime() - started) / 1e9);
+
+        System.out.printf("import: %d rows, %.0f rows/s; createUser: %d rows, %.0f rows/s; x%.1f%n",
+                ROWS, importRate, CREATES, createRate, importRate / createRate);
+        assertEquals(ROWS, report.getImported());
+        assertEquals(0, report.getRejected());
+        assertEquals(2L * WARMUP + CREATES + ROWS, jdbcTemplate.queryForObject("SELECT count(*) FROM users", Long.class));
+        assertTrue(importRate >= MIN_SPEEDUP * createRate,
+                "импорт быстрее создания по одному только в " + importRate / createRate + " раз");
+    }
+
+
+    private void createOneByOne(int from, int count) {
+        for (int i = from; i < from + count; i++)
+            userService.createUser(UserDTO.builder().name("Ivan").surname("Petrov").age(30)
+                    .phone(phone(i)).email(email(i)).money(100L).build());
+    }
+
+    private ImportReportDTO importCsv(int from, int count) {
+        StringBuilder csv = new StringBuilder("name,surname,age,phone,email,money\n");
+        for (int i = from; i < from + count; i++)
+            csv.append("Ivan,Petrov,30,").append(phone(i)).append(',').append(email(i)).append(",100\n");
+        return userService.importUsers(new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)),
+                DataFormat.CSV);
+    }
+
+    private static String phone(int i) {
+        return "+7900%07d".formatted(i);
+    }
+
+    private static String email(int i) {
+        return "user" + i + "@mail.ru";
+    }
+
+
+    @TestConfiguration
+    @EnableConfigurationProperties(UserServiceProperties.class)
+    @Import({UserServiceImpl.class, UserMapper.class, Validator.class, UserCache.class, RequestCoalescer.class,
+            UserImportReader.class})
+    static class Config {
+
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        public ObjectMapper objectMapper() {
+            return new ObjectMapper();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.userservice.service;
+
+import com.example.userservice.config.UserServiceProperties;
+import com.example.userservice.dto.TransferDTO;
+import com.example.userservice.exception.InsufficientFundsException;
+import com.example.userservice.format.UserImportReader;
+import com.example.userservice.mapper.UserMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * Нагрузочная проверка атомарности зачислений, списаний и переводов на настоящей БД
+ * Потоки случайно зачисляют, списывают и переводят между небольшим числом пользователей,
+ * чтобы одни и те же строки менялись одновременно; переводы идут в обе стороны
+ * <p>
+ * Каждая удачная операция учитывается в памяти; в конце баланс и версия каждого пользователя
+ * в БД должны совпасть с учтенными - ни одно изменение не потеряно, баланс нигде не ушел в минус,
+ * а взаимные блокировки встречных переводов привели бы к ошибкам и провалу теста
+ * Объем: -Dmoney.threads, -Dmoney.operations (на поток)
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(MoneyConcurrencyTest.Config.class)
+public class MoneyConcurrencyTest {
+
+    private static final int THREADS = Integer.getInteger("money.threads", 16);
+    private static final int OPERATIONS = Integer.getInteger("money.operations", 500);
+    private static final int USERS = 6;
+    private static final long INITIAL_MONEY = 1000L;
+    private static final long MAX_AMOUNT = 300L;
+
+    @Autowired
+    private UserServiceImpl userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private UserImportReader importReader;
+
+    @MockBean
+    private UserSearchIndex searchIndex;
+
+    @MockBean
+    private UserStatistics statistics;
+
+    @MockBean
+    private UserExistenceFilter existenceFilter;
+
+    private final long[] ids = new long[USERS];
+
+
+    @BeforeEach
+    public void setUp() {
+        for (int i = 0; i < USERS; i++) {
+            ids[i] = i + 1;
+            jdbcTemplate.update("INSERT INTO users (id, name, surname, age, phone, email, money) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                    ids[i], "Vasya", "Petrov", 25, "+7111111111" + i, "vasya" + i + "@petrov.com", INITIAL_MONEY);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+
+    @DisplayName("Одновременные зачисления, списания и встречные переводы не теряют изменений")
+    @Test
+    public void testNoLostUpdates() throws Exception {
+        AtomicLongArray expectedMoney = new AtomicLongArray(USERS);
+        AtomicLongArray expectedVersion = new AtomicLongArray(USERS);
+        AtomicLong rejected = new AtomicLong();
+        for (int i = 0; i < USERS; i++) expectedMoney.set(i, INITIAL_MONEY);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long started;
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int op = 0; op < OPERATIONS; op++) {
+                    int first = random.nextInt(USERS);
+                    int second = (first + 1 + random.nextInt(USERS - 1)) % USERS;
+                    long amount = 1 + random.nextLong(MAX_AMOUNT);
+                    try {
+                        switch (random.nextInt(3)) {
+                            case 0 -> {
+                                userService.creditMoney(ids[first], amount);
+                                expectedMoney.addAndGet(first, amount);
+                                expectedVersion.incrementAndGet(first);
+                            }
+                            case 1 -> {
+                                userService.debitMoney(ids[first], amount);
+                                expectedMoney.addAndGet(first, -amount);
+                                expectedVersion.incrementAndGet(first);
+                            }
+                            default -> {
+                                userService.transferMoney(new TransferDTO(ids[first], ids[second], amount));
+                                expectedMoney.addAndGet(first, -amount);
+                                expectedMoney.addAndGet(second, amount);
+                                expectedVersion.incrementAndGet(first);
+                                expectedVersion.incrementAndGet(second);
+                            }
+                        }
+                    } catch (InsufficientFundsException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+            started = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) future.get(5, TimeUnit.MINUTES);
+        } finally {
+            executor.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        System.out.printf("money: %d operations (%d rejected) in %.2f s, %.0f ops/s%n",
+                (long) THREADS * OPERATIONS, rejected.get(), seconds, THREADS * OPERATIONS / seconds);
+
+        for (int i = 0; i < USERS; i++) {
+            Map<String, Object> row = jdbcTemplate.queryForMap("SELECT money, version FROM users WHERE id = ?", ids[i]);
+            long money = ((Number) row.get("money")).longValue();
+            assertEquals(expectedMoney.get(i), money, "баланс пользователя " + ids[i]);
+            assertEquals(expectedVersion.get(i), ((Number) row.get("version")).longValue(), "версия пользователя " + ids[i]);
+            assertTrue(money >= 0, "баланс пользователя " + ids[i]);
+        }
+    }
+
+
+    @TestConfiguration
+    @EnableConfigurationProperties(UserServiceProperties.class)
+    @Import({UserServiceImpl.class, UserMapper.class, Validator.class, UserCache.class, RequestCoalescer.class})
+    static class Config {
+
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
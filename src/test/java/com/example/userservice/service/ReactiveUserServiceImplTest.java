@@ -0,0 +1,212 @@
+package com.example.userservice.service;
+
+import com.example.userservice.config.UserServiceProperties;
+import com.example.userservice.dto.RequestUserDTO;
+import com.example.userservice.dto.UserDTO;
+import com.example.userservice.exception.RepositoryException;
+import com.example.userservice.exception.UserNotFoundException;
+import com.example.userservice.exception.VersionConflictException;
+import com.example.userservice.mapper.UserMapper;
+import com.example.userservice.model.User;
+import com.example.userservice.repository.ReactiveUserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+
+/**
+ * Тесты реактивного Service-слоя
+ * Валидатор настоящий: проверки уникальности идут через мок реактивного репозитория
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+public class ReactiveUserServiceImplTest {
+
+    @Mock
+    private ReactiveUserRepository userRepository;
+
+    @Spy
+    private Validator validator = new Validator();
+
+    @Spy
+    private UserMapper userMapper = new UserMapper();
+
+    @Spy
+    private UserServiceProperties properties = new UserServiceProperties();
+
+    @InjectMocks
+    private ReactiveUserServiceImpl userService;
+
+
+    private static UserDTO dto(long id) {
+        return UserDTO.builder()
+                .id(id)
+                .name("Ivan")
+                .surname("Pivnov")
+                .age(47)
+                .phone("+71111111111")
+                .email("ivan@pivnov.ru")
+                .money(60000)
+                .build();
+    }
+
+    private static User user(long id, long version) {
+        return User.builder()
+                .id(id)
+                .name("Ivan")
+                .surname("Pivnov")
+                .age(47)
+                .phone("+71111111111")
+                .email("ivan@pivnov.ru")
+                .money(60000L)
+                .createdAt(new Date())
+                .version(version)
+                .build();
+    }
+
+    @DisplayName("Тест создания валидного юзера")
+    @Test
+    public void testCreateUser() {
+        when(userRepository.insert(any(User.class))).thenReturn(Mono.just(user(1, 0)));
+
+        StepVerifier.create(userService.createUser(dto(0)))
+                .assertNext(created -> {
+                    assertEquals(1L, created.getId());
+                    assertEquals(0L, created.getVersion());
+                })
+                .verifyComplete();
+
+        verify(userRepository).insert(any(User.class));
+    }
+
+    @DisplayName("Тест создания юзера с занятым email: нарушение ограничения БД переводится в ошибку валидации")
+    @Test
+    public void testCreateUserNotUniqueEmail() {
+        when(userRepository.insert(any(User.class))).thenReturn(Mono.error(new DuplicateKeyException(
+                "duplicate key value violates unique constraint \"users_email_key\"")));
+
+        StepVerifier.create(userService.createUser(dto(0)))
+                .expectErrorMatches(e -> e instanceof IllegalArgumentException
+                        && "Этот email уже используется!".equals(e.getMessage()))
+                .verify();
+    }
+
+    @DisplayName("Тест создания юзера с невалидным форматом: БД не трогается")
+    @Test
+    public void testCreateUserInvalidFormat() {
+        UserDTO invalid = dto(0);
+        invalid.setEmail("not-an-email");
+
+        StepVerifier.create(userService.createUser(invalid))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+
+        verifyNoInteractions(userRepository);
+    }
+
+    @DisplayName("Тест создания исключение репо")
+    @Test
+    public void testCreateUserRepositoryException() {
+        when(userRepository.insert(any(User.class))).thenReturn(Mono.error(new IllegalStateException("db down")));
+
+        StepVerifier.create(userService.createUser(dto(0)))
+                .expectError(RepositoryException.class)
+                .verify();
+    }
+
+    @DisplayName("Тест страницы: запрашивается на одну строку больше, курсор следующей страницы")
+    @Test
+    public void testGetUserPage() {
+        when(userRepository.findPage(0L, 3)).thenReturn(Flux.just(user(1, 0), user(2, 0), user(3, 0)));
+
+        StepVerifier.create(userService.getUserPage(null, 2))
+                .expectNextMatches(page -> page.getUsers().size() == 2
+                        && PageCursor.encode(2L).equals(page.getNextCursor()))
+                .verifyComplete();
+    }
+
+    @DisplayName("Тест страницы при невалидном размере")
+    @Test
+    public void testGetUserPageInvalidSize() {
+        StepVerifier.create(userService.getUserPage(null, 0))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+
+        verifyNoInteractions(userRepository);
+    }
+
+    @DisplayName("Тест получения юзера при невалидном ID")
+    @Test
+    public void testGetUserByInvalidId() {
+        StepVerifier.create(userService.getUserById(new RequestUserDTO(0)))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+
+        verifyNoInteractions(userRepository);
+    }
+
+    @DisplayName("Тест обновления с ожидаемой версией")
+    @Test
+    public void testUpdateUser() {
+        when(userRepository.findById(1L)).thenReturn(Mono.just(user(1, 2)), Mono.just(user(1, 3)));
+        when(userRepository.update(any(User.class), eq(2L))).thenReturn(Mono.just(true));
+
+        StepVerifier.create(userService.updateUser(dto(1), 2L))
+                .expectNextMatches(updated -> updated.getVersion() == 3L)
+                .verifyComplete();
+    }
+
+    @DisplayName("Тест обновления: устаревшая версия и гонка с другим обновлением")
+    @Test
+    public void testUpdateUserVersionConflict() {
+        when(userRepository.findById(1L)).thenReturn(Mono.just(user(1, 2)));
+        when(userRepository.update(any(User.class), eq(2L))).thenReturn(Mono.just(false));
+
+        StepVerifier.create(userService.updateUser(dto(1), 1L))
+                .expectError(VersionConflictException.class)
+                .verify();
+        StepVerifier.create(userService.updateUser(dto(1), null))
+                .expectError(VersionConflictException.class)
+                .verify();
+    }
+
+    @DisplayName("Тест обновления несуществующего юзера")
+    @Test
+    public void testUpdateUserNotFound() {
+        when(userRepository.findById(1L)).thenReturn(Mono.empty());
+
+        StepVerifier.create(userService.updateUser(dto(1), null))
+                .expectError(UserNotFoundException.class)
+                .verify();
+
+        verify(userRepository, never()).update(any(), anyLong());
+    }
+
+    @DisplayName("Тест удаления исключение репо")
+    @Test
+    public void testDeleteUserRepositoryException() {
+        when(userRepository.deleteById(1L)).thenReturn(Mono.error(new IllegalStateException("db down")));
+
+        StepVerifier.create(userService.deleteUser(new RequestUserDTO(1)))
+                .expectError(RepositoryException.class)
+                .verify();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.UserDTO;
+import com.example.userservice.exception.UserServiceException;
+import com.example.userservice.kafka.ReactiveUserEventProducer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.mockito.Mockito.*;
+
+
+/**
+ * Тесты для реактивного декоратора с кафкой
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+public class ReactiveUserServiceKafkaTest {
+
+    @Mock
+    private ReactiveUserServiceImpl userServiceImpl;
+
+    @Mock
+    private ReactiveUserEventProducer userEventProducer;
+
+    @InjectMocks
+    private ReactiveUserServiceKafka userServiceKafka;
+
+    @Test
+    @DisplayName("Проверка создания: публикуется вставленная строка с ID и версией, а не запрос")
+    public void testCreateUserPublishesInsertedRow() {
+        UserDTO dto = UserDTO.builder().email("vasya@petrov.com").phone("+79991112233").build();
+        UserDTO created = UserDTO.builder().id(10L).version(0L).email(dto.getEmail()).phone(dto.getPhone()).build();
+        when(userServiceImpl.createUser(dto)).thenReturn(Mono.just(created));
+        when(userEventProducer.sendUserEvent("CREATE", created)).thenReturn(Mono.empty());
+
+        StepVerifier.create(userServiceKafka.createUser(dto)).expectNext(created).verifyComplete();
+
+        verify(userEventProducer).sendUserEvent("CREATE", created);
+        verify(userEventProducer, never()).sendUserEvent("CREATE", dto);
+    }
+
+    @Test
+    @DisplayName("Проверка создания, исключение в ReactiveUserEventProducer")
+    public void testCreateUserException() {
+        UserDTO dto = UserDTO.builder().email("vasya@petrov.com").build();
+        UserDTO created = UserDTO.builder().id(10L).email(dto.getEmail()).build();
+        when(userServiceImpl.createUser(dto)).thenReturn(Mono.just(created));
+        when(userEventProducer.sendUserEvent("CREATE", created)).thenReturn(Mono.error(new RuntimeException()));
+
+        StepVerifier.create(userServiceKafka.createUser(dto)).expectError(UserServiceException.class).verify();
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.userservice.service;
+
+import com.example.userservice.exception.RepositoryException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * Тесты объединения одинаковых одновременных запросов
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+public class RequestCoalescerTest {
+
+    private static final int BURST = 200;
+
+    private MeterRegistry meterRegistry;
+    private RequestCoalescer coalescer;
+
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new RequestCoalescer(meterRegistry);
+    }
+
+
+    @DisplayName("Всплеск одинаковых запросов - один запрос в БД, результат получают все")
+    @Test
+    public void testBurstExecutesOnce() throws Exception {
+        AtomicInteger queries = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<String> results = burst(() -> coalescer.execute("findById", 1L, () -> {
+            queries.incrementAndGet();
+            await(release);
+            return "Vasya";
+        }), release);
+
+        assertEquals(1, queries.get());
+        results.forEach(result -> assertEquals("Vasya", result));
+        assertEquals(1.0, count("executed"));
+        assertEquals(BURST - 1.0, count("coalesced"));
+        assertEquals(0.0, meterRegistry.get("userservice.coalescing.in.flight").gauge().value());
+    }
+
+    @DisplayName("Исключение получают все ожидающие, следующий запрос выполняется заново")
+    @Test
+    public void testExceptionSharedAndNotCached() throws Exception {
+        AtomicInteger queries = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<String> results = burst(() -> {
+            try {
+                return coalescer.execute("findById", 1L, () -> {
+                    queries.incrementAndGet();
+                    await(release);
+                    throw new RepositoryException("db");
+                });
+            } catch (RepositoryException e) {
+                return e.getMessage();
+            }
+        }, release);
+
+        assertEquals(1, queries.get());
+        results.forEach(result -> assertEquals("db", result));
+        assertEquals("Vasya", coalescer.execute("findById", 1L, () -> "Vasya"));
+        assertEquals(2, count("executed"));
+    }
+
+    @DisplayName("Разные ключи и разные операции не объединяются")
+    @Test
+    public void testDifferentKeys() {
+        assertEquals(1, (int) coalescer.execute("findById", 1L, () ->
+                coalescer.execute("findById", 2L, () ->
+                        coalescer.execute("findVersionById", 1L, () -> 1))));
+        assertEquals(3.0, meterRegistry.get("userservice.coalescing.calls").tag("result", "executed")
+                .counters().stream().mapToDouble(Counter::count).sum());
+    }
+
+
+    /**
+     * Запускает BURST одинаковых вызовов и отпускает запрос, только когда все остальные уже ждут его результат
+     */
+    private List<String> burst(Supplier<String> call, CountDownLatch release) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(BURST);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < BURST; i++) futures.add(executor.submit(() -> {
+                start.await();
+                return call.get();
+            }));
+            start.countDown();
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (count("coalesced") < BURST - 1) {
+                if (System.nanoTime() > deadline) fail("Вызовы не объединились за 30 секунд");
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            List<String> results = new ArrayList<>();
+            for (Future<String> future : futures) results.add(future.get(30, TimeUnit.SECONDS));
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private double count(String result) {
+        Counter counter = meterRegistry.find("userservice.coalescing.calls")
+                .tags("operation", "findById", "result", result).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.userservice.service;
+
+import com.example.userservice.config.UserServiceProperties;
+import com.example.userservice.dto.UserDTO;
+import com.example.userservice.exception.RepositoryException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * Тесты кеша пользователей по ID
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+public class UserCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private MeterRegistry meterRegistry;
+    private UserCache cache;
+
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new UserCache(new UserServiceProperties(), meterRegistry);
+    }
+
+
+    @DisplayName("Повторное чтение без загрузки, наружу отдается копия")
+    @Test
+    public void testHitReturnsCopy() {
+        cache.get(1L, loader(user(1L, "Vasya", 1L))).orElseThrow().setName("Petya");
+
+        assertEquals("Vasya", cache.get(1L, loader(user(1L, "Other", 1L))).orElseThrow().getName());
+        assertEquals(1, loads.get());
+        assertEquals(0.5, meterRegistry.get("userservice.cache.hit.ratio").gauge().value());
+        assertEquals(Optional.of(1L), cache.getVersionIfPresent(1L).version());
+    }
+
+    @DisplayName("Отсутствующий ID тоже кешируется")
+    @Test
+    public void testNegativeEntry() {
+        assertTrue(cache.get(2L, loader(null)).isEmpty());
+        assertTrue(cache.get(2L, loader(user(2L, "Vasya", 1L))).isEmpty());
+        assertEquals(1, loads.get());
+        assertEquals(new UserCache.CachedVersion(true, Optional.empty()), cache.getVersionIfPresent(2L));
+        assertFalse(cache.getVersionIfPresent(3L).cached());
+    }
+
+    @DisplayName("Ошибка загрузки не кешируется")
+    @Test
+    public void testLoaderExceptionNotCached() {
+        assertThrows(RepositoryException.class, () -> cache.get(1L, id -> {
+            throw new RepositoryException("db");
+        }));
+        assertEquals("Vasya", cache.get(1L, loader(user(1L, "Vasya", 1L))).orElseThrow().getName());
+    }
+
+    @DisplayName("События изменения обновляют записи, импорт сбрасывает кеш")
+    @Test
+    public void testEvents() {
+        cache.get(1L, loader(user(1L, "Vasya", 1L)));
+        cache.get(2L, loader(user(2L, "Anna", 1L)));
+
+        cache.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.UPDATED, List.of(user(1L, "Petya", 2L))));
+        cache.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.DELETED, List.of(user(2L, "Anna", 1L))));
+        cache.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.CREATED, List.of(user(3L, "Ivan", 0L))));
+
+        assertEquals("Petya", cache.get(1L, loader(null)).orElseThrow().getName());
+        assertTrue(cache.get(2L, loader(user(2L, "Anna", 1L))).isEmpty());
+        assertEquals(Optional.of(0L), cache.getVersionIfPresent(3L).version());
+        assertEquals(2, loads.get());
+
+        cache.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.IMPORTED, List.of()));
+        assertFalse(cache.getVersionIfPresent(1L).cached());
+    }
+
+    @DisplayName("Опоздавшее событие со старой версией не затирает более новый снимок")
+    @Test
+    public void testOutOfOrderEvents() {
+        cache.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.UPDATED, List.of(user(1L, "Petya", 3L))));
+        cache.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.UPDATED, List.of(user(1L, "Vasya", 2L))));
+
+        assertEquals("Petya", cache.get(1L, loader(null)).orElseThrow().getName());
+        assertEquals(Optional.of(3L), cache.getVersionIfPresent(1L).version());
+
+        cache.get(2L, loader(null));
+        cache.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.CREATED, List.of(user(2L, "Anna", 0L))));
+        assertEquals(Optional.of(0L), cache.getVersionIfPresent(2L).version());
+    }
+
+    @DisplayName("Выключенный кеш каждый раз читает из БД")
+    @Test
+    public void testDisabled() {
+        UserServiceProperties properties = new UserServiceProperties();
+        properties.getCache().setEnabled(false);
+        cache = new UserCache(properties, meterRegistry);
+
+        cache.get(1L, loader(user(1L, "Vasya", 1L)));
+        cache.get(1L, loader(user(1L, "Vasya", 1L)));
+
+        assertEquals(2, loads.get());
+        assertFalse(cache.getVersionIfPresent(1L).cached());
+    }
+
+
+    private LongFunction<Optional<UserDTO>> loader(UserDTO user) {
+        return id -> {
+            loads.incrementAndGet();
+            return Optional.ofNullable(user);
+        };
+    }
+
+    private static UserDTO user(long id, String name, long version) {
+        return UserDTO.builder().id(id).name(name).version(version).build();
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.userservice.service;
+
+import com.example.userservice.config.UserServiceProperties;
+import com.example.userservice.dto.UserDTO;
+import com.example.userservice.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.*;
+
+
+/**
+ * Тесты фильтра существования email и телефона
+ *
+ * @author vmarakushin
+ * @version 2.0
+ */
+public class UserExistenceFilterTest {
+
+    private UserRepository userRepository;
+    private MeterRegistry meterRegistry;
+    private UserServiceProperties properties;
+    private UserExistenceFilter filter;
+
+
+    @BeforeEach
+    public void setUp() {
+        userRepository = mock(UserRepository.class);
+        when(userRepository.streamFields(anySet(), anyInt())).thenAnswer(invocation -> Stream.of(
+                Map.of("email", "ivan@mail.ru", "phone", "+79001112233"),
+                Map.of("email", "anna@mail.ru", "phone", "+79004445566")));
+        properties = new UserServiceProperties();
+        properties.getExistence().setExpectedInsertions(1000);
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new UserExistenceFilter(userRepository, properties, meterRegistry);
+        filter.afterPropertiesSet();
+    }
+
+
+    @DisplayName("Новое значение - \"точно нет\" без запроса в БД")
+    @Test
+    public void testAbsentSkipsDatabase() {
+        AtomicInteger queries = new AtomicInteger();
+
+        assertFalse(filter.exists(UserExistenceFilter.Field.EMAIL, "new@mail.ru", () -> queries.incrementAndGet() > 0));
+
+        assertEquals(0, queries.get());
+        assertEquals(1.0, meterRegistry.get("userservice.existence.filter.checks")
+                .tags("field", "email", "result", "absent").counter().count());
+    }
+
+    @DisplayName("Значение из БД - \"возможно есть\", ответ дает запрос в БД")
+    @Test
+    public void testMaybePresentQueriesDatabase() {
+        assertTrue(filter.exists(UserExistenceFilter.Field.PHONE, "+79001112233", () -> true));
+        assertFalse(filter.exists(UserExistenceFilter.Field.PHONE, "+79001112233", () -> false));
+
+        assertEquals(2.0, meterRegistry.get("userservice.existence.filter.checks")
+                .tags("field", "phone", "result", "maybe").counter().count());
+        assertEquals(1.0, meterRegistry.get("userservice.existence.filter.false.positives")
+                .tag("field", "phone").counter().count());
+        assertEquals(1.0, meterRegistry.get("userservice.existence.filter.observed.fpp").tag("field", "phone").gauge().value());
+    }
+
+    @DisplayName("События создания, изменения и удаления поддерживают фильтр без перечитывания БД")
+    @Test
+    public void testEvents() {
+        UserDTO created = UserDTO.builder().id(3L).email("petr@mail.ru").phone("+79007778899").build();
+        UserDTO updated = UserDTO.builder().id(3L).email("petr@yandex.ru").phone("+79007778899").build();
+
+        filter.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.CREATED, List.of(created)));
+        assertTrue(filter.exists(UserExistenceFilter.Field.EMAIL, "petr@mail.ru", () -> true));
+
+        filter.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.UPDATED, List.of(updated), List.of(created)));
+        assertFalse(filter.exists(UserExistenceFilter.Field.EMAIL, "petr@mail.ru", () -> fail("Лишний запрос в БД")));
+        assertTrue(filter.exists(UserExistenceFilter.Field.EMAIL, "petr@yandex.ru", () -> true));
+
+        filter.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.DELETED, List.of(updated)));
+        assertFalse(filter.exists(UserExistenceFilter.Field.PHONE, "+79007778899", () -> fail("Лишний запрос в БД")));
+        verify(userRepository, times(1)).streamFields(anySet(), anyInt());
+    }
+
+    @DisplayName("Пакетная проверка отправляет в БД только \"возможно есть\", без них запроса нет")
+    @Test
+    public void testExistingBatch() {
+        List<Collection<String>> queries = new ArrayList<>();
+
+        assertEquals(Set.of("ivan@mail.ru"), filter.existing(UserExistenceFilter.Field.EMAIL,
+                Arrays.asList("new@mail.ru", null, "ivan@mail.ru", "anna@mail.ru"), values -> {
+                    queries.add(values);
+                    return Set.of("ivan@mail.ru");
+                }));
+        assertEquals(Set.of(), filter.existing(UserExistenceFilter.Field.EMAIL, List.of("new@mail.ru"), values -> {
+            queries.add(values);
+            return Set.of();
+        }));
+
+        assertEquals(List.of(List.of("ivan@mail.ru", "anna@mail.ru")), queries);
+        assertEquals(2.0, meterRegistry.get("userservice.existence.filter.checks")
+                .tags("field", "email", "result", "absent").counter().count());
+        assertEquals(1.0, meterRegistry.get("userservice.existence.filter.false.positives")
+                .tag("field", "email").counter().count());
+    }
+
+    @DisplayName("Изменение с другого экземпляра добавляет новые значения, повтор своего события ничего не ломает")
+    @Test
+    public void testRemoteChange() {
+        UserDTO created = UserDTO.builder().id(3L).email("petr@mail.ru").phone("+79007778899").build();
+        UserDTO updated = UserDTO.builder().id(3L).email("petr@yandex.ru").phone("+79007778899").build();
+
+        filter.onRemoteChange("olga@mail.ru", "+79001234567");
+        assertTrue(filter.exists(UserExistenceFilter.Field.EMAIL, "olga@mail.ru", () -> true));
+        assertTrue(filter.exists(UserExistenceFilter.Field.PHONE, "+79001234567", () -> true));
+
+        filter.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.CREATED, List.of(created)));
+        filter.onRemoteChange(created.getEmail(), created.getPhone());
+        filter.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.UPDATED, List.of(updated), List.of(created)));
+        filter.onRemoteChange(updated.getEmail(), updated.getPhone());
+        assertTrue(filter.exists(UserExistenceFilter.Field.EMAIL, "petr@yandex.ru", () -> true));
+        assertTrue(filter.exists(UserExistenceFilter.Field.EMAIL, "ivan@mail.ru", () -> true));
+    }
+
+    @DisplayName("Импорт пересобирает фильтр из БД в фоне")
+    @Test
+    public void testImportReloads() throws InterruptedException {
+        filter.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.IMPORTED, List.of()));
+
+        await(() -> !filter.isReloading());
+        verify(userRepository, times(2)).streamFields(anySet(), anyInt());
+        assertTrue(filter.exists(UserExistenceFilter.Field.EMAIL, "anna@mail.ru", () -> true));
+    }
+
+    @DisplayName("Во время пересборки проверки идут в БД, значения из событий попадают в новый фильтр")
+    @Test
+    public void testLookupDuringReload() throws InterruptedException {
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userRepository.streamFields(anySet(), anyInt())).thenAnswer(invocation -> {
+            reading.countDown();
+            release.await();
+            return Stream.of(Map.of("email", "imported@mail.ru", "phone", "+79000000001"));
+        });
+
+        filter.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.IMPORTED, List.of()));
+        assertTrue(reading.await(30, TimeUnit.SECONDS));
+
+        AtomicInteger queries = new AtomicInteger();
+        assertTrue(filter.exists(UserExistenceFilter.Field.EMAIL, "imported@mail.ru", () -> queries.incrementAndGet() > 0));
+        assertEquals(1, queries.get());
+        filter.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.CREATED,
+                List.of(UserDTO.builder().id(3L).email("petr@mail.ru").phone("+79007778899").build())));
+
+        release.countDown();
+        await(() -> !filter.isReloading());
+        assertTrue(filter.exists(UserExistenceFilter.Field.EMAIL, "imported@mail.ru", () -> true));
+        assertTrue(filter.exists(UserExistenceFilter.Field.EMAIL, "petr@mail.ru", () -> true));
+        assertFalse(filter.exists(UserExistenceFilter.Field.EMAIL, "ivan@mail.ru", () -> fail("Лишний запрос в БД")));
+    }
+
+    @DisplayName("Периодическая пересборка: не раньше интервала, 0 - выключена")
+    @Test
+    public void testPeriodicReload() throws InterruptedException {
+        filter.reloadIfDue();
+        verify(userRepository, times(1)).streamFields(anySet(), anyInt());
+
+        properties.getExistence().setReloadInterval(Duration.ZERO);
+        Thread.sleep(5);
+        filter.reloadIfDue();
+        verify(userRepository, times(1)).streamFields(anySet(), anyInt());
+
+        properties.getExistence().setReloadInterval(Duration.ofMillis(1));
+        filter.reloadIfDue();
+        await(() -> !filter.isReloading());
+        verify(userRepository, times(2)).streamFields(anySet(), anyInt());
+    }
+
+    @DisplayName("Метрики состояния фильтра")
+    @Test
+    public void testStateMetrics() {
+        assertEquals(2.0, meterRegistry.get("userservice.existence.filter.size").tag("field", "email").gauge().value());
+        assertTrue(meterRegistry.get("userservice.existence.filter.memory").tag("field", "phone").gauge().value() > 0);
+        assertTrue(meterRegistry.get("userservice.existence.filter.expected.fpp").tag("field", "email").gauge().value() < 0.01);
+    }
+
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) fail("Фильтр не пересобрался за 30 секунд");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.userservice.service;
+
+import com.example.userservice.config.UserServiceProperties;
+import com.example.userservice.dto.UserDTO;
+import com.example.userservice.repository.SearchMode;
+import com.example.userservice.repository.UserRepository;
+import com.example.userservice.repository.UserSearchHit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+
+/**
+ * Тесты индекса поиска в памяти
+ * Результаты должны совпадать по порядку с поиском в БД
+ *
+ * @author vmarakushin
+ * @version 2.0
+ */
+public class UserSearchIndexTest {
+
+    private UserRepository userRepository;
+    private UserSearchIndex index;
+
+
+    @BeforeEach
+    public void setUp() {
+        userRepository = mock(UserRepository.class);
+        when(userRepository.streamFields(anySet(), anyInt())).thenAnswer(invocation -> Stream.of(
+                row(1L, "Anna", "Annenkova"),
+                row(2L, "Boris", "Anisimov"),
+                row(3L, "Ann_a", "Petrova"),
+                row(4L, "Petr", "Ivanov")));
+
+        UserServiceProperties properties = new UserServiceProperties();
+        properties.getSearch().setInMemory(true);
+        index = new UserSearchIndex(userRepository, properties);
+        index.afterPropertiesSet();
+    }
+
+
+    @DisplayName("Префиксный поиск: по алфавиту совпавшего слова, без дублей, с лимитом")
+    @Test
+    public void testPrefix() {
+        assertEquals(List.of(2L, 3L, 1L), ids(index.search("an", SearchMode.PREFIX, 10)));
+        assertEquals(List.of(2L, 3L), ids(index.search("an", SearchMode.PREFIX, 2)));
+        assertEquals(List.of(3L), ids(index.search("ann_", SearchMode.PREFIX, 10)));
+        assertEquals(1.0, index.search("anna", SearchMode.PREFIX, 10).get(0).score());
+        assertTrue(index.search("x", SearchMode.PREFIX, 10).isEmpty());
+    }
+
+    @DisplayName("Нечеткий поиск находит фамилию с опечаткой и отсекает непохожие")
+    @Test
+    public void testFuzzy() {
+        List<UserSearchHit> hits = index.search("ivanof", SearchMode.FUZZY, 10);
+        assertEquals(List.of(4L), ids(hits));
+        assertTrue(hits.get(0).score() >= 0.6 && hits.get(0).score() < 1);
+
+        assertEquals(1.0, index.search("ivanov", SearchMode.FUZZY, 10).get(0).score());
+        assertTrue(index.search("zzz", SearchMode.FUZZY, 10).isEmpty());
+    }
+
+    @DisplayName("Индекс следует за событиями изменения пользователей")
+    @Test
+    public void testEvents() {
+        index.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.UPDATED,
+                List.of(UserDTO.builder().id(4L).name("Andrey").surname("Ivanov").build())));
+        index.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.CREATED,
+                List.of(UserDTO.builder().id(5L).name("Angelina").surname("Smirnova").build())));
+        index.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.DELETED,
+                List.of(UserDTO.builder().id(2L).build())));
+
+        assertEquals(List.of(4L, 5L, 3L, 1L), ids(index.search("an", SearchMode.PREFIX, 10)));
+        assertEquals(List.of(3L), ids(index.search("petr", SearchMode.PREFIX, 10)));
+        assertTrue(index.search("anisimov", SearchMode.FUZZY, 10).isEmpty());
+    }
+
+    @DisplayName("После импорта индекс перечитывается из БД в фоне")
+    @Test
+    public void testImportReloads() throws InterruptedException {
+        index.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.IMPORTED, List.of()));
+        await(() -> !index.isReloading());
+        verify(userRepository, times(2)).streamFields(anySet(), anyInt());
+        assertEquals(List.of(2L, 3L, 1L), ids(index.search("an", SearchMode.PREFIX, 10)));
+    }
+
+    @DisplayName("Во время пересборки поиск идет по старому индексу, изменения во время чтения не теряются")
+    @Test
+    public void testSearchDuringReload() throws InterruptedException {
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userRepository.streamFields(anySet(), anyInt())).thenAnswer(invocation -> {
+            reading.countDown();
+            release.await();
+            return Stream.of(row(1L, "Anna", "Annenkova"), row(6L, "Andrey", "Sidorov"));
+        });
+
+        index.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.IMPORTED, List.of()));
+        assertTrue(reading.await(30, TimeUnit.SECONDS));
+
+        assertEquals(List.of(2L, 3L, 1L), ids(index.search("an", SearchMode.PREFIX, 10)));
+        index.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.CREATED,
+                List.of(UserDTO.builder().id(7L).name("Angelina").surname("Smirnova").build())));
+        assertEquals(List.of(7L, 2L, 3L, 1L), ids(index.search("an", SearchMode.PREFIX, 10)));
+
+        release.countDown();
+        await(() -> !index.isReloading());
+        assertEquals(List.of(6L, 7L, 1L), ids(index.search("an", SearchMode.PREFIX, 10)));
+    }
+
+    @DisplayName("На PostgreSQL индекс по умолчанию выключен и БД не читает")
+    @Test
+    public void testDisabledOnPostgres() {
+        UserRepository postgres = mock(UserRepository.class);
+        when(postgres.isPostgres()).thenReturn(true);
+        UserSearchIndex disabled = new UserSearchIndex(postgres, new UserServiceProperties());
+        disabled.afterPropertiesSet();
+
+        assertFalse(disabled.isEnabled());
+        verify(postgres, never()).streamFields(anySet(), anyInt());
+    }
+
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) fail("Индекс не пересобрался за 30 секунд");
+            Thread.sleep(10);
+        }
+    }
+
+    private static Map<String, Object> row(long id, String name, String surname) {
+        return Map.of("id", id, "name", name, "surname", surname);
+    }
+
+    private static List<Long> ids(List<UserSearchHit> hits) {
+        return hits.stream().map(UserSearchHit::id).toList();
+    }
+}
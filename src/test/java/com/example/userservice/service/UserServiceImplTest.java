@@ -1,12 +1,37 @@
 package com.example.userservice.service;
 
+import com.example.userservice.config.UserServiceProperties;
+import com.example.userservice.dto.BulkDeleteDTO;
+import com.example.userservice.dto.BulkResultDTO;
+import com.example.userservice.dto.BulkUpdateDTO;
+import com.example.userservice.dto.ImportReportDTO;
 import com.example.userservice.dto.RequestUserDTO;
+import com.example.userservice.dto.TransferDTO;
+import com.example.userservice.dto.UserAvailabilityDTO;
 import com.example.userservice.dto.UserDTO;
+import com.example.userservice.dto.UserFieldsPageDTO;
+import com.example.userservice.dto.UserFilterDTO;
+import com.example.userservice.dto.UserPageDTO;
+import com.example.userservice.dto.UserSearchHitDTO;
+import com.example.userservice.dto.UserValidationResultDTO;
+import com.example.userservice.exception.BalanceOverflowException;
+import com.example.userservice.exception.InsufficientFundsException;
 import com.example.userservice.exception.RepositoryException;
+import com.example.userservice.exception.UserNotFoundException;
 import com.example.userservice.exception.UserServiceException;
+import com.example.userservice.exception.VersionConflictException;
+import com.example.userservice.format.DataFormat;
+import com.example.userservice.format.ImportRow;
+import com.example.userservice.format.UserImportReader;
 import com.example.userservice.mapper.UserMapper;
 import com.example.userservice.model.User;
+import com.example.userservice.repository.ImportConflict;
+import com.example.userservice.repository.SearchMode;
+import com.example.userservice.repository.UserField;
+import com.example.userservice.repository.UserFilter;
 import com.example.userservice.repository.UserRepository;
+import com.example.userservice.repository.UserSearchHit;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -14,16 +39,39 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionOperations;
 
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 
 
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 
@@ -47,6 +95,33 @@ public class UserServiceImplTest {
     @Mock
     private UserMapper userMapper;
 
+    @Mock
+    private UserImportReader importReader;
+
+    @Mock
+    private UserSearchIndex searchIndex;
+
+    @Mock
+    private UserStatistics statistics;
+
+    @Mock
+    private UserExistenceFilter existenceFilter;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private UserServiceProperties properties = new UserServiceProperties();
+
+    @Spy
+    private UserCache userCache = new UserCache(new UserServiceProperties(), new SimpleMeterRegistry());
+
+    @Spy
+    private RequestCoalescer coalescer = new RequestCoalescer(new SimpleMeterRegistry());
+
+    @Spy
+    private TransactionOperations transactions = TransactionOperations.withoutTransaction();
+
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -77,7 +152,7 @@ public class UserServiceImplTest {
                 .build();
 
 
-        doNothing().when(validator).fullValidation(userDTO, Validator.Scope.CREATE);
+        doNothing().when(validator).formatValidation(userDTO, Validator.Scope.CREATE);
 
         doReturn(mappedUser).when(userMapper).toEntity(userDTO);
 
@@ -102,12 +177,131 @@ public class UserServiceImplTest {
                 new Date()
         );
 
-        doThrow(IllegalArgumentException.class).when(validator).fullValidation(userDTO, Validator.Scope.CREATE);
+        doThrow(IllegalArgumentException.class).when(validator).formatValidation(userDTO, Validator.Scope.CREATE);
 
         assertThrows(IllegalArgumentException.class, () -> userService.createUser(userDTO));
     }
 
 
+    @DisplayName("Тест создания юзера с занятым email: нарушение ограничения БД переводится в ошибку валидации")
+    @Test
+    public void testCreateUserNotUniqueEmail() {
+        UserDTO userDTO = UserDTO.builder().name("Vasya").email("vasya@petrov.com").build();
+        User mappedUser = User.builder().name("Vasya").email("vasya@petrov.com").build();
+        doReturn(mappedUser).when(userMapper).toEntity(userDTO);
+        doThrow(new DataIntegrityViolationException("could not execute statement",
+                new RuntimeException("duplicate key value violates unique constraint \"users_email_key\"")))
+                .when(userRepository).save(mappedUser);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> userService.createUser(userDTO));
+
+        assertEquals("Этот email уже используется!", e.getMessage());
+        verify(userRepository, never()).existsByEmailAndIdNot(any(), anyLong());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @DisplayName("Тест создания юзера: прочие нарушения целостности - ошибка репозитория")
+    @Test
+    public void testCreateUserOtherIntegrityViolation() {
+        UserDTO userDTO = UserDTO.builder().name("Vasya").build();
+        User mappedUser = User.builder().name("Vasya").build();
+        doReturn(mappedUser).when(userMapper).toEntity(userDTO);
+        doThrow(new DataIntegrityViolationException("null value in column \"name\""))
+                .when(userRepository).save(mappedUser);
+
+        assertThrows(RepositoryException.class, () -> userService.createUser(userDTO));
+    }
+
+    @DisplayName("Тест обновления юзера на занятый телефон")
+    @Test
+    public void testUpdateUserNotUniquePhone() {
+        UserDTO userDTO = UserDTO.builder().id(5L).phone("+79991112233").build();
+        doReturn(Optional.of(User.builder().id(5L).build())).when(userRepository).findById(5L);
+        doThrow(new DataIntegrityViolationException("Unique index or primary key violation: "
+                + "\"PUBLIC.USERS_PHONE_KEY_INDEX_4 ON PUBLIC.USERS(PHONE NULLS FIRST)\""))
+                .when(userRepository).flush();
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> userService.updateUser(userDTO));
+
+        assertEquals("Этот телефон уже используется!", e.getMessage());
+    }
+
+
+    @DisplayName("Тест импорта: пачки, дубликаты внутри пачки и конфликты из БД")
+    @Test
+    public void testImportUsers() {
+
+        properties.getImporting().setChunkSize(2);
+        InputStream in = new ByteArrayInputStream(new byte[0]);
+
+        UserDTO vasya = UserDTO.builder().id(7L).name("Vasya").phone("+79991112233").email("vasya@petrov.com").build();
+        UserDTO vasyaTwin = UserDTO.builder().name("Vasya").phone("+79991112244").email("vasya@petrov.com").build();
+        UserDTO petya = UserDTO.builder().name("Petya").phone("+79991112255").email("petya@petrov.com").build();
+        UserDTO kolya = UserDTO.builder().name("Kolya").phone("+79991112266").email("kolya@petrov.com").build();
+        UserDTO invalid = UserDTO.builder().name("K0lya").build();
+
+        doReturn(Stream.of(
+                ImportRow.parsed(1, vasya),
+                ImportRow.parsed(2, vasyaTwin),
+                ImportRow.failed(3, "Некорректный JSON"),
+                ImportRow.parsed(4, petya),
+                ImportRow.parsed(5, invalid),
+                ImportRow.parsed(6, kolya)
+        )).when(importReader).read(in, DataFormat.NDJSON);
+        doAnswer(invocation -> invocation.<List<UserDTO>>getArgument(0).stream()
+                .map(user -> user == invalid ? "Имя может содержать только буквы, дефис и пробел" : null)
+                .toList())
+                .when(validator).formatErrors(anyList(), eq(Validator.Scope.CREATE));
+        doReturn(User.builder().build()).when(userMapper).toEntity(any(UserDTO.class));
+        doAnswer(invocation -> invocation.<Map<Long, User>>getArgument(0).containsKey(4L)
+                ? List.of(new ImportConflict(4L, false, true))
+                : List.of())
+                .when(userRepository).importChunk(anyMap());
+
+        ImportReportDTO report = userService.importUsers(in, DataFormat.NDJSON);
+
+        assertEquals(6, report.getTotal());
+        assertEquals(2, report.getImported());
+        assertEquals(4, report.getRejected());
+        assertEquals(List.of(2L, 3L, 4L, 5L), report.getErrors().stream().map(e -> e.getLine()).toList());
+        assertEquals("Этот email уже используется!", report.getErrors().get(0).getMessage());
+        assertEquals("Этот телефон уже используется!", report.getErrors().get(2).getMessage());
+        assertEquals(0L, vasya.getId());
+        verify(userRepository, times(2)).importChunk(anyMap());
+        verify(transactions, times(2)).execute(any());
+    }
+
+    @DisplayName("Тест импорта исключение репо")
+    @Test
+    public void testImportUsersRepoException() {
+        InputStream in = new ByteArrayInputStream(new byte[0]);
+        UserDTO vasya = UserDTO.builder().name("Vasya").phone("+79991112233").email("vasya@petrov.com").build();
+
+        doReturn(Stream.of(ImportRow.parsed(1, vasya))).when(importReader).read(in, DataFormat.CSV);
+        doReturn(Collections.singletonList(null)).when(validator).formatErrors(anyList(), eq(Validator.Scope.CREATE));
+        doThrow(RuntimeException.class).when(userRepository).importChunk(anyMap());
+
+        assertThrows(RepositoryException.class, () -> userService.importUsers(in, DataFormat.CSV));
+    }
+
+    @DisplayName("Тест импорта: ошибка пачки не отменяет уже закоммиченные, о них публикуется событие")
+    @Test
+    public void testImportUsersCommitsPerChunk() {
+        properties.getImporting().setChunkSize(1);
+        InputStream in = new ByteArrayInputStream(new byte[0]);
+        UserDTO vasya = UserDTO.builder().name("Vasya").phone("+79991112233").email("vasya@petrov.com").build();
+        UserDTO petya = UserDTO.builder().name("Petya").phone("+79991112255").email("petya@petrov.com").build();
+
+        doReturn(Stream.of(ImportRow.parsed(1, vasya), ImportRow.parsed(2, petya))).when(importReader).read(in, DataFormat.CSV);
+        doReturn(Collections.singletonList(null)).when(validator).formatErrors(anyList(), eq(Validator.Scope.CREATE));
+        doReturn(User.builder().build()).when(userMapper).toEntity(any(UserDTO.class));
+        doReturn(List.of()).doThrow(RuntimeException.class).when(userRepository).importChunk(anyMap());
+
+        assertThrows(RepositoryException.class, () -> userService.importUsers(in, DataFormat.CSV));
+        verify(transactions, times(2)).execute(any());
+        verify(eventPublisher).publishEvent(new UserChangedEvent(UserChangedEvent.Type.IMPORTED, List.of()));
+    }
+
     @DisplayName("Тест получения юзера при валидном ID")
     @ParameterizedTest
     @ValueSource(ints = {1, 100, 2500})
@@ -118,6 +312,46 @@ public class UserServiceImplTest {
         verify(userRepository).findById(userDTO.getId());
     }
 
+    @DisplayName("Тест повторного получения юзера из кеша")
+    @Test
+    public void testGetUserByIdCached() {
+        RequestUserDTO userDTO = new RequestUserDTO(3L);
+        User user = new User();
+        doReturn(Optional.of(user)).when(userRepository).findById(3L);
+        doReturn(UserDTO.builder().id(3L).name("Vasya").version(2L).build()).when(userMapper).toDto(user);
+
+        assertEquals("Vasya", userService.getUserById(userDTO).orElseThrow().getName());
+        userService.getUserById(userDTO).orElseThrow().setName("Petya");
+        assertEquals("Vasya", userService.getUserById(userDTO).orElseThrow().getName());
+        assertEquals(Optional.of(2L), userService.getUserVersion(userDTO));
+
+        verify(userRepository, times(1)).findById(3L);
+        verify(userRepository, never()).findVersionById(anyLong());
+    }
+
+    @DisplayName("Тест всплеска одновременных чтений одного юзера - один запрос в БД")
+    @Test
+    public void testGetUserByIdBurst() throws Exception {
+        RequestUserDTO userDTO = new RequestUserDTO(8L);
+        User user = new User();
+        doAnswer(inv -> {
+            Thread.sleep(100);
+            return Optional.of(user);
+        }).when(userRepository).findById(8L);
+        doAnswer(inv -> UserDTO.builder().id(8L).name("Vasya").build()).when(userMapper).toDto(user);
+
+        ExecutorService executor = Executors.newFixedThreadPool(50);
+        try {
+            List<Future<Optional<UserDTO>>> futures = new ArrayList<>();
+            for (int i = 0; i < 50; i++) futures.add(executor.submit(() -> userService.getUserById(userDTO)));
+            for (Future<Optional<UserDTO>> future : futures)
+                assertEquals("Vasya", future.get(30, TimeUnit.SECONDS).orElseThrow().getName());
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(userRepository, times(1)).findById(8L);
+    }
+
     @DisplayName("Тест получения юзера при невалидном ID")
     @ParameterizedTest
     @ValueSource(ints = {0, -1, -100, -12345})
@@ -135,6 +369,200 @@ public class UserServiceImplTest {
         verify(userRepository).findAll();
     }
 
+    @DisplayName("Тест первой страницы: размер по умолчанию, запрашивается на одну строку больше")
+    @Test
+    public void testGetFirstPageDefaultSize() {
+        doReturn(List.of()).when(userRepository).findByIdGreaterThanOrderByIdAsc(0L, Limit.of(51));
+
+        UserPageDTO page = userService.getUserPage(null, null);
+
+        assertTrue(page.getUsers().isEmpty());
+        assertNull(page.getNextCursor());
+    }
+
+    @DisplayName("Тест страницы с курсором следующей страницы")
+    @Test
+    public void testGetPageWithNextCursor() {
+        User user1 = User.builder().id(11L).name("Vasya").build();
+        User user2 = User.builder().id(12L).name("Petya").build();
+        User user3 = User.builder().id(13L).name("Kolya").build();
+
+        doReturn(List.of(user1, user2, user3)).when(userRepository)
+                .findByIdGreaterThanOrderByIdAsc(10L, Limit.of(3));
+        doReturn(UserDTO.builder().id(11L).build()).when(userMapper).toDto(user1);
+        doReturn(UserDTO.builder().id(12L).build()).when(userMapper).toDto(user2);
+
+        UserPageDTO page = userService.getUserPage(PageCursor.encode(10L), 2);
+
+        assertEquals(2, page.getUsers().size());
+        assertEquals(12L, PageCursor.decode(page.getNextCursor()));
+        verify(userMapper, never()).toDto(user3);
+    }
+
+    @DisplayName("Тест страницы по фильтру: условия и курсор передаются в репозиторий")
+    @Test
+    public void testFilterUsersPage() {
+        UserFilterDTO filterDto = UserFilterDTO.builder().minAge(18).maxAge(25).minMoney(1000L).build();
+        UserFilter filter = new UserFilter(18, 25, null, null, 1000L, null);
+        User user1 = User.builder().id(11L).build();
+        User user2 = User.builder().id(12L).build();
+
+        doReturn(filter).when(userMapper).toFilter(filterDto);
+        doReturn(List.of(user1, user2)).when(userRepository).findPageByFilter(filter, 10L, 2);
+        doReturn(UserDTO.builder().id(11L).build()).when(userMapper).toDto(user1);
+
+        UserPageDTO page = userService.filterUsers(filterDto, PageCursor.encode(10L), 1);
+
+        assertEquals(1, page.getUsers().size());
+        assertEquals(11L, PageCursor.decode(page.getNextCursor()));
+    }
+
+    @DisplayName("Тест фильтра с перевернутыми границами")
+    @Test
+    public void testFilterUsersInvalidRange() {
+        UserFilterDTO filterDto = UserFilterDTO.builder().minAge(30).maxAge(20).build();
+        doReturn(new UserFilter(30, 20, null, null, null, null)).when(userMapper).toFilter(filterDto);
+
+        assertThrows(IllegalArgumentException.class, () -> userService.filterUsers(filterDto, null, null));
+        verifyNoInteractions(userRepository);
+    }
+
+    @DisplayName("Тест страницы с выбранными полями без сущностей")
+    @Test
+    public void testGetPageWithFields() {
+        Set<UserField> fields = EnumSet.of(UserField.ID, UserField.EMAIL);
+        Map<String, Object> row1 = Map.of("id", 11L, "email", "vasya@petrov.com");
+        Map<String, Object> row2 = Map.of("id", 12L, "email", "petya@petrov.com");
+        Map<String, Object> row3 = Map.of("id", 13L, "email", "kolya@petrov.com");
+
+        doReturn(List.of(row1, row2, row3)).when(userRepository).findFieldsPage(fields, 10L, 3);
+
+        UserFieldsPageDTO page = userService.getUserPage(PageCursor.encode(10L), 2, fields);
+
+        assertEquals(List.of(row1, row2), page.getUsers());
+        assertEquals(12L, PageCursor.decode(page.getNextCursor()));
+        verifyNoInteractions(userMapper);
+    }
+
+    @DisplayName("Тест жесткого ограничения размера страницы")
+    @Test
+    public void testPageSizeIsCapped() {
+        userService.getUserPage(null, 1_000_000);
+        verify(userRepository).findByIdGreaterThanOrderByIdAsc(0L, Limit.of(1001));
+    }
+
+    @DisplayName("Тест страницы при невалидных курсоре и размере")
+    @ParameterizedTest
+    @ValueSource(strings = {"abc", "!!!", "dTotMQ"})
+    public void testInvalidPageRequest(String cursor) {
+        assertThrows(IllegalArgumentException.class, () -> userService.getUserPage(cursor, 10));
+        assertThrows(IllegalArgumentException.class, () -> userService.getUserPage(null, 0));
+        verifyNoInteractions(userRepository);
+    }
+
+    @DisplayName("Тест страницы исключение репо")
+    @Test
+    public void testGetPageRepoException() {
+        doThrow(RuntimeException.class).when(userRepository).findByIdGreaterThanOrderByIdAsc(anyLong(), any(Limit.class));
+        assertThrows(RepositoryException.class, () -> userService.getUserPage(null, 10));
+    }
+
+    @DisplayName("Тест потокового получения всех юзеров")
+    @Test
+    public void testStreamAllUsers() {
+        User user = User.builder().id(1L).name("Vasya").build();
+        UserDTO dto = UserDTO.builder().id(1L).name("Vasya").build();
+
+        doReturn(Stream.of(user)).when(userRepository).streamAll(1000);
+        doReturn(dto).when(userMapper).toDto(user);
+
+        try (Stream<UserDTO> users = userService.streamAllUsers()) {
+            assertEquals(List.of(dto), users.toList());
+        }
+    }
+
+    @DisplayName("Тест потокового получения исключение репо")
+    @Test
+    public void testStreamAllUsersRepoException() {
+        doThrow(RuntimeException.class).when(userRepository).streamAll(anyInt());
+        assertThrows(RepositoryException.class, () -> userService.streamAllUsers());
+    }
+
+    @DisplayName("Тест массового удаления по ID пачками")
+    @Test
+    public void testDeleteUsersByIdsInChunks() {
+        properties.getBulk().setChunkSize(2);
+        User user = User.builder().id(1L).build();
+        doAnswer(inv -> List.<Long>copyOf(inv.getArgument(0)).stream().map(id -> user).toList())
+                .when(userRepository).deleteAllByIdReturning(anyList());
+        doReturn(UserDTO.builder().id(1L).build()).when(userMapper).toDto(user);
+        List<List<UserDTO>> chunks = new ArrayList<>();
+
+        BulkResultDTO result = userService.deleteUsers(
+                BulkDeleteDTO.builder().ids(List.of(1L, 2L, 3L, 2L)).build(), chunks::add);
+
+        assertEquals(3L, result.getAffected());
+        assertEquals(2, result.getChunks());
+        assertEquals(2, chunks.size());
+        verify(userRepository).deleteAllByIdReturning(List.of(1L, 2L));
+        verify(userRepository).deleteAllByIdReturning(List.of(3L));
+    }
+
+    @DisplayName("Тест массового удаления по фильтру keyset-выборкой")
+    @Test
+    public void testDeleteUsersByFilter() {
+        properties.getBulk().setChunkSize(2);
+        UserFilterDTO filterDTO = UserFilterDTO.builder().minAge(18).build();
+        UserFilter filter = new UserFilter(18, null, null, null, null, null);
+        doReturn(filter).when(userMapper).toFilter(filterDTO);
+        doReturn(List.of(5L, 7L)).when(userRepository).findIdsByFilter(filter, 0L, 2);
+        doReturn(List.of(9L)).when(userRepository).findIdsByFilter(filter, 7L, 2);
+        doReturn(List.of()).when(userRepository).deleteAllByIdReturning(anyList());
+
+        BulkResultDTO result = userService.deleteUsers(BulkDeleteDTO.builder().filter(filterDTO).build());
+
+        assertEquals(0L, result.getAffected());
+        assertEquals(2, result.getChunks());
+        verify(userRepository).deleteAllByIdReturning(List.of(5L, 7L));
+        verify(userRepository).deleteAllByIdReturning(List.of(9L));
+    }
+
+    @DisplayName("Тест массового удаления без ID и фильтра или с обоими сразу")
+    @Test
+    public void testDeleteUsersInvalidTarget() {
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.deleteUsers(new BulkDeleteDTO()));
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.deleteUsers(BulkDeleteDTO.builder()
+                        .ids(List.of(1L)).filter(new UserFilterDTO()).build()));
+        verifyNoInteractions(userRepository);
+    }
+
+    @DisplayName("Тест массового обновления")
+    @Test
+    public void testUpdateUsers() {
+        User user = User.builder().id(4L).surname("Sidorov").build();
+        doReturn(List.of(user)).when(userRepository).updateAllByIdReturning(List.of(4L), null, "Sidorov", null);
+        doReturn(UserDTO.builder().id(4L).build()).when(userMapper).toDto(user);
+
+        BulkResultDTO result = userService.updateUsers(BulkUpdateDTO.builder()
+                .ids(List.of(4L)).surname("Sidorov").build());
+
+        assertEquals(1L, result.getAffected());
+        verify(validator).validStringCreate(eq("Sidorov"), any());
+    }
+
+    @DisplayName("Тест массового обновления без полей и исключение репо")
+    @Test
+    public void testUpdateUsersInvalid() {
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.updateUsers(BulkUpdateDTO.builder().ids(List.of(4L)).build()));
+
+        doThrow(RuntimeException.class).when(userRepository).updateAllByIdReturning(anyList(), any(), any(), any());
+        assertThrows(RepositoryException.class,
+                () -> userService.updateUsers(BulkUpdateDTO.builder().ids(List.of(4L)).age(30).build()));
+    }
+
     @DisplayName("Тест обновления пользователя при валидном ID")
     @ParameterizedTest
     @ValueSource(ints = {1, 25, 265, 165356})
@@ -152,20 +580,192 @@ public class UserServiceImplTest {
 
         User userEntity = User.builder()
                 .id(id)
-                .name("Vasya")
-                .surname("Petrov")
-                .age(32)
-                .phone("+79991112233")
-                .email("vasya@petrov.com")
-                .money(386L)
+                .name("Petr")
+                .surname("Ivanov")
+                .age(76)
+                .phone("+72222222222")
+                .email("petr@ivanov.com")
+                .money(320L)
                 .build();
 
 
-        doNothing().when(validator).fullValidation(userDTO, Validator.Scope.UPDATE);
-        when(userMapper.toEntity(userDTO)).thenReturn(userEntity);
+        doNothing().when(validator).formatValidation(userDTO, Validator.Scope.UPDATE);
+        doReturn(Optional.of(userEntity)).when(userRepository).findById((long) id);
         userService.updateUser(userDTO);
-        verify(userRepository).save(userEntity);
+        assertEquals("Vasya", userEntity.getName());
+        assertEquals("vasya@petrov.com", userEntity.getEmail());
+        assertEquals(386L, userEntity.getMoney());
         verify(userRepository).flush();
+        verify(userRepository, never()).save(any());
+    }
+
+    @DisplayName("Тест условного обновления: версия совпала")
+    @Test
+    public void testUpdateUserMatchingVersion() {
+        UserDTO userDTO = UserDTO.builder().id(5L).name("Vasya").build();
+        User userEntity = User.builder().id(5L).name("Petr").version(3L).build();
+        UserDTO updated = UserDTO.builder().id(5L).name("Vasya").version(4L).build();
+
+        doReturn(Optional.of(userEntity)).when(userRepository).findById(5L);
+        doReturn(updated).when(userMapper).toDto(userEntity);
+
+        assertEquals(updated, userService.updateUser(userDTO, 3L));
+        assertEquals("Vasya", userEntity.getName());
+    }
+
+    @DisplayName("Тест условного обновления: версия устарела")
+    @Test
+    public void testUpdateUserStaleVersion() {
+        UserDTO userDTO = UserDTO.builder().id(5L).name("Vasya").build();
+        User userEntity = User.builder().id(5L).name("Petr").version(4L).build();
+
+        doReturn(Optional.of(userEntity)).when(userRepository).findById(5L);
+
+        assertThrows(VersionConflictException.class, () -> userService.updateUser(userDTO, 3L));
+        assertEquals("Petr", userEntity.getName());
+        verify(userRepository, never()).flush();
+    }
+
+    @DisplayName("Тест частичного обновления: одна команда без чтения сущности")
+    @Test
+    public void testPatchUser() {
+        Map<String, Object> patch = Map.of("name", "Vasya");
+        Map<UserField, Object> values = Map.of(UserField.NAME, "Vasya");
+        User userEntity = User.builder().id(5L).name("Vasya").version(4L).build();
+        UserDTO updated = UserDTO.builder().id(5L).name("Vasya").version(4L).build();
+
+        doReturn(values).when(validator).patchValidation(patch);
+        doReturn(Optional.of(userEntity)).when(userRepository).patchReturning(5L, values, 3L);
+        doReturn(updated).when(userMapper).toDto(userEntity);
+
+        assertEquals(updated, userService.patchUser(5L, patch, 3L));
+        verify(userRepository, never()).findById(anyLong());
+        verify(userRepository, never()).existsById(anyLong());
+        verify(eventPublisher).publishEvent(any(UserChangedEvent.class));
+    }
+
+    @DisplayName("Тест частичного обновления: версия устарела")
+    @Test
+    public void testPatchUserStaleVersion() {
+        Map<String, Object> patch = Map.of("name", "Vasya");
+        doReturn(Map.of(UserField.NAME, "Vasya")).when(validator).patchValidation(patch);
+        doReturn(Optional.empty()).when(userRepository).patchReturning(eq(5L), anyMap(), eq(3L));
+        doReturn(true).when(userRepository).existsById(5L);
+
+        assertThrows(VersionConflictException.class, () -> userService.patchUser(5L, patch, 3L));
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @DisplayName("Тест частичного обновления несуществующего пользователя")
+    @Test
+    public void testPatchUserNotFound() {
+        Map<String, Object> patch = Map.of("name", "Vasya");
+        doReturn(Map.of(UserField.NAME, "Vasya")).when(validator).patchValidation(patch);
+        doReturn(Optional.empty()).when(userRepository).patchReturning(eq(5L), anyMap(), isNull());
+
+        assertThrows(UserNotFoundException.class, () -> userService.patchUser(5L, patch, null));
+        verify(userRepository, never()).existsById(anyLong());
+    }
+
+    @DisplayName("Тест зачисления и списания одной командой, в событии - состояние до изменения")
+    @Test
+    public void testCreditAndDebitMoney() {
+        User credited = User.builder().id(5L).money(1500L).version(4L).build();
+        UserDTO creditedDto = UserDTO.builder().id(5L).money(1500L).version(4L).build();
+        doReturn(Optional.of(credited)).when(userRepository).addMoneyReturning(5L, 500L);
+        doReturn(creditedDto).when(userMapper).toDto(credited);
+
+        assertEquals(creditedDto, userService.creditMoney(5L, 500L));
+
+        verify(userRepository, never()).findById(anyLong());
+        verify(eventPublisher).publishEvent(new UserChangedEvent(UserChangedEvent.Type.UPDATED, List.of(creditedDto),
+                List.of(UserDTO.builder().id(5L).money(1000L).version(3L).build())));
+
+        doReturn(Optional.of(credited)).when(userRepository).addMoneyReturning(5L, -500L);
+        userService.debitMoney(5L, 500L);
+        verify(userRepository).addMoneyReturning(5L, -500L);
+    }
+
+    @DisplayName("Тест списания и зачисления: денег не хватает, переполнение, пользователя нет, сумма не больше 0")
+    @Test
+    public void testDebitMoneyRejected() {
+        doReturn(Optional.empty()).when(userRepository).addMoneyReturning(anyLong(), anyLong());
+        doReturn(true).when(userRepository).existsById(5L);
+
+        assertThrows(InsufficientFundsException.class, () -> userService.debitMoney(5L, 500L));
+        assertThrows(UserNotFoundException.class, () -> userService.debitMoney(6L, 500L));
+        assertThrows(BalanceOverflowException.class, () -> userService.creditMoney(5L, Long.MAX_VALUE));
+        assertThrows(UserNotFoundException.class, () -> userService.creditMoney(6L, 500L));
+        assertThrows(IllegalArgumentException.class, () -> userService.creditMoney(5L, 0L));
+        assertThrows(IllegalArgumentException.class, () -> userService.debitMoney(5L, -1L));
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @DisplayName("Тест перевода: блокировка, одна команда на обе строки, событие на обоих")
+    @Test
+    public void testTransferMoney() {
+        User from = User.builder().id(7L).money(600L).version(1L).build();
+        User to = User.builder().id(2L).money(500L).version(1L).build();
+        UserDTO fromDto = UserDTO.builder().id(7L).money(600L).version(1L).build();
+        UserDTO toDto = UserDTO.builder().id(2L).money(500L).version(1L).build();
+        doReturn(Map.of(2L, 100L, 7L, 1000L)).when(userRepository).lockMoneyForUpdate(List.of(7L, 2L));
+        doReturn(List.of(to, from)).when(userRepository).transferMoneyReturning(7L, 2L, 400L);
+        doReturn(fromDto).when(userMapper).toDto(from);
+        doReturn(toDto).when(userMapper).toDto(to);
+
+        assertEquals(List.of(fromDto, toDto), userService.transferMoney(new TransferDTO(7L, 2L, 400L)));
+
+        verify(eventPublisher).publishEvent(new UserChangedEvent(UserChangedEvent.Type.UPDATED, List.of(fromDto, toDto),
+                List.of(UserDTO.builder().id(7L).money(1000L).version(0L).build(),
+                        UserDTO.builder().id(2L).money(100L).version(0L).build())));
+    }
+
+    @DisplayName("Тест перевода: самому себе, нет получателя, не хватает денег, переполнение у получателя")
+    @Test
+    public void testTransferMoneyRejected() {
+        assertThrows(IllegalArgumentException.class, () -> userService.transferMoney(new TransferDTO(7L, 7L, 400L)));
+        assertThrows(IllegalArgumentException.class, () -> userService.transferMoney(new TransferDTO(7L, 2L, 0L)));
+        assertThrows(IllegalArgumentException.class, () -> userService.transferMoney(new TransferDTO(7L, null, 1L)));
+
+        doReturn(Map.of(7L, 1000L)).when(userRepository).lockMoneyForUpdate(List.of(7L, 2L));
+        assertThrows(UserNotFoundException.class, () -> userService.transferMoney(new TransferDTO(7L, 2L, 400L)));
+
+        doReturn(Map.of(2L, 100L, 7L, 300L)).when(userRepository).lockMoneyForUpdate(List.of(7L, 2L));
+        assertThrows(InsufficientFundsException.class, () -> userService.transferMoney(new TransferDTO(7L, 2L, 400L)));
+
+        doReturn(Map.of(2L, Long.MAX_VALUE - 100, 7L, 300L)).when(userRepository).lockMoneyForUpdate(List.of(7L, 2L));
+        assertThrows(BalanceOverflowException.class, () -> userService.transferMoney(new TransferDTO(7L, 2L, 101L)));
+
+        verify(userRepository, never()).transferMoneyReturning(anyLong(), anyLong(), anyLong());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @DisplayName("Тест условного обновления: гонка при сбросе в БД")
+    @Test
+    public void testUpdateUserOptimisticLockFailure() {
+        UserDTO userDTO = UserDTO.builder().id(5L).name("Vasya").build();
+
+        doReturn(Optional.of(User.builder().id(5L).build())).when(userRepository).findById(5L);
+        doThrow(new ObjectOptimisticLockingFailureException(User.class, 5L)).when(userRepository).flush();
+
+        assertThrows(VersionConflictException.class, () -> userService.updateUser(userDTO, null));
+    }
+
+    @DisplayName("Тест обновления несуществующего пользователя")
+    @Test
+    public void testUpdateUserNotFound() {
+        UserDTO userDTO = UserDTO.builder().id(5L).name("Vasya").build();
+        doReturn(Optional.empty()).when(userRepository).findById(5L);
+        assertThrows(UserNotFoundException.class, () -> userService.updateUser(userDTO));
+    }
+
+    @DisplayName("Тест получения версии пользователя")
+    @Test
+    public void testGetUserVersion() {
+        RequestUserDTO userDTO = new RequestUserDTO(5L);
+        doReturn(Optional.of(7L)).when(userRepository).findVersionById(5L);
+        assertEquals(Optional.of(7L), userService.getUserVersion(userDTO));
+        verify(userRepository, never()).findById(anyLong());
     }
 
     @DisplayName("Тест обновления пользователя при невалидном ID")
@@ -182,7 +782,7 @@ public class UserServiceImplTest {
                 386L,
                 new Date()
         );
-        doThrow(IllegalArgumentException.class).when(validator).fullValidation(userDTO, Validator.Scope.UPDATE);
+        doThrow(IllegalArgumentException.class).when(validator).formatValidation(userDTO, Validator.Scope.UPDATE);
         assertThrows(IllegalArgumentException.class, () -> userService.updateUser(userDTO));
     }
 
@@ -193,8 +793,8 @@ public class UserServiceImplTest {
         RequestUserDTO userDTO = new RequestUserDTO(id);
         doReturn(userDTO.getId()).when(validator).id(userDTO.getId());
         userService.deleteUser(userDTO);
-        verify(userRepository).deleteById(userDTO.getId());
-        verify(userRepository).flush();
+        verify(userRepository).deleteByIdReturning(userDTO.getId());
+        verify(userRepository, never()).findById(anyLong());
     }
 
     @DisplayName("Тест удаления пользователя при невалидном ID")
@@ -232,7 +832,7 @@ public class UserServiceImplTest {
                 .build();
 
 
-        doNothing().when(validator).fullValidation(userDTO, Validator.Scope.CREATE);
+        doNothing().when(validator).formatValidation(userDTO, Validator.Scope.CREATE);
 
         doReturn(mappedUser).when(userMapper).toEntity(userDTO);
 
@@ -273,20 +873,9 @@ public class UserServiceImplTest {
                 new Date()
         );
 
-        User mappedUser = User.builder()
-                .id(0L)
-                .name("Vasya")
-                .surname("Petrov")
-                .age(32)
-                .phone("+79991112233")
-                .email("vasya@petrov.com")
-                .money(386L)
-                .build();
+        doNothing().when(validator).formatValidation(userDTO, Validator.Scope.UPDATE);
 
-        doNothing().when(validator).fullValidation(userDTO, Validator.Scope.UPDATE);
-        doReturn(mappedUser).when(userMapper).toEntity(userDTO);
-
-        doThrow(RuntimeException.class).when(userRepository).save(mappedUser);
+        doThrow(RuntimeException.class).when(userRepository).findById(userDTO.getId());
         assertThrows(RepositoryException.class, () -> userService.updateUser(userDTO));
     }
 
@@ -295,8 +884,165 @@ public class UserServiceImplTest {
     public void testDeleteUserRepoException() {
         RequestUserDTO userDTO = new RequestUserDTO(1);
         doReturn(userDTO.getId()).when(validator).id(userDTO.getId());
-        doThrow(RuntimeException.class).when(userRepository).deleteById(userDTO.getId());
+        doThrow(RuntimeException.class).when(userRepository).deleteByIdReturning(userDTO.getId());
         assertThrows(RepositoryException.class, () -> userService.deleteUser(userDTO));
     }
 
-}
\ No newline at end of file
+    @DisplayName("Тест поиска через индекс в памяти: запрос приводится к нижнему регистру, БД не трогается")
+    @Test
+    public void testSearchUsersInMemory() {
+        UserSearchHit hit = new UserSearchHit(1L, "Anna", "Ivanova", 0.5);
+        UserSearchHitDTO dto = new UserSearchHitDTO(1L, "Anna", "Ivanova", 0.5);
+        when(searchIndex.isEnabled()).thenReturn(true);
+        when(searchIndex.search("an", SearchMode.PREFIX, 20)).thenReturn(List.of(hit));
+        when(userMapper.toDto(hit)).thenReturn(dto);
+
+        assertEquals(List.of(dto), userService.searchUsers("  An ", null, null));
+        verifyNoInteractions(userRepository);
+    }
+
+    @DisplayName("Тест поиска через БД: limit ограничен сверху, порог похожести берется из настроек")
+    @Test
+    public void testSearchUsersRepositoryLimitCapped() {
+        properties.getSearch().setFuzzyThreshold(0.4);
+        when(searchIndex.isEnabled()).thenReturn(false);
+        when(userRepository.searchByName("ivanof", SearchMode.FUZZY, 100, 0.4)).thenReturn(List.of());
+
+        assertTrue(userService.searchUsers("Ivanof", "fuzzy", 100_000).isEmpty());
+    }
+
+    @DisplayName("Тест поиска с неправильными параметрами")
+    @Test
+    public void testSearchUsersInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> userService.searchUsers(" ", null, null));
+        assertThrows(IllegalArgumentException.class, () -> userService.searchUsers("an", "exact", null));
+        assertThrows(IllegalArgumentException.class, () -> userService.searchUsers("an", null, 0));
+    }
+
+    @DisplayName("Тест поиска исключение репо")
+    @Test
+    public void testSearchUsersRepoException() {
+        when(searchIndex.isEnabled()).thenReturn(false);
+        when(userRepository.searchByName("an", SearchMode.PREFIX, 20, 0.6)).thenThrow(RuntimeException.class);
+        assertThrows(RepositoryException.class, () -> userService.searchUsers("an", null, null));
+    }
+
+    @DisplayName("Тест событий об изменении: удаление публикует удаленного пользователя")
+    @Test
+    public void testDeleteUserPublishesEvent() {
+        RequestUserDTO userDTO = new RequestUserDTO(7);
+        User user = User.builder().id(7L).age(30).money(100L).build();
+        UserDTO deleted = UserDTO.builder().id(7L).age(30).money(100L).build();
+        doReturn(userDTO.getId()).when(validator).id(userDTO.getId());
+        doReturn(Optional.of(user)).when(userRepository).deleteByIdReturning(7L);
+        doReturn(deleted).when(userMapper).toDto(user);
+
+        assertEquals(Optional.of(deleted), userService.deleteUser(userDTO));
+
+        verify(eventPublisher).publishEvent(new UserChangedEvent(UserChangedEvent.Type.DELETED, List.of(deleted)));
+    }
+
+    @DisplayName("Тест событий об изменении: удаление несуществующего ничего не публикует")
+    @Test
+    public void testDeleteMissingUserPublishesNothing() {
+        RequestUserDTO userDTO = new RequestUserDTO(7);
+        doReturn(userDTO.getId()).when(validator).id(userDTO.getId());
+
+        assertEquals(Optional.empty(), userService.deleteUser(userDTO));
+
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @DisplayName("Тест проверки свободных email и телефона: БД спрашивается через фильтр")
+    @Test
+    public void testCheckAvailability() {
+        when(existenceFilter.exists(eq(UserExistenceFilter.Field.EMAIL), eq("new@mail.ru"), any())).thenReturn(false);
+        when(existenceFilter.exists(eq(UserExistenceFilter.Field.PHONE), eq("+79001112233"), any()))
+                .thenAnswer(invocation -> invocation.getArgument(2, BooleanSupplier.class).getAsBoolean());
+        when(userRepository.existsByPhoneAndIdNot("+79001112233", 0L)).thenReturn(true);
+
+        assertEquals(new UserAvailabilityDTO(true, false), userService.checkAvailability("new@mail.ru", "+79001112233"));
+        assertEquals(new UserAvailabilityDTO(true, null), userService.checkAvailability("new@mail.ru", null));
+        verify(userRepository, never()).existsByEmailAndIdNot(anyString(), anyLong());
+    }
+
+    @DisplayName("Тест проверки свободных email и телефона без параметров и с ошибкой репо")
+    @Test
+    public void testCheckAvailabilityInvalid() {
+        when(existenceFilter.exists(eq(UserExistenceFilter.Field.EMAIL), eq("old@mail.ru"), any()))
+                .thenAnswer(invocation -> invocation.getArgument(2, BooleanSupplier.class).getAsBoolean());
+        when(userRepository.existsByEmailAndIdNot("old@mail.ru", 0L)).thenThrow(RuntimeException.class);
+
+        assertThrows(IllegalArgumentException.class, () -> userService.checkAvailability(null, null));
+        assertThrows(RepositoryException.class, () -> userService.checkAvailability("old@mail.ru", null));
+    }
+
+    @DisplayName("Тест пакетной проверки: формат, дубликаты в пачке и занятые в БД двумя запросами на пачку")
+    @Test
+    public void testValidateUsers() {
+        properties.getValidation().setChunkSize(2);
+        UserDTO vasya = UserDTO.builder().name("Vasya").phone("+79991112233").email("vasya@petrov.com").build();
+        UserDTO vasyaTwin = UserDTO.builder().name("Vasya").phone("+79991112244").email("vasya@petrov.com").build();
+        UserDTO invalid = UserDTO.builder().name("K0lya").build();
+        UserDTO petya = UserDTO.builder().name("Petya").phone("+79991112255").email("petya@petrov.com").build();
+        UserDTO kolya = UserDTO.builder().name("Kolya").phone("+79991112266").email("kolya@petrov.com").build();
+        List<UserDTO> users = List.of(vasya, vasyaTwin, invalid, petya, kolya);
+
+        doReturn(Arrays.asList(null, null, "Имя может содержать только буквы, дефис и пробел", null, null))
+                .when(validator).formatErrors(users, Validator.Scope.CREATE);
+        passThroughExistenceFilter();
+        when(userRepository.findExistingEmails(List.of("vasya@petrov.com", "petya@petrov.com"))).thenReturn(Set.of());
+        when(userRepository.findExistingPhones(List.of("+79991112233", "+79991112255"))).thenReturn(Set.of("+79991112255"));
+        when(userRepository.findExistingEmails(List.of("kolya@petrov.com"))).thenReturn(Set.of("kolya@petrov.com"));
+        when(userRepository.findExistingPhones(List.of("+79991112266"))).thenReturn(Set.of());
+
+        List<UserValidationResultDTO> results = userService.validateUsers(users);
+
+        assertEquals(List.of(true, false, false, false, false), results.stream().map(UserValidationResultDTO::isValid).toList());
+        assertEquals(List.of(0, 1, 2, 3, 4), results.stream().map(UserValidationResultDTO::getIndex).toList());
+        assertEquals("Этот email уже используется!", results.get(1).getMessage());
+        assertEquals("Имя может содержать только буквы, дефис и пробел", results.get(2).getMessage());
+        assertEquals("Этот телефон уже используется!", results.get(3).getMessage());
+        assertEquals("Этот email уже используется!", results.get(4).getMessage());
+        verify(userRepository, times(2)).findExistingEmails(anyCollection());
+        verify(userRepository, times(2)).findExistingPhones(anyCollection());
+    }
+
+    @DisplayName("Тест пакетной проверки с неправильной пачкой и исключением репо")
+    @Test
+    public void testValidateUsersInvalid() {
+        properties.getValidation().setMaxBatchSize(1);
+        UserDTO vasya = UserDTO.builder().name("Vasya").phone("+79991112233").email("vasya@petrov.com").build();
+        doReturn(Collections.singletonList(null)).when(validator).formatErrors(List.of(vasya), Validator.Scope.CREATE);
+        passThroughExistenceFilter();
+        when(userRepository.findExistingEmails(anyCollection())).thenThrow(RuntimeException.class);
+
+        assertThrows(IllegalArgumentException.class, () -> userService.validateUsers(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> userService.validateUsers(List.of(vasya, vasya)));
+        assertThrows(RepositoryException.class, () -> userService.validateUsers(List.of(vasya)));
+    }
+
+    @DisplayName("Тест пакетной проверки: значения, которых точно нет по фильтру, в БД не уходят")
+    @Test
+    public void testValidateUsersSkipsAbsent() {
+        UserDTO vasya = UserDTO.builder().name("Vasya").phone("+79991112233").email("vasya@petrov.com").build();
+        doReturn(Collections.singletonList(null)).when(validator).formatErrors(List.of(vasya), Validator.Scope.CREATE);
+        when(existenceFilter.existing(any(), anyCollection(), any())).thenReturn(Set.of());
+
+        assertTrue(userService.validateUsers(List.of(vasya)).get(0).isValid());
+        verify(existenceFilter).existing(eq(UserExistenceFilter.Field.EMAIL), eq(List.of("vasya@petrov.com")), any());
+        verify(existenceFilter).existing(eq(UserExistenceFilter.Field.PHONE), eq(List.of("+79991112233")), any());
+        verify(userRepository, never()).findExistingEmails(anyCollection());
+        verify(userRepository, never()).findExistingPhones(anyCollection());
+    }
+
+
+    /**
+     * Фильтр существования - мок, пакетная проверка через него сразу уходит в БД
+     */
+    @SuppressWarnings("unchecked")
+    private void passThroughExistenceFilter() {
+        when(existenceFilter.existing(any(), anyCollection(), any())).thenAnswer(invocation ->
+                invocation.getArgument(2, Function.class).apply(invocation.getArgument(1)));
+    }
+}
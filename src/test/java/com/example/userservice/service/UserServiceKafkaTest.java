@@ -1,8 +1,13 @@
 package com.example.userservice.service;
 
+import com.example.userservice.dto.BulkDeleteDTO;
+import com.example.userservice.dto.BulkResultDTO;
+import com.example.userservice.dto.ImportReportDTO;
 import com.example.userservice.dto.RequestUserDTO;
+import com.example.userservice.dto.TransferDTO;
 import com.example.userservice.dto.UserDTO;
 import com.example.userservice.exception.UserServiceException;
+import com.example.userservice.format.DataFormat;
 import com.example.userservice.kafka.UserEventProducer;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -12,9 +17,13 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.slf4j.Logger;
 
+import java.io.ByteArrayInputStream;
 import java.util.Date;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
@@ -55,9 +64,10 @@ public class UserServiceKafkaTest {
                 new Date()
         );
 
-        doNothing().when(userServiceImpl).createUser(userDTO);
-        userServiceKafka.createUser(userDTO);
-        verify(userEventProducer).sendUserEvent("CREATE", userDTO.getEmail());
+        UserDTO created = UserDTO.builder().id(10L).email(userDTO.getEmail()).build();
+        doReturn(created).when(userServiceImpl).createUser(userDTO);
+        assertEquals(created, userServiceKafka.createUser(userDTO));
+        verify(userEventProducer).sendUserEvent("CREATE", created);
     }
 
     @Test
@@ -75,8 +85,8 @@ public class UserServiceKafkaTest {
                 new Date()
         );
 
-        doNothing().when(userServiceImpl).createUser(dto);
-        doThrow(new RuntimeException()).when(userEventProducer).sendUserEvent("CREATE", dto.getEmail());
+        doReturn(dto).when(userServiceImpl).createUser(dto);
+        doThrow(new RuntimeException()).when(userEventProducer).sendUserEvent("CREATE", dto);
 
         assertThrows(UserServiceException.class, () -> userServiceKafka.createUser(dto));
     }
@@ -100,11 +110,11 @@ public class UserServiceKafkaTest {
         RequestUserDTO requestUserDTO = new RequestUserDTO(1);
         Optional<UserDTO> userDtoOp = Optional.of(userDTO);
 
-        doReturn(userDtoOp).when(userServiceImpl).getUserById(requestUserDTO);
-        doNothing().when(userServiceImpl).deleteUser(requestUserDTO);
+        doReturn(userDtoOp).when(userServiceImpl).deleteUser(requestUserDTO);
 
-        userServiceKafka.deleteUser(requestUserDTO);
-        verify(userEventProducer).sendUserEvent("DELETE", userDTO.getEmail());
+        assertEquals(userDtoOp, userServiceKafka.deleteUser(requestUserDTO));
+        verify(userEventProducer).sendUserEvent("DELETE", userDTO);
+        verify(userServiceImpl, never()).getUserById(any());
     }
 
     @Test
@@ -114,7 +124,7 @@ public class UserServiceKafkaTest {
         RequestUserDTO requestUserDTO = new RequestUserDTO(1);
         Optional<UserDTO> userDtoOp = Optional.empty();
 
-        doReturn(userDtoOp).when(userServiceImpl).getUserById(requestUserDTO);
+        doReturn(userDtoOp).when(userServiceImpl).deleteUser(requestUserDTO);
 
         userServiceKafka.deleteUser(requestUserDTO);
         verifyNoInteractions(userEventProducer);
@@ -138,11 +148,92 @@ public class UserServiceKafkaTest {
         Optional<UserDTO> userDtoOp = Optional.of(dto);
         RequestUserDTO requestUserDTO = new RequestUserDTO(dto.getId());
 
-        doReturn(userDtoOp).when(userServiceImpl).getUserById(requestUserDTO);
-        doNothing().when(userServiceImpl).deleteUser(requestUserDTO);
-        doThrow(new RuntimeException()).when(userEventProducer).sendUserEvent("DELETE", dto.getEmail());
+        doReturn(userDtoOp).when(userServiceImpl).deleteUser(requestUserDTO);
+        doThrow(new RuntimeException()).when(userEventProducer).sendUserEvent("DELETE", dto);
 
-        assertThrows(UserServiceException.class, () -> userServiceKafka.createUser(dto));
+        assertThrows(UserServiceException.class, () -> userServiceKafka.deleteUser(requestUserDTO));
+    }
+
+
+    @Test
+    @DisplayName("Проверка обновления, событие с новой версией")
+    public void testUpdateUserPublishesVersion() {
+
+        UserDTO dto = UserDTO.builder().id(1L).name("Vasya").email("vasya@petrov.com").build();
+        UserDTO updated = UserDTO.builder().id(1L).name("Vasya").email("vasya@petrov.com").version(4L).build();
+        doReturn(updated).when(userServiceImpl).updateUser(dto, null);
+
+        userServiceKafka.updateUser(dto);
+        verify(userEventProducer).sendUserEvent("UPDATE", updated);
     }
 
+
+    @Test
+    @DisplayName("Проверка импорта, одно пустое событие IMPORT и только если кто-то создан")
+    public void testImportPublishesOneEvent() {
+
+        ByteArrayInputStream in = new ByteArrayInputStream(new byte[0]);
+        ImportReportDTO imported = new ImportReportDTO(3, 2, 1, List.of());
+        ImportReportDTO rejected = new ImportReportDTO(1, 0, 1, List.of());
+        doReturn(imported, rejected).when(userServiceImpl).importUsers(in, DataFormat.CSV);
+
+        assertEquals(imported, userServiceKafka.importUsers(in, DataFormat.CSV));
+        userServiceKafka.importUsers(in, DataFormat.CSV);
+        verify(userEventProducer, times(1)).sendUserBatchEvent("IMPORT", List.of());
+        verify(userEventProducer, never()).sendUserEvent(anyString(), any());
+    }
+
+
+    @Test
+    @DisplayName("Проверка перевода, событие UPDATE на каждого участника")
+    public void testTransferMoneyPublishesBoth() {
+
+        TransferDTO dto = new TransferDTO(1L, 2L, 400L);
+        UserDTO vasya = UserDTO.builder().id(1L).email("vasya@petrov.com").version(2L).build();
+        UserDTO petr = UserDTO.builder().id(2L).email("petr@ivanov.com").version(5L).build();
+        doReturn(List.of(vasya, petr)).when(userServiceImpl).transferMoney(dto);
+
+        assertEquals(List.of(vasya, petr), userServiceKafka.transferMoney(dto));
+        verify(userEventProducer).sendUserEvent("UPDATE", vasya);
+        verify(userEventProducer).sendUserEvent("UPDATE", petr);
+    }
+
+
+    @Test
+    @DisplayName("Проверка массового удаления, одно событие на пачку")
+    public void testDeleteUsersOneEventPerChunk() {
+
+        BulkDeleteDTO dto = BulkDeleteDTO.builder().ids(List.of(1L, 2L, 3L)).build();
+        UserDTO vasya = UserDTO.builder().id(1L).email("vasya@petrov.com").build();
+        UserDTO petr = UserDTO.builder().id(2L).email("petr@ivanov.com").build();
+        UserDTO sam = UserDTO.builder().id(3L).email("sam@moyaer.com").build();
+
+        doAnswer(inv -> {
+            Consumer<List<UserDTO>> listener = inv.getArgument(1);
+            listener.accept(List.of(vasya, petr));
+            listener.accept(List.of(sam));
+            return new BulkResultDTO(3L, 2);
+        }).when(userServiceImpl).deleteUsers(eq(dto), any());
+
+        assertEquals(3L, userServiceKafka.deleteUsers(dto).getAffected());
+        verify(userEventProducer).sendUserBatchEvent("BULK_DELETE", List.of(vasya, petr));
+        verify(userEventProducer).sendUserBatchEvent("BULK_DELETE", List.of(sam));
+    }
+
+    @Test
+    @DisplayName("Проверка массового удаления, исключение в UserEventProducer")
+    public void testDeleteUsersException() {
+
+        BulkDeleteDTO dto = BulkDeleteDTO.builder().ids(List.of(1L)).build();
+        UserDTO vasya = UserDTO.builder().id(1L).email("vasya@petrov.com").build();
+
+        doAnswer(inv -> {
+            Consumer<List<UserDTO>> listener = inv.getArgument(1);
+            listener.accept(List.of(vasya));
+            return new BulkResultDTO(1L, 1);
+        }).when(userServiceImpl).deleteUsers(eq(dto), any());
+        doThrow(new RuntimeException()).when(userEventProducer).sendUserBatchEvent(anyString(), anyList());
+
+        assertThrows(UserServiceException.class, () -> userServiceKafka.deleteUsers(dto));
+    }
 }
@@ -0,0 +1,123 @@
+package com.example.userservice.service;
+
+import com.example.userservice.config.UserServiceProperties;
+import com.example.userservice.dto.UserDTO;
+import com.example.userservice.dto.UserStatsDTO;
+import com.example.userservice.repository.AgeBucketAggregate;
+import com.example.userservice.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+
+/**
+ * Тесты статистики пользователей в памяти
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+public class UserStatisticsTest {
+
+    private UserRepository userRepository;
+    private UserServiceProperties properties;
+    private UserStatistics statistics;
+
+
+    @BeforeEach
+    public void setUp() {
+        userRepository = mock(UserRepository.class);
+        when(userRepository.aggregateByAgeBucket()).thenReturn(List.of(
+                new AgeBucketAggregate(2, 2, 300),
+                new AgeBucketAggregate(4, 1, 100)));
+        properties = new UserServiceProperties();
+        statistics = new UserStatistics(userRepository, properties);
+        statistics.afterPropertiesSet();
+    }
+
+
+    @DisplayName("При старте счетчики берутся из агрегата БД")
+    @Test
+    public void testInitialReconcile() {
+        UserStatsDTO stats = statistics.snapshot();
+
+        assertEquals(3, stats.getUsers());
+        assertEquals(400, stats.getTotalMoney());
+        assertEquals(400.0 / 3, stats.getAverageMoney());
+        assertEquals(2L, stats.getAgeHistogram().get("20-29"));
+        assertEquals(1L, stats.getAgeHistogram().get("40-49"));
+        assertEquals(0L, stats.getAgeHistogram().get("150-159"));
+        assertNotNull(stats.getReconciledAt());
+    }
+
+    @DisplayName("Создание, изменение с состоянием до и удаление меняют счетчики без обращения к БД")
+    @Test
+    public void testEvents() {
+        UserDTO created = UserDTO.builder().id(10L).age(35).money(50).build();
+        UserDTO updated = UserDTO.builder().id(10L).age(41).money(70).build();
+
+        statistics.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.CREATED, List.of(created)));
+        statistics.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.UPDATED, List.of(updated), List.of(created)));
+        UserStatsDTO afterUpdate = statistics.snapshot();
+        statistics.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.DELETED, List.of(updated)));
+        UserStatsDTO afterDelete = statistics.snapshot();
+
+        assertEquals(4, afterUpdate.getUsers());
+        assertEquals(470, afterUpdate.getTotalMoney());
+        assertEquals(0L, afterUpdate.getAgeHistogram().get("30-39"));
+        assertEquals(2L, afterUpdate.getAgeHistogram().get("40-49"));
+        assertEquals(3, afterDelete.getUsers());
+        assertEquals(400, afterDelete.getTotalMoney());
+        verify(userRepository, times(1)).aggregateByAgeBucket();
+    }
+
+    @DisplayName("Изменение без состояния до помечает статистику устаревшей, сверка возвращает значения из БД")
+    @Test
+    public void testStaleReconcile() {
+        statistics.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.CREATED,
+                List.of(UserDTO.builder().age(20).money(1000).build())));
+        statistics.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.UPDATED, List.of(UserDTO.builder().build())));
+
+        statistics.reconcileIfDue();
+        assertEquals(4, statistics.snapshot().getUsers());
+
+        properties.getStats().setReconcileInterval(Duration.ZERO);
+        statistics.reconcileIfDue();
+        assertEquals(3, statistics.snapshot().getUsers());
+        assertEquals(400, statistics.snapshot().getTotalMoney());
+    }
+
+    @DisplayName("Ошибка БД при сверке не ломает счетчики")
+    @Test
+    public void testReconcileFailure() {
+        when(userRepository.aggregateByAgeBucket()).thenThrow(new RuntimeException("db down"));
+
+        statistics.reconcile();
+
+        assertEquals(3, statistics.snapshot().getUsers());
+    }
+
+    @DisplayName("Параллельные изменения не теряются")
+    @Test
+    public void testConcurrentUpdates() throws Exception {
+        UserDTO user = UserDTO.builder().age(25).money(1).build();
+        UserChangedEvent event = new UserChangedEvent(UserChangedEvent.Type.CREATED, List.of(user));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 10_000; i++) executor.execute(() -> statistics.onUserChanged(event));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        UserStatsDTO stats = statistics.snapshot();
+        assertEquals(10_003, stats.getUsers());
+        assertEquals(10_400, stats.getTotalMoney());
+        assertEquals(10_002L, stats.getAgeHistogram().get("20-29"));
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.UserDTO;
+import com.example.userservice.exception.ValidationException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Стоимость проверки формата одного UserDTO: прежние String.matches против посимвольных проверок
+ * и стоимость отказа: исключение со стеком, без стека и результат без исключения
+ * Запускается только явно: mvn test -Denv=test -Dtest=ValidatorBenchmark -Dbenchmark=true
+ * Профайлер gc печатает байты на операцию (gc.alloc.rate.norm)
+ *
+ * @author vmarakushin
+ * @version 1.0
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidatorBenchmark {
+
+    private static final String REGEX_FOR_NAME_SURNAME = "^[a-zA-Zа-яА-ЯёЁ\\-\\s]+$";
+    private static final String REGEX_FOR_PHONE = "^\\+\\d{11}$";
+    private static final String REGEX_FOR_EMAIL = "^[a-zA-Z0-9._%+-]{3,}@[a-zA-Z0-9.-]{3,}\\.[a-zA-Z]{2,}$";
+
+    private Validator validator;
+    private UserDTO dto;
+    private UserDTO invalid;
+
+
+    @Setup
+    public void setUp() {
+        validator = new Validator();
+        dto = new UserDTO(0L, "Василий", "Иванов-Петров", 32, "+79991112233",
+                "vasiliy.ivanov@example.com", 386L, new Date());
+        invalid = new UserDTO(0L, "Vas1ly", "Иванов-Петров", 200, "89991112233",
+                "vasiliy.ivanov@example.com", 386L, new Date());
+    }
+
+    /**
+     * Прежняя проверка: каждое matches компилирует выражение, возраст проходит через строку
+     */
+    @Benchmark
+    public boolean regex() {
+        return dto.getName().matches(REGEX_FOR_NAME_SURNAME)
+                && dto.getSurname().matches(REGEX_FOR_NAME_SURNAME)
+                && validator.age(Integer.parseInt(String.valueOf(dto.getAge()))) > 0
+                && dto.getPhone().matches(REGEX_FOR_PHONE)
+                && dto.getEmail().matches(REGEX_FOR_EMAIL);
+    }
+
+    @Benchmark
+    public UserDTO scanner() {
+        validator.formatValidation(dto, Validator.Scope.CREATE);
+        return dto;
+    }
+
+
+    /**
+     * Некорректные данные, как раньше: исключение со стеком на каждую ошибку
+     */
+    @Benchmark
+    public String invalidWithStackTrace() {
+        ValidationResult result = validator.validate(invalid, Validator.Scope.CREATE);
+        try {
+            throw new IllegalArgumentException(result.firstMessage());
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+
+    @Benchmark
+    public String invalidStackless() {
+        ValidationResult result = validator.validate(invalid, Validator.Scope.CREATE);
+        try {
+            throw new ValidationException(result);
+        } catch (ValidationException e) {
+            return e.getMessage();
+        }
+    }
+
+    @Benchmark
+    public ValidationResult invalidResult() {
+        return validator.validate(invalid, Validator.Scope.CREATE);
+    }
+
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    public void run() throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ValidatorBenchmark.class.getName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
@@ -1,23 +1,26 @@
 package com.example.userservice.service;
 
 import com.example.userservice.dto.UserDTO;
-import com.example.userservice.repository.UserRepository;
+import com.example.userservice.exception.ValidationException;
+import com.example.userservice.repository.UserField;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.InjectMocks;
-import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.context.ActiveProfiles;
 
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.doNothing;
-import static org.mockito.Mockito.doReturn;
 
 /**
  * Тесты для валидатора
@@ -27,9 +30,6 @@ import static org.mockito.Mockito.doReturn;
 @ExtendWith(MockitoExtension.class)
 public class ValidatorTest {
 
-    @Mock
-    UserRepository userRepository;
-
     @InjectMocks
     Validator validator;
 
@@ -193,7 +193,7 @@ public class ValidatorTest {
         assertThrows(IllegalArgumentException.class, () -> validator.validIdCreate(input,validator::id));
     }
 
-    @DisplayName("Полная валидация ид !=0")
+    @DisplayName("Валидация формата ид !=0")
     @ParameterizedTest
     @ValueSource(longs = {1, 123, -121})
     public void createUserNot0Id(long input){
@@ -206,10 +206,10 @@ public class ValidatorTest {
                 "vasiliy@pupkin.com",
                 0,
                 new Date());
-        assertThrows(IllegalArgumentException.class,() -> validator.fullValidation(dto, Validator.Scope.CREATE));
+        assertThrows(IllegalArgumentException.class,() -> validator.formatValidation(dto, Validator.Scope.CREATE));
     }
 
-    @DisplayName("Полная валидация ид =0")
+    @DisplayName("Валидация формата ид =0")
     @Test
     public void createUser0Id(){
         UserDTO dto = new UserDTO(
@@ -222,17 +222,15 @@ public class ValidatorTest {
                 0,
                 new Date());
 
-        doReturn(false).when(userRepository).existsByEmailAndIdNot(dto.getEmail(), dto.getId());
-        doReturn(false).when(userRepository).existsByPhoneAndIdNot(dto.getPhone(), dto.getId());
-
-        assertDoesNotThrow(() -> validator.fullValidation(dto, Validator.Scope.CREATE));
+        assertDoesNotThrow(() -> validator.formatValidation(dto, Validator.Scope.CREATE));
     }
 
-    @DisplayName("Полная валидация при неуникальном email")
-    @Test
-    public void createUserNotUniqueEmail(){
+    @DisplayName("Валидация формата обновление ид некорректен")
+    @ParameterizedTest
+    @ValueSource(longs = {0, -32111, -121})
+    public void updateUserNotCorrectID(long input){
         UserDTO dto = new UserDTO(
-                0,
+                input,
                 "Василий",
                 "Пупкин",
                 32,
@@ -240,44 +238,102 @@ public class ValidatorTest {
                 "vasiliy@pupkin.com",
                 0,
                 new Date());
+        assertThrows(IllegalArgumentException.class,() -> validator.formatValidation(dto, Validator.Scope.UPDATE));
+    }
 
-        doReturn(true).when(userRepository).existsByEmailAndIdNot(dto.getEmail(), dto.getId());
-        assertThrows(IllegalArgumentException.class,() -> validator.fullValidation(dto, Validator.Scope.CREATE));
+    @DisplayName("Пакетная валидация формата: ошибка по каждому элементу без исключений")
+    @Test
+    public void formatErrorsSmallBatch() {
+        UserDTO valid = new UserDTO(0, "Василий", "Пупкин", 32, "+79992221122", "vasiliy@pupkin.com", 0, new Date());
+        UserDTO badEmail = new UserDTO(0, "Василий", "Пупкин", 32, "+79992221122", "vasiliy", 0, new Date());
+        UserDTO withId = new UserDTO(5, "Василий", "Пупкин", 32, "+79992221122", "vasiliy@pupkin.com", 0, new Date());
+
+        List<String> errors = validator.formatErrors(Arrays.asList(valid, badEmail, null, withId), Validator.Scope.CREATE);
+
+        assertEquals(4, errors.size());
+        assertNull(errors.get(0));
+        assertTrue(errors.get(1).startsWith("Email"));
+        assertNotNull(errors.get(2));
+        assertEquals("Id должен быть равен 0", errors.get(3));
     }
 
-    @DisplayName("Полная валидация ид =0")
+    @DisplayName("Пакетная валидация формата: большая пачка проверяется параллельно, порядок сохраняется")
     @Test
-    public void createUserNotUniquePhone(){
-        UserDTO dto = new UserDTO(
-                0,
-                "Василий",
-                "Пупкин",
-                32,
-                "+79992221122",
-                "vasiliy@pupkin.com",
-                0,
-                new Date());
+    public void formatErrorsLargeBatch() {
+        List<UserDTO> users = new ArrayList<>();
+        for (int i = 0; i < 5000; i++)
+            users.add(new UserDTO(0, "Василий", "Пупкин", i % 7 == 0 ? 0 : 32, "+7999" + (1000000 + i), "vasiliy" + i + "@pupkin.com", 0, new Date()));
 
-        doReturn(false).when(userRepository).existsByEmailAndIdNot(dto.getEmail(), dto.getId());
-        doReturn(true).when(userRepository).existsByPhoneAndIdNot(dto.getPhone(), dto.getId());
+        List<String> errors = validator.formatErrors(users, Validator.Scope.CREATE);
 
-        assertThrows(IllegalArgumentException.class,() -> validator.fullValidation(dto, Validator.Scope.CREATE));
+        for (int i = 0; i < users.size(); i++)
+            assertEquals(i % 7 == 0 ? "Возраст от 1 до 150" : null, errors.get(i), "Пользователь " + i);
     }
 
-    @DisplayName("Полная валидация обновление ид некорректен")
-    @ParameterizedTest
-    @ValueSource(longs = {0, -32111, -121})
-    public void updateUserNotCorrectID(long input){
-        UserDTO dto = new UserDTO(
-                input,
-                "Василий",
-                "Пупкин",
-                32,
-                "+79992221122",
-                "vasiliy@pupkin.com",
-                0,
-                new Date());
-        assertThrows(IllegalArgumentException.class,() -> validator.fullValidation(dto, Validator.Scope.UPDATE));
+    @DisplayName("Валидация без исключений собирает ошибки всех полей")
+    @Test
+    public void validateCollectsAllErrors() {
+        UserDTO dto = new UserDTO(3, "Вас1лий", "Пупкин", 0, "89992221122", "vasiliy@pupkin.com", 0, new Date());
+
+        ValidationResult result = validator.validate(dto, Validator.Scope.CREATE);
+
+        assertFalse(result.isValid());
+        assertEquals(List.of("id", "name", "age", "phone"),
+                result.getErrors().stream().map(ValidationResult.FieldError::field).toList());
+        assertEquals("Id должен быть равен 0", result.firstMessage());
+    }
+
+    @DisplayName("Валидация без исключений: пустые поля - ошибки, а не NullPointerException")
+    @Test
+    public void validateNullFields() {
+        ValidationResult result = validator.validate(new UserDTO(), Validator.Scope.CREATE);
+
+        assertEquals(List.of("name", "surname", "age", "phone", "email"),
+                result.getErrors().stream().map(ValidationResult.FieldError::field).toList());
+        assertTrue(validator.validate(null, Validator.Scope.UPDATE).getErrors().size() == 1);
     }
 
-}
\ No newline at end of file
+    @DisplayName("Исключение валидации несет все ошибки и не заполняет стек")
+    @Test
+    public void formatValidationStackless() {
+        UserDTO dto = new UserDTO(0, "Василий", "Пупкин", 200, "+79992221122", "vasiliy", 0, new Date());
+
+        ValidationException e = assertThrows(ValidationException.class, () -> validator.formatValidation(dto, Validator.Scope.CREATE));
+
+        assertEquals("Возраст от 1 до 150", e.getMessage());
+        assertEquals(2, e.getResult().getErrors().size());
+        assertEquals(0, e.getStackTrace().length);
+        assertEquals(0, assertThrows(ValidationException.class, () -> validator.age(0)).getStackTrace().length);
+    }
+
+    @DisplayName("Валидация merge patch: проверяются только переданные поля, значения приводятся к колонкам")
+    @Test
+    public void patchValidationValid() {
+        Map<String, Object> patch = new LinkedHashMap<>();
+        patch.put("age", 30);
+        patch.put("name", "Василий");
+
+        Map<UserField, Object> values = validator.patchValidation(patch);
+
+        assertEquals(List.of(UserField.NAME, UserField.AGE), List.copyOf(values.keySet()));
+        assertEquals(30, values.get(UserField.AGE));
+    }
+
+    @DisplayName("Валидация merge patch собирает все ошибки: неизвестные, неизменяемые (и баланс), удаляемые и неверные поля")
+    @Test
+    public void patchValidationErrors() {
+        Map<String, Object> patch = new LinkedHashMap<>();
+        patch.put("login", "vasya");
+        patch.put("version", 3);
+        patch.put("money", -100);
+        patch.put("surname", null);
+        patch.put("age", "30");
+        patch.put("email", "vasiliy@pupkin.com");
+
+        ValidationException e = assertThrows(ValidationException.class, () -> validator.patchValidation(patch));
+
+        assertEquals(List.of("login", "version", "money", "surname", "age"),
+                e.getResult().getErrors().stream().map(ValidationResult.FieldError::field).toList());
+        assertThrows(ValidationException.class, () -> validator.patchValidation(Map.of()));
+    }
+}